@@ -0,0 +1,326 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class StartupOrchestrator. Runs the startup phases of tmm: every phase declares the phases it depends on; all phases whose dependencies are
+ * finished run concurrently in a small thread pool. Phases which need the EDT (building the UI) are executed there - all other work stays off the
+ * EDT.<br>
+ * After all phases are finished, a table with the wall and CPU time of every phase is logged to track startup regressions.
+ *
+ * @author Manuel Laggner
+ */
+class StartupOrchestrator {
+  private static final Logger      LOGGER = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+  private final Map<String, Phase> phases = new LinkedHashMap<>();
+  private final PhaseListener      listener;
+
+  /**
+   * create a new orchestrator
+   *
+   * @param listener
+   *          gets informed when a phase starts/has been finished (may be null)
+   */
+  StartupOrchestrator(PhaseListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * add a new phase which runs in a background thread
+   *
+   * @param name
+   *          the name of the phase
+   * @param task
+   *          the work to do
+   * @param dependsOn
+   *          the names of the phases which have to be finished before this phase can start
+   * @return this orchestrator
+   */
+  StartupOrchestrator addPhase(String name, PhaseTask task, String... dependsOn) {
+    return addPhase(name, false, task, dependsOn);
+  }
+
+  /**
+   * add a new phase which runs in the EDT
+   *
+   * @param name
+   *          the name of the phase
+   * @param task
+   *          the work to do
+   * @param dependsOn
+   *          the names of the phases which have to be finished before this phase can start
+   * @return this orchestrator
+   */
+  StartupOrchestrator addEdtPhase(String name, PhaseTask task, String... dependsOn) {
+    return addPhase(name, true, task, dependsOn);
+  }
+
+  private StartupOrchestrator addPhase(String name, boolean edt, PhaseTask task, String... dependsOn) {
+    if (phases.containsKey(name)) {
+      throw new IllegalArgumentException("phase " + name + " already defined");
+    }
+    for (String dependency : dependsOn) {
+      // only already declared phases can be referenced -> no cycles possible
+      if (!phases.containsKey(dependency)) {
+        throw new IllegalArgumentException("phase " + name + " depends on unknown phase " + dependency);
+      }
+    }
+    phases.put(name, new Phase(name, edt, task, dependsOn));
+    return this;
+  }
+
+  /**
+   * get the amount of declared phases
+   *
+   * @return the amount of phases
+   */
+  int getPhaseCount() {
+    return phases.size();
+  }
+
+  /**
+   * run all phases and wait until they are finished. If a phase fails, all phases depending on it are skipped and the first exception is thrown
+   *
+   * @throws Exception
+   *           the exception of the first failing phase
+   */
+  void run() throws Exception {
+    final AtomicInteger threadCounter = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Math.min(phases.size(), Runtime.getRuntime().availableProcessors())),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "startup-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+
+    final long start = System.nanoTime();
+    final AtomicReference<Throwable> firstError = new AtomicReference<>();
+    try {
+      // the phases are submitted in declaration order and the pool is FIFO: the dependencies of a waiting phase are always already running
+      List<Future<?>> futures = new ArrayList<>();
+      for (final Phase phase : phases.values()) {
+        final List<Phase> dependencies = new ArrayList<>();
+        for (String dependency : phase.dependsOn) {
+          dependencies.add(phases.get(dependency));
+        }
+
+        futures.add(executor.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              for (Phase dependency : dependencies) {
+                dependency.finished.await();
+                if (!dependency.successful) {
+                  // skip this phase
+                  return;
+                }
+              }
+              phase.execute(start, listener);
+            }
+            catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              firstError.compareAndSet(null, e);
+            }
+            catch (RuntimeException | Error e) {
+              firstError.compareAndSet(null, e);
+            }
+            finally {
+              phase.finished.countDown();
+            }
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          firstError.compareAndSet(null, e.getCause());
+        }
+      }
+      if (firstError.get() != null) {
+        throw unwrap(firstError.get());
+      }
+    }
+    finally {
+      executor.shutdown();
+      logTimings(System.nanoTime() - start);
+    }
+  }
+
+  private static Exception unwrap(Throwable e) {
+    Throwable cause = e;
+    while ((cause instanceof ExecutionException || cause instanceof PhaseException
+        || cause instanceof InvocationTargetException) && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof Exception) {
+      return (Exception) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new Exception(cause);
+  }
+
+  private void logTimings(long totalTime) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("startup timings (total ").append(totalTime / 1000000).append(" ms)\n");
+    sb.append(String.format(Locale.ROOT, "%-20s %10s %10s %10s  %-12s %s%n", "phase", "start[ms]", "wall[ms]", "cpu[ms]", "thread", "state"));
+    for (Phase phase : phases.values()) {
+      sb.append(String.format(Locale.ROOT, "%-20s %10s %10s %10s  %-12s %s%n", phase.name, format(phase.startOffset), format(phase.wallTime),
+          format(phase.cpuTime), phase.threadName == null ? "-" : phase.threadName, phase.state));
+    }
+    LOGGER.info(sb.toString().trim());
+  }
+
+  private static String format(long nanos) {
+    if (nanos < 0) {
+      return "-";
+    }
+    return String.valueOf(nanos / 1000000);
+  }
+
+  /**
+   * the work of a phase
+   */
+  interface PhaseTask {
+    void run() throws Exception;
+  }
+
+  /**
+   * gets informed about the progress of the startup
+   */
+  interface PhaseListener {
+    void phaseStarted(String name);
+
+    void phaseFinished(String name);
+  }
+
+  private static class PhaseException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    PhaseException(Throwable cause) {
+      super(cause);
+    }
+  }
+
+  private static class Phase {
+    private final String    name;
+    private final boolean   edt;
+    private final PhaseTask task;
+    private final String[]  dependsOn;
+
+    private final CountDownLatch finished    = new CountDownLatch(1);
+    private volatile boolean     successful  = false;
+    private volatile String      state       = "skipped";
+    private volatile String      threadName  = null;
+    private volatile long        startOffset = -1;
+    private volatile long        wallTime    = -1;
+    private volatile long        cpuTime     = -1;
+
+    private Phase(String name, boolean edt, PhaseTask task, String[] dependsOn) {
+      this.name = name;
+      this.edt = edt;
+      this.task = task;
+      this.dependsOn = dependsOn;
+    }
+
+    private void execute(long orchestratorStart, PhaseListener listener) {
+      long phaseStart = System.nanoTime();
+      startOffset = phaseStart - orchestratorStart;
+      state = "failed";
+      if (listener != null) {
+        listener.phaseStarted(name);
+      }
+
+      try {
+        if (edt) {
+          SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+              measure();
+            }
+          });
+        }
+        else {
+          measure();
+        }
+      }
+      catch (PhaseException e) {
+        throw e;
+      }
+      catch (Exception e) {
+        throw new PhaseException(e);
+      }
+      finally {
+        wallTime = System.nanoTime() - phaseStart;
+      }
+
+      state = "ok";
+      successful = true;
+      if (listener != null) {
+        listener.phaseFinished(name);
+      }
+    }
+
+    private void measure() {
+      ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+      boolean cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+      long cpuStart = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : -1;
+      threadName = Thread.currentThread().getName();
+
+      try {
+        task.run();
+      }
+      catch (Exception e) {
+        throw new PhaseException(e);
+      }
+      finally {
+        if (cpuTimeSupported) {
+          cpuTime = threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+        }
+      }
+    }
+  }
+}
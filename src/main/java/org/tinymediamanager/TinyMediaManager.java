@@ -43,6 +43,7 @@ import java.util.Properties;
 import java.util.ResourceBundle;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 import org.apache.commons.lang3.StringUtils;
@@ -202,10 +203,13 @@ public class TinyMediaManager {
     LOGGER.info("Scraper language : " + MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage());
     LOGGER.info("TV Scraper lang  : " + TvShowModuleManager.SETTINGS.getScraperLanguage());
 
-    // start EDT
-    EventQueue.invokeLater(new Runnable() {
+    // start tmm; the EDT is only used for UI tasks - all other startup work is done in parallel in the startup orchestrator
+    new Runnable() {
+      private Graphics2D   g2;
+      private SplashScreen splash;
+
       public void run() {
-        boolean newVersion = !Globals.settings.isCurrentVersion(); // same snapshots/git considered as "new", for upgrades
+        final boolean newVersion = !Globals.settings.isCurrentVersion(); // same snapshots/git considered as "new", for upgrades
         try {
           Thread.setDefaultUncaughtExceptionHandler(new Log4jBackstop());
           if (!GraphicsEnvironment.isHeadless()) {
@@ -218,7 +222,17 @@ public class TinyMediaManager {
           Toolkit tk = Toolkit.getDefaultToolkit();
           tk.addAWTEventListener(TmmWindowSaver.getInstance(), AWTEvent.WINDOW_EVENT_MASK);
           if (!GraphicsEnvironment.isHeadless()) {
-            setLookAndFeel();
+            SwingUtilities.invokeAndWait(new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  setLookAndFeel();
+                }
+                catch (Exception e) {
+                  throw new IllegalStateException(e);
+                }
+              }
+            });
           }
           doStartupTasks();
 
@@ -230,11 +244,9 @@ public class TinyMediaManager {
 
           LOGGER.info("=====================================================");
           // init splash
-          SplashScreen splash = null;
           if (!GraphicsEnvironment.isHeadless()) {
             splash = SplashScreen.getSplashScreen();
           }
-          Graphics2D g2 = null;
           if (splash != null) {
             g2 = splash.createGraphics();
             if (g2 != null) {
@@ -249,124 +261,155 @@ public class TinyMediaManager {
             LOGGER.debug("no splash found");
           }
 
-          if (g2 != null) {
-            updateProgress(g2, "starting tinyMediaManager", 0);
-            splash.update();
-          }
+          updateProgress("starting tinyMediaManager", 0);
           LOGGER.info("starting tinyMediaManager");
 
-          // upgrade check
-          String oldVersion = Globals.settings.getVersion();
-          if (newVersion) {
-            if (g2 != null) {
-              updateProgress(g2, "upgrading to new version", 10);
-              splash.update();
-            }
-            UpgradeTasks.performUpgradeTasksBeforeDatabaseLoading(oldVersion); // do the upgrade tasks for the old version
-            Globals.settings.setCurrentVersion();
-            Globals.settings.saveSettings();
-          }
-
-          // proxy settings
-          if (Globals.settings.useProxy()) {
-            LOGGER.info("setting proxy");
-            Globals.settings.setProxy();
-          }
+          final String oldVersion = Globals.settings.getVersion();
+          final MainWindow[] window = new MainWindow[1];
 
-          // MediaInfo /////////////////////////////////////////////////////
-          if (g2 != null) {
-            updateProgress(g2, "loading MediaInfo libs", 20);
-            splash.update();
-          }
-          MediaInfoUtils.loadMediaInfo();
+          // declare all startup phases and their dependencies
+          final StartupOrchestrator orchestrator = new StartupOrchestrator(new StartupOrchestrator.PhaseListener() {
+            private int finishedPhases = 0;
 
-          // load modules //////////////////////////////////////////////////
-          if (g2 != null) {
-            updateProgress(g2, "loading movie module", 30);
-            splash.update();
-          }
-          TmmModuleManager.getInstance().startUp();
-          TmmModuleManager.getInstance().registerModule(MovieModuleManager.getInstance());
-          TmmModuleManager.getInstance().enableModule(MovieModuleManager.getInstance());
+            @Override
+            public synchronized void phaseStarted(String name) {
+              updateProgress("loading " + name, 90 * finishedPhases / orchestrator.getPhaseCount());
+            }
 
-          if (g2 != null) {
-            updateProgress(g2, "loading TV show module", 40);
-            splash.update();
-          }
-          TmmModuleManager.getInstance().registerModule(TvShowModuleManager.getInstance());
-          TmmModuleManager.getInstance().enableModule(TvShowModuleManager.getInstance());
+            @Override
+            public synchronized void phaseFinished(String name) {
+              finishedPhases++;
+            }
+          });
+
+          orchestrator.addPhase("settings", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              // upgrade check
+              if (newVersion) {
+                UpgradeTasks.performUpgradeTasksBeforeDatabaseLoading(oldVersion); // do the upgrade tasks for the old version
+                Globals.settings.setCurrentVersion();
+                Globals.settings.saveSettings();
+              }
 
-          if (g2 != null) {
-            updateProgress(g2, "loading plugins", 50);
-            splash.update();
-          }
-          // just instantiate static - will block (takes a few secs)
-          PluginManager.getInstance();
-          if (ReleaseInfo.isGitBuild()) {
-            PluginManager.loadClasspathPlugins();
-          }
+              // proxy settings
+              if (Globals.settings.useProxy()) {
+                LOGGER.info("setting proxy");
+                Globals.settings.setProxy();
+              }
+            }
+          });
 
-          if (g2 != null) {
-            updateProgress(g2, "starting services", 60);
-            splash.update();
-          }
-          Upnp u = Upnp.getInstance();
-          if (Globals.settings.isUpnpShareLibrary()) {
-            u.createUpnpService();
-            u.startWebServer();
-            u.startMediaServer();
-          }
-          if (Globals.settings.isUpnpRemotePlay()) {
-            u.createUpnpService();
-            u.sendPlayerSearchRequest();
-          }
+          orchestrator.addPhase("MediaInfo", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              MediaInfoUtils.loadMediaInfo();
+            }
+          });
+
+          orchestrator.addPhase("modules", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              TmmModuleManager.getInstance().startUp();
+              TmmModuleManager.getInstance().registerModule(MovieModuleManager.getInstance());
+              TmmModuleManager.getInstance().registerModule(TvShowModuleManager.getInstance());
+            }
+          }, "settings");
 
-          // do upgrade tasks after database loading
-          if (newVersion) {
-            if (g2 != null) {
-              updateProgress(g2, "upgrading database to new version", 70);
-              splash.update();
+          // both modules use their own database - they can be loaded in parallel
+          orchestrator.addPhase("movies", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              TmmModuleManager.getInstance().enableModule(MovieModuleManager.getInstance());
             }
-            UpgradeTasks.performUpgradeTasksAfterDatabaseLoading(oldVersion);
-          }
+          }, "modules");
 
-          // launch application ////////////////////////////////////////////
-          if (g2 != null) {
-            updateProgress(g2, "loading ui", 80);
-            splash.update();
-          }
-          if (!GraphicsEnvironment.isHeadless()) {
-            MainWindow window = new MainWindow("tinyMediaManager / " + ReleaseInfo.getRealVersion());
+          orchestrator.addPhase("TV shows", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              TmmModuleManager.getInstance().enableModule(TvShowModuleManager.getInstance());
+            }
+          }, "modules");
+
+          orchestrator.addPhase("plugins", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              // just instantiate static - will block (takes a few secs)
+              PluginManager.getInstance();
+              if (ReleaseInfo.isGitBuild()) {
+                PluginManager.loadClasspathPlugins();
+              }
+            }
+          }, "settings");
+
+          orchestrator.addPhase("services", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              Upnp u = Upnp.getInstance();
+              if (Globals.settings.isUpnpShareLibrary()) {
+                u.createUpnpService();
+                u.startWebServer();
+                u.startMediaServer();
+              }
+              if (Globals.settings.isUpnpRemotePlay()) {
+                u.createUpnpService();
+                u.sendPlayerSearchRequest();
+              }
+            }
+          }, "movies", "TV shows");
 
-            // finished ////////////////////////////////////////////////////
-            if (g2 != null) {
-              updateProgress(g2, "finished starting :)", 100);
-              splash.update();
+          // do upgrade tasks after database loading
+          orchestrator.addPhase("database upgrade", new StartupOrchestrator.PhaseTask() {
+            @Override
+            public void run() throws Exception {
+              if (newVersion) {
+                UpgradeTasks.performUpgradeTasksAfterDatabaseLoading(oldVersion);
+              }
             }
+          }, "movies", "TV shows", "plugins");
 
-            TmmWindowSaver.getInstance().loadSettings(window);
-            window.setVisible(true);
+          // launch application - the only phase which needs the EDT
+          if (!GraphicsEnvironment.isHeadless()) {
+            orchestrator.addEdtPhase("ui", new StartupOrchestrator.PhaseTask() {
+              @Override
+              public void run() throws Exception {
+                window[0] = new MainWindow("tinyMediaManager / " + ReleaseInfo.getRealVersion());
+              }
+            }, "MediaInfo", "services", "database upgrade");
+          }
 
-            // wizard for new user
-            if (Globals.settings.newConfig) {
-              Globals.settings.writeDefaultSettings(); // now all plugins are resolved - write again defaults!
-              TinyMediaManagerWizard wizard = new TinyMediaManagerWizard();
-              wizard.setVisible(true);
-            }
+          orchestrator.run();
 
-            TmmTaskManager.getInstance().addUnnamedTask(new PreloadTask());
-            // show changelog
-            if (newVersion && !ReleaseInfo.getVersion().equals(oldVersion)) {
-              // special case nightly/git: if same snapshot version, do not display changelog
-              showChangelog();
-            }
+          if (!GraphicsEnvironment.isHeadless()) {
+            SwingUtilities.invokeAndWait(new Runnable() {
+              @Override
+              public void run() {
+                // finished ////////////////////////////////////////////////////
+                updateProgress("finished starting :)", 100);
+
+                TmmWindowSaver.getInstance().loadSettings(window[0]);
+                window[0].setVisible(true);
+
+                // wizard for new user
+                if (Globals.settings.newConfig) {
+                  Globals.settings.writeDefaultSettings(); // now all plugins are resolved - write again defaults!
+                  TinyMediaManagerWizard wizard = new TinyMediaManagerWizard();
+                  wizard.setVisible(true);
+                }
+
+                TmmTaskManager.getInstance().addUnnamedTask(new PreloadTask());
+                // show changelog
+                if (newVersion && !ReleaseInfo.getVersion().equals(oldVersion)) {
+                  // special case nightly/git: if same snapshot version, do not display changelog
+                  showChangelog();
+                }
+              }
+            });
           }
           else {
             TinyMediaManagerCMD.startCommandLineTasks();
-            // wait for other tmm threads (artwork download et all)
-            while (TmmTaskManager.getInstance().poolRunning()) {
-              Thread.sleep(2000);
-            }
+            // wait for other tmm tasks (artwork download et all)
+            TmmTaskManager.getInstance().awaitAllTasksFinished();
 
             LOGGER.info("bye bye");
             // MainWindows.shutdown()
@@ -374,7 +417,7 @@ public class TinyMediaManager {
               // send shutdown signal
               TmmTaskManager.getInstance().shutdown();
               // save unsaved settings
-              Globals.settings.saveSettings();
+              Globals.settings.flushSettings();
               // hard kill
               TmmTaskManager.getInstance().shutdownNow();
               // close database connection
@@ -419,8 +462,15 @@ public class TinyMediaManager {
        * 
        * @param text
        *          the text
+       * @param progress
+       *          the progress in percent
        */
-      private void updateProgress(Graphics2D g2, String text, int progress) {
+      private synchronized void updateProgress(String text, int progress) {
+        if (g2 == null) {
+          LOGGER.debug("Startup (" + progress + "%) " + text);
+          return;
+        }
+
         Object oldAAValue = g2.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
         g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_LCD_HRGB);
@@ -436,6 +486,7 @@ public class TinyMediaManager {
         int l = g2.getFontMetrics().stringWidth(ReleaseInfo.getRealVersion()); // bound right
         g2.drawString(ReleaseInfo.getRealVersion(), 480 - l, 325);
         g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, oldAAValue);
+        splash.update();
         LOGGER.debug("Startup (" + progress + "%) " + text);
       }
 
@@ -539,7 +590,7 @@ public class TinyMediaManager {
           LOGGER.warn(e.getMessage());
         }
       }
-    });
+    }.run();
   }
 
   public static void shutdownLogger() {
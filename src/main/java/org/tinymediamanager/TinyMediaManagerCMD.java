@@ -38,8 +38,10 @@ import org.tinymediamanager.core.movie.MovieComparator;
 import org.tinymediamanager.core.movie.MovieExporter;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
+import org.tinymediamanager.core.movie.MovieRenamePlanner;
 import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
 import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.tasks.MovieBatchPipeline;
 import org.tinymediamanager.core.movie.tasks.MovieRenameTask;
 import org.tinymediamanager.core.movie.tasks.MovieScrapeTask;
 import org.tinymediamanager.core.movie.tasks.MovieUpdateDatasourceTask2;
@@ -74,6 +76,7 @@ public class TinyMediaManagerCMD {
   private static boolean          dryRun          = false;
   private static boolean          checkFiles      = false;
   private static boolean          export          = false;
+  private static boolean          pipeline        = false;
 
   // datasource IDs
   private static HashSet<Integer> updateMovieDs   = new HashSet<>();
@@ -127,6 +130,9 @@ public class TinyMediaManagerCMD {
           System.exit(0);
         }
       }
+      else if (cmd.equalsIgnoreCase("-pipeline")) {
+        pipeline = true;
+      }
       else if (cmd.equalsIgnoreCase("-checkFiles")) {
         checkFiles = true;
       }
@@ -220,6 +226,7 @@ public class TinyMediaManagerCMD {
         "    -config file.xml      specify an alternative configuration xml file in the data folder\n" +
         "    -export template dir  exports your complete movie/tv library with specified template to dir\n" +
         "    -checkFiles           does a physical check, if all files in DB are existent on filesystem (might take long!)\n" +
+        "    -pipeline             movies: scrape/rename every movie as soon as it has been found instead of one step after another\n" +
         "\n" +
         "\n" +
         "EXAMPLES:\n" +
@@ -232,6 +239,63 @@ public class TinyMediaManagerCMD {
     // @formatter:on
   }
 
+  /**
+   * wait until all tasks which have been started in the background (artwork download et all) are finished
+   */
+  private static void waitForBackgroundTasks() throws Exception {
+    TmmTaskManager.getInstance().awaitAllTasksFinished();
+  }
+
+  /**
+   * update, scrape and rename the movies in a pipeline: every movie is scraped as soon as it has been found by the update
+   */
+  private static void runMoviePipeline() throws Exception {
+    MovieSearchAndScrapeOptions options = new MovieSearchAndScrapeOptions();
+    options.loadDefaults();
+    final MovieBatchPipeline moviePipeline = new MovieBatchPipeline(options, rename, dryRun);
+
+    if (updateMovies) {
+      LOGGER.info("Commandline - updating and scraping movies in a pipeline...");
+      List<MovieUpdateDatasourceTask2> tasks = new ArrayList<>();
+      if (updateMovieDs.isEmpty()) {
+        tasks.add(new MovieUpdateDatasourceTask2());
+      }
+      else {
+        List<String> dataSources = new ArrayList<>(MovieModuleManager.MOVIE_SETTINGS.getMovieDataSource());
+        for (Integer i : updateMovieDs) {
+          if (dataSources.size() >= i - 1) {
+            tasks.add(new MovieUpdateDatasourceTask2(dataSources.get(i - 1)));
+          }
+        }
+      }
+      for (MovieUpdateDatasourceTask2 task : tasks) {
+        task.setNewMovieListener(new MovieUpdateDatasourceTask2.NewMovieListener() {
+          @Override
+          public void newMovieFound(Movie movie) {
+            moviePipeline.submit(movie);
+          }
+        });
+        task.run(); // blocking
+      }
+      LOGGER.info("Found " + MovieList.getInstance().getNewMovies().size() + " new movies");
+    }
+    // feed the remaining movies
+    if (scrapeAll) {
+      for (Movie movie : MovieList.getInstance().getMovies()) {
+        moviePipeline.submit(movie);
+      }
+    }
+    else if (scrapeUnscraped) {
+      for (Movie movie : MovieList.getInstance().getUnscrapedMovies()) {
+        moviePipeline.submit(movie);
+      }
+    }
+
+    moviePipeline.finish();
+    // wait for other tmm tasks (trailer download et all)
+    waitForBackgroundTasks();
+  }
+
   /**
    * executes all the command line tasks, one after another
    */
@@ -266,10 +330,18 @@ public class TinyMediaManagerCMD {
       // ╚═╝     ╚═╝ ╚═════╝   ╚═══╝  ╚═╝╚══════╝╚══════╝
       // @formatter:on
 
+      // *****************
+      // PIPELINE (update -> scrape -> artwork -> NFO -> rename per movie)
+      // *****************
+      boolean moviesPipelined = pipeline && (scrapeNew || scrapeUnscraped || scrapeAll);
+      if (moviesPipelined) {
+        runMoviePipeline();
+      }
+
       // *****************
       // UPDATE
       // *****************
-      if (updateMovies) {
+      if (updateMovies && !moviesPipelined) {
         LOGGER.info("Commandline - updating movies...");
         if (updateMovieDs.isEmpty()) {
           task = new MovieUpdateDatasourceTask2();
@@ -291,7 +363,10 @@ public class TinyMediaManagerCMD {
       // SCRAPE
       // *****************
       List<Movie> moviesToScrape = new ArrayList<>();
-      if (scrapeAll) {
+      if (moviesPipelined) {
+        // already done in the pipeline
+      }
+      else if (scrapeAll) {
         LOGGER.info("Commandline - scraping ALL movies...");
         if (MovieList.getInstance().getMovieCount() > 0) {
           moviesToScrape = MovieList.getInstance().getMovies();
@@ -325,24 +400,26 @@ public class TinyMediaManagerCMD {
           }
         }
         else {
-          task = new MovieScrapeTask(moviesToScrape, true, options);
+          MovieScrapeTask scrapeTask = new MovieScrapeTask(moviesToScrape, true, options);
+          // unattended scraping: responses of former runs can be reused
+          scrapeTask.setDiskCache(true);
+          task = scrapeTask;
           task.run(); // blocking
-          // wait for other tmm threads (artwork download et all)
-          while (TmmTaskManager.getInstance().poolRunning()) {
-            Thread.sleep(2000);
-          }
+          // wait for other tmm tasks (artwork download et all)
+          waitForBackgroundTasks();
         }
       }
 
       // *****************
       // RENAME
       // *****************
-      if (rename) {
+      if (rename && !moviesPipelined) {
         LOGGER.info("Commandline - rename & cleanup movies...");
         if (moviesToScrape.size() > 0) {
           if (dryRun) {
-            for (Movie movie : moviesToScrape) {
-              LOGGER.info("DRYRUN: would have renamed " + movie.getTitle());
+            // the plan checks the moves for collisions without touching the disk
+            for (MovieRenamePlanner.Move move : new MovieRenamePlanner(moviesToScrape).getMoves()) {
+              LOGGER.info("DRYRUN: would have renamed " + move.getMovie().getTitle() + " - " + move);
             }
           }
           else {
@@ -473,10 +550,8 @@ public class TinyMediaManagerCMD {
         else {
           task = new TvShowScrapeTask(showToScrape, true, options);
           task.run(); // blocking
-          // wait for other tmm threads (artwork download et all)
-          while (TmmTaskManager.getInstance().poolRunning()) {
-            Thread.sleep(2000);
-          }
+          // wait for other tmm tasks (artwork download et all)
+          waitForBackgroundTasks();
         }
       }
       if (episodeToScrape.size() > 0) {
@@ -488,10 +563,8 @@ public class TinyMediaManagerCMD {
         else {
           task = new TvShowEpisodeScrapeTask(episodeToScrape, options.getMetadataScraper());
           task.run(); // blocking
-          // wait for other tmm threads (artwork download et all)
-          while (TmmTaskManager.getInstance().poolRunning()) {
-            Thread.sleep(2000);
-          }
+          // wait for other tmm tasks (artwork download et all)
+          waitForBackgroundTasks();
         }
       }
 
@@ -509,10 +582,8 @@ public class TinyMediaManagerCMD {
           else {
             task = new TvShowRenameTask(showToScrape, null, true);
             task.run(); // blocking
-            // wait for other tmm threads (artwork download et all)
-            while (TmmTaskManager.getInstance().poolRunning()) {
-              Thread.sleep(2000);
-            }
+            // wait for other tmm tasks (artwork download et all)
+            waitForBackgroundTasks();
           }
         }
         LOGGER.info("Commandline - rename & cleanup new episodes...");
@@ -19,19 +19,19 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
-import javax.swing.event.SwingPropertyChangeSupport;
-
 /**
- * The Class AbstractModelObject.
+ * The Class AbstractModelObject. Property change events are delivered via the {@link PropertyChangeBus}:<br>
+ * - core listeners (added via addCorePropertyChangeListener) get the events synchronously in the firing thread<br>
+ * - all other (UI) listeners get the events in the EDT; events of background threads are coalesced per frame
  * 
  * @author Manuel Laggner
  */
 public abstract class AbstractModelObject {
 
-  /** The property change support. */
-  // private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
-
-  private final PropertyChangeSupport propertyChangeSupport = new SwingPropertyChangeSupport(this, true);
+  /** The property change support for UI listeners. */
+  private final PropertyChangeSupport propertyChangeSupport     = new PropertyChangeSupport(this);
+  /** The property change support for core listeners. */
+  private final PropertyChangeSupport corePropertyChangeSupport = new PropertyChangeSupport(this);
 
   /**
    * Adds the property change listener.
@@ -81,6 +81,26 @@ public abstract class AbstractModelObject {
     }
   }
 
+  /**
+   * Adds a core property change listener; core listeners get the events synchronously in the firing thread (not in the EDT!)
+   * 
+   * @param listener
+   *          the listener
+   */
+  public void addCorePropertyChangeListener(PropertyChangeListener listener) {
+    corePropertyChangeSupport.addPropertyChangeListener(listener);
+  }
+
+  /**
+   * Removes a core property change listener.
+   * 
+   * @param listener
+   *          the listener
+   */
+  public void removeCorePropertyChangeListener(PropertyChangeListener listener) {
+    corePropertyChangeSupport.removePropertyChangeListener(listener);
+  }
+
   /**
    * Fire property change.
    * 
@@ -92,8 +112,15 @@ public abstract class AbstractModelObject {
    *          the new value
    */
   protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    if (oldValue != null && newValue != null && oldValue.equals(newValue)) {
+      return;
+    }
+    // do not create events nobody listens to
+    if (!propertyChangeSupport.hasListeners(propertyName) && !corePropertyChangeSupport.hasListeners(propertyName)) {
+      return;
+    }
     try {
-      propertyChangeSupport.firePropertyChange(propertyName, oldValue, newValue);
+      PropertyChangeBus.fire(this, new PropertyChangeEvent(this, propertyName, oldValue, newValue));
     }
     catch (AssertionError e) {
     }
@@ -106,6 +133,19 @@ public abstract class AbstractModelObject {
    *          the evt
    */
   protected void firePropertyChange(PropertyChangeEvent evt) {
-    propertyChangeSupport.firePropertyChange(evt);
+    PropertyChangeBus.fire(this, evt);
+  }
+
+  /**
+   * deliver the event to the core listeners (synchronously) and to the UI listeners (via the bus)
+   * 
+   * @param evt
+   *          the evt
+   */
+  void dispatchPropertyChange(PropertyChangeEvent evt) {
+    corePropertyChangeSupport.firePropertyChange(evt);
+    if (propertyChangeSupport.hasListeners(evt.getPropertyName())) {
+      PropertyChangeBus.post(propertyChangeSupport, this, evt);
+    }
   }
 }
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.scraper.http.Url;
+
+/**
+ * The class ArtworkDownloadScheduler. All artwork downloads should be done via this class:<br>
+ * - an url which is already being downloaded is not fetched a second time; all requesters get the same bytes<br>
+ * - the last downloaded images are kept in memory for a short while (the same artwork is often written to several files)<br>
+ * - every host has its own queue and limit of concurrent downloads (so TMDB and fanart.tv can be downloaded in parallel without hammering one of
+ * them). A download is only started when its host has a free slot, so a busy host never blocks the downloads of other hosts<br>
+ * - if the same artwork is written to several destinations, the first written file is copied locally instead of writing the bytes again (no
+ * hardlinks: an in-place change of one file would change all of them)
+ *
+ * @author Manuel Laggner
+ */
+public class ArtworkDownloadScheduler {
+  private static final Logger                                        LOGGER             = LoggerFactory.getLogger(ArtworkDownloadScheduler.class);
+  private static final ArtworkDownloadScheduler                      INSTANCE           = new ArtworkDownloadScheduler();
+
+  private static final int                                           DOWNLOADS_PER_HOST = 3;
+  private static final long                                          MAX_CACHED_BYTES   = 64 * 1024 * 1024;
+
+  private final ConcurrentHashMap<String, Download>                  inFlight           = new ConcurrentHashMap<>();
+  private final Map<String, HostQueue>                               hostQueues         = new HashMap<>();
+  private final ExecutorService                                      downloadExecutor   = createDownloadExecutor();
+  private final LinkedHashMap<String, byte[]>                        recentImages       = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, WrittenFile>                             writtenFiles       = new ConcurrentHashMap<>();
+  private long                                                       cachedBytes        = 0;
+
+  private ArtworkDownloadScheduler() {
+  }
+
+  public static ArtworkDownloadScheduler getInstance() {
+    return INSTANCE;
+  }
+
+  private static ExecutorService createDownloadExecutor() {
+    // the amount of concurrent downloads is limited per host by the host queues
+    return Executors.newCachedThreadPool(new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "artwork-download-" + threadNumber.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * get the image behind the given url; if the url is already being downloaded (or has been downloaded recently), the same bytes are returned
+   *
+   * @param url
+   *          the url of the image
+   * @return the bytes of the image
+   * @throws Exception
+   *           any exception occurred while downloading
+   */
+  public byte[] fetch(String url) throws Exception {
+    try {
+      return fetchAsync(url).get();
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * get the image behind the given url without blocking the calling thread; the download is queued for the host of the url
+   *
+   * @param url
+   *          the url of the image
+   * @return a future which completes with the bytes of the image
+   */
+  public Future<byte[]> fetchAsync(String url) {
+    return fetchAsync(url, null);
+  }
+
+  /**
+   * get the image behind the given url without blocking the calling thread; the download is queued for the host of the url
+   *
+   * @param url
+   *          the url of the image
+   * @param callback
+   *          an optional callback which is informed when the download has finished (successful or not). If the image is already available,
+   *          the callback is called immediately in the calling thread
+   * @return a future which completes with the bytes of the image
+   */
+  public Future<byte[]> fetchAsync(String url, DownloadCallback callback) {
+    final byte[] bytes = getRecentImage(url);
+    if (bytes != null) {
+      FutureTask<byte[]> recent = new FutureTask<>(new Callable<byte[]>() {
+        @Override
+        public byte[] call() {
+          return bytes;
+        }
+      });
+      recent.run();
+      if (callback != null) {
+        callback.downloadFinished(url);
+      }
+      return recent;
+    }
+
+    Download download = new Download(url, getHost(url));
+    Download running = inFlight.putIfAbsent(url, download);
+    if (running != null) {
+      // somebody else downloads this url - just wait for it
+      LOGGER.trace("waiting for running download of {}", url);
+      running.addCallback(callback);
+      return running;
+    }
+    download.addCallback(callback);
+
+    synchronized (hostQueues) {
+      HostQueue hostQueue = hostQueues.get(download.host);
+      if (hostQueue == null) {
+        hostQueue = new HostQueue();
+        hostQueues.put(download.host, hostQueue);
+      }
+      hostQueue.queue.add(download);
+      dispatch(hostQueue);
+    }
+    return download;
+  }
+
+  /**
+   * start the queued downloads of the host as long as it has free slots. Must be called while holding the lock on hostQueues
+   */
+  private void dispatch(HostQueue hostQueue) {
+    while (hostQueue.running < DOWNLOADS_PER_HOST && !hostQueue.queue.isEmpty()) {
+      hostQueue.running++;
+      downloadExecutor.execute(hostQueue.queue.poll());
+    }
+  }
+
+  private void downloadFinished(String host) {
+    synchronized (hostQueues) {
+      HostQueue hostQueue = hostQueues.get(host);
+      hostQueue.running--;
+      if (hostQueue.running == 0 && hostQueue.queue.isEmpty()) {
+        hostQueues.remove(host);
+      }
+      else {
+        dispatch(hostQueue);
+      }
+    }
+  }
+
+  private byte[] download(String url) throws Exception {
+    Url url1 = new Url(url);
+    InputStream is = url1.getInputStreamWithRetry(5);
+    if (is == null) {
+      // 404 et all
+      throw new FileNotFoundException("Error accessing url: " + url1.getStatusLine());
+    }
+    try {
+      byte[] bytes = IOUtils.toByteArray(is);
+      if (bytes.length == 0) {
+        throw new Exception("0byte file downloaded: " + url);
+      }
+      return bytes;
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  private static String getHost(String url) {
+    try {
+      return StringUtils.defaultString(URI.create(url.replace(" ", "%20")).getHost()).toLowerCase(Locale.ROOT);
+    }
+    catch (Exception e) {
+      // no valid uri - use the common queue
+      return "";
+    }
+  }
+
+  /**
+   * write the downloaded image to the given destination. If this url has already been written to another file which is still unchanged, the
+   * destination is created as a local copy of this file
+   *
+   * @param url
+   *          the url of the image
+   * @param bytes
+   *          the bytes of the image
+   * @param destination
+   *          the file to write
+   * @throws IOException
+   *           any exception occurred while writing
+   */
+  public void write(String url, byte[] bytes, Path destination) throws IOException {
+    // never write into an existing file - former versions created hardlinks to other images
+    Files.deleteIfExists(destination);
+
+    WrittenFile writtenFile = writtenFiles.get(url);
+    Path existing = writtenFile == null ? null : writtenFile.path;
+    if (existing != null && !existing.equals(destination) && writtenFile.isUnchanged()) {
+      try {
+        Files.copy(existing, destination, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.trace("copied {} to {}", existing, destination);
+        return;
+      }
+      catch (Exception e) {
+        LOGGER.debug("could not copy {} to {}: {}", existing, destination, e.getMessage());
+      }
+    }
+
+    try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      // wait until file has been completely written
+      channel.force(true);
+    }
+    register(url, destination);
+  }
+
+  /**
+   * remember that the image of the given url has been stored in the given file (e.g. after moving a temp file); other destinations of this url
+   * can be linked to it
+   *
+   * @param url
+   *          the url of the image
+   * @param file
+   *          the file containing the image
+   */
+  public void register(String url, Path file) {
+    if (writtenFiles.size() > 10000) {
+      writtenFiles.clear();
+    }
+    try {
+      writtenFiles.put(url, new WrittenFile(file));
+    }
+    catch (IOException e) {
+      writtenFiles.remove(url);
+    }
+  }
+
+  private byte[] getRecentImage(String url) {
+    synchronized (recentImages) {
+      return recentImages.get(url);
+    }
+  }
+
+  private void putRecentImage(String url, byte[] bytes) {
+    if (bytes.length > MAX_CACHED_BYTES / 4) {
+      return;
+    }
+    synchronized (recentImages) {
+      byte[] old = recentImages.put(url, bytes);
+      if (old != null) {
+        cachedBytes -= old.length;
+      }
+      cachedBytes += bytes.length;
+
+      // evict the least recently used images
+      Iterator<byte[]> iterator = recentImages.values().iterator();
+      while (cachedBytes > MAX_CACHED_BYTES && iterator.hasNext()) {
+        cachedBytes -= iterator.next().length;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * forget all recently downloaded images
+   */
+  public void clear() {
+    synchronized (recentImages) {
+      recentImages.clear();
+      cachedBytes = 0;
+    }
+    writtenFiles.clear();
+  }
+
+  /**
+   * a task which writes the artwork of one url. The image queue downloads the artwork (via the host queues) before the task gets a worker, so
+   * the workers are never blocked by a busy host
+   */
+  public interface ArtworkTask extends Runnable {
+    /**
+     * the url of the artwork to write
+     * 
+     * @return the url
+     */
+    String getArtworkUrl();
+  }
+
+  /**
+   * a callback which is informed when the download of an url has finished
+   */
+  public interface DownloadCallback {
+    /**
+     * the download of the given url has finished; the result can be fetched from the future without blocking
+     *
+     * @param url
+     *          the url of the image
+     */
+    void downloadFinished(String url);
+  }
+
+  /**
+   * the running download of an url; shared by all requesters of this url as long as it is in flight
+   */
+  private class Download extends FutureTask<byte[]> {
+    private final String                 url;
+    private final String                 host;
+    private final List<DownloadCallback> callbacks = new ArrayList<>();
+    private boolean                      finished  = false;
+
+    private Download(final String url, String host) {
+      super(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws Exception {
+          return download(url);
+        }
+      });
+      this.url = url;
+      this.host = host;
+    }
+
+    private void addCallback(DownloadCallback callback) {
+      if (callback == null) {
+        return;
+      }
+      synchronized (this) {
+        if (!finished) {
+          callbacks.add(callback);
+          return;
+        }
+      }
+      callback.downloadFinished(url);
+    }
+
+    @Override
+    protected void done() {
+      try {
+        if (!isCancelled()) {
+          putRecentImage(url, get());
+        }
+      }
+      catch (ExecutionException e) {
+        // the requesters get the exception from the future
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      finally {
+        inFlight.remove(url, this);
+        downloadFinished(host);
+      }
+
+      List<DownloadCallback> toInform;
+      synchronized (this) {
+        finished = true;
+        toInform = new ArrayList<>(callbacks);
+        callbacks.clear();
+      }
+      for (DownloadCallback callback : toInform) {
+        try {
+          callback.downloadFinished(url);
+        }
+        catch (Exception e) {
+          LOGGER.warn("download callback of {} failed: {}", url, e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * the download queue of a host
+   */
+  private static class HostQueue {
+    private final Queue<Runnable> queue   = new ArrayDeque<>();
+    private int                   running = 0;
+  }
+
+  /**
+   * a written image; it can only be reused if it has not been changed in the meantime
+   */
+  private static class WrittenFile {
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+
+    private WrittenFile(Path path) throws IOException {
+      this.path = path;
+      this.size = Files.size(path);
+      this.lastModified = Files.getLastModifiedTime(path).toMillis();
+    }
+
+    private boolean isUnchanged() {
+      try {
+        return Files.isRegularFile(path) && Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+      }
+      catch (IOException e) {
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class DatabaseBackup. Creates online snapshots of the MVStore databases of tmm: the content of all maps (UUID/String -> JSON) is streamed into
+ * a compressed zip file in the backup folder (the key type of every map is stored in the comment of its zip entry). The snapshot is started in a
+ * background thread right after the database has been loaded, so the startup is never blocked; the shutdown of the module waits until the snapshot
+ * has been finished (also short sessions and command line runs get their backup). If the content of the database has not been changed since the last
+ * snapshot (checked by a checksum over all entries, calculated while writing), the new snapshot is dropped again. Only the last snapshots are kept;
+ * backups of older versions (dated copies of the database file) count towards that limit.<br>
+ * A database can be restored from any snapshot (point-in-time restore) while the corresponding module is not running.
+ *
+ * @author Manuel Laggner
+ */
+public class DatabaseBackup {
+  private static final Logger                  LOGGER           = LoggerFactory.getLogger(DatabaseBackup.class);
+  private static final String                  BACKUP_FOLDER    = "backup";
+  private static final String                  SNAPSHOT_SUFFIX  = ".snapshot.zip";
+  private static final String                  TIMESTAMP_FORMAT = "yyyy-MM-dd_HH-mm-ss";
+  private static final String                  CHECKSUM_PREFIX  = "crc32=";
+  private static final String                  KEY_TYPE_UUID    = "key=uuid";
+  private static final String                  KEY_TYPE_STRING  = "key=string";
+  private static final int                     KEEP_SNAPSHOTS   = 15;
+
+  private static final Map<MVStore, Future<?>> PENDING          = new ConcurrentHashMap<>();
+  private static final ExecutorService         EXECUTOR         = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                                                                  @Override
+                                                                  public Thread newThread(Runnable r) {
+                                                                    Thread t = new Thread(r, "db-backup");
+                                                                    t.setDaemon(true);
+                                                                    t.setPriority(Thread.MIN_PRIORITY);
+                                                                    return t;
+                                                                  }
+                                                                });
+
+  private DatabaseBackup() {
+    // hide public constructor for utility classes
+  }
+
+  /**
+   * start a snapshot of the given (open) database in the background
+   *
+   * @param mvStore
+   *          the open database
+   * @param db
+   *          the path of the database file
+   */
+  public static void scheduleSnapshot(final MVStore mvStore, final Path db) {
+    PENDING.put(mvStore, EXECUTOR.submit(new Runnable() {
+      @Override
+      public void run() {
+        if (mvStore.isClosed()) {
+          return;
+        }
+        try {
+          createSnapshot(mvStore, db, Paths.get(BACKUP_FOLDER));
+        }
+        catch (Exception e) {
+          // just try it the next time
+          LOGGER.warn("could not create a snapshot of {}: {}", db.getFileName(), e.getMessage());
+        }
+        deleteOldSnapshots(db, Paths.get(BACKUP_FOLDER), KEEP_SNAPSHOTS);
+      }
+    }));
+  }
+
+  /**
+   * wait until the snapshot of the given database has been finished; must be called before the database is closed
+   *
+   * @param mvStore
+   *          the database
+   */
+  public static void awaitSnapshot(MVStore mvStore) {
+    Future<?> future = PENDING.remove(mvStore);
+    if (future == null) {
+      return;
+    }
+    try {
+      future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      LOGGER.warn("could not create a snapshot: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * create a snapshot of the given database; if the content has not been changed since the last snapshot, no new snapshot will be written
+   *
+   * @param mvStore
+   *          the open database
+   * @param db
+   *          the path of the database file
+   * @param backupFolder
+   *          the folder for the snapshots
+   * @return the path to the new snapshot or null if the database has not been changed since the last snapshot
+   * @throws IOException
+   *           any exception occurred while writing the snapshot
+   */
+  public static Path createSnapshot(MVStore mvStore, Path db, Path backupFolder) throws IOException {
+    List<String> mapNames = new ArrayList<>(new TreeSet<>(mvStore.getMapNames()));
+
+    long start = System.currentTimeMillis();
+    Files.createDirectories(backupFolder);
+    String timestamp = new SimpleDateFormat(TIMESTAMP_FORMAT).format(new Date());
+    Path snapshot = backupFolder.resolve(db.getFileName() + "." + timestamp + SNAPSHOT_SUFFIX);
+    Path tempFile = backupFolder.resolve(snapshot.getFileName() + ".part");
+
+    // the maps are copy on write: every iteration works on a consistent state of the map. The checksum is calculated while writing, so the
+    // maps are read only once
+    String checksum;
+    try (OutputStream os = Files.newOutputStream(tempFile); ZipOutputStream zos = new ZipOutputStream(os)) {
+      zos.setLevel(Deflater.BEST_COMPRESSION);
+      CRC32 crc = new CRC32();
+      for (String mapName : mapNames) {
+        crc.update(mapName.getBytes(StandardCharsets.UTF_8));
+        MVMap<Object, Object> map = mvStore.openMap(mapName);
+        ZipEntry zipEntry = new ZipEntry(mapName);
+        zipEntry.setComment(map.firstKey() instanceof String ? KEY_TYPE_STRING : KEY_TYPE_UUID);
+        zos.putNextEntry(zipEntry);
+        // one line per entry: <key>\t<json> (the JSON does not contain any raw line breaks or tabs)
+        OutputStream out = new BufferedOutputStream(zos);
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+          write(out, crc, String.valueOf(entry.getKey()).getBytes(StandardCharsets.UTF_8));
+          write(out, crc, '\t');
+          write(out, crc, String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+          write(out, crc, '\n');
+        }
+        out.flush();
+        zos.closeEntry();
+      }
+      // the comment is written at the end of the zip file
+      checksum = CHECKSUM_PREFIX + Long.toHexString(crc.getValue());
+      zos.setComment(checksum);
+    }
+    catch (IOException | RuntimeException e) {
+      Utils.deleteFileSafely(tempFile);
+      throw e;
+    }
+
+    Path lastSnapshot = getLastSnapshot(db, backupFolder);
+    if (lastSnapshot != null && checksum.equals(readChecksum(lastSnapshot))) {
+      LOGGER.debug("{} has not been changed since the last snapshot", db.getFileName());
+      Utils.deleteFileSafely(tempFile);
+      return null;
+    }
+
+    Files.move(tempFile, snapshot, StandardCopyOption.REPLACE_EXISTING);
+    LOGGER.info("created snapshot {} in {} ms", snapshot.getFileName(), System.currentTimeMillis() - start);
+    return snapshot;
+  }
+
+  private static void write(OutputStream out, CRC32 crc, byte[] bytes) throws IOException {
+    crc.update(bytes);
+    out.write(bytes);
+  }
+
+  private static void write(OutputStream out, CRC32 crc, int b) throws IOException {
+    crc.update(b);
+    out.write(b);
+  }
+
+  /**
+   * get all snapshots of the given database (oldest first)
+   *
+   * @param db
+   *          the path of the database file
+   * @param backupFolder
+   *          the folder for the snapshots
+   * @return a list of all snapshots
+   */
+  public static List<Path> getSnapshots(Path db, Path backupFolder) {
+    List<Path> snapshots = new ArrayList<>();
+    if (!Files.isDirectory(backupFolder)) {
+      return snapshots;
+    }
+
+    Pattern pattern = getSnapshotPattern(db);
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(backupFolder)) {
+      for (Path path : directoryStream) {
+        if (pattern.matcher(path.getFileName().toString()).matches()) {
+          snapshots.add(path);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not read the backup folder: {}", e.getMessage());
+    }
+
+    // the timestamp format is sortable
+    Collections.sort(snapshots);
+    return snapshots;
+  }
+
+  /**
+   * get the timestamp of the given snapshot
+   *
+   * @param snapshot
+   *          the snapshot
+   * @return the date when the snapshot has been taken or null if the name is not parseable
+   */
+  public static Date getSnapshotDate(Path snapshot) {
+    Matcher matcher = Pattern.compile(".*\\.(\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2})" + Pattern.quote(SNAPSHOT_SUFFIX))
+        .matcher(snapshot.getFileName().toString());
+    if (matcher.matches()) {
+      try {
+        return new SimpleDateFormat(TIMESTAMP_FORMAT).parse(matcher.group(1));
+      }
+      catch (ParseException ignored) {
+      }
+    }
+    return null;
+  }
+
+  /**
+   * restore the database with the newest snapshot taken at or before the given point in time. The database must not be opened!
+   *
+   * @param db
+   *          the path of the database file
+   * @param backupFolder
+   *          the folder for the snapshots
+   * @param pointInTime
+   *          the point in time to restore
+   * @return true if a snapshot has been found and restored
+   * @throws IOException
+   *           any exception occurred while restoring the snapshot
+   */
+  public static boolean restore(Path db, Path backupFolder, Date pointInTime) throws IOException {
+    Path snapshotToRestore = null;
+    for (Path snapshot : getSnapshots(db, backupFolder)) {
+      Date date = getSnapshotDate(snapshot);
+      if (date != null && !date.after(pointInTime)) {
+        snapshotToRestore = snapshot;
+      }
+    }
+
+    if (snapshotToRestore == null) {
+      return false;
+    }
+    restore(snapshotToRestore, db);
+    return true;
+  }
+
+  /**
+   * restore the database from the given snapshot. The database must not be opened!
+   *
+   * @param snapshot
+   *          the snapshot to restore
+   * @param db
+   *          the path of the database file
+   * @throws IOException
+   *           any exception occurred while restoring the snapshot
+   */
+  public static void restore(Path snapshot, Path db) throws IOException {
+    // restore into a new file and replace the database afterwards; so the database is never left in a half restored state
+    Path tempFile = db.resolveSibling(db.getFileName() + ".restore");
+    Utils.deleteFileSafely(tempFile);
+
+    MVStore mvStore = new MVStore.Builder().fileName(tempFile.toString()).compressHigh().open();
+    try (ZipFile zipFile = new ZipFile(snapshot.toFile())) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        // snapshots without a key type contain UUID keys only
+        boolean stringKeys = KEY_TYPE_STRING.equals(entry.getComment());
+        MVMap<Object, String> map = mvStore.openMap(entry.getName());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            int separator = line.indexOf('\t');
+            if (separator > 0) {
+              String key = line.substring(0, separator);
+              map.put(stringKeys ? key : UUID.fromString(key), line.substring(separator + 1));
+            }
+          }
+        }
+      }
+      mvStore.commit();
+    }
+    finally {
+      mvStore.close();
+    }
+
+    Files.move(tempFile, db, StandardCopyOption.REPLACE_EXISTING);
+    LOGGER.info("restored {} from {}", db.getFileName(), snapshot.getFileName());
+  }
+
+  /**
+   * delete old snapshots and keep the last X snapshots. Backups of older versions (dated copies of the database file) are older than all snapshots
+   * and will be deleted first
+   *
+   * @param db
+   *          the path of the database file
+   * @param backupFolder
+   *          the folder for the snapshots
+   * @param keep
+   *          keep the last X snapshots
+   */
+  public static void deleteOldSnapshots(Path db, Path backupFolder, int keep) {
+    List<Path> backups = getLegacyBackups(db, backupFolder);
+    backups.addAll(getSnapshots(db, backupFolder));
+    for (int i = 0; i < backups.size() - keep; i++) {
+      Utils.deleteFileSafely(backups.get(i));
+    }
+  }
+
+  private static List<Path> getLegacyBackups(Path db, Path backupFolder) {
+    List<Path> backups = new ArrayList<>();
+    if (!Files.isDirectory(backupFolder)) {
+      return backups;
+    }
+
+    // name.ext.yyyy-mm-dd.zip or name.ext.yyyy-mm-dd
+    Pattern pattern = Pattern.compile(Pattern.quote(db.getFileName().toString()) + "\\.\\d{4}-\\d{2}-\\d{2}(\\.zip)?");
+    try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(backupFolder)) {
+      for (Path path : directoryStream) {
+        if (pattern.matcher(path.getFileName().toString()).matches()) {
+          backups.add(path);
+        }
+      }
+    }
+    catch (IOException e) {
+      LOGGER.warn("could not read the backup folder: {}", e.getMessage());
+    }
+
+    Collections.sort(backups);
+    return backups;
+  }
+
+  private static Path getLastSnapshot(Path db, Path backupFolder) {
+    List<Path> snapshots = getSnapshots(db, backupFolder);
+    if (snapshots.isEmpty()) {
+      return null;
+    }
+    return snapshots.get(snapshots.size() - 1);
+  }
+
+  private static String readChecksum(Path snapshot) {
+    try (ZipFile zipFile = new ZipFile(snapshot.toFile())) {
+      return zipFile.getComment();
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static Pattern getSnapshotPattern(Path db) {
+    return Pattern.compile(Pattern.quote(db.getFileName().toString()) + "\\.\\d{4}-\\d{2}-\\d{2}_\\d{2}-\\d{2}-\\d{2}" + Pattern.quote(SNAPSHOT_SUFFIX));
+  }
+}
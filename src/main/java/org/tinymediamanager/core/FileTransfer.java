@@ -0,0 +1,481 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.threading.TmmTaskHandle;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+import org.tinymediamanager.ui.UTF8Control;
+
+/**
+ * The class FileTransfer. Moves files and folders to another drive (where a rename is not possible).<br>
+ * The files are copied in chunks (FileChannel.transferTo) into a part file next to the destination; after every chunk the data is synced to the
+ * disk and the position is stored in a state file. The part file gets its final name after the size (and optionally a checksum) has been
+ * verified - and only then the source is deleted. If the transfer has been interrupted (crash, cancel), the next move of the same file resumes
+ * at the last synced chunk.<br>
+ * The progress and throughput is published as a background task to the TmmTaskManager.
+ *
+ * @author Manuel Laggner
+ */
+public class FileTransfer {
+  private static final Logger         LOGGER            = LoggerFactory.getLogger(FileTransfer.class);
+  private static final ResourceBundle BUNDLE            = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+
+  public static final String          PART_SUFFIX       = ".tmmpart";
+  public static final String          STATE_SUFFIX      = ".tmmstate";
+  public static final String          DIRECTORY_MARKER  = ".tmmtransfer";
+
+  private static final long           CHUNK_SIZE        = 64 * 1024 * 1024;
+  private static final long           PROGRESS_INTERVAL = 500;
+  private static final int            MB                = 1024 * 1024;
+
+  private final boolean               verifyChecksum;
+  private final TransferHandle        handle;
+
+  /**
+   * create a new transfer
+   *
+   * @param verifyChecksum
+   *          compare the checksum of the source and the copy (besides the size)
+   */
+  public FileTransfer(boolean verifyChecksum) {
+    this.verifyChecksum = verifyChecksum;
+    this.handle = new TransferHandle();
+  }
+
+  /**
+   * checks if both paths are on the same drive (and a file can be renamed from one to the other)
+   *
+   * @param source
+   *          the existing source
+   * @param destination
+   *          the destination (does not need to exist)
+   * @return true if both are on the same drive (or the drive could not be detected)
+   */
+  public static boolean isSameFileStore(Path source, Path destination) {
+    try {
+      // the destination does not exist yet - take the first existing parent
+      Path existing = destination.toAbsolutePath();
+      while (existing != null && !Files.exists(existing)) {
+        existing = existing.getParent();
+      }
+      if (existing == null) {
+        return true;
+      }
+      FileStore sourceStore = Files.getFileStore(source);
+      FileStore destinationStore = Files.getFileStore(existing);
+      return sourceStore.equals(destinationStore);
+    }
+    catch (IOException e) {
+      LOGGER.debug("could not detect the drives of {} and {}: {}", source, destination, e.getMessage());
+      return true;
+    }
+  }
+
+  /**
+   * checks if the folder is the destination of an unfinished transfer of the given source folder (which can be resumed)
+   *
+   * @param source
+   *          the source folder
+   * @param destination
+   *          the destination folder
+   * @return true if there is an unfinished transfer of this source to this folder
+   */
+  public static boolean isUnfinishedTransfer(Path source, Path destination) {
+    Path marker = destination.resolve(DIRECTORY_MARKER);
+    if (!Files.isDirectory(destination) || !Files.isRegularFile(marker)) {
+      return false;
+    }
+    try {
+      // the marker contains the source of the transfer - a stray marker must not merge another folder into this one
+      String markerSource = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim();
+      return markerSource.equals(source.toAbsolutePath().toString());
+    }
+    catch (IOException e) {
+      LOGGER.debug("could not read the transfer marker {}: {}", marker, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * move a file or a folder (with all its content) to another drive; an interrupted move is resumed
+   *
+   * @param source
+   *          the file/folder to move
+   * @param destination
+   *          the destination
+   * @param verifyChecksum
+   *          compare the checksum of the source and the copy (besides the size)
+   * @throws IOException
+   *           if the move did not work (the source is untouched in this case - or the already moved part for folders)
+   */
+  public static void move(Path source, Path destination, boolean verifyChecksum) throws IOException {
+    FileTransfer transfer = new FileTransfer(verifyChecksum);
+    if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+      transfer.moveDirectory(source, destination);
+    }
+    else {
+      transfer.moveFile(source, destination);
+    }
+  }
+
+  /**
+   * move the file to the destination (on another drive)
+   *
+   * @param source
+   *          the file
+   * @param destination
+   *          the destination file
+   * @throws IOException
+   *           if the move did not work (the source is untouched in this case)
+   */
+  public void moveFile(Path source, Path destination) throws IOException {
+    handle.start(source.getFileName().toString(), Files.size(source));
+    try {
+      transferFile(source, destination);
+    }
+    finally {
+      handle.finish();
+    }
+  }
+
+  /**
+   * move the folder with all its content to the destination (on another drive); every file is removed from the source after it has been
+   * verified at the destination
+   *
+   * @param source
+   *          the folder
+   * @param destination
+   *          the destination folder
+   * @throws IOException
+   *           if the move did not work (the already moved files stay at the destination and the move can be resumed)
+   */
+  public void moveDirectory(final Path source, final Path destination) throws IOException {
+    Path marker = destination.resolve(DIRECTORY_MARKER);
+    if (Files.exists(marker) && !isUnfinishedTransfer(source, destination)) {
+      throw new IOException("Destination '" + destination + "' contains an unfinished transfer of another folder");
+    }
+    Files.createDirectories(destination);
+    Files.write(marker, source.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+
+    handle.start(source.getFileName().toString(), getSize(source));
+    try {
+      Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+          Files.createDirectories(destination.resolve(source.relativize(dir).toString()));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          Path target = destination.resolve(source.relativize(file).toString());
+          if (attrs.isSymbolicLink()) {
+            Files.copy(file, target, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+          }
+          else if (Files.exists(target)) {
+            // interrupted after the file has been moved, but before the source has been deleted
+            if (Files.size(target) != attrs.size() || (verifyChecksum && checksum(file) != checksum(target))) {
+              throw new IOException("Destination '" + target + "' already exists");
+            }
+            handle.transferred(attrs.size());
+          }
+          else {
+            transferFile(file, target);
+            return FileVisitResult.CONTINUE;
+          }
+          Files.delete(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+          if (e != null) {
+            throw e;
+          }
+          Path target = destination.resolve(source.relativize(dir).toString());
+          Files.setLastModifiedTime(target, Files.getLastModifiedTime(dir));
+          Files.delete(dir);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      Files.delete(marker);
+    }
+    finally {
+      handle.finish();
+    }
+  }
+
+  /**
+   * copy the file (resuming an interrupted copy), verify the copy and delete the source
+   */
+  private void transferFile(Path source, Path destination) throws IOException {
+    Path part = destination.resolveSibling(destination.getFileName() + PART_SUFFIX);
+    Path state = destination.resolveSibling(destination.getFileName() + STATE_SUFFIX);
+
+    BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+    long size = attrs.size();
+    long modified = attrs.lastModifiedTime().toMillis();
+    long offset = getResumeOffset(source, part, state, size, modified);
+    if (offset > 0) {
+      LOGGER.info("resuming the transfer of " + source + " at " + offset / MB + "MB");
+      handle.transferred(offset);
+    }
+
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+        FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      // everything after the last synced chunk may be garbage
+      out.truncate(offset);
+      out.position(offset);
+
+      while (offset < size) {
+        if (handle.cancel) {
+          throw new TransferCancelledException("transfer of '" + source + "' cancelled");
+        }
+
+        long end = Math.min(size, offset + CHUNK_SIZE);
+        long position = offset;
+        while (position < end) {
+          long transferred = in.transferTo(position, end - position, out);
+          if (transferred <= 0) {
+            throw new IOException("Source '" + source + "' has been changed during the transfer");
+          }
+          position += transferred;
+          handle.transferred(transferred);
+        }
+
+        // sync the chunk before it is marked as done
+        out.force(false);
+        offset = end;
+        writeState(state, source, size, modified, offset);
+      }
+      out.force(true);
+    }
+
+    // verify the copy
+    if (Files.size(part) != size) {
+      deleteQuietly(part, state);
+      throw new IOException("Size of '" + destination + "' does not match the source (" + Files.size(part) + " vs. " + size + ")");
+    }
+    if (verifyChecksum && checksum(source) != checksum(part)) {
+      deleteQuietly(part, state);
+      throw new IOException("Checksum of '" + destination + "' does not match the source");
+    }
+
+    Files.setLastModifiedTime(part, FileTime.fromMillis(modified));
+    try {
+      Files.move(part, destination, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(part, destination);
+    }
+    Files.deleteIfExists(state);
+    Files.delete(source);
+    LOGGER.debug("transferred " + source + " to " + destination);
+  }
+
+  /**
+   * get the position to resume the copy at; 0 if there is no usable part file
+   */
+  private long getResumeOffset(Path source, Path part, Path state, long size, long modified) {
+    if (!Files.exists(part) || !Files.exists(state)) {
+      return 0;
+    }
+
+    Properties properties = new Properties();
+    try (InputStream is = Files.newInputStream(state)) {
+      properties.load(is);
+      long offset = Long.parseLong(properties.getProperty("offset", "0"));
+      // only resume the same (unchanged) source
+      if (!source.toAbsolutePath().toString().equals(properties.getProperty("source")) || size != Long.parseLong(properties.getProperty("size", "-1"))
+          || modified != Long.parseLong(properties.getProperty("modified", "-1")) || offset > size || offset > Files.size(part)) {
+        LOGGER.debug("cannot resume the transfer of {} - starting again", source);
+        return 0;
+      }
+      return offset;
+    }
+    catch (Exception e) {
+      LOGGER.debug("could not read the transfer state {}: {}", state, e.getMessage());
+      return 0;
+    }
+  }
+
+  private void writeState(Path state, Path source, long size, long modified, long offset) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("source", source.toAbsolutePath().toString());
+    properties.setProperty("size", Long.toString(size));
+    properties.setProperty("modified", Long.toString(modified));
+    properties.setProperty("offset", Long.toString(offset));
+
+    // write the new state next to the old one and replace it afterwards (the old state stays valid until then). The new state has to be on the
+    // disk before it replaces the old one, else it could point past the synced data after a crash
+    Path tempState = state.resolveSibling(state.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(tempState, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE)) {
+      properties.store(Channels.newOutputStream(channel), null);
+      channel.force(true);
+    }
+    try {
+      Files.move(tempState, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempState, state, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private long checksum(Path file) throws IOException {
+    CRC32 crc = new CRC32();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(MB);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (channel.read(buffer) > 0) {
+        buffer.flip();
+        crc.update(buffer);
+        buffer.clear();
+      }
+    }
+    return crc.getValue();
+  }
+
+  private long getSize(Path folder) throws IOException {
+    final long[] size = new long[1];
+    Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (attrs.isRegularFile()) {
+          size[0] += attrs.size();
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return size[0];
+  }
+
+  private void deleteQuietly(Path... files) {
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      }
+      catch (IOException e) {
+        LOGGER.debug("could not delete {}: {}", file, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * the progress of the transfer (in MB) for the task list
+   */
+  private static class TransferHandle implements TmmTaskHandle {
+    private volatile TaskState state       = TaskState.CREATED;
+    private volatile boolean   cancel      = false;
+    private volatile String    name        = "";
+    private volatile long      total       = 0;
+    private volatile long      done        = 0;
+    private long               startTime;
+    private long               lastPublish = 0;
+
+    private void start(String name, long total) {
+      this.name = name;
+      this.total = total;
+      this.done = 0;
+      this.startTime = System.currentTimeMillis();
+      this.state = TaskState.STARTED;
+      publish();
+    }
+
+    private void transferred(long bytes) {
+      done += bytes;
+      long now = System.currentTimeMillis();
+      if (now - lastPublish > PROGRESS_INTERVAL) {
+        lastPublish = now;
+        publish();
+      }
+    }
+
+    private void finish() {
+      long duration = Math.max(1, System.currentTimeMillis() - startTime);
+      LOGGER.info("transfer of {} to another drive ended after {}s ({}MB)", name, duration / 1000, done / MB);
+      if (state != TaskState.CANCELLED) {
+        state = TaskState.FINISHED;
+      }
+      publish();
+    }
+
+    private void publish() {
+      TmmTaskManager.getInstance().processTaskEvent(this);
+    }
+
+    @Override
+    public String getTaskName() {
+      return BUNDLE.getString("task.filetransfer");
+    }
+
+    @Override
+    public int getWorkUnits() {
+      return (int) (total / MB);
+    }
+
+    @Override
+    public int getProgressDone() {
+      return (int) (done / MB);
+    }
+
+    @Override
+    public String getTaskDescription() {
+      long duration = Math.max(1, System.currentTimeMillis() - startTime);
+      double throughput = (double) done / MB * 1000 / duration;
+      return String.format(Locale.ROOT, "%s - %.1f MB/s", name, throughput);
+    }
+
+    @Override
+    public TaskState getState() {
+      return state;
+    }
+
+    @Override
+    public TaskType getType() {
+      return TaskType.BACKGROUND_TASK;
+    }
+
+    @Override
+    public void cancel() {
+      cancel = true;
+      state = TaskState.CANCELLED;
+    }
+  }
+}
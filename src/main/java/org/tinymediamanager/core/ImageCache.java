@@ -261,6 +261,20 @@ public class ImageCache {
    * @throws Exception
    */
   public static Path cacheImage(Path originalFile) throws Exception {
+    return cacheImage(originalFile, null);
+  }
+
+  /**
+   * Cache image. The image is created from the given bytes (if available), so the original file has not to be read again after a download.
+   * 
+   * @param originalFile
+   *          the original file
+   * @param imageData
+   *          the content of the original file or null
+   * @return the file the cached file
+   * @throws Exception
+   */
+  public static Path cacheImage(Path originalFile, byte[] imageData) throws Exception {
     MediaFile mf = new MediaFile(originalFile);
     if (!mf.isGraphic()) {
       throw new Exception("only image files can be cached");
@@ -269,10 +283,10 @@ public class ImageCache {
     Path cachedFile = ImageCache.getCacheDir().resolve(getMD5(originalFile.toString()) + "." + Utils.getExtension(originalFile));
     if (!Files.exists(cachedFile)) {
       // check if the original file exists && size > 0
-      if (!Files.exists(originalFile)) {
+      if (imageData == null && !Files.exists(originalFile)) {
         throw new FileNotFoundException("unable to cache file: " + originalFile + "; file does not exist");
       }
-      if (Files.size(originalFile) == 0) {
+      if (imageData == null ? Files.size(originalFile) == 0 : imageData.length == 0) {
         throw new EmptyFileException(originalFile);
       }
 
@@ -280,7 +294,7 @@ public class ImageCache {
       // rescale & cache
       BufferedImage originalImage = null;
       try {
-        originalImage = createImage(originalFile);
+        originalImage = imageData == null ? createImage(originalFile) : createImage(imageData);
       }
       catch (Exception e) {
         throw new Exception("cannot create image - file seems not to be valid? " + originalFile);
@@ -16,28 +16,24 @@
 package org.tinymediamanager.core;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.scraper.entities.MediaArtwork.MediaArtworkType;
-import org.tinymediamanager.scraper.http.Url;
 
 /**
  * The Class MediaEntityImageFetcherTask.
  * 
  * @author Manuel Laggner
  */
-public class MediaEntityImageFetcherTask implements Runnable {
+public class MediaEntityImageFetcherTask implements ArtworkDownloadScheduler.ArtworkTask {
   private final static Logger LOGGER = LoggerFactory.getLogger(MediaEntityImageFetcherTask.class);
 
   private MediaEntity         entity;
@@ -54,6 +50,11 @@ public class MediaEntityImageFetcherTask implements Runnable {
     this.firstImage = firstImage;
   }
 
+  @Override
+  public String getArtworkUrl() {
+    return url;
+  }
+
   @Override
   public void run() {
     long timestamp = System.currentTimeMillis(); // multi episode same file
@@ -69,6 +70,7 @@ public class MediaEntityImageFetcherTask implements Runnable {
 
       String oldFilename = null;
       Path tempFile = null;
+      byte[] imageData = null;
       try {
         // store old filename at the first image
         if (firstImage) {
@@ -105,28 +107,10 @@ public class MediaEntityImageFetcherTask implements Runnable {
           }
         }
 
-        // fetch and store images
+        // fetch and store images (the same url is only downloaded once)
         if (!sameFile) {
-          Url url1 = new Url(url);
-          FileOutputStream outputStream = new FileOutputStream(tempFile.toFile());
-          InputStream is = url1.getInputStreamWithRetry(5);
-          if (is == null) {
-            // 404 et all
-            IOUtils.closeQuietly(outputStream);
-            throw new FileNotFoundException("Error accessing url: " + url1.getStatusLine());
-          }
-          IOUtils.copy(is, outputStream);
-          outputStream.flush();
-          try {
-            outputStream.getFD().sync(); // wait until file has been completely written
-            // give it a few milliseconds
-            Thread.sleep(150);
-          }
-          catch (Exception e) {
-            // empty here -> just not let the thread crash
-          }
-          IOUtils.closeQuietly(outputStream);
-          IOUtils.closeQuietly(is);
+          imageData = ArtworkDownloadScheduler.getInstance().fetch(url);
+          ArtworkDownloadScheduler.getInstance().write(url, imageData, tempFile);
 
           // check if the file has been downloaded
           if (!Files.exists(tempFile) || Files.size(tempFile) == 0) {
@@ -146,6 +130,7 @@ public class MediaEntityImageFetcherTask implements Runnable {
           if (!Utils.moveFileSafe(tempFile, destFile)) {
             throw new Exception("renaming temp file failed: " + filename);
           }
+          ArtworkDownloadScheduler.getInstance().register(url, destFile);
         }
 
         // has tmm been shut down?
@@ -170,10 +155,10 @@ public class MediaEntityImageFetcherTask implements Runnable {
               entity.callbackForWrittenArtwork(type);
               entity.saveToDb();
 
-              // build up image cache
+              // build up image cache (from the already downloaded bytes)
               if (Settings.getInstance().isImageCache()) {
                 try {
-                  ImageCache.cacheImage(destFile);
+                  ImageCache.cacheImage(destFile, imageData);
                 }
                 catch (Exception ignored) {
                 }
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class PropertyChangeBus. Delivers the property change events of all {@link AbstractModelObject}s to the UI listeners:<br>
+ * - events fired in the EDT are delivered immediately<br>
+ * - events fired in other threads are collected and delivered at most once per frame in the EDT; multiple events for the same bean and property
+ * within a frame are coalesced into one event (old value of the first, new value of the last event); events which describe a delta (e.g. an added
+ * episode) are never coalesced but delivered in order<br>
+ * <br>
+ * Additionally every thread can open a bulk update (e.g. while setting the whole metadata of a movie); all events fired by this thread are held
+ * back until the bulk update is closed and delivered coalesced afterwards - for core and UI listeners.
+ *
+ * @author Manuel Laggner
+ */
+public final class PropertyChangeBus {
+  private static final Logger                      LOGGER       = LoggerFactory.getLogger(PropertyChangeBus.class);
+  private static final int                         FRAME_MILLIS = 16;
+  private static final Map<EventKey, PendingEvent> PENDING      = new LinkedHashMap<>();
+  private static final ThreadLocal<BulkUpdate>     BULK_UPDATE  = new ThreadLocal<>();
+  private static final AtomicLong                  SEQUENCE     = new AtomicLong();
+  // events of these properties carry a delta (the added/removed object) and must not be coalesced
+  private static final Set<String>                 DELTA_EVENTS = new HashSet<>(Arrays.asList(Constants.ADDED_EPISODE, Constants.REMOVED_EPISODE,
+      Constants.ADDED_SEASON, Constants.ADDED_TV_SHOW, Constants.REMOVED_TV_SHOW, "addedMovie", "removedMovie", "addedMovieSet", "removedMovieSet"));
+  private static final Timer                       FLUSH_TIMER;
+
+  static {
+    FLUSH_TIMER = new Timer(FRAME_MILLIS, new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        flush();
+      }
+    });
+    FLUSH_TIMER.setRepeats(false);
+  }
+
+  private PropertyChangeBus() {
+    // hide public constructor for utility classes
+  }
+
+  /**
+   * open a bulk update for the current thread. All property change events fired by this thread are held back until the (outermost) bulk update is
+   * closed. Use it in a try-with-resources block:
+   *
+   * <pre>
+   * try (PropertyChangeBus.BulkUpdate bulkUpdate = PropertyChangeBus.beginBulkUpdate()) {
+   *   movie.setMetadata(md, config);
+   * }
+   * </pre>
+   *
+   * @return the bulk update
+   */
+  public static BulkUpdate beginBulkUpdate() {
+    BulkUpdate bulkUpdate = BULK_UPDATE.get();
+    if (bulkUpdate == null) {
+      bulkUpdate = new BulkUpdate();
+      BULK_UPDATE.set(bulkUpdate);
+    }
+    bulkUpdate.depth++;
+    return bulkUpdate;
+  }
+
+  /**
+   * is there an open bulk update for the current thread?
+   *
+   * @return true if a bulk update is open
+   */
+  public static boolean isBulkUpdate() {
+    return BULK_UPDATE.get() != null;
+  }
+
+  /**
+   * fire the event of the given bean; either dispatch it directly or hold it back if there is an open bulk update
+   */
+  static void fire(AbstractModelObject bean, PropertyChangeEvent evt) {
+    BulkUpdate bulkUpdate = BULK_UPDATE.get();
+    if (bulkUpdate != null) {
+      bulkUpdate.add(bean, evt);
+    }
+    else {
+      bean.dispatchPropertyChange(evt);
+    }
+  }
+
+  /**
+   * deliver the event to the UI listeners; immediately in the EDT or coalesced in the next frame otherwise
+   */
+  static void post(PropertyChangeSupport uiSupport, Object bean, PropertyChangeEvent evt) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      // this event supersedes a pending event for the same property
+      synchronized (PENDING) {
+        PENDING.remove(new EventKey(bean, evt));
+      }
+      uiSupport.firePropertyChange(evt);
+      return;
+    }
+
+    boolean schedule;
+    synchronized (PENDING) {
+      schedule = PENDING.isEmpty();
+      EventKey key = new EventKey(bean, evt);
+      PendingEvent pending = PENDING.get(key);
+      if (pending == null) {
+        PENDING.put(key, new PendingEvent(uiSupport, evt));
+      }
+      else {
+        pending.merge(evt);
+      }
+    }
+
+    if (schedule) {
+      FLUSH_TIMER.restart();
+    }
+  }
+
+  /**
+   * deliver all pending events (in the EDT)
+   */
+  static void flush() {
+    List<PendingEvent> events;
+    synchronized (PENDING) {
+      events = new ArrayList<>(PENDING.values());
+      PENDING.clear();
+    }
+
+    for (PendingEvent pending : events) {
+      try {
+        pending.uiSupport.firePropertyChange(pending.event);
+      }
+      catch (Exception e) {
+        LOGGER.warn("problem delivering property change event {}: {}", pending.event.getPropertyName(), e.getMessage());
+      }
+    }
+  }
+
+  private static PropertyChangeEvent merge(PropertyChangeEvent first, PropertyChangeEvent last) {
+    PropertyChangeEvent evt = new PropertyChangeEvent(last.getSource(), last.getPropertyName(), first.getOldValue(), last.getNewValue());
+    evt.setPropagationId(last.getPropagationId());
+    return evt;
+  }
+
+  /**
+   * a bulk update of the current thread; closing the outermost bulk update delivers all held back events
+   */
+  public static final class BulkUpdate implements AutoCloseable {
+    private final Map<EventKey, PendingEvent> events = new LinkedHashMap<>();
+    private int                               depth  = 0;
+
+    private BulkUpdate() {
+    }
+
+    private void add(AbstractModelObject bean, PropertyChangeEvent evt) {
+      EventKey key = new EventKey(bean, evt);
+      PendingEvent pending = events.get(key);
+      if (pending == null) {
+        events.put(key, new PendingEvent(bean, evt));
+      }
+      else {
+        pending.merge(evt);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (--depth > 0) {
+        return;
+      }
+      BULK_UPDATE.remove();
+
+      for (PendingEvent pending : events.values()) {
+        pending.bean.dispatchPropertyChange(pending.event);
+      }
+      events.clear();
+    }
+  }
+
+  private static class PendingEvent {
+    private final PropertyChangeSupport uiSupport;
+    private final AbstractModelObject   bean;
+    private PropertyChangeEvent         event;
+
+    private PendingEvent(PropertyChangeSupport uiSupport, PropertyChangeEvent event) {
+      this.uiSupport = uiSupport;
+      this.bean = null;
+      this.event = event;
+    }
+
+    private PendingEvent(AbstractModelObject bean, PropertyChangeEvent event) {
+      this.uiSupport = null;
+      this.bean = bean;
+      this.event = event;
+    }
+
+    private void merge(PropertyChangeEvent evt) {
+      event = PropertyChangeBus.merge(event, evt);
+    }
+  }
+
+  /**
+   * events are coalesced per bean, source (forwarded events) and property; delta events get a unique key
+   */
+  private static class EventKey {
+    private final Object bean;
+    private final Object source;
+    private final String propertyName;
+    private final long   sequence;
+
+    private EventKey(Object bean, PropertyChangeEvent evt) {
+      this.bean = bean;
+      this.source = evt.getSource();
+      this.propertyName = evt.getPropertyName();
+      this.sequence = DELTA_EVENTS.contains(propertyName) ? SEQUENCE.incrementAndGet() : 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof EventKey)) {
+        return false;
+      }
+      EventKey other = (EventKey) obj;
+      return bean == other.bean && source == other.source && sequence == other.sequence
+          && (propertyName == null ? other.propertyName == null : propertyName.equals(other.propertyName));
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(bean);
+      result = 31 * result + System.identityHashCode(source);
+      result = 31 * result + (propertyName == null ? 0 : propertyName.hashCode());
+      result = 31 * result + (int) (sequence ^ (sequence >>> 32));
+      return result;
+    }
+  }
+}
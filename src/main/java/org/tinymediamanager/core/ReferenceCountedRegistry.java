@@ -0,0 +1,249 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The class ReferenceCountedRegistry. Keeps track of all distinct values (tags, codecs, ...) used by a set of owners (movies, episodes, ...). Every
+ * value is reference counted, so adding/removing the values of an owner is O(1) per value and a value vanishes as soon as the last owner drops it.
+ * <br>
+ * The distinct values are published to an (observable) list; changes to that list are collected and published at once - either directly after an
+ * update or at the end of a batch.
+ *
+ * @param <T>
+ *          the type of the values
+ * @author Manuel Laggner
+ */
+public class ReferenceCountedRegistry<T> {
+  private static final int                 OWNER_LOCKS   = 64;
+
+  private final List<T>                    publishedValues;
+  private final Runnable                   changeListener;
+  private final ConcurrentMap<T, Integer>  counts        = new ConcurrentHashMap<>();
+  private final Map<Object, Collection<T>> contributions = new ConcurrentHashMap<>();
+  // the updates of one owner are serialized (the swap of the values and the counting must not interleave)
+  private final Object[]                   ownerLocks    = new Object[OWNER_LOCKS];
+
+  // guarded by this
+  private final Set<T>                     dirtyValues   = new LinkedHashSet<>();
+  private int                              batchDepth    = 0;
+
+  /**
+   * create a new registry
+   *
+   * @param publishedValues
+   *          the list where all distinct values will be published to (may be null if only the reference counts are needed)
+   * @param changeListener
+   *          will be invoked after the published list has been changed (may be null)
+   */
+  public ReferenceCountedRegistry(List<T> publishedValues, Runnable changeListener) {
+    this.publishedValues = publishedValues;
+    this.changeListener = changeListener;
+    for (int i = 0; i < ownerLocks.length; i++) {
+      ownerLocks[i] = new Object();
+    }
+  }
+
+  /**
+   * set the values of the given owner; all values which were previously set for this owner will be replaced
+   *
+   * @param owner
+   *          the owner of the values
+   * @param values
+   *          the values (null values will be ignored)
+   */
+  public void update(Object owner, Collection<T> values) {
+    Set<T> newValues = new HashSet<>(values);
+    newValues.remove(null);
+
+    List<T> changedValues = new ArrayList<>(0);
+    synchronized (getOwnerLock(owner)) {
+      Collection<T> oldValues;
+      if (newValues.isEmpty()) {
+        oldValues = contributions.remove(owner);
+      }
+      else {
+        oldValues = contributions.put(owner, newValues);
+      }
+      if (oldValues == null) {
+        oldValues = Collections.emptySet();
+      }
+
+      for (T value : newValues) {
+        if (!oldValues.contains(value) && increment(value)) {
+          changedValues.add(value);
+        }
+      }
+      for (T value : oldValues) {
+        if (!newValues.contains(value) && decrement(value)) {
+          changedValues.add(value);
+        }
+      }
+    }
+
+    if (!changedValues.isEmpty()) {
+      markDirty(changedValues);
+    }
+  }
+
+  /**
+   * remove all values of the given owner
+   *
+   * @param owner
+   *          the owner to remove
+   */
+  public void remove(Object owner) {
+    update(owner, Collections.<T> emptySet());
+  }
+
+  /**
+   * get the amount of owners which use the given value
+   *
+   * @param value
+   *          the value
+   * @return the amount of owners using this value
+   */
+  public int getCount(T value) {
+    Integer count = counts.get(value);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * start a batch; changes to the published list will be held back until the (last) batch ends
+   */
+  public synchronized void beginBatch() {
+    batchDepth++;
+  }
+
+  /**
+   * end a batch and publish all collected changes
+   */
+  public void endBatch() {
+    synchronized (this) {
+      if (batchDepth > 0) {
+        batchDepth--;
+      }
+      if (batchDepth > 0) {
+        return;
+      }
+    }
+    publish();
+  }
+
+  private Object getOwnerLock(Object owner) {
+    int hash = owner.hashCode();
+    hash ^= hash >>> 16;
+    return ownerLocks[(hash & Integer.MAX_VALUE) % ownerLocks.length];
+  }
+
+  /**
+   * @return true if the value has been used the first time
+   */
+  private boolean increment(T value) {
+    while (true) {
+      Integer count = counts.putIfAbsent(value, 1);
+      if (count == null) {
+        return true;
+      }
+      if (counts.replace(value, count, count + 1)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * @return true if the value is not used any more
+   */
+  private boolean decrement(T value) {
+    while (true) {
+      Integer count = counts.get(value);
+      if (count == null) {
+        return true;
+      }
+      if (count > 1) {
+        if (counts.replace(value, count, count - 1)) {
+          return false;
+        }
+      }
+      else if (counts.remove(value, count)) {
+        return true;
+      }
+    }
+  }
+
+  private void markDirty(Collection<T> values) {
+    if (publishedValues == null) {
+      return;
+    }
+    synchronized (this) {
+      dirtyValues.addAll(values);
+      if (batchDepth > 0) {
+        return;
+      }
+    }
+    publish();
+  }
+
+  private void publish() {
+    if (publishedValues == null) {
+      return;
+    }
+    boolean changed = false;
+
+    synchronized (publishedValues) {
+      List<T> valuesToAdd = new ArrayList<>();
+      List<T> valuesToRemove = new ArrayList<>();
+
+      synchronized (this) {
+        // the current count decides - not the order of the changes
+        for (T value : dirtyValues) {
+          boolean used = counts.containsKey(value);
+          boolean published = publishedValues.contains(value);
+          if (used && !published) {
+            valuesToAdd.add(value);
+          }
+          else if (!used && published) {
+            valuesToRemove.add(value);
+          }
+        }
+        dirtyValues.clear();
+      }
+
+      if (!valuesToAdd.isEmpty()) {
+        publishedValues.addAll(valuesToAdd);
+        changed = true;
+      }
+      if (!valuesToRemove.isEmpty()) {
+        publishedValues.removeAll(valuesToRemove);
+        changed = true;
+      }
+    }
+
+    if (changed && changeListener != null) {
+      changeListener.run();
+    }
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class ScrapeSession. A response cache for the scraper calls of one scrape task, shared by all its workers.<br>
+ * Responses are cached per (provider, request) in memory for the whole session, so scraping the same item again needs no provider call. The disk
+ * cache (serializable responses are kept for a day) is opt-in: only for unattended scraping, a rescrape triggered by the user always gets fresh
+ * data. Identical requests running at the same time are executed only once. Empty responses are never cached.
+ * 
+ * @author Manuel Laggner
+ */
+public class ScrapeSession {
+  private static final Logger                             LOGGER          = LoggerFactory.getLogger(ScrapeSession.class);
+  private static final Path                               CACHE_DIR       = Paths.get("cache/scrape");
+  static final long                                       DISK_TTL        = TimeUnit.DAYS.toMillis(1);
+
+  private final Path                                      cacheDir;
+  private final long                                      diskTtl;
+  private final Map<String, Object>                       memoryCache     = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, FutureTask<Object>> runningRequests = new ConcurrentHashMap<>();
+  private final Map<String, ProviderStatistics>           statistics      = new ConcurrentHashMap<>();
+
+  /**
+   * a request to a provider
+   */
+  public interface Request<T> {
+    T execute() throws Exception;
+  }
+
+  /**
+   * create a session with a memory cache only
+   */
+  public ScrapeSession() {
+    this(null, 0);
+  }
+
+  /**
+   * create a session
+   * 
+   * @param diskCache
+   *          cache the responses on disk too (for a day)
+   */
+  public ScrapeSession(boolean diskCache) {
+    this(diskCache ? CACHE_DIR : null, diskCache ? DISK_TTL : 0);
+  }
+
+  /**
+   * create a session with the given disk cache
+   * 
+   * @param cacheDir
+   *          the folder for the disk cache (null for memory only)
+   * @param diskTtl
+   *          the time in ms how long the responses are valid on disk
+   */
+  ScrapeSession(Path cacheDir, long diskTtl) {
+    this.cacheDir = cacheDir;
+    this.diskTtl = diskTtl;
+  }
+
+  /**
+   * get the response of the given request - from the cache or by executing it
+   * 
+   * @param providerId
+   *          the id of the provider
+   * @param requestKey
+   *          the unique description of the request (all parameters which affect the response); null to execute the request uncached
+   * @param request
+   *          the request to the provider
+   * @return the response
+   * @throws Exception
+   *           any exception of the request
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String providerId, String requestKey, final Request<T> request) throws Exception {
+    final ProviderStatistics providerStatistics = getProviderStatistics(providerId);
+    if (requestKey == null) {
+      providerStatistics.misses.incrementAndGet();
+      return request.execute();
+    }
+
+    final String key = providerId + "|" + requestKey;
+    Object response = memoryCache.get(key);
+    if (response != null) {
+      providerStatistics.memoryHits.incrementAndGet();
+      return (T) response;
+    }
+
+    FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return load(key, request, providerStatistics);
+      }
+    });
+    FutureTask<Object> running = runningRequests.putIfAbsent(key, task);
+    if (running == null) {
+      running = task;
+      task.run();
+    }
+    else {
+      // the same request is already running - wait for its response
+      providerStatistics.sharedRequests.incrementAndGet();
+    }
+
+    try {
+      return (T) running.get();
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+    finally {
+      if (running == task) {
+        runningRequests.remove(key, task);
+      }
+    }
+  }
+
+  private Object load(String key, Request<?> request, ProviderStatistics providerStatistics) throws Exception {
+    // the same request may have finished in the meantime
+    Object response = memoryCache.get(key);
+    if (response != null) {
+      providerStatistics.memoryHits.incrementAndGet();
+      return response;
+    }
+
+    response = readFromDisk(key);
+    if (response != null) {
+      providerStatistics.diskHits.incrementAndGet();
+      memoryCache.put(key, response);
+      return response;
+    }
+
+    providerStatistics.misses.incrementAndGet();
+    long start = System.nanoTime();
+    response = request.execute();
+    providerStatistics.requestTime.addAndGet(System.nanoTime() - start);
+
+    if (!isEmpty(response)) {
+      memoryCache.put(key, response);
+      writeToDisk(key, response);
+    }
+    return response;
+  }
+
+  private static boolean isEmpty(Object response) {
+    if (response == null) {
+      return true;
+    }
+    if (response instanceof Collection) {
+      return ((Collection<?>) response).isEmpty();
+    }
+    return false;
+  }
+
+  private Path getCacheFile(String key) {
+    return cacheDir.resolve(ImageCache.getMD5(key) + ".cache");
+  }
+
+  private Object readFromDisk(String key) {
+    if (cacheDir == null) {
+      return null;
+    }
+
+    Path file = getCacheFile(key);
+    try {
+      if (!Files.exists(file)) {
+        return null;
+      }
+      if (System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis() > diskTtl) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+      try (InputStream is = Files.newInputStream(file); ObjectInputStream ois = new ObjectInputStream(is)) {
+        // the key is stored too - for the (very unlikely) case of a hash collision
+        if (!key.equals(ois.readObject())) {
+          return null;
+        }
+        return ois.readObject();
+      }
+    }
+    catch (Exception e) {
+      LOGGER.debug("could not read cached response {}: {}", file, e.getMessage());
+      try {
+        Files.deleteIfExists(file);
+      }
+      catch (IOException ignored) {
+      }
+    }
+    return null;
+  }
+
+  private void writeToDisk(String key, Object response) {
+    if (cacheDir == null || !(response instanceof Serializable)) {
+      return;
+    }
+
+    Path file = getCacheFile(key);
+    Path tempFile = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().getId());
+    try {
+      Files.createDirectories(cacheDir);
+      try (OutputStream os = Files.newOutputStream(tempFile); ObjectOutputStream oos = new ObjectOutputStream(os)) {
+        oos.writeObject(key);
+        oos.writeObject(response);
+      }
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (Exception e) {
+      // not all responses can be serialized; they are cached in memory only
+      LOGGER.trace("could not cache response on disk: {}", e.getMessage());
+      try {
+        Files.deleteIfExists(tempFile);
+      }
+      catch (IOException ignored) {
+      }
+    }
+  }
+
+  private ProviderStatistics getProviderStatistics(String providerId) {
+    ProviderStatistics providerStatistics = statistics.get(providerId);
+    if (providerStatistics == null) {
+      statistics.putIfAbsent(providerId, new ProviderStatistics());
+      providerStatistics = statistics.get(providerId);
+    }
+    return providerStatistics;
+  }
+
+  /**
+   * get the cache statistics of all used providers
+   * 
+   * @return a map of the provider ids and their statistics
+   */
+  public Map<String, ProviderStatistics> getStatistics() {
+    return new TreeMap<>(statistics);
+  }
+
+  /**
+   * end this session: log the statistics, release the memory cache and remove expired responses from the disk cache
+   */
+  public void close() {
+    for (Map.Entry<String, ProviderStatistics> entry : getStatistics().entrySet()) {
+      ProviderStatistics providerStatistics = entry.getValue();
+      LOGGER.info("scrape session - {}: {} requests, hit rate {}%, {} ms in provider calls", entry.getKey(), providerStatistics.getRequests(),
+          Math.round(providerStatistics.getHitRate() * 100), providerStatistics.getRequestTime());
+    }
+    memoryCache.clear();
+
+    if (cacheDir == null || !Files.isDirectory(cacheDir)) {
+      return;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir)) {
+      long now = System.currentTimeMillis();
+      for (Path file : stream) {
+        if (now - Files.getLastModifiedTime(file).toMillis() > diskTtl) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+    catch (Exception e) {
+      LOGGER.debug("could not clean up the scrape cache: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * the cache statistics of one provider
+   */
+  public static class ProviderStatistics {
+    private final AtomicInteger memoryHits     = new AtomicInteger();
+    private final AtomicInteger diskHits       = new AtomicInteger();
+    private final AtomicInteger sharedRequests = new AtomicInteger();
+    private final AtomicInteger misses         = new AtomicInteger();
+    private final AtomicLong    requestTime    = new AtomicLong();
+
+    /**
+     * responses found in the memory cache
+     */
+    public int getMemoryHits() {
+      return memoryHits.get();
+    }
+
+    /**
+     * responses found in the disk cache
+     */
+    public int getDiskHits() {
+      return diskHits.get();
+    }
+
+    /**
+     * requests which waited for the same request running at the same time
+     */
+    public int getSharedRequests() {
+      return sharedRequests.get();
+    }
+
+    /**
+     * requests which have been executed by the provider
+     */
+    public int getMisses() {
+      return misses.get();
+    }
+
+    public int getRequests() {
+      return getMemoryHits() + getDiskHits() + getSharedRequests() + getMisses();
+    }
+
+    /**
+     * the share of requests which needed no provider call (0 - 1)
+     */
+    public double getHitRate() {
+      int requests = getRequests();
+      if (requests == 0) {
+        return 0;
+      }
+      return (requests - getMisses()) / (double) requests;
+    }
+
+    /**
+     * the time spent in provider calls in ms
+     */
+    public long getRequestTime() {
+      return TimeUnit.NANOSECONDS.toMillis(requestTime.get());
+    }
+  }
+}
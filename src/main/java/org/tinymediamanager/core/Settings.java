@@ -19,12 +19,10 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
-import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -34,6 +32,7 @@ import java.util.List;
 import java.util.Locale;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -43,7 +42,6 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
@@ -81,6 +79,7 @@ public class Settings extends AbstractModelObject {
   private static String               settingsFolder              = DEFAULT_CONFIG_FOLDER;
   private static String               configFile                  = DEFAULT_CONFIG_FILE;
   private static Settings             instance;
+  private static JAXBContext          context;
 
   /**
    * Constants mainly for events
@@ -139,7 +138,7 @@ public class Settings extends AbstractModelObject {
 
   private boolean                     imageCache                  = true;
   private CacheType                   imageCacheType              = CacheType.SMOOTH;
-  private boolean                     dirty                       = false;
+  private volatile boolean            dirty                       = false;
   private MovieSettings               movieSettings               = null;
   private TvShowSettings              tvShowSettings              = null;
   private MovieScraperMetadataConfig  movieScraperMetadataConfig  = null;
@@ -155,12 +154,16 @@ public class Settings extends AbstractModelObject {
   private boolean                     deleteTrashOnExit           = false;
 
   private PropertyChangeListener      propertyChangeListener;
+  private SettingsWriter              settingsWriter;
   @XmlTransient
   public boolean                      newConfig                   = false;
 
   private boolean                     upnpShareLibrary            = false;
   private boolean                     upnpRemotePlay              = false;
   private boolean                     ignoreSSLProblems           = false;
+  private int                         maximumDownloadThreads      = 2;
+  private int                         parallelDownloadChunks      = 4;
+  private boolean                     verifyFileTransfers         = false;
 
   /**
    * Instantiates a new settings.
@@ -172,17 +175,17 @@ public class Settings extends AbstractModelObject {
         setDirty();
       }
     };
-    addPropertyChangeListener(propertyChangeListener);
+    addCorePropertyChangeListener(propertyChangeListener);
 
     // default values
     movieSettings = new MovieSettings();
-    movieSettings.addPropertyChangeListener(propertyChangeListener);
+    movieSettings.addCorePropertyChangeListener(propertyChangeListener);
     tvShowSettings = new TvShowSettings();
-    tvShowSettings.addPropertyChangeListener(propertyChangeListener);
+    tvShowSettings.addCorePropertyChangeListener(propertyChangeListener);
     movieScraperMetadataConfig = new MovieScraperMetadataConfig();
-    movieScraperMetadataConfig.addPropertyChangeListener(propertyChangeListener);
+    movieScraperMetadataConfig.addCorePropertyChangeListener(propertyChangeListener);
     tvShowScraperMetadataConfig = new TvShowScraperMetadataConfig();
-    tvShowScraperMetadataConfig.addPropertyChangeListener(propertyChangeListener);
+    tvShowScraperMetadataConfig.addCorePropertyChangeListener(propertyChangeListener);
   }
 
   public String getSettingsFolder() {
@@ -252,10 +255,8 @@ public class Settings extends AbstractModelObject {
       }
 
       // try to parse XML
-      JAXBContext context;
       try {
-        context = JAXBContext.newInstance(Settings.class);
-        Unmarshaller um = context.createUnmarshaller();
+        Unmarshaller um = getContext().createUnmarshaller();
         try {
           LOGGER.debug("Loading settings from " + folder + "/" + configFile);
           Reader in = new InputStreamReader(new FileInputStream(new File(folder, configFile)), "UTF-8");
@@ -281,6 +282,20 @@ public class Settings extends AbstractModelObject {
     return Settings.instance;
   }
 
+  /**
+   * get the JAXB context for the settings; the creation of the context is rather expensive, so we create it only once
+   * 
+   * @return the JAXB context
+   * @throws JAXBException
+   *           any exception while creating the context
+   */
+  private static synchronized JAXBContext getContext() throws JAXBException {
+    if (context == null) {
+      context = JAXBContext.newInstance(Settings.class);
+    }
+    return context;
+  }
+
   /**
    * is our settings file up2date?
    */
@@ -477,7 +492,7 @@ public class Settings extends AbstractModelObject {
   }
 
   /**
-   * Save settings.
+   * Save settings. The settings will be written debounced in a background thread, so many subsequent calls will result in only one write.
    */
   public void saveSettings() {
     // is there anything to save?
@@ -485,48 +500,65 @@ public class Settings extends AbstractModelObject {
       return;
     }
 
-    // create JAXB context and instantiate marshaller
-    JAXBContext context;
-    Writer w = null;
+    // set proxy information
+    setProxy();
+
+    getSettingsWriter().schedule();
+  }
+
+  /**
+   * Write all pending changes of the settings immediately (in the calling thread). Should be called on shutdown.
+   */
+  public void flushSettings() {
+    getSettingsWriter().shutdown();
+    // write changes which have not been scheduled yet
+    writeSettings();
+  }
+
+  private synchronized SettingsWriter getSettingsWriter() {
+    if (settingsWriter == null) {
+      settingsWriter = new SettingsWriter(new Runnable() {
+        @Override
+        public void run() {
+          writeSettings();
+        }
+      });
+    }
+    return settingsWriter;
+  }
+
+  /**
+   * really write the settings to the config file
+   */
+  private synchronized void writeSettings() {
+    // is there anything to save?
+    if (!dirty) {
+      return;
+    }
+
+    // clear dirty flag before marshalling; changes while marshalling will mark the settings dirty again
+    clearDirty();
+
     try {
-      context = JAXBContext.newInstance(Settings.class);
-      Marshaller m = context.createMarshaller();
+      Marshaller m = getContext().createMarshaller();
       m.setProperty("jaxb.encoding", "UTF-8");
       m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-      w = new StringWriter();
+      StringWriter w = new StringWriter();
       m.marshal(this, w);
-      StringBuilder sb = new StringBuilder(w.toString());
-      w.close();
+      String xml = w.toString();
 
       // on windows make windows conform linebreaks
       if (SystemUtils.IS_OS_WINDOWS) {
-        sb = new StringBuilder(sb.toString().replaceAll("(?<!\r)\n", "\r\n"));
+        xml = xml.replaceAll("(?<!\r)\n", "\r\n");
       }
 
-      w = new FileWriter(new File(settingsFolder, configFile));
-      String xml = sb.toString();
-      IOUtils.write(xml, w);
-
+      SettingsWriter.writeAtomically(Paths.get(settingsFolder, configFile), xml);
     }
     catch (Exception e) {
       LOGGER.error("saveSettings", e);
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "tmm.settings", "message.config.savesettingserror"));
+      setDirty();
     }
-    finally {
-      try {
-        w.close();
-      }
-      catch (Exception e) {
-        LOGGER.error("saveSettings", e);
-        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "tmm.settings", "message.config.savesettingserror"));
-      }
-    }
-
-    // set proxy information
-    setProxy();
-
-    // clear dirty flag
-    clearDirty();
   }
 
   /**
@@ -879,7 +911,7 @@ public class Settings extends AbstractModelObject {
    */
   public void setMovieSettings(MovieSettings movieSettings) {
     this.movieSettings = movieSettings;
-    this.movieSettings.addPropertyChangeListener(propertyChangeListener);
+    this.movieSettings.addCorePropertyChangeListener(propertyChangeListener);
   }
 
   /**
@@ -899,7 +931,7 @@ public class Settings extends AbstractModelObject {
    */
   public void setTvShowSettings(TvShowSettings tvShowSettings) {
     this.tvShowSettings = tvShowSettings;
-    this.tvShowSettings.addPropertyChangeListener(propertyChangeListener);
+    this.tvShowSettings.addCorePropertyChangeListener(propertyChangeListener);
   }
 
   /**
@@ -928,7 +960,7 @@ public class Settings extends AbstractModelObject {
    */
   public void setMovieScraperMetadataConfig(MovieScraperMetadataConfig scraperMetadataConfig) {
     this.movieScraperMetadataConfig = scraperMetadataConfig;
-    this.movieScraperMetadataConfig.addPropertyChangeListener(propertyChangeListener);
+    this.movieScraperMetadataConfig.addCorePropertyChangeListener(propertyChangeListener);
   }
 
   /**
@@ -948,7 +980,7 @@ public class Settings extends AbstractModelObject {
    */
   public void setTvShowScraperMetadataConfig(TvShowScraperMetadataConfig scraperMetadataConfig) {
     this.tvShowScraperMetadataConfig = scraperMetadataConfig;
-    this.tvShowScraperMetadataConfig.addPropertyChangeListener(propertyChangeListener);
+    this.tvShowScraperMetadataConfig.addCorePropertyChangeListener(propertyChangeListener);
   }
 
   /**
@@ -1059,6 +1091,69 @@ public class Settings extends AbstractModelObject {
     }
   }
 
+  /**
+   * how many downloads (trailers, subtitles) can run at the same time?
+   *
+   * @return the maximum amount of concurrent downloads
+   */
+  public int getMaximumDownloadThreads() {
+    return maximumDownloadThreads;
+  }
+
+  /**
+   * set how many downloads (trailers, subtitles) can run at the same time
+   *
+   * @param newValue
+   *          the maximum amount of concurrent downloads
+   */
+  public void setMaximumDownloadThreads(int newValue) {
+    int oldValue = this.maximumDownloadThreads;
+    this.maximumDownloadThreads = newValue;
+    firePropertyChange("maximumDownloadThreads", oldValue, newValue);
+  }
+
+  /**
+   * in how many parallel chunks can a big download be split?
+   *
+   * @return the amount of parallel chunks (1 = no splitting)
+   */
+  public int getParallelDownloadChunks() {
+    return parallelDownloadChunks;
+  }
+
+  /**
+   * set in how many parallel chunks a big download can be split
+   *
+   * @param newValue
+   *          the amount of parallel chunks (1 = no splitting)
+   */
+  public void setParallelDownloadChunks(int newValue) {
+    int oldValue = this.parallelDownloadChunks;
+    this.parallelDownloadChunks = newValue;
+    firePropertyChange("parallelDownloadChunks", oldValue, newValue);
+  }
+
+  /**
+   * should files moved to another drive be verified by a checksum (besides the size)?
+   *
+   * @return true if the checksum of the copied files is checked
+   */
+  public boolean isVerifyFileTransfers() {
+    return verifyFileTransfers;
+  }
+
+  /**
+   * set if files moved to another drive should be verified by a checksum
+   *
+   * @param newValue
+   *          true if the checksum of the copied files should be checked
+   */
+  public void setVerifyFileTransfers(boolean newValue) {
+    boolean oldValue = this.verifyFileTransfers;
+    this.verifyFileTransfers = newValue;
+    firePropertyChange("verifyFileTransfers", oldValue, newValue);
+  }
+
   /**
    * get Localge.getLanguage() 2 char from settings
    * 
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class SettingsWriter. Persists the settings debounced in a background thread: every save request (re)starts a short delay and only the last
+ * request within that delay results in a write. The file is written into a temp file first and then moved over the existing one, so a crash while
+ * writing never leaves a truncated config behind.
+ *
+ * @author Manuel Laggner
+ */
+class SettingsWriter {
+  private static final Logger            LOGGER        = LoggerFactory.getLogger(SettingsWriter.class);
+  private static final long              DEBOUNCE_TIME = 1000;                                           // ms
+
+  private final Runnable                 writeAction;
+  private final ScheduledExecutorService executor;
+  private ScheduledFuture<?>             pending;
+
+  /**
+   * create a new settings writer
+   *
+   * @param writeAction
+   *          the action which will be invoked to really write the settings
+   */
+  SettingsWriter(Runnable writeAction) {
+    this.writeAction = writeAction;
+    this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        // do not use the tmmpool naming here; otherwise this thread would be detected as a running task
+        Thread t = new Thread(r, "settings-writer");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
+    // last chance to write pending changes
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, "settings-writer-shutdown"));
+  }
+
+  /**
+   * schedule a write of the settings; multiple calls within the debounce time will result in only one write
+   */
+  synchronized void schedule() {
+    if (executor.isShutdown()) {
+      // already shutting down - write synchronous
+      writeAction.run();
+      return;
+    }
+    if (pending != null) {
+      pending.cancel(false);
+    }
+    pending = executor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (SettingsWriter.this) {
+          pending = null;
+        }
+        writeAction.run();
+      }
+    }, DEBOUNCE_TIME, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * write all pending changes immediately in the calling thread
+   */
+  void flush() {
+    synchronized (this) {
+      if (pending == null) {
+        return;
+      }
+      // if the task is already running, the write action takes care of the rest
+      if (!pending.cancel(false)) {
+        pending = null;
+        return;
+      }
+      pending = null;
+    }
+    writeAction.run();
+  }
+
+  /**
+   * flush all pending changes and stop the background thread
+   */
+  void shutdown() {
+    flush();
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * write the given content atomically to the destination: write to a temp file in the same folder and move it over the destination afterwards
+   *
+   * @param destination
+   *          the destination file
+   * @param content
+   *          the content to write
+   * @throws IOException
+   *           any exception occurred while writing
+   */
+  static void writeAtomically(Path destination, String content) throws IOException {
+    Path tempFile = destination.resolveSibling(destination.getFileName() + ".tmp");
+    try (OutputStream os = Files.newOutputStream(tempFile)) {
+      os.write(content.getBytes(StandardCharsets.UTF_8));
+      os.flush();
+    }
+
+    try {
+      Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      LOGGER.debug("atomic move not supported - falling back to a normal move");
+      Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.threading.TokenBucket;
+import org.tinymediamanager.scraper.MediaScraper;
+import org.tinymediamanager.scraper.SubtitleSearchOptions;
+import org.tinymediamanager.scraper.SubtitleSearchResult;
+import org.tinymediamanager.scraper.entities.MediaLanguages;
+import org.tinymediamanager.scraper.mediaprovider.IMediaSubtitleProvider;
+
+/**
+ * The class SubtitleSearchEngine. Searches subtitles for a media file at all subtitle providers in parallel:<br>
+ * - the file hash (OpenSubtitles algorithm) is computed once per file and cached by path, size and modification date<br>
+ * - the results of every provider are cached by file hash and language (the same file is never searched twice at the same provider); empty results
+ * are not cached, so that subtitles which are uploaded later will be found<br>
+ * - every provider has its own token bucket, so that bulk searches do not exceed the rate limit of the provider
+ *
+ * @author Manuel Laggner
+ */
+public class SubtitleSearchEngine {
+  private static final Logger                           LOGGER          = LoggerFactory.getLogger(SubtitleSearchEngine.class);
+  private static final SubtitleSearchEngine             INSTANCE        = new SubtitleSearchEngine();
+
+  private static final int                              HASH_CHUNK_SIZE = 64 * 1024;
+  private static final int                              MAX_CACHE_SIZE  = 20000;
+  private static final long                             SEARCH_TIMEOUT  = 60;
+  // the default rate limit per provider (OpenSubtitles allows 40 requests per 10 seconds)
+  private static final double                           DEFAULT_RATE    = 3.5;
+  private static final int                              DEFAULT_BURST   = 10;
+
+  private final ExecutorService                         executor;
+  private final Map<HashKey, String>                    hashCache       = new ConcurrentHashMap<>();
+  private final Map<String, List<SubtitleSearchResult>> resultCache     = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, TokenBucket>  rateLimiters    = new ConcurrentHashMap<>();
+
+  private SubtitleSearchEngine() {
+    final AtomicInteger threadCounter = new AtomicInteger();
+    executor = Executors.newCachedThreadPool(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "subtitle-search-" + threadCounter.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  public static SubtitleSearchEngine getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * set the rate limit for the given provider
+   *
+   * @param providerId
+   *          the id of the provider
+   * @param permitsPerSecond
+   *          the average amount of requests per second
+   * @param burst
+   *          the maximum amount of requests in a burst
+   */
+  public void setRateLimit(String providerId, double permitsPerSecond, int burst) {
+    rateLimiters.put(providerId, new TokenBucket(permitsPerSecond, burst));
+  }
+
+  /**
+   * search the best matching subtitle (score of 100% and a download url) at all given providers in parallel. If more than one provider has a
+   * perfect match, the result of the first provider (in the given order) is taken
+   *
+   * @param scrapers
+   *          the subtitle scrapers
+   * @param mediaFile
+   *          the media file to search subtitles for
+   * @param language
+   *          the language of the subtitle
+   * @param options
+   *          the search options (without the file hash - every provider computes it on its own)
+   * @return the best result or null if no provider delivered a perfect match
+   * @throws InterruptedException
+   *           if interrupted while waiting for the providers
+   */
+  public SubtitleSearchResult searchBestMatch(List<MediaScraper> scrapers, MediaFile mediaFile, MediaLanguages language,
+      final SubtitleSearchOptions options) throws InterruptedException {
+    String fileHash = getFileHash(mediaFile.getFileAsPath());
+
+    List<Future<List<SubtitleSearchResult>>> futures = new ArrayList<>();
+    for (final MediaScraper scraper : scrapers) {
+      final String cacheKey = StringUtils.isBlank(fileHash) ? null : fileHash + "|" + scraper.getId() + "|" + language.name();
+      futures.add(executor.submit(new Callable<List<SubtitleSearchResult>>() {
+        @Override
+        public List<SubtitleSearchResult> call() throws Exception {
+          return search(scraper, options, cacheKey);
+        }
+      }));
+    }
+
+    SubtitleSearchResult bestResult = null;
+    for (int i = 0; i < futures.size(); i++) {
+      Future<List<SubtitleSearchResult>> future = futures.get(i);
+      try {
+        List<SubtitleSearchResult> results = future.get(SEARCH_TIMEOUT, TimeUnit.SECONDS);
+        if (bestResult == null && !results.isEmpty()) {
+          SubtitleSearchResult firstResult = results.get(0);
+          if (firstResult.getScore() >= 1.0f && StringUtils.isNotBlank(firstResult.getUrl())) {
+            bestResult = firstResult;
+          }
+        }
+      }
+      catch (TimeoutException e) {
+        LOGGER.warn("subtitle search at {} timed out", scrapers.get(i).getId());
+        future.cancel(true);
+      }
+      catch (InterruptedException e) {
+        for (Future<List<SubtitleSearchResult>> f : futures) {
+          f.cancel(true);
+        }
+        throw e;
+      }
+      catch (Exception e) {
+        LOGGER.error("Error at subtitle searching: " + e.getMessage());
+      }
+    }
+    return bestResult;
+  }
+
+  private List<SubtitleSearchResult> search(MediaScraper scraper, SubtitleSearchOptions options, String cacheKey) throws Exception {
+    if (cacheKey != null) {
+      List<SubtitleSearchResult> cachedResults = resultCache.get(cacheKey);
+      if (cachedResults != null) {
+        return cachedResults;
+      }
+    }
+
+    getRateLimiter(scraper.getId()).acquire();
+
+    IMediaSubtitleProvider subtitleProvider = (IMediaSubtitleProvider) scraper.getMediaProvider();
+    List<SubtitleSearchResult> results = new ArrayList<>(subtitleProvider.search(options));
+    // best result first
+    Collections.sort(results);
+    Collections.reverse(results);
+    results = Collections.unmodifiableList(results);
+
+    // no subtitle found (yet) - search again next time
+    if (cacheKey != null && !results.isEmpty()) {
+      if (resultCache.size() > MAX_CACHE_SIZE) {
+        resultCache.clear();
+      }
+      resultCache.put(cacheKey, results);
+    }
+    return results;
+  }
+
+  private TokenBucket getRateLimiter(String providerId) {
+    TokenBucket rateLimiter = rateLimiters.get(providerId);
+    if (rateLimiter == null) {
+      rateLimiter = new TokenBucket(DEFAULT_RATE, DEFAULT_BURST);
+      TokenBucket existing = rateLimiters.putIfAbsent(providerId, rateLimiter);
+      if (existing != null) {
+        rateLimiter = existing;
+      }
+    }
+    return rateLimiter;
+  }
+
+  /**
+   * get the hash of the given file (OpenSubtitles algorithm); the hash is cached as long as the size and the modification date of the file do not
+   * change
+   *
+   * @param file
+   *          the file
+   * @return the hash or an empty string if the file could not be read
+   */
+  public String getFileHash(Path file) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      HashKey key = new HashKey(file, attributes.size(), attributes.lastModifiedTime().toMillis());
+
+      String hash = hashCache.get(key);
+      if (hash == null) {
+        hash = computeHash(file, attributes.size());
+        if (hashCache.size() > MAX_CACHE_SIZE) {
+          hashCache.clear();
+        }
+        hashCache.put(key, hash);
+      }
+      return hash;
+    }
+    catch (IOException e) {
+      LOGGER.debug("could not compute hash of {}: {}", file, e.getMessage());
+      return "";
+    }
+  }
+
+  /**
+   * the OpenSubtitles hash: the size of the file plus the sum of all 64 bit words of the first and the last 64 KiB of the file
+   */
+  static String computeHash(Path file, long size) throws IOException {
+    int chunkSize = (int) Math.min(HASH_CHUNK_SIZE, size);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long head = sumChunk(channel, 0, chunkSize);
+      long tail = sumChunk(channel, Math.max(size - HASH_CHUNK_SIZE, 0), chunkSize);
+      return String.format(Locale.ROOT, "%016x", size + head + tail);
+    }
+  }
+
+  private static long sumChunk(FileChannel channel, long position, int chunkSize) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+
+    long sum = 0;
+    while (buffer.remaining() >= 8) {
+      sum += buffer.getLong();
+    }
+    return sum;
+  }
+
+  private static class HashKey {
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+
+    private HashKey(Path path, long size, long lastModified) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof HashKey)) {
+        return false;
+      }
+      HashKey other = (HashKey) obj;
+      return size == other.size && lastModified == other.lastModified && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = path.hashCode();
+      result = 31 * result + (int) (size ^ (size >>> 32));
+      result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+      return result;
+    }
+  }
+}
@@ -36,7 +36,7 @@ public class TmmModuleManager {
     modules = new LinkedHashSet<>();
   }
 
-  public static TmmModuleManager getInstance() {
+  public static synchronized TmmModuleManager getInstance() {
     if (instance == null) {
       instance = new TmmModuleManager();
     }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.io.InterruptedIOException;
+
+/**
+ * The class TransferCancelledException. It is thrown when a file transfer has been cancelled by the user; in contrast to other IO errors the move
+ * must not be retried
+ * 
+ * @author Manuel Laggner
+ */
+public class TransferCancelledException extends InterruptedIOException {
+  private static final long serialVersionUID = 3520381734112480526L;
+
+  public TransferCancelledException(String message) {
+    super(message);
+  }
+}
@@ -39,7 +39,11 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.text.CollationKey;
+import java.text.Collator;
 import java.text.DateFormat;
+import java.text.Normalizer;
+import java.text.RuleBasedCollator;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -62,6 +66,7 @@ import org.apache.commons.lang3.SystemUtils;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.Globals;
 import org.tinymediamanager.LaunchUtil;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.scraper.util.StrgUtils;
@@ -72,28 +77,35 @@ import org.tinymediamanager.scraper.util.StrgUtils;
  * @author Manuel Laggner / Myron Boyle
  */
 public class Utils {
-  private static final Logger  LOGGER                = LoggerFactory.getLogger(Utils.class);
-  private static final Pattern localePattern         = Pattern.compile("messages_(.{2})_?(.{2}){0,1}\\.properties", Pattern.CASE_INSENSITIVE);
+  private static final Logger   LOGGER                = LoggerFactory.getLogger(Utils.class);
+  private static final Pattern  localePattern         = Pattern.compile("messages_(.{2})_?(.{2}){0,1}\\.properties", Pattern.CASE_INSENSITIVE);
 
   // <cd/dvd/part/pt/disk/disc> <0-N>
-  private static final Pattern stackingPattern1      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})(\\.[^.]+)$",
+  private static final Pattern  stackingPattern1      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})(\\.[^.]+)$",
       Pattern.CASE_INSENSITIVE);
 
   // <cd/dvd/part/pt/disk/disc> <a-d>
-  private static final Pattern stackingPattern2      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[a-d])(\\.[^.]+)$",
+  private static final Pattern  stackingPattern2      = Pattern.compile("(.*?)[ _.-]+((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[a-d])(\\.[^.]+)$",
       Pattern.CASE_INSENSITIVE);
 
   // moviename-a.avi // modified mandatory delimiter (but no space), and A-D must be at end!
-  private static final Pattern stackingPattern3      = Pattern.compile("(.*?)[_.-]+([a-d])(\\.[^.]+)$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern  stackingPattern3      = Pattern.compile("(.*?)[_.-]+([a-d])(\\.[^.]+)$", Pattern.CASE_INSENSITIVE);
 
   // moviename-1of2.avi, moviename-1 of 2.avi
-  private static final Pattern stackingPattern4      = Pattern.compile("(.*?)[ \\(_.-]+([1-9][ .]?of[ .]?[1-9])[ \\)_-]?(\\.[^.]+)$",
+  private static final Pattern  stackingPattern4      = Pattern.compile("(.*?)[ \\(_.-]+([1-9][ .]?of[ .]?[1-9])[ \\)_-]?(\\.[^.]+)$",
       Pattern.CASE_INSENSITIVE);
 
   // folder stacking marker <cd/dvd/part/pt/disk/disc> <0-N> - must be last part
-  private static final Pattern folderStackingPattern = Pattern.compile("(.*?)[ _.-]*((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})$",
+  private static final Pattern  folderStackingPattern = Pattern.compile("(.*?)[ _.-]*((?:cd|dvd|p(?:ar)?t|dis[ck])[ _.-]*[1-9]{1})$",
       Pattern.CASE_INSENSITIVE);
 
+  // the collator for sorting titles (see getCollationKey)
+  private static final Collator titleCollator         = createTitleCollator();
+
+  // the amount of tries (and the delay between them) for moving a directory (see moveDirectorySafe)
+  public static final int       MOVE_ATTEMPTS         = 5;
+  public static final long      MOVE_RETRY_DELAY      = 1000;
+
   /**
    * gets the filename part, and returns last extension
    * 
@@ -238,6 +250,33 @@ public class Utils {
     return title.trim();
   }
 
+  /**
+   * Returns the collation key of the given title for sorting (case insensitive and unicode normalized). Comparing two collation keys is much
+   * cheaper than comparing the strings with the collator; so the keys should be cached by the entities.
+   * 
+   * @param title
+   *          the title
+   * @return the collation key for the title
+   */
+  public static CollationKey getCollationKey(String title) {
+    if (title == null) {
+      title = "";
+    }
+    return titleCollator.getCollationKey(Normalizer.normalize(title.toLowerCase(Locale.ROOT), Normalizer.Form.NFD));
+  }
+
+  private static Collator createTitleCollator() {
+    RuleBasedCollator defaultCollator = (RuleBasedCollator) RuleBasedCollator.getInstance();
+    try {
+      // default collator ignores whitespaces
+      // using hack from http://stackoverflow.com/questions/16567287/java-collation-ignores-space
+      return new RuleBasedCollator(defaultCollator.getRules().replace("<'\u005f'", "<' '<'\u005f'"));
+    }
+    catch (Exception e) {
+      return defaultCollator;
+    }
+  }
+
   /**
    * Clean stacking markers.<br>
    * Same logic as detection, but just returning string w/o
@@ -540,53 +579,18 @@ public class Utils {
       throw new NullPointerException("Destination must not be null");
     }
     if (!srcDir.toAbsolutePath().toString().equals(destDir.toAbsolutePath().toString())) {
-      LOGGER.debug("try to move folder " + srcDir + " to " + destDir);
-      if (!Files.isDirectory(srcDir)) {
-        throw new FileNotFoundException("Source '" + srcDir + "' does not exist, or is not a directory");
-      }
-      if (Files.exists(destDir) && !Files.isSameFile(destDir, srcDir)) {
-        // extra check for Windows/OSX, where the File.equals is case insensitive
-        // so we know now, that the Dir is the same, but the absolute name does not match
-        throw new FileExistsException("Destination '" + destDir + "' already exists");
-      }
-      if (!Files.exists(destDir.getParent())) {
-        // create parent folder structure, else renameTo does not work
-        try {
-          Files.createDirectories(destDir.getParent());
-        }
-        catch (Exception e) {
-          LOGGER.error("could not create directory structure " + destDir.getParent());
-          // but we try a move anyway...
-        }
-      }
+      prepareDirectoryMove(srcDir, destDir);
 
       // rename folder; try 5 times and wait a sec
       boolean rename = false;
-      for (int i = 0; i < 5; i++) {
-        try {
-          // need atomic fs move for changing cASE
-          Files.move(srcDir, destDir, StandardCopyOption.ATOMIC_MOVE);
-          rename = true;// no exception
-        }
-        catch (AtomicMoveNotSupportedException a) {
-          // if it fails (b/c not on same file system) use that
-          try {
-            Files.move(srcDir, destDir, StandardCopyOption.REPLACE_EXISTING);
-            rename = true; // no exception
-          }
-          catch (IOException e) {
-            LOGGER.warn("rename problem: " + e.getMessage());
-          }
-        }
-        catch (IOException e) {
-          LOGGER.warn("rename problem: " + e.getMessage());
-        }
+      for (int i = 0; i < MOVE_ATTEMPTS; i++) {
+        rename = moveDirectoryOnce(srcDir, destDir);
         if (rename) {
           break; // ok it worked, step out
         }
         try {
           LOGGER.debug("rename did not work - sleep a while and try again...");
-          Thread.sleep(1000);
+          Thread.sleep(MOVE_RETRY_DELAY);
         }
         catch (InterruptedException e) {
           LOGGER.warn("I'm so excited - could not sleep");
@@ -611,6 +615,90 @@ public class Utils {
     return true; // dir are equal
   }
 
+  /**
+   * checks if the directory can be moved (like in moveDirectorySafe()) and creates the parent folder structure of the destination
+   * 
+   * @param srcDir
+   *          the directory to be moved
+   * @param destDir
+   *          the destination directory
+   * @throws IOException
+   *           if the source does not exist or the destination already exists
+   */
+  public static void prepareDirectoryMove(Path srcDir, Path destDir) throws IOException {
+    LOGGER.debug("try to move folder " + srcDir + " to " + destDir);
+    if (!Files.isDirectory(srcDir)) {
+      throw new FileNotFoundException("Source '" + srcDir + "' does not exist, or is not a directory");
+    }
+    if (Files.exists(destDir) && !Files.isSameFile(destDir, srcDir) && !FileTransfer.isUnfinishedTransfer(srcDir, destDir)) {
+      // extra check for Windows/OSX, where the File.equals is case insensitive
+      // so we know now, that the Dir is the same, but the absolute name does not match
+      // (an interrupted move to another drive will be resumed)
+      throw new FileExistsException("Destination '" + destDir + "' already exists");
+    }
+    if (!Files.exists(destDir.getParent())) {
+      // create parent folder structure, else renameTo does not work
+      try {
+        Files.createDirectories(destDir.getParent());
+      }
+      catch (Exception e) {
+        LOGGER.error("could not create directory structure " + destDir.getParent());
+        // but we try a move anyway...
+      }
+    }
+  }
+
+  /**
+   * one single try to move the directory (without any checks and retries); the caller has to retry it up to MOVE_ATTEMPTS times (with a
+   * delay of MOVE_RETRY_DELAY ms) to get the same behavior as moveDirectorySafe()
+   * 
+   * @param srcDir
+   *          the directory to be moved
+   * @param destDir
+   *          the destination directory
+   * @return true, if successful
+   * @throws TransferCancelledException
+   *           if the copy to another drive has been cancelled by the user (must not be retried)
+   */
+  public static boolean moveDirectoryOnce(Path srcDir, Path destDir) throws TransferCancelledException {
+    try {
+      // need atomic fs move for changing cASE
+      Files.move(srcDir, destDir, StandardCopyOption.ATOMIC_MOVE);
+      return true; // no exception
+    }
+    catch (AtomicMoveNotSupportedException a) {
+      // if it fails (b/c not on same file system) use that
+      try {
+        moveToOtherFileStore(srcDir, destDir);
+        return true; // no exception
+      }
+      catch (TransferCancelledException e) {
+        throw e;
+      }
+      catch (IOException e) {
+        LOGGER.warn("rename problem: " + e.getMessage());
+      }
+    }
+    catch (IOException e) {
+      LOGGER.warn("rename problem: " + e.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * move a file/folder where an atomic move is not possible; a plain move if both are on the same drive, otherwise the (verified and resumable)
+   * copy of FileTransfer
+   */
+  private static void moveToOtherFileStore(Path src, Path dest) throws IOException {
+    if (Files.isSymbolicLink(src) || FileTransfer.isSameFileStore(src, dest)) {
+      Files.move(src, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+    else {
+      LOGGER.info("moving " + src + " to another drive (" + dest + ")");
+      FileTransfer.move(src, dest, Globals.settings.isVerifyFileTransfers());
+    }
+  }
+
   /**
    * modified version of commons-io FileUtils.moveFile(); adapted to Java 7 NIO<br>
    * since renameTo() might not work in first place, retry it up to 5 times.<br>
@@ -670,9 +758,13 @@ public class Utils {
         catch (AtomicMoveNotSupportedException a) {
           // if it fails (b/c not on same file system) use that
           try {
-            Files.move(srcFile, destFile, StandardCopyOption.REPLACE_EXISTING);
+            moveToOtherFileStore(srcFile, destFile);
             rename = true; // no exception
           }
+          catch (TransferCancelledException e) {
+            // cancelled by the user - do not retry
+            throw e;
+          }
           catch (IOException e) {
             LOGGER.warn("rename problem: " + e.getMessage());
           }
@@ -43,9 +43,12 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -101,14 +104,16 @@ public abstract class MediaEntity extends AbstractModelObject {
   @JsonProperty
   protected boolean                    scraped           = false;
 
+  // copy on write: a published list is never modified (the readers work on it without locking)
   @JsonProperty
-  private List<MediaFile>              mediaFiles        = new ArrayList<>();
+  private volatile List<MediaFile>     mediaFiles        = new ArrayList<>();
   @JsonProperty
   protected Map<MediaFileType, String> artworkUrlMap     = new HashMap<>();
 
   protected boolean                    newlyAdded        = false;
   protected boolean                    duplicate         = false;
   protected ReadWriteLock              readWriteLock     = new ReentrantReadWriteLock();
+  private volatile MediaFileSnapshot   mediaFileSnapshot = null;
 
   public MediaEntity() {
   }
@@ -154,6 +159,18 @@ public abstract class MediaEntity extends AbstractModelObject {
   }
 
   protected void sortMediaFiles() {
+    readWriteLock.writeLock().lock();
+    try {
+      List<MediaFile> newMediaFiles = new ArrayList<>(mediaFiles);
+      sortMediaFiles(newMediaFiles);
+      mediaFiles = newMediaFiles;
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
+    }
+  }
+
+  private void sortMediaFiles(List<MediaFile> mediaFiles) {
     Comparator<MediaFile> mediaFileComparator = getMediaFileComparator();
     if (mediaFileComparator != null) {
       Collections.sort(mediaFiles, mediaFileComparator);
@@ -215,7 +232,7 @@ public abstract class MediaEntity extends AbstractModelObject {
    * @return the dimension of the artwork or a zero dimension if no artwork has been found
    */
   public Dimension getArtworkDimension(MediaFileType type) {
-    List<MediaFile> mediaFiles = getMediaFiles(type);
+    List<MediaFile> mediaFiles = getMediaFilesView(type);
     if (mediaFiles.size() > 0) {
       MediaFile mediaFile = mediaFiles.get(0);
       return new Dimension(mediaFile.getVideoWidth(), mediaFile.getVideoHeight());
@@ -231,7 +248,7 @@ public abstract class MediaEntity extends AbstractModelObject {
    * @return the file name of the artwork or an empty string if nothing has been found
    */
   public String getArtworkFilename(MediaFileType type) {
-    List<MediaFile> thumbs = getMediaFiles(type);
+    List<MediaFile> thumbs = getMediaFilesView(type);
     if (thumbs.size() > 0) {
       return thumbs.get(0).getFile().getPath();
     }
@@ -367,7 +384,6 @@ public abstract class MediaEntity extends AbstractModelObject {
    */
   public Map<MediaFileType, MediaFile> getArtworkMap() {
     Map<MediaFileType, MediaFile> artworkMap = new HashMap<>();
-    List<MediaFile> mediaFiles = getMediaFiles();
     for (MediaFile mf : mediaFiles) {
       if (!mf.isGraphic()) {
         continue;
@@ -507,23 +523,26 @@ public abstract class MediaEntity extends AbstractModelObject {
 
   public void addToMediaFiles(MediaFile mediaFile) {
     readWriteLock.writeLock().lock();
-    // only store the MF if it is not in the list or if the type has been changed
-    if (mediaFiles.contains(mediaFile)) {
-      int i = mediaFiles.indexOf(mediaFile);
+    try {
+      List<MediaFile> newMediaFiles = new ArrayList<>(mediaFiles);
+      // only store the MF if it is not in the list or if the type has been changed
+      int i = newMediaFiles.indexOf(mediaFile);
       if (i >= 0) {
-        MediaFile oldMf = mediaFiles.get(i);
+        MediaFile oldMf = newMediaFiles.get(i);
         if (oldMf.getType() != mediaFile.getType()) {
-          mediaFiles.remove(i);
+          newMediaFiles.remove(i);
         }
       }
+      if (!newMediaFiles.contains(mediaFile)) {
+        newMediaFiles.add(mediaFile);
+        sortMediaFiles(newMediaFiles);
+        mediaFiles = newMediaFiles;
+      }
     }
-    if (!mediaFiles.contains(mediaFile)) {
-      mediaFiles.add(mediaFile);
-      sortMediaFiles();
+    finally {
+      readWriteLock.writeLock().unlock();
     }
 
-    readWriteLock.writeLock().unlock();
-
     firePropertyChange(MEDIA_FILES, null, mediaFiles);
     fireAddedEventForMediaFile(mediaFile);
   }
@@ -589,15 +608,7 @@ public abstract class MediaEntity extends AbstractModelObject {
   }
 
   public List<MediaFile> getMediaFiles() {
-    List<MediaFile> mf = new ArrayList<>();
-    readWriteLock.readLock().lock();
-    try {
-      mf.addAll(mediaFiles);
-    }
-    finally {
-      readWriteLock.readLock().unlock();
-    }
-    return mf;
+    return new ArrayList<>(mediaFiles);
   }
 
   /**
@@ -609,23 +620,33 @@ public abstract class MediaEntity extends AbstractModelObject {
    * @return list of MF (may be empty, but never null)
    */
   public List<MediaFile> getMediaFiles(MediaFileType... types) {
+    MediaFileSnapshot snapshot = getMediaFileSnapshot();
+    if (types.length == 1) {
+      return new ArrayList<>(snapshot.get(types[0]));
+    }
+
     List<MediaFile> mf = new ArrayList<>();
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
-      boolean match = false;
-      for (MediaFileType type : types) {
-        if (mediaFile.getType().equals(type)) {
-          match = true;
-        }
-      }
-      if (match) {
-        mf.add(mediaFile);
+    boolean[] match = snapshot.mask(types);
+    for (int i = 0; i < snapshot.files.length; i++) {
+      if (match[snapshot.types[i].ordinal()]) {
+        mf.add(snapshot.files[i]);
       }
     }
-    readWriteLock.readLock().unlock();
     return mf;
   }
 
+  /**
+   * gets an unmodifiable view of all MediaFiles from the specific type; the view reflects the state at the time of the call and is not changed
+   * afterwards. Use this instead of getMediaFiles(type) if you only need to read the MediaFiles (no copy is created)
+   *
+   * @param type
+   *          the type
+   * @return an unmodifiable list of MF (may be empty, but never null)
+   */
+  public List<MediaFile> getMediaFilesView(MediaFileType type) {
+    return getMediaFileSnapshot().get(type);
+  }
+
   /**
    * gets the BIGGEST MediaFile of type(s)<br>
    * useful for getting the right MF for displaying mediaInformation
@@ -633,19 +654,21 @@ public abstract class MediaEntity extends AbstractModelObject {
    * @return biggest MF
    */
   public MediaFile getBiggestMediaFile(MediaFileType... types) {
+    MediaFileSnapshot snapshot = getMediaFileSnapshot();
     MediaFile mf = null;
-
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
-      for (MediaFileType type : types) {
-        if (mediaFile.getType().equals(type)) {
-          if (mf == null || mediaFile.getFilesize() >= mf.getFilesize()) {
-            mf = mediaFile;
-          }
+    int index = -1;
+
+    for (MediaFileType type : snapshot.distinct(types)) {
+      MediaFile[] files = snapshot.filesByType.get(type);
+      int[] indices = snapshot.indicesByType.get(type);
+      for (int i = 0; i < files.length; i++) {
+        // on equal size the last one (in the order of all MFs) wins
+        if (mf == null || files[i].getFilesize() > mf.getFilesize() || (files[i].getFilesize() == mf.getFilesize() && indices[i] > index)) {
+          mf = files[i];
+          index = indices[i];
         }
       }
     }
-    readWriteLock.readLock().unlock();
     return mf;
   }
 
@@ -657,20 +680,22 @@ public abstract class MediaEntity extends AbstractModelObject {
    * @return NULL or MF
    */
   public MediaFile getNewestMediaFilesOfType(MediaFileType... types) {
+    MediaFileSnapshot snapshot = getMediaFileSnapshot();
     MediaFile mf = null;
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
-      for (MediaFileType type : types) {
-        if (mediaFile.getType().equals(type)) {
-          if (mf == null || mediaFile.getFiledate() >= mf.getFiledate()) {
-            // get the latter one
-            mf = new MediaFile(mediaFile);
-          }
+    int index = -1;
+
+    for (MediaFileType type : snapshot.distinct(types)) {
+      MediaFile[] files = snapshot.filesByType.get(type);
+      int[] indices = snapshot.indicesByType.get(type);
+      for (int i = 0; i < files.length; i++) {
+        // on equal date the last one (in the order of all MFs) wins
+        if (mf == null || files[i].getFiledate() > mf.getFiledate() || (files[i].getFiledate() == mf.getFiledate() && indices[i] > index)) {
+          mf = files[i];
+          index = indices[i];
         }
       }
     }
-    readWriteLock.readLock().unlock();
-    return mf;
+    return mf == null ? null : new MediaFile(mf);
   }
 
   /**
@@ -682,30 +707,43 @@ public abstract class MediaEntity extends AbstractModelObject {
    * @return list of MF (may be empty, but never null)
    */
   public List<MediaFile> getMediaFilesExceptType(MediaFileType... types) {
+    MediaFileSnapshot snapshot = getMediaFileSnapshot();
     List<MediaFile> mf = new ArrayList<>();
-    readWriteLock.readLock().lock();
-    for (MediaFile mediaFile : mediaFiles) {
-      boolean match = false;
-      for (MediaFileType type : types) {
-        if (mediaFile.getType().equals(type)) {
-          match = true;
-        }
-      }
-      if (!match) {
-        mf.add(mediaFile);
+    boolean[] match = snapshot.mask(types);
+    for (int i = 0; i < snapshot.files.length; i++) {
+      if (!match[snapshot.types[i].ordinal()]) {
+        mf.add(snapshot.files[i]);
       }
     }
-    readWriteLock.readLock().unlock();
     return mf;
   }
 
+  /**
+   * get the (immutable) snapshot of the MediaFiles partitioned by their type; the snapshot is rebuilt if the MediaFiles or the type of one of
+   * its MediaFiles have been changed (changes of MediaFiles of other entities do not affect it)
+   */
+  private MediaFileSnapshot getMediaFileSnapshot() {
+    MediaFileSnapshot snapshot = mediaFileSnapshot;
+    List<MediaFile> currentMediaFiles = mediaFiles;
+    if (snapshot == null || snapshot.source != currentMediaFiles || snapshot.isTypeChanged()) {
+      snapshot = new MediaFileSnapshot(currentMediaFiles);
+      mediaFileSnapshot = snapshot;
+    }
+    return snapshot;
+  }
+
   public void removeAllMediaFiles() {
-    List<MediaFile> changedMediafiles = new ArrayList<>(mediaFiles);
+    List<MediaFile> changedMediafiles;
     readWriteLock.writeLock().lock();
-    for (int i = mediaFiles.size() - 1; i >= 0; i--) {
-      mediaFiles.remove(i);
+    try {
+      changedMediafiles = mediaFiles;
+      mediaFiles = new ArrayList<>();
+    }
+    finally {
+      readWriteLock.writeLock().unlock();
     }
-    readWriteLock.writeLock().unlock();
+
+    firePropertyChange(MEDIA_FILES, null, mediaFiles);
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
@@ -714,7 +752,10 @@ public abstract class MediaEntity extends AbstractModelObject {
   public void removeFromMediaFiles(MediaFile mediaFile) {
     readWriteLock.writeLock().lock();
     try {
-      mediaFiles.remove(mediaFile);
+      List<MediaFile> newMediaFiles = new ArrayList<>(mediaFiles);
+      if (newMediaFiles.remove(mediaFile)) {
+        mediaFiles = newMediaFiles;
+      }
     }
     finally {
       readWriteLock.writeLock().unlock();
@@ -728,14 +769,22 @@ public abstract class MediaEntity extends AbstractModelObject {
     List<MediaFile> changedMediafiles = new ArrayList<>();
 
     readWriteLock.writeLock().lock();
-    for (int i = mediaFiles.size() - 1; i >= 0; i--) {
-      MediaFile mediaFile = mediaFiles.get(i);
-      if (!mediaFile.getType().equals(type)) {
-        mediaFiles.remove(i);
-        changedMediafiles.add(mediaFile);
+    try {
+      List<MediaFile> newMediaFiles = new ArrayList<>(mediaFiles);
+      for (int i = newMediaFiles.size() - 1; i >= 0; i--) {
+        MediaFile mediaFile = newMediaFiles.get(i);
+        if (!mediaFile.getType().equals(type)) {
+          newMediaFiles.remove(i);
+          changedMediafiles.add(mediaFile);
+        }
       }
+      mediaFiles = newMediaFiles;
     }
-    readWriteLock.writeLock().unlock();
+    finally {
+      readWriteLock.writeLock().unlock();
+    }
+
+    firePropertyChange(MEDIA_FILES, null, mediaFiles);
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
@@ -745,32 +794,35 @@ public abstract class MediaEntity extends AbstractModelObject {
     List<MediaFile> changedMediafiles = new ArrayList<>();
 
     readWriteLock.writeLock().lock();
-    for (int i = mediaFiles.size() - 1; i >= 0; i--) {
-      MediaFile mediaFile = mediaFiles.get(i);
-      if (mediaFile.getType().equals(type)) {
-        mediaFiles.remove(i);
-        changedMediafiles.add(mediaFile);
+    try {
+      List<MediaFile> newMediaFiles = new ArrayList<>(mediaFiles);
+      for (int i = newMediaFiles.size() - 1; i >= 0; i--) {
+        MediaFile mediaFile = newMediaFiles.get(i);
+        if (mediaFile.getType().equals(type)) {
+          newMediaFiles.remove(i);
+          changedMediafiles.add(mediaFile);
+        }
       }
+      mediaFiles = newMediaFiles;
     }
-    readWriteLock.writeLock().unlock();
+    finally {
+      readWriteLock.writeLock().unlock();
+    }
+
+    firePropertyChange(MEDIA_FILES, null, mediaFiles);
     for (MediaFile mediaFile : changedMediafiles) {
       fireRemoveEventForMediaFile(mediaFile);
     }
   }
 
   public void updateMediaFilePath(Path oldPath, Path newPath) {
-    readWriteLock.readLock().lock();
-    List<MediaFile> mfs = new ArrayList<>(this.mediaFiles);
-    readWriteLock.readLock().unlock();
-    for (MediaFile mf : mfs) {
+    for (MediaFile mf : mediaFiles) {
       mf.replacePathForRenamedFolder(oldPath, newPath);
     }
+    firePropertyChange(MEDIA_FILES, null, mediaFiles);
   }
 
   public void gatherMediaFileInformation(boolean force) {
-    readWriteLock.readLock().lock();
-    List<MediaFile> mediaFiles = new ArrayList<>(this.mediaFiles);
-    readWriteLock.readLock().unlock();
     for (MediaFile mediaFile : mediaFiles) {
       mediaFile.gatherMediaInformation(force);
     }
@@ -799,4 +851,98 @@ public abstract class MediaEntity extends AbstractModelObject {
   abstract public void callbackForWrittenArtwork(MediaArtworkType type);
 
   abstract protected Comparator<MediaFile> getMediaFileComparator();
+
+  /**
+   * an immutable snapshot of the MediaFiles (in their order) partitioned by their type
+   */
+  private static class MediaFileSnapshot {
+    private static final MediaFileType[]                  ALL_TYPES     = MediaFileType.values();
+    private static final MediaFile[]                      NO_FILES      = new MediaFile[0];
+    private static final int[]                            NO_INDICES    = new int[0];
+
+    private final List<MediaFile>                         source;
+    private final MediaFile[]                             files;
+    private final MediaFileType[]                         types;
+    private final EnumMap<MediaFileType, MediaFile[]>     filesByType   = new EnumMap<>(MediaFileType.class);
+    private final EnumMap<MediaFileType, int[]>           indicesByType = new EnumMap<>(MediaFileType.class);
+    private final EnumMap<MediaFileType, List<MediaFile>> views         = new EnumMap<>(MediaFileType.class);
+
+    private MediaFileSnapshot(List<MediaFile> source) {
+      this.source = source;
+      this.files = source.toArray(new MediaFile[source.size()]);
+      this.types = new MediaFileType[files.length];
+
+      // count the files per type to create the arrays with the right size
+      int[] counts = new int[ALL_TYPES.length];
+      for (int i = 0; i < files.length; i++) {
+        types[i] = files[i].getType();
+        counts[types[i].ordinal()]++;
+      }
+
+      for (MediaFileType type : ALL_TYPES) {
+        int count = counts[type.ordinal()];
+        if (count == 0) {
+          filesByType.put(type, NO_FILES);
+          indicesByType.put(type, NO_INDICES);
+          views.put(type, Collections.<MediaFile> emptyList());
+        }
+        else {
+          filesByType.put(type, new MediaFile[count]);
+          indicesByType.put(type, new int[count]);
+        }
+      }
+
+      int[] positions = new int[ALL_TYPES.length];
+      for (int i = 0; i < files.length; i++) {
+        int position = positions[types[i].ordinal()]++;
+        filesByType.get(types[i])[position] = files[i];
+        indicesByType.get(types[i])[position] = i;
+      }
+
+      for (MediaFileType type : ALL_TYPES) {
+        if (!views.containsKey(type)) {
+          views.put(type, Collections.unmodifiableList(Arrays.asList(filesByType.get(type))));
+        }
+      }
+    }
+
+    /**
+     * the type of a MediaFile of this snapshot has been changed since the snapshot has been taken
+     */
+    private boolean isTypeChanged() {
+      for (int i = 0; i < files.length; i++) {
+        if (files[i].getType() != types[i]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private List<MediaFile> get(MediaFileType type) {
+      if (type == null) {
+        return Collections.emptyList();
+      }
+      return views.get(type);
+    }
+
+    private boolean[] mask(MediaFileType... types) {
+      boolean[] mask = new boolean[ALL_TYPES.length];
+      for (MediaFileType type : types) {
+        if (type != null) {
+          mask[type.ordinal()] = true;
+        }
+      }
+      return mask;
+    }
+
+    private EnumSet<MediaFileType> distinct(MediaFileType... types) {
+      EnumSet<MediaFileType> set = EnumSet.noneOf(MediaFileType.class);
+      for (MediaFileType type : types) {
+        if (type != null) {
+          set.add(type);
+        }
+      }
+      return set;
+    }
+  }
 }
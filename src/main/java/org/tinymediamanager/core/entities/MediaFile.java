@@ -24,7 +24,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.DecimalFormat;
-import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,7 +33,6 @@ import java.util.Scanner;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FilenameUtils;
@@ -44,7 +42,6 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
@@ -71,24 +68,6 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
   private static final String                        FILENAME             = "filename";
   private static final String                        FILESIZE             = "filesize";
   private static final String                        FILESIZE_IN_MB       = "filesizeInMegabytes";
-  private static final List<String>                  PLEX_EXTRA_FOLDERS   = Arrays.asList("behind the scenes", "behindthescenes", "deleted scenes",
-      "deletedscenes", "featurettes", "interviews", "scenes", "shorts");
-
-  private static Pattern                             moviesetPattern      = Pattern
-      .compile("(?i)movieset-(poster|fanart|banner|disc|discart|logo|clearlogo|clearart|thumb)\\..{2,4}");
-  private static Pattern                             posterPattern        = Pattern
-      .compile("(?i)(.*-poster|poster|folder|movie|.*-cover|cover)\\..{2,4}");
-  private static Pattern                             fanartPattern        = Pattern.compile("(?i)(.*-fanart|.*\\.fanart|fanart)[0-9]{0,2}\\..{2,4}");
-  private static Pattern                             bannerPattern        = Pattern.compile("(?i)(.*-banner|banner)\\..{2,4}");
-  private static Pattern                             thumbPattern         = Pattern.compile("(?i)(.*-thumb|thumb)[0-9]{0,2}\\..{2,4}");
-  private static Pattern                             seasonPosterPattern1 = Pattern.compile("(?i)season([0-9]{0,2}|-specials)-poster\\..{2,4}");
-  private static Pattern                             seasonPosterPattern2 = Pattern.compile("(?i)season[0-9]{0,2}\\..{2,4}");
-  private static Pattern                             logoPattern          = Pattern.compile("(?i)(.*-logo|logo)\\..{2,4}");
-  private static Pattern                             clearlogoPattern     = Pattern.compile("(?i)(.*-clearlogo|clearlogo)\\..{2,4}");
-  // be careful: disc.avi would be valid!
-  private static Pattern                             discartPattern       = Pattern
-      .compile("(?i)(.*-discart|discart|.*-disc|disc)\\.(jpg|jpeg|png|tbn)");
-  private static Pattern                             clearartPattern      = Pattern.compile("(?i)(.*-clearart|clearart)\\..{2,4}");
 
   public static final String                         VIDEO_FORMAT_96P     = "96p";
   public static final String                         VIDEO_FORMAT_120P    = "120p";
@@ -306,161 +285,7 @@ public class MediaFile extends AbstractModelObject implements Comparable<MediaFi
    * @return the MediaFileType
    */
   public MediaFileType parseType() {
-    String ext = getExtension().toLowerCase(Locale.ROOT);
-    String basename = FilenameUtils.getBaseName(getFilename());
-    String foldername = FilenameUtils.getBaseName(getPath()).toLowerCase(Locale.ROOT);
-    String parentparent = "";
-    try {
-      parentparent = FilenameUtils.getBaseName(getFileAsPath().getParent().getParent().toString()).toLowerCase(Locale.ROOT);
-    }
-    catch (Exception e) {
-      // could happen if we are no 2 levels deep;
-      LOGGER.debug("way to up");
-    }
-    if (ext.equals("nfo")) {
-      return MediaFileType.NFO;
-    }
-
-    if (ext.equals("vsmeta")) {
-      return MediaFileType.VSMETA;
-    }
-
-    if (basename.endsWith("-mediainfo") && "xml".equals(ext)) {
-      return MediaFileType.MEDIAINFO;
-    }
-
-    if (ext.equals("jpg") || ext.equals("jpeg") || ext.equals("png") || ext.equals("tbn") || ext.equals("gif")) {
-      return parseImageType();
-    }
-
-    if (Globals.settings.getAudioFileType().contains("." + ext)) {
-      return MediaFileType.AUDIO;
-    }
-
-    if (Globals.settings.getSubtitleFileType().contains("." + ext)) {
-      return MediaFileType.SUBTITLE;
-    }
-
-    if (Globals.settings.getVideoFileType().contains("." + ext)) {
-      // has to fit TV & Movie naming...
-      // String cleanName = ParserUtils.detectCleanMoviename(name); // tbc if useful...
-      // old impl: https://github.com/brentosmith/xbmc-dvdextras
-      // Official: http://wiki.xbmc.org/index.php?title=Add-on:VideoExtras#File_Naming_Convention
-      if (getFilename().contains(".EXTRAS.") // scene file naming (need to check first! upper case!)
-          || basename.matches("(?i).*[_.-]+extra[s]?$") // end with "-extra[s]"
-          || basename.matches("(?i).*[-]+extra[s]?[-].*") // extra[s] just with surrounding dash (other delims problem)
-          || foldername.equalsIgnoreCase("extras") // preferred folder name
-          || foldername.equalsIgnoreCase("extra") // preferred folder name
-          || (!parentparent.isEmpty() && parentparent.matches("extra[s]?")) // extras folder a level deeper
-          || basename.matches("(?i).*[-](behindthescenes|deleted|featurette|interview|scene|short)$") // Plex (w/o trailer)
-          || PLEX_EXTRA_FOLDERS.contains(foldername)) // Plex Extra folders
-      {
-        return MediaFileType.VIDEO_EXTRA;
-      }
-
-      if (basename.matches("(?i).*[_.-]*trailer?$") || basename.equalsIgnoreCase("movie-trailer") || foldername.equalsIgnoreCase("trailer")
-          || foldername.equalsIgnoreCase("trailers")) {
-        return MediaFileType.TRAILER;
-      }
-
-      // we have some false positives too - make a more precise check
-      if (basename.matches("(?i).*[_.-]*sample$") // end with sample
-          || foldername.equalsIgnoreCase("sample")) { // sample folder name
-        return MediaFileType.SAMPLE;
-      }
-
-      return MediaFileType.VIDEO;
-    }
-
-    if (ext.equals("txt")) {
-      return MediaFileType.TEXT;
-    }
-
-    return MediaFileType.UNKNOWN;
-  }
-
-  /**
-   * Parses the image type.
-   * 
-   * @return the media file type
-   */
-  private MediaFileType parseImageType() {
-    String name = getFilename();
-
-    // movieset artwork
-    Matcher matcher = moviesetPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.GRAPHIC;
-    }
-
-    // season(XX|-specials)-poster.*
-    matcher = seasonPosterPattern1.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.SEASON_POSTER;
-    }
-    // seasonXX.*
-    matcher = seasonPosterPattern2.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.SEASON_POSTER;
-    }
-
-    // *-poster.* or poster.* or folder.* or movie.*
-    matcher = posterPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.POSTER;
-    }
-
-    // *-fanart.* or fanart.* or *-fanartXX.* or fanartXX.*
-    matcher = fanartPattern.matcher(name);
-    if (matcher.matches()) {
-      // decide between fanart and extrafanart
-      if (getPath().endsWith("extrafanart")) {
-        return MediaFileType.EXTRAFANART;
-      }
-      return MediaFileType.FANART;
-    }
-
-    // *-banner.* or banner.*
-    matcher = bannerPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.BANNER;
-    }
-
-    // *-thumb.* or thumb.* or *-thumbXX.* or thumbXX.*
-    matcher = thumbPattern.matcher(name);
-    if (matcher.matches()) {
-      // decide between thumb and extrathumb
-      if (getPath().endsWith("extrathumbs")) {
-        return MediaFileType.EXTRATHUMB;
-      }
-      return MediaFileType.THUMB;
-    }
-
-    // clearart.*
-    matcher = clearartPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.CLEARART;
-    }
-
-    // logo.*
-    matcher = logoPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.LOGO;
-    }
-
-    // clearlogo.*
-    matcher = clearlogoPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.CLEARLOGO;
-    }
-
-    // discart.*
-    matcher = discartPattern.matcher(name);
-    if (matcher.matches()) {
-      return MediaFileType.DISCART;
-    }
-
-    return MediaFileType.GRAPHIC;
+    return MediaFileTypeClassifier.getInstance().classify(getFilename(), getPath(), getFileAsPath());
   }
 
   /**
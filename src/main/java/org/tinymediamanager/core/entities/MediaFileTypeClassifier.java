@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.entities;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FilenameUtils;
+import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.MediaFileType;
+
+/**
+ * The class MediaFileTypeClassifier. Detects the MediaFileType of a file by its name.<br>
+ * The extensions of the settings are put into a hash map once; the naming rules for artwork and for extras/trailers/samples are combined into one
+ * precompiled pattern each (the alternatives are in the order of precedence, so the first matching alternative decides the type). The classifier of
+ * the settings is rebuilt as soon as the file types of the settings change.
+ *
+ * @author Manuel Laggner
+ */
+public class MediaFileTypeClassifier {
+  private static final List<String>               PLEX_EXTRA_FOLDERS = Arrays.asList("behind the scenes", "behindthescenes", "deleted scenes",
+      "deletedscenes", "featurettes", "interviews", "scenes", "shorts");
+  private static final List<String>               IMAGE_EXTENSIONS   = Arrays.asList("jpg", "jpeg", "png", "tbn", "gif");
+  // the settings which are used by the classifier
+  private static final List<String>               FILE_TYPE_SETTINGS = Arrays.asList("videoFileTypes", "audioFileTypes", "subtitleFileTypes");
+
+  // artwork naming in the order of precedence
+  private static final Object[][]                 ARTWORK            = {
+      { "movieset-(poster|fanart|banner|disc|discart|logo|clearlogo|clearart|thumb)\\..{2,4}", MediaFileType.GRAPHIC },
+      { "season([0-9]{0,2}|-specials)-poster\\..{2,4}", MediaFileType.SEASON_POSTER },
+      { "season[0-9]{0,2}\\..{2,4}", MediaFileType.SEASON_POSTER },
+      { "(.*-poster|poster|folder|movie|.*-cover|cover)\\..{2,4}", MediaFileType.POSTER },
+      { "(.*-fanart|.*\\.fanart|fanart)[0-9]{0,2}\\..{2,4}", MediaFileType.FANART },
+      { "(.*-banner|banner)\\..{2,4}", MediaFileType.BANNER },
+      { "(.*-thumb|thumb)[0-9]{0,2}\\..{2,4}", MediaFileType.THUMB },
+      { "(.*-clearart|clearart)\\..{2,4}", MediaFileType.CLEARART },
+      { "(.*-logo|logo)\\..{2,4}", MediaFileType.LOGO },
+      { "(.*-clearlogo|clearlogo)\\..{2,4}", MediaFileType.CLEARLOGO },
+      // be careful: disc.avi would be valid!
+      { "(.*-discart|discart|.*-disc|disc)\\.(jpg|jpeg|png|tbn)", MediaFileType.DISCART } };
+  private static final String[]                   ARTWORK_GROUPS     = new String[ARTWORK.length];
+  private static final Pattern                    ARTWORK_PATTERN    = compileArtworkPattern();
+
+  // naming of extras, trailers and samples (in this order)
+  private static final Pattern                    VIDEO_NAME_PATTERN = Pattern.compile("(?i)(?<extra>.*[_.-]+extra[s]?$" // end with "-extra[s]"
+      + "|.*[-]+extra[s]?[-].*" // extra[s] just with surrounding dash (other delims problem)
+      + "|.*[-](behindthescenes|deleted|featurette|interview|scene|short)$)" // Plex (w/o trailer)
+      + "|(?<trailer>.*[_.-]*trailer?$)" // end with trailer
+      + "|(?<sample>.*[_.-]*sample$)"); // end with sample
+
+  // read without locking (hot path of the scanners); replaced as a whole when the file types of the settings change
+  private static volatile MediaFileTypeClassifier instance           = null;
+
+  private final Map<String, MediaFileType>        extensions         = new HashMap<>();
+
+  /**
+   * create a classifier for the given extensions (with a leading dot like in the settings); if an extension is in more than one list, the first
+   * list wins
+   *
+   * @param audioFileTypes
+   *          the extensions of audio files
+   * @param subtitleFileTypes
+   *          the extensions of subtitle files
+   * @param videoFileTypes
+   *          the extensions of video files
+   */
+  public MediaFileTypeClassifier(List<String> audioFileTypes, List<String> subtitleFileTypes, List<String> videoFileTypes) {
+    // the fixed types are checked before the extensions of the settings
+    extensions.put("nfo", MediaFileType.NFO);
+    extensions.put("vsmeta", MediaFileType.VSMETA);
+    for (String image : IMAGE_EXTENSIONS) {
+      extensions.put(image, MediaFileType.GRAPHIC);
+    }
+
+    addExtensions(audioFileTypes, MediaFileType.AUDIO);
+    addExtensions(subtitleFileTypes, MediaFileType.SUBTITLE);
+    addExtensions(videoFileTypes, MediaFileType.VIDEO);
+
+    if (!extensions.containsKey("txt")) {
+      extensions.put("txt", MediaFileType.TEXT);
+    }
+  }
+
+  /**
+   * get the classifier for the extensions of the settings
+   *
+   * @return the classifier
+   */
+  public static MediaFileTypeClassifier getInstance() {
+    MediaFileTypeClassifier classifier = instance;
+    if (classifier != null) {
+      return classifier;
+    }
+
+    // only the first call (and concurrent first calls) takes the lock
+    synchronized (MediaFileTypeClassifier.class) {
+      if (instance == null) {
+        // a change of the file types replaces the classifier
+        Globals.settings.addCorePropertyChangeListener(new PropertyChangeListener() {
+          @Override
+          public void propertyChange(PropertyChangeEvent evt) {
+            if (FILE_TYPE_SETTINGS.contains(evt.getPropertyName())) {
+              synchronized (MediaFileTypeClassifier.class) {
+                instance = createFromSettings();
+              }
+            }
+          }
+        });
+        instance = createFromSettings();
+      }
+      return instance;
+    }
+  }
+
+  private static MediaFileTypeClassifier createFromSettings() {
+    return new MediaFileTypeClassifier(Globals.settings.getAudioFileType(), Globals.settings.getSubtitleFileType(),
+        Globals.settings.getVideoFileType());
+  }
+
+  private void addExtensions(List<String> fileTypes, MediaFileType type) {
+    for (String fileType : fileTypes) {
+      // the extension of the file is lower cased and compared with a leading dot - other entries never match
+      if (!fileType.startsWith(".")) {
+        continue;
+      }
+      String extension = fileType.substring(1);
+      if (extension.equals(extension.toLowerCase(Locale.ROOT)) && !extensions.containsKey(extension)) {
+        extensions.put(extension, type);
+      }
+    }
+  }
+
+  /**
+   * tries to get the MediaFileType out of the filename
+   *
+   * @param filename
+   *          the filename
+   * @param path
+   *          the path of the file (without the filename)
+   * @param file
+   *          the file (used to detect the folder two levels above)
+   * @return the MediaFileType
+   */
+  public MediaFileType classify(String filename, String path, Path file) {
+    String ext = FilenameUtils.getExtension(filename).toLowerCase(Locale.ROOT);
+    String basename = FilenameUtils.getBaseName(filename);
+    String foldername = FilenameUtils.getBaseName(path).toLowerCase(Locale.ROOT);
+
+    if (basename.endsWith("-mediainfo") && "xml".equals(ext)) {
+      return MediaFileType.MEDIAINFO;
+    }
+
+    MediaFileType type = extensions.get(ext);
+    if (type == null) {
+      return MediaFileType.UNKNOWN;
+    }
+
+    switch (type) {
+      case GRAPHIC:
+        return classifyArtwork(filename, path);
+
+      case VIDEO:
+        return classifyVideo(filename, basename, foldername, file);
+
+      default:
+        return type;
+    }
+  }
+
+  private MediaFileType classifyArtwork(String filename, String path) {
+    Matcher matcher = ARTWORK_PATTERN.matcher(filename);
+    if (!matcher.matches()) {
+      return MediaFileType.GRAPHIC;
+    }
+
+    for (int i = 0; i < ARTWORK.length; i++) {
+      if (matcher.start(ARTWORK_GROUPS[i]) < 0) {
+        continue;
+      }
+      MediaFileType type = (MediaFileType) ARTWORK[i][1];
+      // decide between fanart and extrafanart / thumb and extrathumb
+      if (type == MediaFileType.FANART && path.endsWith("extrafanart")) {
+        return MediaFileType.EXTRAFANART;
+      }
+      if (type == MediaFileType.THUMB && path.endsWith("extrathumbs")) {
+        return MediaFileType.EXTRATHUMB;
+      }
+      return type;
+    }
+    return MediaFileType.GRAPHIC;
+  }
+
+  private MediaFileType classifyVideo(String filename, String basename, String foldername, Path file) {
+    // has to fit TV & Movie naming...
+    // old impl: https://github.com/brentosmith/xbmc-dvdextras
+    // Official: http://wiki.xbmc.org/index.php?title=Add-on:VideoExtras#File_Naming_Convention
+    Matcher matcher = VIDEO_NAME_PATTERN.matcher(basename);
+    boolean nameMatches = matcher.matches();
+
+    if (filename.contains(".EXTRAS.") // scene file naming (need to check first! upper case!)
+        || (nameMatches && matcher.start("extra") >= 0) // naming of extras
+        || foldername.equalsIgnoreCase("extras") // preferred folder name
+        || foldername.equalsIgnoreCase("extra") // preferred folder name
+        || isExtrasFolder(getParentParentName(file)) // extras folder a level deeper
+        || PLEX_EXTRA_FOLDERS.contains(foldername)) // Plex Extra folders
+    {
+      return MediaFileType.VIDEO_EXTRA;
+    }
+
+    if ((nameMatches && matcher.start("trailer") >= 0) || basename.equalsIgnoreCase("movie-trailer") || foldername.equalsIgnoreCase("trailer")
+        || foldername.equalsIgnoreCase("trailers")) {
+      return MediaFileType.TRAILER;
+    }
+
+    // we have some false positives too - make a more precise check
+    if ((nameMatches && matcher.start("sample") >= 0) || foldername.equalsIgnoreCase("sample")) { // sample folder name
+      return MediaFileType.SAMPLE;
+    }
+
+    return MediaFileType.VIDEO;
+  }
+
+  private static boolean isExtrasFolder(String foldername) {
+    return "extra".equals(foldername) || "extras".equals(foldername);
+  }
+
+  private static String getParentParentName(Path file) {
+    try {
+      return FilenameUtils.getBaseName(file.getParent().getParent().toString()).toLowerCase(Locale.ROOT);
+    }
+    catch (Exception e) {
+      // could happen if we are no 2 levels deep
+      return "";
+    }
+  }
+
+  private static Pattern compileArtworkPattern() {
+    StringBuilder sb = new StringBuilder("(?i)");
+    for (int i = 0; i < ARTWORK.length; i++) {
+      if (i > 0) {
+        sb.append('|');
+      }
+      ARTWORK_GROUPS[i] = "artwork" + i;
+      sb.append("(?<").append(ARTWORK_GROUPS[i]).append('>').append(ARTWORK[i][0]).append(')');
+    }
+    return Pattern.compile(sb.toString());
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * The class MovieCollectionCache. Remembers to which (TMDB) collection a movie belongs - or that it does not belong to any collection - so the
+ * scraper has not to be asked for every movie again. The entries are stored in the movie database (and survive a restart); they expire after a
+ * while since collections are still maintained at TMDB.
+ *
+ * @author Manuel Laggner
+ */
+public class MovieCollectionCache {
+  // movies without a collection get one more likely into a collection than a collection changes
+  static final long                   TTL               = TimeUnit.DAYS.toMillis(30);
+  static final long                   TTL_NO_COLLECTION = TimeUnit.DAYS.toMillis(7);
+
+  private static MovieCollectionCache instance;
+
+  private Map<String, String>         storage           = new ConcurrentHashMap<>();
+
+  MovieCollectionCache() {
+  }
+
+  public static synchronized MovieCollectionCache getInstance() {
+    if (instance == null) {
+      instance = new MovieCollectionCache();
+    }
+    return instance;
+  }
+
+  /**
+   * use the given (persistent and thread safe) map as storage
+   *
+   * @param storage
+   *          the map to store the entries in
+   */
+  void setStorage(Map<String, String> storage) {
+    this.storage = storage;
+  }
+
+  /**
+   * get the cached collection of the movie
+   *
+   * @param movie
+   *          the movie
+   * @return the collection (id 0 if the movie does not belong to a collection) or null if nothing (valid) is cached
+   */
+  public CollectionInfo get(Movie movie) {
+    return get(movie, System.currentTimeMillis());
+  }
+
+  CollectionInfo get(Movie movie, long now) {
+    CollectionInfo collection = null;
+    if (movie.getTmdbId() > 0) {
+      collection = get(tmdbKey(movie.getTmdbId()), now);
+    }
+    if (collection == null && Utils.isValidImdbId(movie.getImdbId())) {
+      collection = get(imdbKey(movie.getImdbId()), now);
+    }
+    return collection;
+  }
+
+  private CollectionInfo get(String key, long now) {
+    String value = storage.get(key);
+    if (value == null) {
+      return null;
+    }
+
+    // timestamp|collection id|collection name
+    String[] parts = value.split("\\|", 3);
+    try {
+      long timestamp = Long.parseLong(parts[0]);
+      CollectionInfo collection = new CollectionInfo(Integer.parseInt(parts[1]), parts.length > 2 ? parts[2] : "");
+      if (now - timestamp > (collection.id > 0 ? TTL : TTL_NO_COLLECTION)) {
+        storage.remove(key);
+        return null;
+      }
+      return collection;
+    }
+    catch (Exception e) {
+      storage.remove(key);
+      return null;
+    }
+  }
+
+  /**
+   * remember the collection of the movie
+   *
+   * @param movie
+   *          the movie
+   * @param collectionId
+   *          the TMDB id of the collection (0 if the movie does not belong to a collection)
+   * @param collectionName
+   *          the name of the collection
+   */
+  public void put(Movie movie, int collectionId, String collectionName) {
+    String value = createValue(collectionId, collectionName, System.currentTimeMillis());
+    if (movie.getTmdbId() > 0) {
+      storage.put(tmdbKey(movie.getTmdbId()), value);
+    }
+    if (Utils.isValidImdbId(movie.getImdbId())) {
+      storage.put(imdbKey(movie.getImdbId()), value);
+    }
+  }
+
+  /**
+   * remember the collection of a movie (which might not be in the database yet) by its TMDB id
+   *
+   * @param tmdbId
+   *          the TMDB id of the movie
+   * @param collectionId
+   *          the TMDB id of the collection
+   * @param collectionName
+   *          the name of the collection
+   */
+  public void put(int tmdbId, int collectionId, String collectionName) {
+    if (tmdbId > 0) {
+      storage.put(tmdbKey(tmdbId), createValue(collectionId, collectionName, System.currentTimeMillis()));
+    }
+  }
+
+  static String createValue(int collectionId, String collectionName, long timestamp) {
+    return timestamp + "|" + collectionId + "|" + StringUtils.defaultString(collectionName);
+  }
+
+  private static String tmdbKey(int tmdbId) {
+    return "tmdb:" + tmdbId;
+  }
+
+  private static String imdbKey(String imdbId) {
+    return "imdb:" + imdbId;
+  }
+
+  /**
+   * the cached collection of a movie
+   */
+  public static class CollectionInfo {
+    private final int    id;
+    private final String name;
+
+    private CollectionInfo(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    /**
+     * @return the TMDB id of the collection (0 if the movie does not belong to a collection)
+     */
+    public int getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.entities.MediaFile;
+import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.entities.MovieActor;
+import org.tinymediamanager.core.movie.entities.MovieProducer;
+
+/**
+ * The class MovieFacets. A snapshot of all (expensive to compute) values of a movie which are needed for filtering. The snapshot is created lazily by
+ * the movie and dropped on every property change of the movie, so it is always up to date.<br>
+ * Genres and tags are stored as bit sets of ids; the ids are shared between all movies, so checking for a set of genres/tags is a simple bit
+ * operation.
+ *
+ * @author Manuel Laggner
+ */
+public final class MovieFacets {
+  private static final Map<Object, Integer> IDS = new ConcurrentHashMap<>();
+
+  private final String                      videoFormat;
+  private final String                      videoCodec;
+  private final Set<String>                 audioCodecs;
+  private final boolean                     videoIn3D;
+  private final BitSet                      genres;
+  private final BitSet                      tags;
+  private final List<String>                castNames;
+
+  private MovieFacets(Movie movie) {
+    List<MediaFile> videos = movie.getMediaFiles(MediaFileType.VIDEO);
+    if (!videos.isEmpty()) {
+      MediaFile mf = videos.get(0);
+      videoFormat = mf.getVideoFormat();
+      videoCodec = mf.getVideoCodec();
+      Set<String> codecs = new HashSet<>();
+      for (MediaFileAudioStream stream : mf.getAudioStreams()) {
+        codecs.add(stream.getCodec());
+      }
+      audioCodecs = codecs;
+    }
+    else {
+      videoFormat = "";
+      videoCodec = "";
+      audioCodecs = Collections.emptySet();
+    }
+    videoIn3D = movie.isVideoIn3D();
+
+    genres = getIds(movie.getGenres());
+    tags = getIds(movie.getTags());
+
+    // all names which can be found with the cast search - lower case for a fast case insensitive search
+    List<String> names = new ArrayList<>();
+    addName(names, movie.getDirector());
+    addName(names, movie.getWriter());
+    for (MovieActor actor : movie.getActors()) {
+      addName(names, actor.getName());
+    }
+    for (MovieProducer producer : movie.getProducers()) {
+      addName(names, producer.getName());
+    }
+    castNames = names;
+  }
+
+  /**
+   * create the facets for the given movie
+   *
+   * @param movie
+   *          the movie
+   * @return the facets of the movie
+   */
+  public static MovieFacets create(Movie movie) {
+    return new MovieFacets(movie);
+  }
+
+  /**
+   * get the (global) id for the given value (genre, tag, ...)
+   *
+   * @param value
+   *          the value
+   * @return the id
+   */
+  public static int getId(Object value) {
+    Integer id = IDS.get(value);
+    if (id == null) {
+      synchronized (IDS) {
+        id = IDS.get(value);
+        if (id == null) {
+          id = IDS.size();
+          IDS.put(value, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  /**
+   * get a bit set with the (global) ids of the given values
+   *
+   * @param values
+   *          the values
+   * @return a bit set containing all ids
+   */
+  public static BitSet getIds(Collection<?> values) {
+    BitSet ids = new BitSet();
+    for (Object value : values) {
+      if (value != null) {
+        ids.set(getId(value));
+      }
+    }
+    return ids;
+  }
+
+  private static void addName(List<String> names, String name) {
+    if (StringUtils.isNotEmpty(name)) {
+      names.add(name.toLowerCase(Locale.ROOT));
+    }
+  }
+
+  public String getVideoFormat() {
+    return videoFormat;
+  }
+
+  public String getVideoCodec() {
+    return videoCodec;
+  }
+
+  public boolean containsAudioCodec(String codec) {
+    return audioCodecs.contains(codec);
+  }
+
+  public boolean isVideoIn3D() {
+    return videoIn3D;
+  }
+
+  /**
+   * does this movie contain all genres with the given ids?
+   *
+   * @param genreIds
+   *          the ids to check
+   * @return true if all genres are assigned to the movie
+   */
+  public boolean containsAllGenres(BitSet genreIds) {
+    return containsAll(genres, genreIds);
+  }
+
+  /**
+   * does this movie contain all tags with the given ids?
+   *
+   * @param tagIds
+   *          the ids to check
+   * @return true if all tags are assigned to the movie
+   */
+  public boolean containsAllTags(BitSet tagIds) {
+    return containsAll(tags, tagIds);
+  }
+
+  public boolean hasTags() {
+    return !tags.isEmpty();
+  }
+
+  /**
+   * does any cast member (director, writer, actor, producer) contain the given search string?
+   *
+   * @param search
+   *          the search string in lower case
+   * @return true if any cast member contains the search string
+   */
+  public boolean containsCast(String search) {
+    for (String name : castNames) {
+      if (name.contains(search)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsAll(BitSet set, BitSet subset) {
+    for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+      if (!set.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -51,6 +51,7 @@ import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.ReferenceCountedRegistry;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
@@ -79,19 +80,33 @@ import ca.odell.glazedlists.ObservableElementList;
  * @author Manuel Laggner
  */
 public class MovieList extends AbstractModelObject {
-  private static final Logger          LOGGER             = LoggerFactory.getLogger(MovieList.class);
-  private static MovieList             instance;
-
-  private final MovieSettings          movieSettings;
-  private final List<Movie>            movieList;
-  private final List<MovieSet>         movieSetList;
-  private final List<String>           tagsObservable;
-  private final List<String>           videoCodecsObservable;
-  private final List<String>           audioCodecsObservable;
-  private final List<Certification>    certificationsObservable;
-
-  private final PropertyChangeListener tagListener;
-  private final Comparator<MovieSet>   movieSetComparator = new MovieSetComparator();
+  private static final Logger                           LOGGER             = LoggerFactory.getLogger(MovieList.class);
+  private static MovieList                              instance;
+
+  private final MovieSettings                           movieSettings;
+  private final List<Movie>                             movieList;
+  private final List<MovieSet>                          movieSetList;
+  private final List<String>                            tagsObservable;
+  private final List<String>                            videoCodecsObservable;
+  private final List<String>                            audioCodecsObservable;
+  private final List<Certification>                     certificationsObservable;
+
+  // reference counted registries of the values above
+  private final ReferenceCountedRegistry<String>        tagRegistry;
+  private final ReferenceCountedRegistry<String>        videoCodecRegistry;
+  private final ReferenceCountedRegistry<String>        audioCodecRegistry;
+  private final ReferenceCountedRegistry<Certification> certificationRegistry;
+  // all files of all movies (for a fast lookup whether a file is already in the database)
+  private final ReferenceCountedRegistry<Path>          knownFileRegistry;
+
+  private final PropertyChangeListener                  tagListener;
+  private final Comparator<MovieSet>                    movieSetComparator = new MovieSetComparator();
+
+  // hash index of the movie sets (by TMDB id and title); rebuilt when a title/TMDB id has been changed
+  private final Map<Integer, MovieSet>                  movieSetsByTmdbId  = new HashMap<>();
+  private final Map<String, MovieSet>                   movieSetsByTitle   = new HashMap<>();
+  private boolean                                       movieSetIndexDirty = true;
+  private final PropertyChangeListener                  movieSetListener;
 
   /**
    * Instantiates a new movie list.
@@ -105,6 +120,42 @@ public class MovieList extends AbstractModelObject {
     audioCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
     certificationsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<Certification>());
 
+    tagRegistry = new ReferenceCountedRegistry<>(tagsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("tag", null, tagsObservable);
+      }
+    });
+    videoCodecRegistry = new ReferenceCountedRegistry<>(videoCodecsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("videoCodec", null, videoCodecsObservable);
+      }
+    });
+    audioCodecRegistry = new ReferenceCountedRegistry<>(audioCodecsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("audioCodec", null, audioCodecsObservable);
+      }
+    });
+    certificationRegistry = new ReferenceCountedRegistry<>(certificationsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("certification", null, certificationsObservable);
+      }
+    });
+    knownFileRegistry = new ReferenceCountedRegistry<>(null, null);
+
+    // the movie set listener: keeps the index of the movie sets up to date
+    movieSetListener = new PropertyChangeListener() {
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if (Constants.TITLE.equals(evt.getPropertyName()) || Constants.TMDB.equals(evt.getPropertyName())) {
+          invalidateMovieSetIndex();
+        }
+      }
+    };
+
     // the tag listener: its used to always have a full list of all tags used in tmm
     tagListener = new PropertyChangeListener() {
       @Override
@@ -118,6 +169,10 @@ public class MovieList extends AbstractModelObject {
           Movie movie = (Movie) evt.getSource();
           updateMediaInformationLists(movie);
         }
+        if (MEDIA_FILES.equals(evt.getPropertyName())) {
+          Movie movie = (Movie) evt.getSource();
+          updateKnownFiles(movie);
+        }
         if (CERTIFICATION.equals(evt.getPropertyName())) {
           Movie movie = (Movie) evt.getSource();
           updateCertifications(movie);
@@ -152,7 +207,10 @@ public class MovieList extends AbstractModelObject {
       movieList.add(movie);
 
       updateTags(movie);
-      movie.addPropertyChangeListener(tagListener);
+      updateMediaInformationLists(movie);
+      updateCertifications(movie);
+      updateKnownFiles(movie);
+      movie.addCorePropertyChangeListener(tagListener);
       firePropertyChange("movies", null, movieList);
       firePropertyChange("movieCount", oldValue, movieList.size());
     }
@@ -244,6 +302,7 @@ public class MovieList extends AbstractModelObject {
     for (int i = movies.size() - 1; i >= 0; i--) {
       Movie movie = movies.get(i);
       movieList.remove(movie);
+      removeFromRegistries(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
 
@@ -281,6 +340,7 @@ public class MovieList extends AbstractModelObject {
       Movie movie = movies.get(i);
       movie.deleteFilesSafely();
       movieList.remove(movie);
+      removeFromRegistries(movie);
       if (movie.getMovieSet() != null) {
         MovieSet movieSet = movie.getMovieSet();
         movieSet.removeMovie(movie, false);
@@ -343,6 +403,7 @@ public class MovieList extends AbstractModelObject {
         movieSet.setDbId(uuid);
         // for performance reasons we add movies sets directly
         movieSetList.add(movieSet);
+        movieSet.addCorePropertyChangeListener(movieSetListener);
       }
       catch (Exception e) {
         LOGGER.warn("problem decoding movie set json string: " + e.getMessage());
@@ -352,6 +413,7 @@ public class MovieList extends AbstractModelObject {
     }
 
     LOGGER.info("found " + movieSetList.size() + " movieSets in database");
+    invalidateMovieSetIndex();
   }
 
   void initDataAfterLoading() {
@@ -359,12 +421,20 @@ public class MovieList extends AbstractModelObject {
     checkAndCleanupMediaFiles();
 
     // 3. initialize movies/movie sets (e.g. link with each others)
-    for (Movie movie : movieList) {
-      movie.initializeAfterLoading();
-      updateTags(movie);
-      updateMediaInformationLists(movie);
-      updateCertifications(movie);
-      movie.addPropertyChangeListener(tagListener);
+    // publish the tags/codecs/certifications at once
+    beginRegistryBatch();
+    try {
+      for (Movie movie : movieList) {
+        movie.initializeAfterLoading();
+        updateTags(movie);
+        updateMediaInformationLists(movie);
+        updateCertifications(movie);
+        updateKnownFiles(movie);
+        movie.addCorePropertyChangeListener(tagListener);
+      }
+    }
+    finally {
+      endRegistryBatch();
     }
 
     for (MovieSet movieSet : movieSetList) {
@@ -793,19 +863,13 @@ public class MovieList extends AbstractModelObject {
    *          the movie
    */
   private void updateTags(Movie movie) {
-    List<String> availableTags = new ArrayList<>(tagsObservable);
-    for (String tagInMovie : new ArrayList<>(movie.getTags())) {
-      boolean tagFound = false;
-      for (String tag : availableTags) {
-        if (tagInMovie.equals(tag)) {
-          tagFound = true;
-          break;
-        }
-      }
-      if (!tagFound) {
-        addTag(tagInMovie);
+    List<String> tags = new ArrayList<>();
+    for (String tag : movie.getTags()) {
+      if (StringUtils.isNotBlank(tag)) {
+        tags.add(tag);
       }
     }
+    tagRegistry.update(movie, tags);
   }
 
   /**
@@ -815,126 +879,83 @@ public class MovieList extends AbstractModelObject {
    *          the movie
    */
   private void updateMediaInformationLists(Movie movie) {
-    // video codec
-    List<String> availableCodecs = new ArrayList<>(videoCodecsObservable);
-    for (MediaFile mf : movie.getMediaFiles(MediaFileType.VIDEO)) {
-      String codec = mf.getVideoCodec();
-      boolean codecFound = false;
+    List<String> videoCodecs = new ArrayList<>();
+    List<String> audioCodecs = new ArrayList<>();
 
-      for (String mfCodec : availableCodecs) {
-        if (mfCodec.equals(codec)) {
-          codecFound = true;
-          break;
-        }
-      }
-
-      if (!codecFound) {
-        addVideoCodec(codec);
+    for (MediaFile mf : movie.getMediaFiles(MediaFileType.VIDEO)) {
+      // video codec
+      if (StringUtils.isNotBlank(mf.getVideoCodec())) {
+        videoCodecs.add(mf.getVideoCodec());
       }
-    }
 
-    // audio codec
-    availableCodecs = new ArrayList<>(audioCodecsObservable);
-    for (MediaFile mf : movie.getMediaFiles(MediaFileType.VIDEO)) {
+      // audio codec
       for (MediaFileAudioStream audio : mf.getAudioStreams()) {
-        String codec = audio.getCodec();
-        boolean codecFound = false;
-        for (String mfCodec : availableCodecs) {
-          if (mfCodec.equals(codec)) {
-            codecFound = true;
-            break;
-          }
-        }
-
-        if (!codecFound) {
-          addAudioCodec(codec);
+        if (StringUtils.isNotBlank(audio.getCodec())) {
+          audioCodecs.add(audio.getCodec());
         }
       }
     }
+
+    videoCodecRegistry.update(movie, videoCodecs);
+    audioCodecRegistry.update(movie, audioCodecs);
   }
 
   private void updateCertifications(Movie movie) {
-    if (!certificationsObservable.contains(movie.getCertification())) {
-      addCertification(movie.getCertification());
-    }
+    certificationRegistry.update(movie, Collections.singletonList(movie.getCertification()));
   }
 
-  public List<String> getVideoCodecsInMovies() {
-    return videoCodecsObservable;
+  private void updateKnownFiles(Movie movie) {
+    List<Path> files = new ArrayList<>();
+    for (MediaFile mf : movie.getMediaFiles()) {
+      files.add(mf.getFileAsPath().toAbsolutePath());
+    }
+    knownFileRegistry.update(movie, files);
   }
 
-  public List<String> getAudioCodecsInMovies() {
-    return audioCodecsObservable;
-  }
-
-  public List<Certification> getCertificationsInMovies() {
-    return certificationsObservable;
+  private void removeFromRegistries(Movie movie) {
+    movie.removeCorePropertyChangeListener(tagListener);
+    tagRegistry.remove(movie);
+    videoCodecRegistry.remove(movie);
+    audioCodecRegistry.remove(movie);
+    certificationRegistry.remove(movie);
+    knownFileRegistry.remove(movie);
   }
 
   /**
-   * Adds the tag.
-   * 
-   * @param newTag
-   *          the new tag
+   * is the given file already known (a media file of any movie in the database)?
+   *
+   * @param file
+   *          the file to check
+   * @return true if the file belongs to a movie
    */
-  private void addTag(String newTag) {
-    if (StringUtils.isBlank(newTag)) {
-      return;
-    }
-
-    synchronized (tagsObservable) {
-      if (tagsObservable.contains(newTag)) {
-        return;
-      }
-      tagsObservable.add(newTag);
-    }
-
-    firePropertyChange("tag", null, tagsObservable);
+  public boolean isKnownFile(Path file) {
+    return knownFileRegistry.getCount(file.toAbsolutePath()) > 0;
   }
 
-  private void addVideoCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
-    }
-
-    synchronized (videoCodecsObservable) {
-      if (videoCodecsObservable.contains(newCodec)) {
-        return;
-      }
-      videoCodecsObservable.add(newCodec);
-    }
-
-    firePropertyChange("videoCodec", null, videoCodecsObservable);
+  private void beginRegistryBatch() {
+    tagRegistry.beginBatch();
+    videoCodecRegistry.beginBatch();
+    audioCodecRegistry.beginBatch();
+    certificationRegistry.beginBatch();
   }
 
-  private void addAudioCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
-    }
-
-    synchronized (audioCodecsObservable) {
-      if (audioCodecsObservable.contains(newCodec)) {
-        return;
-      }
-      audioCodecsObservable.add(newCodec);
-    }
-
-    firePropertyChange("audioCodec", null, audioCodecsObservable);
+  private void endRegistryBatch() {
+    tagRegistry.endBatch();
+    videoCodecRegistry.endBatch();
+    audioCodecRegistry.endBatch();
+    certificationRegistry.endBatch();
   }
 
-  private void addCertification(Certification newCert) {
-    if (newCert == null) {
-      return;
-    }
+  public List<String> getVideoCodecsInMovies() {
+    return videoCodecsObservable;
+  }
 
-    synchronized (certificationsObservable) {
-      if (certificationsObservable.contains(newCert)) {
-        return;
-      }
-      certificationsObservable.add(newCert);
-    }
+  public List<String> getAudioCodecsInMovies() {
+    return audioCodecsObservable;
+  }
 
-    firePropertyChange("certification", null, certificationsObservable);
+  public List<Certification> getCertificationsInMovies() {
+    return certificationsObservable;
   }
 
   /**
@@ -1008,6 +1029,8 @@ public class MovieList extends AbstractModelObject {
   public void addMovieSet(MovieSet movieSet) {
     int oldValue = movieSetList.size();
     this.movieSetList.add(movieSet);
+    movieSet.addCorePropertyChangeListener(movieSetListener);
+    addToMovieSetIndex(movieSet);
     firePropertyChange("addedMovieSet", null, movieSet);
     firePropertyChange("movieSetCount", oldValue, movieSetList.size());
   }
@@ -1024,6 +1047,8 @@ public class MovieList extends AbstractModelObject {
 
     try {
       movieSetList.remove(movieSet);
+      movieSet.removeCorePropertyChangeListener(movieSetListener);
+      invalidateMovieSetIndex();
       MovieModuleManager.getInstance().removeMovieSetFromDb(movieSet);
     }
     catch (Exception e) {
@@ -1035,23 +1060,51 @@ public class MovieList extends AbstractModelObject {
   }
 
   private MovieSet findMovieSet(String title, int tmdbId) {
-    // first search by tmdbId
-    if (tmdbId > 0) {
-      for (MovieSet movieSet : movieSetList) {
-        if (movieSet.getTmdbId() == tmdbId) {
+    synchronized (movieSetsByTitle) {
+      if (movieSetIndexDirty) {
+        rebuildMovieSetIndex();
+      }
+
+      // first search by tmdbId
+      if (tmdbId > 0) {
+        MovieSet movieSet = movieSetsByTmdbId.get(tmdbId);
+        if (movieSet != null) {
           return movieSet;
         }
       }
+
+      // search for the movieset by name
+      return movieSetsByTitle.get(title);
     }
+  }
 
-    // search for the movieset by name
-    for (MovieSet movieSet : movieSetList) {
-      if (movieSet.getTitle().equals(title)) {
-        return movieSet;
+  /**
+   * the index holds the first movie set (in the order of the list) for every TMDB id/title - like a linear search would find it
+   */
+  private void rebuildMovieSetIndex() {
+    movieSetsByTmdbId.clear();
+    movieSetsByTitle.clear();
+    for (MovieSet movieSet : new ArrayList<>(movieSetList)) {
+      addToMovieSetIndex(movieSet);
+    }
+    movieSetIndexDirty = false;
+  }
+
+  private void addToMovieSetIndex(MovieSet movieSet) {
+    synchronized (movieSetsByTitle) {
+      if (movieSet.getTmdbId() > 0 && !movieSetsByTmdbId.containsKey(movieSet.getTmdbId())) {
+        movieSetsByTmdbId.put(movieSet.getTmdbId(), movieSet);
+      }
+      if (!movieSetsByTitle.containsKey(movieSet.getTitle())) {
+        movieSetsByTitle.put(movieSet.getTitle(), movieSet);
       }
     }
+  }
 
-    return null;
+  private void invalidateMovieSetIndex() {
+    synchronized (movieSetsByTitle) {
+      movieSetIndexDirty = true;
+    }
   }
 
   public synchronized MovieSet getMovieSet(String title, int tmdbId) {
@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.Constants;
 import org.tinymediamanager.core.CustomNullStringSerializerProvider;
+import org.tinymediamanager.core.DatabaseBackup;
 import org.tinymediamanager.core.ITmmModule;
 import org.tinymediamanager.core.NullKeySerializer;
 import org.tinymediamanager.core.Settings;
@@ -81,13 +82,10 @@ public class MovieModuleManager implements ITmmModule {
 
   @Override
   public void startUp() throws Exception {
-    // do a DB backup, and keep last 15 copies
     Path db = Paths.get(Settings.getInstance().getSettingsFolder(), MOVIE_DB);
-    Utils.createBackupFile(db);
-    Utils.deleteOldBackupFile(db, 15);
 
     // configure database
-    mvStore = new MVStore.Builder().fileName(Paths.get(Settings.getInstance().getSettingsFolder(), MOVIE_DB).toString()).compressHigh()
+    mvStore = new MVStore.Builder().fileName(db.toString()).compressHigh()
         .backgroundExceptionHandler(new Thread.UncaughtExceptionHandler() {
           @Override
           public void uncaughtException(Thread t, Throwable e) {
@@ -114,15 +112,21 @@ public class MovieModuleManager implements ITmmModule {
 
     movieMap = mvStore.openMap("movies");
     movieSetMap = mvStore.openMap("movieSets");
+    MVMap<String, String> movieCollectionMap = mvStore.openMap("movieCollections");
+    MovieCollectionCache.getInstance().setStorage(movieCollectionMap);
 
     MovieList.getInstance().loadMoviesFromDatabase(movieMap, objectMapper);
     MovieList.getInstance().loadMovieSetsFromDatabase(movieSetMap, objectMapper);
     MovieList.getInstance().initDataAfterLoading();
     enabled = true;
+
+    // do a DB backup in the background (snapshot of the content, only if something has been changed)
+    DatabaseBackup.scheduleSnapshot(mvStore, db);
   }
 
   @Override
   public void shutDown() throws Exception {
+    DatabaseBackup.awaitSnapshot(mvStore);
     mvStore.compactMoveChunks();
     mvStore.close();
 
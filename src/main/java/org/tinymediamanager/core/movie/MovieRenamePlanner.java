@@ -0,0 +1,582 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.FileTransfer;
+import org.tinymediamanager.core.Message;
+import org.tinymediamanager.core.Message.MessageLevel;
+import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.TransferCancelledException;
+import org.tinymediamanager.core.Utils;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * The class MovieRenamePlanner. Computes the folder moves of all movies to rename up front (without touching the disk) and executes them.<br>
+ * The plan detects collisions (two movies to the same folder, destination already existing), case only renames and movies which depend on each
+ * other (destination is the folder of another movie, nested folders, multi movie folders). Independent movies are renamed in parallel - with an
+ * own set of threads per device; the dependent ones are renamed one after another afterwards (like before). Movies with a collision are not
+ * renamed at all.<br>
+ * A folder move which did not work is retried (like Utils.moveDirectorySafe()), but the retry is scheduled - the worker thread is free for the
+ * next movie in the meantime.
+ *
+ * @author Manuel Laggner
+ */
+public class MovieRenamePlanner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MovieRenamePlanner.class);
+
+  private final List<Move>    moves  = new ArrayList<>();
+
+  /**
+   * create the plan for the given movies (dry run: nothing is changed on the disk)
+   *
+   * @param movies
+   *          the movies to rename
+   */
+  public MovieRenamePlanner(List<Movie> movies) {
+    String pattern = MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerPathname();
+    boolean unique = MovieRenamer.isFolderPatternUnique(pattern);
+    Map<String, String> devices = new HashMap<>();
+
+    for (Movie movie : movies) {
+      moves.add(createMove(movie, pattern, unique, devices));
+    }
+    checkMoves();
+  }
+
+  /**
+   * @return all planned moves (in the order of the movies)
+   */
+  public List<Move> getMoves() {
+    return Collections.unmodifiableList(moves);
+  }
+
+  /**
+   * @return all moves which cannot be executed because of a collision
+   */
+  public List<Move> getConflicts() {
+    List<Move> conflicts = new ArrayList<>();
+    for (Move move : moves) {
+      if (move.conflict != null) {
+        conflicts.add(move);
+      }
+    }
+    return conflicts;
+  }
+
+  private Move createMove(Movie movie, String pattern, boolean unique, Map<String, String> devices) {
+    Path source = movie.getPathNIO().toAbsolutePath();
+    Path destination = source;
+    String destinationPathname = movie.getPath();
+    Action action = Action.NONE;
+
+    // the same decisions as in MovieRenamer.renameMovie()
+    if (StringUtils.isNotEmpty(movie.getDataSource()) && !movie.getTitle().isEmpty()) {
+      String newPathname = MovieRenamer.createDestinationForFoldername(pattern, movie);
+      if (!newPathname.isEmpty()) {
+        destinationPathname = movie.getDataSource() + File.separator + newPathname;
+        destination = Paths.get(destinationPathname).toAbsolutePath();
+        if (!source.toString().equals(destination.toString())) {
+          if (movie.isMultiMovieDir() || !unique) {
+            action = Action.MULTI_MOVIE_DIR;
+          }
+          else if (source.toString().equalsIgnoreCase(destination.toString())) {
+            action = Action.CASE_CHANGE;
+          }
+          else {
+            action = Action.MOVE;
+          }
+        }
+      }
+    }
+
+    Move move = new Move(movie, source, destination, destinationPathname, action, getDevice(movie.getDataSource(), devices));
+    // movies in a multi movie folder share their folder with other movies
+    move.serial = action == Action.MULTI_MOVIE_DIR || movie.isMultiMovieDir();
+    return move;
+  }
+
+  private String getDevice(String dataSource, Map<String, String> devices) {
+    String device = devices.get(dataSource);
+    if (device == null) {
+      device = dataSource;
+      try {
+        FileStore fileStore = Files.getFileStore(Paths.get(dataSource));
+        device = fileStore.toString();
+      }
+      catch (Exception e) {
+        LOGGER.debug("could not get the device of {}: {}", dataSource, e.getMessage());
+      }
+      devices.put(dataSource, device);
+    }
+    return device;
+  }
+
+  /**
+   * find collisions and dependencies between the moves of the whole batch
+   */
+  private void checkMoves() {
+    // all folders used by the movies (source and destination)
+    Map<String, List<Move>> folders = new HashMap<>();
+    for (Move move : moves) {
+      register(folders, move.source, move);
+      if (move.action != Action.NONE) {
+        register(folders, move.destination, move);
+      }
+    }
+
+    Map<String, Move> destinations = new HashMap<>();
+    for (Move move : moves) {
+      if (move.action != Action.MOVE && move.action != Action.CASE_CHANGE) {
+        continue;
+      }
+
+      // two movies to the same folder: the first one wins (the second one would fail in the renamer anyway)
+      String destinationKey = key(move.destination);
+      Move other = destinations.get(destinationKey);
+      if (other != null) {
+        move.conflict = "destination '" + move.destination + "' is also the destination of '" + other.movie.getTitle() + "'";
+        continue;
+      }
+      destinations.put(destinationKey, move);
+
+      // the destination already exists and is not freed by another movie of this batch
+      if (!isMovedAway(folders.get(destinationKey), move)) {
+        checkExistingDestination(move);
+      }
+    }
+
+    // all movies using the same folder or a folder inside a moved folder have to be renamed one after another
+    for (Move move : moves) {
+      if (move.conflict != null) {
+        continue;
+      }
+      markDependencies(folders, move, move.source);
+      if (move.action != Action.NONE) {
+        markDependencies(folders, move, move.destination);
+      }
+    }
+  }
+
+  private boolean isMovedAway(List<Move> owners, Move move) {
+    if (owners == null) {
+      return false;
+    }
+    String destinationKey = key(move.destination);
+    for (Move owner : owners) {
+      if (owner != move && (owner.action == Action.MOVE || owner.action == Action.CASE_CHANGE) && key(owner.source).equals(destinationKey)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void checkExistingDestination(Move move) {
+    try {
+      // an interrupted move to another drive will be resumed
+      if (Files.exists(move.destination) && !Files.isSameFile(move.destination, move.source)
+          && !FileTransfer.isUnfinishedTransfer(move.source, move.destination)) {
+        move.conflict = "destination '" + move.destination + "' already exists";
+      }
+    }
+    catch (IOException e) {
+      move.conflict = "could not check the destination '" + move.destination + "': " + e.getMessage();
+    }
+  }
+
+  private void markDependencies(Map<String, List<Move>> folders, Move move, Path folder) {
+    // the same folder
+    markDependencies(folders.get(key(folder)), move, false);
+
+    // a parent folder which will be moved
+    for (Path parent = folder.getParent(); parent != null; parent = parent.getParent()) {
+      markDependencies(folders.get(key(parent)), move, true);
+    }
+  }
+
+  private void markDependencies(List<Move> others, Move move, boolean onlyMovedFolders) {
+    if (others == null) {
+      return;
+    }
+    for (Move other : others) {
+      if (other == move || other.conflict != null) {
+        continue;
+      }
+      if (onlyMovedFolders && other.action != Action.MOVE && other.action != Action.CASE_CHANGE) {
+        continue;
+      }
+      other.serial = true;
+      move.serial = true;
+    }
+  }
+
+  private void register(Map<String, List<Move>> folders, Path folder, Move move) {
+    String key = key(folder);
+    List<Move> list = folders.get(key);
+    if (list == null) {
+      list = new ArrayList<>(1);
+      folders.put(key, list);
+    }
+    if (!list.contains(move)) {
+      list.add(move);
+    }
+  }
+
+  /**
+   * the key of a folder; case insensitive because Windows/OSX do not differ between cases
+   */
+  private static String key(Path folder) {
+    return folder.normalize().toString().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * execute the plan; blocks until all movies have been renamed
+   *
+   * @param threadsPerDevice
+   *          the amount of threads renaming the independent movies per device
+   * @param listener
+   *          the listener for the progress and cancel state
+   */
+  public void execute(int threadsPerDevice, final Listener listener) {
+    Map<String, List<Move>> lanes = new LinkedHashMap<>();
+    List<Move> serialMoves = new ArrayList<>();
+    int parallelMoves = 0;
+
+    for (Move move : moves) {
+      if (move.conflict != null) {
+        LOGGER.warn("NOT renaming movie '" + move.movie.getTitle() + "': " + move.conflict);
+        MessageManager.instance.pushMessage(
+            new Message(MessageLevel.ERROR, move.source, "message.renamer.failedrename", new String[] { ":", move.conflict }));
+        listener.movieProcessed(move.movie);
+      }
+      else if (move.serial) {
+        serialMoves.add(move);
+      }
+      else {
+        List<Move> lane = lanes.get(move.device);
+        if (lane == null) {
+          lane = new ArrayList<>();
+          lanes.put(move.device, lane);
+        }
+        lane.add(move);
+        parallelMoves++;
+      }
+    }
+
+    // the independent movies in parallel (per device)
+    if (parallelMoves > 0) {
+      CountDownLatch latch = new CountDownLatch(parallelMoves);
+      ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(new RenameThreadFactory("rename-retry"));
+      List<ExecutorService> executors = new ArrayList<>();
+      try {
+        int laneNumber = 1;
+        for (List<Move> lane : lanes.values()) {
+          ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadsPerDevice, lane.size())),
+              new RenameThreadFactory("rename-" + laneNumber++));
+          executors.add(executor);
+          for (Move move : lane) {
+            executor.execute(new MoveTask(move, executor, retryScheduler, latch, listener));
+          }
+        }
+        latch.await();
+      }
+      catch (InterruptedException e) {
+        LOGGER.warn("renaming interrupted");
+        Thread.currentThread().interrupt();
+        return;
+      }
+      finally {
+        for (ExecutorService executor : executors) {
+          executor.shutdown();
+        }
+        retryScheduler.shutdownNow();
+      }
+    }
+
+    // the dependent movies one after another (in the order of the movies)
+    for (Move move : serialMoves) {
+      if (listener.isCancelled()) {
+        break;
+      }
+      try {
+        MovieRenamer.renameMovie(move.movie);
+      }
+      catch (Exception e) {
+        LOGGER.error("could not rename movie '" + move.movie.getTitle() + "': ", e);
+      }
+      listener.movieProcessed(move.movie);
+    }
+  }
+
+  /**
+   * the type of the folder move
+   */
+  public enum Action {
+    /** the folder stays as it is (only the files are renamed) */
+    NONE,
+    /** the folder will be moved */
+    MOVE,
+    /** the folder will be renamed, but only the case changes */
+    CASE_CHANGE,
+    /** the movie is (or will be) in a multi movie folder */
+    MULTI_MOVIE_DIR
+  }
+
+  /**
+   * the listener for the execution of the plan; the methods are called from the rename threads
+   */
+  public interface Listener {
+    /**
+     * @return true if the renaming should be aborted
+     */
+    boolean isCancelled();
+
+    /**
+     * the movie has been processed (renamed, failed or skipped because of a collision)
+     *
+     * @param movie
+     *          the movie
+     */
+    void movieProcessed(Movie movie);
+  }
+
+  /**
+   * the planned folder move of one movie
+   */
+  public static class Move {
+    private final Movie  movie;
+    private final Path   source;
+    private final Path   destination;
+    private final String destinationPathname;
+    private final Action action;
+    private final String device;
+    private String       conflict = null;
+    private boolean      serial   = false;
+
+    private Move(Movie movie, Path source, Path destination, String destinationPathname, Action action, String device) {
+      this.movie = movie;
+      this.source = source;
+      this.destination = destination;
+      this.destinationPathname = destinationPathname;
+      this.action = action;
+      this.device = device;
+    }
+
+    public Movie getMovie() {
+      return movie;
+    }
+
+    public Path getSource() {
+      return source;
+    }
+
+    public Path getDestination() {
+      return destination;
+    }
+
+    public Action getAction() {
+      return action;
+    }
+
+    public String getDevice() {
+      return device;
+    }
+
+    /**
+     * @return the reason why this move cannot be executed or null
+     */
+    public String getConflict() {
+      return conflict;
+    }
+
+    /**
+     * @return true if this movie depends on other movies of the batch and will be renamed after the independent ones
+     */
+    public boolean isSerial() {
+      return serial;
+    }
+
+    @Override
+    public String toString() {
+      return action + ": " + source + " -> " + destination + (conflict != null ? " (CONFLICT: " + conflict + ")" : serial ? " (serial)" : "");
+    }
+  }
+
+  private enum FolderMoveResult {
+    MOVED,
+    RETRY,
+    FAILED
+  }
+
+  /**
+   * moves the folder of a movie (with scheduled retries) and renames the files afterwards
+   */
+  private static class MoveTask implements Runnable {
+    private final Move                     move;
+    private final ExecutorService          executor;
+    private final ScheduledExecutorService retryScheduler;
+    private final CountDownLatch           latch;
+    private final Listener                 listener;
+    private int                            attempt = 0;
+
+    private MoveTask(Move move, ExecutorService executor, ScheduledExecutorService retryScheduler, CountDownLatch latch, Listener listener) {
+      this.move = move;
+      this.executor = executor;
+      this.retryScheduler = retryScheduler;
+      this.latch = latch;
+      this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+      boolean done = true;
+      try {
+        if (listener.isCancelled()) {
+          return;
+        }
+
+        if (move.action == Action.MOVE || move.action == Action.CASE_CHANGE) {
+          FolderMoveResult result = moveFolder();
+          if (result == FolderMoveResult.RETRY) {
+            done = !scheduleRetry();
+            return;
+          }
+          if (result == FolderMoveResult.FAILED) {
+            return;
+          }
+        }
+
+        // the folder is at its destination now - the renamer only renames the files
+        MovieRenamer.renameMovie(move.movie);
+      }
+      catch (Exception e) {
+        LOGGER.error("could not rename movie '" + move.movie.getTitle() + "': ", e);
+      }
+      finally {
+        if (done) {
+          listener.movieProcessed(move.movie);
+          latch.countDown();
+        }
+      }
+    }
+
+    private FolderMoveResult moveFolder() {
+      Movie movie = move.movie;
+      try {
+        if (attempt == 0) {
+          Utils.prepareDirectoryMove(move.source, move.destination);
+        }
+        attempt++;
+
+        if (!Utils.moveDirectoryOnce(move.source, move.destination)) {
+          if (attempt < Utils.MOVE_ATTEMPTS) {
+            LOGGER.debug("rename did not work - try again in a while...");
+            return FolderMoveResult.RETRY;
+          }
+          LOGGER.error("Failed to rename directory '" + move.source + " to " + move.destination);
+          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, move.source, "message.renamer.failedrename"));
+          LOGGER.error("Could not move to destination '" + move.destination + "' - NOT renaming folder");
+          return FolderMoveResult.FAILED;
+        }
+
+        LOGGER.info("Successfully moved folder " + move.source + " to " + move.destination);
+        movie.setMultiMovieDir(false);
+        movie.updateMediaFilePath(move.source, move.destination);
+        movie.setPath(move.destinationPathname);
+        movie.saveToDb(); // since we moved already, save it
+        return FolderMoveResult.MOVED;
+      }
+      catch (TransferCancelledException e) {
+        // cancelled by the user - no retry
+        LOGGER.info("moving folder " + move.source + " cancelled");
+        return FolderMoveResult.FAILED;
+      }
+      catch (Exception e) {
+        LOGGER.error("error moving folder: ", e);
+        MessageManager.instance
+            .pushMessage(new Message(MessageLevel.ERROR, move.source, "message.renamer.failedrename", new String[] { ":", e.getLocalizedMessage() }));
+        LOGGER.error("Could not move to destination '" + move.destination + "' - NOT renaming folder");
+        return FolderMoveResult.FAILED;
+      }
+    }
+
+    /**
+     * put this task back to its executor after the retry delay (without blocking a thread in the meantime)
+     *
+     * @return true if the retry has been scheduled
+     */
+    private boolean scheduleRetry() {
+      try {
+        retryScheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              executor.execute(MoveTask.this);
+            }
+            catch (RejectedExecutionException e) {
+              listener.movieProcessed(move.movie);
+              latch.countDown();
+            }
+          }
+        }, Utils.MOVE_RETRY_DELAY, TimeUnit.MILLISECONDS);
+        return true;
+      }
+      catch (RejectedExecutionException e) {
+        return false;
+      }
+    }
+  }
+
+  private static class RenameThreadFactory implements ThreadFactory {
+    private final String        name;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    private RenameThreadFactory(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "tmmpool-" + name + "-T" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -1046,8 +1046,9 @@ public class MovieRenamer {
   public static String getTokenValue(Movie movie, String token) {
     String ret = "";
     MediaFile mf = new MediaFile();
-    if (movie.getMediaFiles(MediaFileType.VIDEO).size() > 0) {
-      mf = movie.getMediaFiles(MediaFileType.VIDEO).get(0);
+    List<MediaFile> videos = movie.getMediaFilesView(MediaFileType.VIDEO);
+    if (!videos.isEmpty()) {
+      mf = videos.get(0);
     }
 
     switch (token.toUpperCase(Locale.ROOT)) {
@@ -15,10 +15,8 @@
  */
 package org.tinymediamanager.core.movie;
 
-import java.io.ByteArrayInputStream;
-import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -32,10 +30,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ArtworkDownloadScheduler;
 import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Utils;
@@ -44,7 +42,6 @@ import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.movie.entities.MovieSet;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.scraper.entities.MediaArtwork;
-import org.tinymediamanager.scraper.http.Url;
 
 /**
  * The class MovieSetArtworkHelper. A helper class for managing movie set artwork
@@ -401,7 +398,7 @@ public class MovieSetArtworkHelper {
     }
   }
 
-  private static class MovieSetImageFetcherTask implements Runnable {
+  private static class MovieSetImageFetcherTask implements ArtworkDownloadScheduler.ArtworkTask {
     private MovieSet        movieSet;
     private String          urlToArtwork;
     private MediaFileType   type;
@@ -457,18 +454,16 @@ public class MovieSetArtworkHelper {
       this.writeToArtworkFolder = false;
     }
 
+    @Override
+    public String getArtworkUrl() {
+      return urlToArtwork;
+    }
+
     @Override
     public void run() {
       // first, fetch image
       try {
-        Url url = new Url(urlToArtwork);
-        InputStream is = url.getInputStream();
-        if (url.isFault()) {
-          return;
-        }
-
-        byte[] bytes = IOUtils.toByteArray(is);
-        is.close();
+        byte[] bytes = ArtworkDownloadScheduler.getInstance().fetch(urlToArtwork);
 
         String extension = FilenameUtils.getExtension(urlToArtwork);
 
@@ -494,6 +489,10 @@ public class MovieSetArtworkHelper {
           // only warning
           LOGGER.warn("interrupted image download");
         }
+        else if (e instanceof FileNotFoundException) {
+          // only warning
+          LOGGER.warn(e.getMessage());
+        }
         else {
           LOGGER.error("fetch image", e);
         }
@@ -569,19 +568,9 @@ public class MovieSetArtworkHelper {
       }
     }
 
-    private void writeImage(byte[] bytes, Path pathAndFilename) throws IOException, InterruptedException {
-      FileOutputStream outputStream = new FileOutputStream(pathAndFilename.toFile());
-      InputStream is = new ByteArrayInputStream(bytes);
-      IOUtils.copy(is, outputStream);
-      outputStream.flush();
-      try {
-        outputStream.getFD().sync(); // wait until file has been completely written
-      }
-      catch (Exception e) {
-        // empty here -> just not let the thread crash
-      }
-      outputStream.close();
-      is.close();
+    private void writeImage(byte[] bytes, Path pathAndFilename) throws IOException {
+      // the same image in several movie folders is linked/copied locally
+      ArtworkDownloadScheduler.getInstance().write(urlToArtwork, bytes, pathAndFilename);
 
       ImageCache.invalidateCachedImage(pathAndFilename);
 
@@ -47,10 +47,12 @@ import static org.tinymediamanager.core.Constants.VIDEO_IN_3D;
 import static org.tinymediamanager.core.Constants.WATCHED;
 import static org.tinymediamanager.core.Constants.WRITER;
 
+import java.beans.PropertyChangeEvent;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.text.CollationKey;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -63,6 +65,7 @@ import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.annotation.XmlTransient;
 
@@ -80,7 +83,9 @@ import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieArtworkHelper;
+import org.tinymediamanager.core.movie.MovieCollectionCache;
 import org.tinymediamanager.core.movie.MovieEdition;
+import org.tinymediamanager.core.movie.MovieFacets;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieMediaFileComparator;
 import org.tinymediamanager.core.movie.MovieModuleManager;
@@ -187,8 +192,13 @@ public class Movie extends MediaEntity {
 
   private MovieSet                              movieSet;
   private String                                titleSortable              = "";
+  private CollationKey                          titleSortableKey           = null;
+  private CollationKey                          sortTitleKey               = null;
+  private CollationKey                          originalTitleKey           = null;
   private Date                                  lastWatched                = null;
   private List<MediaGenres>                     genresForAccess            = new CopyOnWriteArrayList<>();
+  private volatile MovieFacets                  facets                     = null;
+  private final AtomicInteger                   facetsVersion              = new AtomicInteger();
 
   /**
    * Instantiates a new movie. To initialize the propertychangesupport after loading
@@ -326,6 +336,7 @@ public class Movie extends MediaEntity {
   public void setSortTitle(String newValue) {
     String oldValue = this.sortTitle;
     this.sortTitle = newValue;
+    sortTitleKey = null;
     firePropertyChange(SORT_TITLE, oldValue, newValue);
   }
 
@@ -344,6 +355,55 @@ public class Movie extends MediaEntity {
 
   public void clearTitleSortable() {
     titleSortable = "";
+    clearCollationKeys();
+  }
+
+  /**
+   * get the (cached) collation key of the sortable title for sorting
+   *
+   * @return the collation key of the sortable title
+   */
+  public CollationKey getTitleSortableCollationKey() {
+    CollationKey key = titleSortableKey;
+    if (key == null) {
+      key = Utils.getCollationKey(getTitleSortable());
+      titleSortableKey = key;
+    }
+    return key;
+  }
+
+  /**
+   * get the (cached) collation key of the sort title for sorting; falls back to the sortable title if there is no sort title
+   *
+   * @return the collation key of the sort title
+   */
+  public CollationKey getSortTitleCollationKey() {
+    CollationKey key = sortTitleKey;
+    if (key == null) {
+      key = Utils.getCollationKey(StringUtils.isNotBlank(sortTitle) ? sortTitle : getTitleSortable());
+      sortTitleKey = key;
+    }
+    return key;
+  }
+
+  /**
+   * get the (cached) collation key of the original title for sorting; falls back to the sortable title if there is no original title
+   *
+   * @return the collation key of the original title
+   */
+  public CollationKey getOriginalTitleCollationKey() {
+    CollationKey key = originalTitleKey;
+    if (key == null) {
+      key = Utils.getCollationKey(StringUtils.isNotBlank(getOriginalTitle()) ? getOriginalTitle() : getTitleSortable());
+      originalTitleKey = key;
+    }
+    return key;
+  }
+
+  private void clearCollationKeys() {
+    titleSortableKey = null;
+    sortTitleKey = null;
+    originalTitleKey = null;
   }
 
   /**
@@ -404,7 +464,7 @@ public class Movie extends MediaEntity {
     }
 
     // check if there is a mediafile (trailer)
-    if (!getMediaFiles(MediaFileType.TRAILER).isEmpty()) {
+    if (!getMediaFilesView(MediaFileType.TRAILER).isEmpty()) {
       return true;
     }
 
@@ -627,11 +687,11 @@ public class Movie extends MediaEntity {
       return true; // local ones found
     }
 
-    if (getMediaFiles(MediaFileType.SUBTITLE).size() > 0) {
+    if (getMediaFilesView(MediaFileType.SUBTITLE).size() > 0) {
       return true;
     }
 
-    for (MediaFile mf : getMediaFiles(MediaFileType.VIDEO)) {
+    for (MediaFile mf : getMediaFilesView(MediaFileType.VIDEO)) {
       if (mf.hasSubtitles()) {
         return true;
       }
@@ -1001,6 +1061,7 @@ public class Movie extends MediaEntity {
       catch (Exception ignored) {
       }
       if (col != 0) {
+        MovieCollectionCache.getInstance().put(this, col, metadata.getCollectionName());
         MovieSet movieSet = MovieList.getInstance().getMovieSet(metadata.getCollectionName(), col);
         if (movieSet != null && movieSet.getTmdbId() == 0) {
           movieSet.setTmdbId(col);
@@ -1134,7 +1195,7 @@ public class Movie extends MediaEntity {
     }
 
     if (MovieModuleManager.MOVIE_SETTINGS.isUseTrailerPreference() && MovieModuleManager.MOVIE_SETTINGS.isAutomaticTrailerDownload()
-        && getMediaFiles(MediaFileType.TRAILER).isEmpty() && !trailer.isEmpty()) {
+        && getMediaFilesView(MediaFileType.TRAILER).isEmpty() && !trailer.isEmpty()) {
       MovieTrailer trailer = this.trailer.get(0);
       MovieTrailerDownloadTask task = new MovieTrailerDownloadTask(trailer, this);
       TmmTaskManager.getInstance().addDownloadTask(task);
@@ -1284,9 +1345,16 @@ public class Movie extends MediaEntity {
 
     oldValue = this.titleSortable;
     titleSortable = "";
+    clearCollationKeys();
     firePropertyChange(TITLE_SORTABLE, oldValue, titleSortable);
   }
 
+  @Override
+  public void setOriginalTitle(String newValue) {
+    super.setOriginalTitle(newValue);
+    originalTitleKey = null;
+  }
+
   /**
    * Sets the runtime in minutes
    *
@@ -1760,7 +1828,7 @@ public class Movie extends MediaEntity {
    * Gets the media info video format (i.e. 720p).
    */
   public String getMediaInfoVideoFormat() {
-    List<MediaFile> videos = getMediaFiles(MediaFileType.VIDEO);
+    List<MediaFile> videos = getMediaFilesView(MediaFileType.VIDEO);
     if (videos.size() > 0) {
       MediaFile mediaFile = videos.get(0);
       return mediaFile.getVideoFormat();
@@ -1773,7 +1841,7 @@ public class Movie extends MediaEntity {
    * Gets the media info video codec (i.e. divx)
    */
   public String getMediaInfoVideoCodec() {
-    List<MediaFile> videos = getMediaFiles(MediaFileType.VIDEO);
+    List<MediaFile> videos = getMediaFilesView(MediaFileType.VIDEO);
     if (videos.size() > 0) {
       MediaFile mediaFile = videos.get(0);
       return mediaFile.getVideoCodec();
@@ -1783,7 +1851,7 @@ public class Movie extends MediaEntity {
   }
 
   public int getMediaInfoVideoBitrate() {
-    List<MediaFile> videos = getMediaFiles(MediaFileType.VIDEO);
+    List<MediaFile> videos = getMediaFilesView(MediaFileType.VIDEO);
     if (videos.size() > 0) {
       MediaFile mediaFile = videos.get(0);
       return mediaFile.getOverallBitRate();
@@ -1796,7 +1864,7 @@ public class Movie extends MediaEntity {
    * Gets the media info audio codec (i.e mp3) and channels (i.e. 6 at 5.1 sound)
    */
   public String getMediaInfoAudioCodecAndChannels() {
-    List<MediaFile> videos = getMediaFiles(MediaFileType.VIDEO);
+    List<MediaFile> videos = getMediaFilesView(MediaFileType.VIDEO);
     if (videos.size() > 0) {
       MediaFile mediaFile = videos.get(0);
       return mediaFile.getAudioCodec() + "_" + mediaFile.getAudioChannels();
@@ -2011,7 +2079,7 @@ public class Movie extends MediaEntity {
    * @return the first video file
    */
   public MediaFile getFirstVideoFile() {
-    List<MediaFile> videoFiles = getVideoFiles();
+    List<MediaFile> videoFiles = getMediaFilesView(MediaFileType.VIDEO);
     if (!videoFiles.isEmpty()) {
       return videoFiles.get(0);
     }
@@ -2024,7 +2092,7 @@ public class Movie extends MediaEntity {
    * @return the video base name (without stacking)
    */
   public String getVideoBasenameWithoutStacking() {
-    MediaFile mf = getMediaFiles(MediaFileType.VIDEO).get(0);
+    MediaFile mf = getMediaFilesView(MediaFileType.VIDEO).get(0);
     return FilenameUtils.getBaseName(mf.getFilenameWithoutStacking());
   }
 
@@ -2040,7 +2108,7 @@ public class Movie extends MediaEntity {
 
   public boolean isVideoIn3D() {
     String video3DFormat = "";
-    List<MediaFile> videos = getMediaFiles(MediaFileType.VIDEO);
+    List<MediaFile> videos = getMediaFilesView(MediaFileType.VIDEO);
     if (videos.size() > 0) {
       MediaFile mediaFile = videos.get(0);
       video3DFormat = mediaFile.getVideo3DFormat();
@@ -2049,6 +2117,42 @@ public class Movie extends MediaEntity {
     return videoIn3D || StringUtils.isNotBlank(video3DFormat);
   }
 
+  /**
+   * get the facets (values needed for filtering) of this movie. The facets are created lazily and dropped on every change of the movie
+   *
+   * @return the facets of this movie
+   */
+  public MovieFacets getFacets() {
+    MovieFacets facets = this.facets;
+    if (facets == null) {
+      int version = facetsVersion.get();
+      facets = MovieFacets.create(this);
+      // do not store facets which have been outdated by a concurrent change
+      if (version == facetsVersion.get()) {
+        this.facets = facets;
+      }
+    }
+    return facets;
+  }
+
+  private void invalidateFacets() {
+    facetsVersion.incrementAndGet();
+    facets = null;
+  }
+
+  @Override
+  protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    // every change may affect the facets; drop them synchronously (the event itself is delivered asynchronously)
+    invalidateFacets();
+    super.firePropertyChange(propertyName, oldValue, newValue);
+  }
+
+  @Override
+  protected void firePropertyChange(PropertyChangeEvent evt) {
+    invalidateFacets();
+    super.firePropertyChange(evt);
+  }
+
   public void setTop250(int newValue) {
     int oldValue = this.top250;
     this.top250 = newValue;
@@ -256,6 +256,50 @@ public class MovieSet extends MediaEntity {
     firePropertyChange("movies", null, movies);
   }
 
+  /**
+   * Inserts the movies into the right position of the list; the artwork is updated (and written to the movie folders) once for all movies
+   * 
+   * @param moviesToInsert
+   *          the movies to insert into the movie set
+   */
+  public void insertMovies(List<Movie> moviesToInsert) {
+    List<Movie> insertedMovies = new ArrayList<>(moviesToInsert.size());
+    synchronized (movies) {
+      for (Movie movie : moviesToInsert) {
+        if (movies.contains(movie)) {
+          continue;
+        }
+
+        int index = Collections.binarySearch(movies, movie, MOVIE_SET_COMPARATOR);
+        if (index < 0) {
+          index = -index - 1;
+        }
+        movies.add(index, movie);
+        movieIds.add(index, movie.getDbId());
+        insertedMovies.add(movie);
+      }
+
+      if (insertedMovies.isEmpty()) {
+        return;
+      }
+
+      // update artwork
+      MovieSetArtworkHelper.updateArtwork(this);
+
+      saveToDb();
+    }
+
+    // write images
+    if (MovieModuleManager.MOVIE_SETTINGS.isEnableMovieSetArtworkMovieFolder()) {
+      MovieSetArtworkHelper.writeImagesToMovieFolder(this, insertedMovies);
+    }
+
+    for (Movie movie : insertedMovies) {
+      firePropertyChange("addedMovie", null, movie);
+    }
+    firePropertyChange("movies", null, insertedMovies);
+  }
+
   /**
    * Removes the movie from the list.
    * 
@@ -15,15 +15,22 @@
  */
 package org.tinymediamanager.core.movie.tasks;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.movie.MovieCollectionCache;
+import org.tinymediamanager.core.movie.MovieCollectionCache.CollectionInfo;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.entities.Movie;
@@ -39,15 +46,27 @@ import org.tinymediamanager.scraper.mediaprovider.IMovieSetMetadataProvider;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The class MovieAssignMovieSetTask. A task to assign the movie set to the given movies
+ * The class MovieAssignMovieSetTask. A task to assign the movie set to the given movies<br>
+ * In the first step the collection of every movie is looked up (in the MovieCollectionCache or by the scraper - in parallel). Every collection
+ * found by the scraper is fetched once and all its movies are put into the cache, so the other movies of the same collection need no scraper
+ * call. In the second step the movies are assigned to their movie sets - all movies of a movie set at once (the artwork of the movie set is
+ * updated and downloaded only once).
  * 
  * @author Manuel Laggner
  */
 public class MovieAssignMovieSetTask extends TmmThreadPool {
-  private final static Logger         LOGGER = LoggerFactory.getLogger(MovieAssignMovieSetTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private final static Logger                         LOGGER              = LoggerFactory.getLogger(MovieAssignMovieSetTask.class);
+  private static final ResourceBundle                 BUNDLE              = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final int                            THREADS             = 3;
 
-  private List<Movie>                 moviesToScrape;
+  private List<Movie>                                 moviesToScrape;
+  private IMovieSetMetadataProvider                   metadataProvider;
+  private final MovieCollectionCache                  collectionCache     = MovieCollectionCache.getInstance();
+  // the found movies per collection id (in the order of the movies)
+  private final Map<Integer, List<Movie>>             moviesPerCollection = new LinkedHashMap<>();
+  private final Map<Integer, String>                  collectionNames     = new LinkedHashMap<>();
+  // the metadata of the collections which have been fetched in this run
+  private final ConcurrentMap<Integer, MediaMetadata> collectionMetadata  = new ConcurrentHashMap<>();
 
   public MovieAssignMovieSetTask(List<Movie> moviesToScrape) {
     super(BUNDLE.getString("movie.assignmovieset"));
@@ -56,84 +75,132 @@ public class MovieAssignMovieSetTask extends TmmThreadPool {
 
   @Override
   protected void doInBackground() {
-    initThreadPool(1, "scrape");
-    start();
+    List<MediaScraper> sets = MediaScraper.getMediaScrapers(ScraperType.MOVIE_SET);
+    if (sets == null || sets.isEmpty()) {
+      return;
+    }
+    metadataProvider = (IMovieSetMetadataProvider) sets.get(0).getMediaProvider(); // just get first
 
+    // 1. find the collections of the movies
+    initThreadPool(THREADS, "scrape");
+    start();
     for (int i = 0; i < moviesToScrape.size(); i++) {
       Movie movie = moviesToScrape.get(i);
-      submitTask(new Worker(movie));
+      if (movie.getMovieSet() == null) {
+        submitTask(new CollectionWorker(movie));
+      }
+    }
+    waitForCompletionOrCancel();
+    if (cancel) {
+      return;
+    }
+
+    // 2. assign the movies to the movie sets
+    initThreadPool(THREADS, "scrape");
+    synchronized (moviesPerCollection) {
+      for (Entry<Integer, List<Movie>> entry : moviesPerCollection.entrySet()) {
+        submitTask(new MovieSetWorker(entry.getKey(), collectionNames.get(entry.getKey()), entry.getValue()));
+      }
     }
     waitForCompletionOrCancel();
     LOGGER.info("Done assigning movies to movie sets");
   }
 
-  private class Worker implements Runnable {
-    private MovieList movieList = MovieList.getInstance();
-    private Movie     movie;
+  private MediaScrapeOptions createScrapeOptions(MediaType type) {
+    MediaScrapeOptions options = new MediaScrapeOptions(type);
+    options.setLanguage(LocaleUtils.toLocale(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage().name()));
+    options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
+    return options;
+  }
+
+  /**
+   * get the metadata of the collection; every collection is fetched only once per run
+   */
+  private MediaMetadata getCollectionMetadata(int collectionId) {
+    MediaMetadata info = collectionMetadata.get(collectionId);
+    if (info != null) {
+      return info;
+    }
+
+    try {
+      MediaScrapeOptions options = createScrapeOptions(MediaType.MOVIE_SET);
+      options.setTmdbId(collectionId);
+      info = metadataProvider.getMetadata(options);
+    }
+    catch (Exception e) {
+      LOGGER.debug("could not get the metadata of the collection {}: {}", collectionId, e.getMessage());
+      return null;
+    }
+
+    if (info != null) {
+      collectionMetadata.putIfAbsent(collectionId, info);
+
+      // all movies of this collection are known now
+      for (MediaMetadata item : info.getSubItems()) {
+        try {
+          collectionCache.put(Integer.parseInt(item.getId(MediaMetadata.TMDB).toString()), collectionId, info.getTitle());
+        }
+        catch (Exception ignored) {
+        }
+      }
+    }
+    return info;
+  }
+
+  /**
+   * find the collection of one movie
+   */
+  private class CollectionWorker implements Runnable {
+    private Movie movie;
 
-    public Worker(Movie movie) {
+    public CollectionWorker(Movie movie) {
       this.movie = movie;
     }
 
     @Override
     public void run() {
-      if (movie.getMovieSet() != null) {
-        return;
-      }
       try {
-        List<MediaScraper> sets = MediaScraper.getMediaScrapers(ScraperType.MOVIE_SET);
-        if (sets != null && sets.size() > 0) {
-          MediaScraper first = sets.get(0); // just get first
-          IMovieSetMetadataProvider mp = (IMovieSetMetadataProvider) first.getMediaProvider();
-          MediaScrapeOptions options = new MediaScrapeOptions(MediaType.MOVIE);
-          options.setLanguage(LocaleUtils.toLocale(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage().name()));
-          options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
+        int collectionId = 0;
+        String collectionName = "";
+
+        CollectionInfo collection = collectionCache.get(movie);
+        if (collection != null) {
+          collectionId = collection.getId();
+          collectionName = collection.getName();
+        }
+        else {
+          MediaScrapeOptions options = createScrapeOptions(MediaType.MOVIE);
           for (Entry<String, Object> entry : movie.getIds().entrySet()) {
             options.setId(entry.getKey(), entry.getValue().toString());
           }
 
-          MediaMetadata md = mp.getMetadata(options);
-          int collectionId = (int) md.getId(MediaMetadata.TMDB_SET);
+          MediaMetadata md = metadataProvider.getMetadata(options);
+          if (md == null) {
+            return;
+          }
+          try {
+            collectionId = (int) md.getId(MediaMetadata.TMDB_SET);
+          }
+          catch (Exception ignored) {
+          }
+          collectionName = md.getCollectionName();
+          collectionCache.put(movie, collectionId, collectionName);
+
           if (collectionId > 0) {
-            String collectionName = md.getCollectionName();
-            MovieSet movieSet = movieList.getMovieSet(collectionName, collectionId);
-            if (movieSet != null && movieSet.getTmdbId() == 0) {
-              movieSet.setTmdbId(collectionId);
-              // get movieset metadata
-              try {
-                options = new MediaScrapeOptions(MediaType.MOVIE_SET);
-                options.setTmdbId(collectionId);
-                options.setLanguage(LocaleUtils.toLocale(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage().name()));
-                options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
-
-                MediaMetadata info = mp.getMetadata(options);
-                if (info != null && StringUtils.isNotBlank(info.getTitle())) {
-                  movieSet.setTitle(info.getTitle());
-                  movieSet.setPlot(info.getPlot());
-                  if (!info.getMediaArt(MediaArtworkType.POSTER).isEmpty()) {
-                    movieSet.setArtworkUrl(info.getMediaArt(MediaArtworkType.POSTER).get(0).getDefaultUrl(), MediaFileType.POSTER);
-                  }
-                  if (!info.getMediaArt(MediaArtworkType.BACKGROUND).isEmpty()) {
-                    movieSet.setArtworkUrl(info.getMediaArt(MediaArtworkType.BACKGROUND).get(0).getDefaultUrl(), MediaFileType.FANART);
-                  }
-                }
-              }
-              catch (Exception e) {
-              }
-            }
+            // fetch the whole collection to know the other movies of it too
+            getCollectionMetadata(collectionId);
+          }
+        }
 
-            // add movie to movieset
-            if (movieSet != null) {
-              // first remove from "old" movieset
-              movie.setMovieSet(null);
-
-              // add to new movieset
-              movie.setMovieSet(movieSet);
-              movieSet.insertMovie(movie);
-              movie.writeNFO();
-              movie.saveToDb();
-              movieSet.saveToDb();
+        if (collectionId > 0) {
+          synchronized (moviesPerCollection) {
+            List<Movie> movies = moviesPerCollection.get(collectionId);
+            if (movies == null) {
+              movies = new ArrayList<>();
+              moviesPerCollection.put(collectionId, movies);
+              collectionNames.put(collectionId, collectionName);
             }
+            movies.add(movie);
           }
         }
       }
@@ -143,6 +210,81 @@ public class MovieAssignMovieSetTask extends TmmThreadPool {
     }
   }
 
+  /**
+   * assign all found movies of a collection to its movie set
+   */
+  private class MovieSetWorker implements Runnable {
+    private MovieList   movieList = MovieList.getInstance();
+    private int         collectionId;
+    private String      collectionName;
+    private List<Movie> movies;
+
+    public MovieSetWorker(int collectionId, String collectionName, List<Movie> movies) {
+      this.collectionId = collectionId;
+      this.collectionName = collectionName;
+      this.movies = movies;
+    }
+
+    @Override
+    public void run() {
+      try {
+        MovieSet movieSet = movieList.getMovieSet(collectionName, collectionId);
+        if (movieSet == null) {
+          return;
+        }
+
+        String posterUrl = "";
+        String fanartUrl = "";
+        if (movieSet.getTmdbId() == 0) {
+          movieSet.setTmdbId(collectionId);
+          // get movieset metadata
+          MediaMetadata info = getCollectionMetadata(collectionId);
+          if (info != null && StringUtils.isNotBlank(info.getTitle())) {
+            movieSet.setTitle(info.getTitle());
+            movieSet.setPlot(info.getPlot());
+            if (!info.getMediaArt(MediaArtworkType.POSTER).isEmpty()) {
+              posterUrl = info.getMediaArt(MediaArtworkType.POSTER).get(0).getDefaultUrl();
+            }
+            if (!info.getMediaArt(MediaArtworkType.BACKGROUND).isEmpty()) {
+              fanartUrl = info.getMediaArt(MediaArtworkType.BACKGROUND).get(0).getDefaultUrl();
+            }
+          }
+        }
+
+        // add the movies to the movieset
+        List<Movie> moviesToInsert = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+          if (movie.getMovieSet() != null) {
+            continue;
+          }
+          // first remove from "old" movieset
+          movie.setMovieSet(null);
+
+          // add to new movieset
+          movie.setMovieSet(movieSet);
+          moviesToInsert.add(movie);
+        }
+        movieSet.insertMovies(moviesToInsert);
+        for (Movie movie : moviesToInsert) {
+          movie.writeNFO();
+          movie.saveToDb();
+        }
+
+        // download the artwork of a new movie set after all movies have been added (written to all movie folders at once)
+        if (StringUtils.isNotBlank(posterUrl)) {
+          movieSet.setArtworkUrl(posterUrl, MediaFileType.POSTER);
+        }
+        if (StringUtils.isNotBlank(fanartUrl)) {
+          movieSet.setArtworkUrl(fanartUrl, MediaFileType.FANART);
+        }
+        movieSet.saveToDb();
+      }
+      catch (Exception e) {
+        LOGGER.error("error assigning movie set: " + e.getMessage());
+      }
+    }
+  }
+
   @Override
   public void callback(Object obj) {
     publishState((String) obj, progressDone);
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.movie.MovieRenamer;
+import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.threading.Pipeline;
+import org.tinymediamanager.core.threading.TmmTaskManager;
+
+/**
+ * The class MovieBatchPipeline. Used by the command line to stream every movie through scrape (incl. artwork and NFO) -> rename as soon as it is
+ * available, instead of running one pass over all movies per step.<br>
+ * The datasource update only hands over movies it has been finished with (incl. the media information which is needed for renaming), so all stages
+ * can run while the update is still in progress.
+ *
+ * @author Manuel Laggner
+ */
+public class MovieBatchPipeline {
+  private static final Logger   LOGGER          = LoggerFactory.getLogger(MovieBatchPipeline.class);
+
+  private final Pipeline<Movie> pipeline;
+  private final MovieScrapeTask scrapeTask;
+  private final boolean         rename;
+  private final boolean         dryRun;
+  private final Set<Movie>      submittedMovies = Collections.synchronizedSet(new HashSet<Movie>());
+
+  /**
+   * create a new pipeline
+   *
+   * @param options
+   *          the scrape options
+   * @param rename
+   *          rename the movies after scraping
+   * @param dryRun
+   *          only log what would have been done
+   */
+  public MovieBatchPipeline(MovieSearchAndScrapeOptions options, boolean rename, boolean dryRun) {
+    this.scrapeTask = new MovieScrapeTask(Collections.<Movie> emptyList(), true, options);
+    // unattended scraping: responses of former runs can be reused
+    this.scrapeTask.setDiskCache(true);
+    this.rename = rename;
+    this.dryRun = dryRun;
+
+    pipeline = new Pipeline<>("movie");
+    pipeline.addStage("scrape", 3, 50, new Pipeline.Stage<Movie>() {
+      @Override
+      public Movie process(Movie movie) throws Exception {
+        return scrape(movie);
+      }
+    });
+    pipeline.addStage("rename", 1, 50, new Pipeline.Stage<Movie>() {
+      @Override
+      public Movie process(Movie movie) throws Exception {
+        return rename(movie);
+      }
+    });
+  }
+
+  /**
+   * put the movie into the pipeline; movies which have already been submitted are ignored
+   *
+   * @param movie
+   *          the movie
+   */
+  public void submit(Movie movie) {
+    if (!submittedMovies.add(movie)) {
+      return;
+    }
+    try {
+      pipeline.submit(movie);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * no more movies will be submitted; wait until all movies have run through the pipeline
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public void finish() throws InterruptedException {
+    pipeline.close();
+    pipeline.awaitCompletion();
+    LOGGER.info("pipeline finished - scraped: {}, not scraped: {}, renamed: {}", pipeline.getProcessedCount("scrape"),
+        pipeline.getDroppedCount("scrape"), pipeline.getProcessedCount("rename"));
+  }
+
+  private Movie scrape(final Movie movie) throws Exception {
+    if (dryRun) {
+      LOGGER.info("DRYRUN: would have scraped " + movie.getTitle());
+      return movie;
+    }
+
+    List<Future<Void>> artwork = TmmTaskManager.getInstance().collectImageDownloads(new Runnable() {
+      @Override
+      public void run() {
+        scrapeTask.scrapeMovie(movie);
+      }
+    });
+    if (!movie.isScraped()) {
+      // not found/failed; nothing more to do for this movie
+      return null;
+    }
+
+    // the NFO has been written while scraping; the artwork has to be there before the movie can be renamed
+    for (Future<Void> download : artwork) {
+      download.get();
+    }
+    return movie;
+  }
+
+  private synchronized Movie rename(Movie movie) {
+    if (!rename) {
+      return movie;
+    }
+    // renaming is done one movie at a time (like the MovieRenameTask)
+    if (dryRun) {
+      LOGGER.info("DRYRUN: would have renamed " + movie.getTitle());
+    }
+    else {
+      MovieRenamer.renameMovie(movie);
+    }
+    return movie;
+  }
+}
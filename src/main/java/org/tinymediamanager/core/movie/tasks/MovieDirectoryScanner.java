@@ -0,0 +1,350 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class MovieDirectoryScanner. Walks the folders of a datasource in parallel (fork/join) and reports every movie folder candidate to the
+ * {@link Handler} as soon as its subtree has been scanned.<br>
+ * Every directory is read exactly once; the ignore markers (.tmmignore, tmmignore, .nomedia) are detected from that listing. A folder containing a
+ * video file is reported as
+ * <ul>
+ * <li>multi movie folder if there is another video folder beneath it</li>
+ * <li>movie folder otherwise; for stacked folders (CD1, CD2, ...) only the first one of the siblings (by name) is reported</li>
+ * </ul>
+ *
+ * @author Manuel Laggner
+ */
+public class MovieDirectoryScanner {
+  private static final Logger       LOGGER         = LoggerFactory.getLogger(MovieDirectoryScanner.class);
+  private static final List<String> IGNORE_MARKERS = Arrays.asList(".tmmignore", "tmmignore", ".nomedia");
+
+  private final int                 parallelism;
+  private final Handler             handler;
+  private final AtomicLong          directories    = new AtomicLong();
+  private final AtomicLong          files          = new AtomicLong();
+
+  /**
+   * create a new scanner
+   *
+   * @param parallelism
+   *          the amount of threads reading the directories
+   * @param handler
+   *          the handler for the filters and found folders
+   */
+  public MovieDirectoryScanner(int parallelism, Handler handler) {
+    this.parallelism = Math.max(1, parallelism);
+    this.handler = handler;
+  }
+
+  /**
+   * scan the given root folders (and all their sub folders); blocks until all folders have been scanned
+   *
+   * @param roots
+   *          the folders to scan
+   */
+  public void scan(final List<Path> roots) {
+    if (roots.isEmpty()) {
+      return;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism, new ScannerThreadFactory(), null, false);
+    try {
+      pool.invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          List<ScanTask> tasks = new ArrayList<>(roots.size());
+          for (Path root : roots) {
+            if (handler.isSkipped(root)) {
+              continue;
+            }
+            tasks.add(new ScanTask(root.toAbsolutePath(), null));
+          }
+          invokeAll(tasks);
+
+          // every root folder stands for its own (stacked folders are only combined beneath a root folder)
+          for (ScanTask task : tasks) {
+            ScanResult result = task.join();
+            if (result.stackedCandidate != null) {
+              report(result.stackedCandidate);
+            }
+          }
+        }
+      });
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * @return the amount of scanned directories
+   */
+  public long getDirectoryCount() {
+    return directories.get();
+  }
+
+  /**
+   * @return the amount of visited files
+   */
+  public long getFileCount() {
+    return files.get();
+  }
+
+  private void report(Candidate candidate) {
+    if (handler.isCancelled()) {
+      return;
+    }
+    if (candidate.files != null) {
+      handler.multiMovieFolderFound(candidate.dir, candidate.files);
+    }
+    else {
+      handler.movieFolderFound(candidate.dir);
+    }
+  }
+
+  /**
+   * the filters and the receiver of the found folders; all methods are called from the scanner threads
+   */
+  public interface Handler {
+    /**
+     * should this file/folder be skipped (checked for every entry of a directory)?
+     *
+     * @param path
+     *          the file or folder
+     * @return true if the path should not be scanned
+     */
+    boolean isSkipped(Path path);
+
+    /**
+     * does this file make its folder to a movie folder?
+     *
+     * @param file
+     *          the file
+     * @return true if the file is a video file of a movie
+     */
+    boolean isVideoFile(Path file);
+
+    /**
+     * is this folder a stacked folder (CD1, CD2, ...)?
+     *
+     * @param dir
+     *          the folder
+     * @return true if the folder is a part of a stacked movie
+     */
+    boolean isStackedFolder(Path dir);
+
+    /**
+     * @return true if the scan should be aborted
+     */
+    boolean isCancelled();
+
+    /**
+     * a movie folder has been found
+     *
+     * @param dir
+     *          the movie folder
+     */
+    void movieFolderFound(Path dir);
+
+    /**
+     * a multi movie folder has been found
+     *
+     * @param dir
+     *          the folder
+     * @param files
+     *          all (not skipped) files directly in this folder
+     */
+    void multiMovieFolderFound(Path dir, List<Path> files);
+  }
+
+  private static class Candidate {
+    private final Path       dir;
+    private final List<Path> files;
+
+    private Candidate(Path dir, List<Path> files) {
+      this.dir = dir;
+      this.files = files;
+    }
+  }
+
+  private static class ScanResult {
+    private static final ScanResult EMPTY = new ScanResult(false, null);
+
+    private final boolean           videoFolderFound;
+    private final Candidate         stackedCandidate;
+
+    private ScanResult(boolean videoFolderFound, Candidate stackedCandidate) {
+      this.videoFolderFound = videoFolderFound;
+      this.stackedCandidate = stackedCandidate;
+    }
+  }
+
+  private class ScanTask extends RecursiveTask<ScanResult> {
+    private static final long serialVersionUID = 1L;
+
+    private final Path        dir;
+    private final ScanTask    parent;
+    private volatile Path     realPath;
+
+    private ScanTask(Path dir, ScanTask parent) {
+      this.dir = dir;
+      this.parent = parent;
+    }
+
+    @Override
+    protected ScanResult compute() {
+      if (handler.isCancelled()) {
+        return ScanResult.EMPTY;
+      }
+
+      // read the directory once
+      List<Path> entries = new ArrayList<>();
+      try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir)) {
+        for (Path entry : directoryStream) {
+          if (IGNORE_MARKERS.contains(entry.getFileName().toString())) {
+            LOGGER.debug("Skipping dir: " + dir);
+            return ScanResult.EMPTY;
+          }
+          entries.add(entry);
+        }
+      }
+      catch (IOException e) {
+        LOGGER.error("could not read {}: {}", dir, e.getMessage());
+        return ScanResult.EMPTY;
+      }
+      directories.incrementAndGet();
+
+      boolean videoFolder = false;
+      List<Path> regularFiles = new ArrayList<>();
+      List<ScanTask> subTasks = new ArrayList<>();
+      for (Path entry : entries) {
+        if (handler.isSkipped(entry)) {
+          LOGGER.debug("Skipping: " + entry);
+          continue;
+        }
+
+        BasicFileAttributes attrs;
+        try {
+          attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+        }
+        catch (IOException e) {
+          LOGGER.error("could not read {}: {}", entry, e.getMessage());
+          continue;
+        }
+
+        if (attrs.isDirectory()) {
+          if (!isLoop(entry)) {
+            subTasks.add(new ScanTask(entry.toAbsolutePath(), this));
+          }
+        }
+        else if (attrs.isRegularFile() || attrs.isOther()) {
+          files.incrementAndGet();
+          regularFiles.add(entry.toAbsolutePath());
+          if (!videoFolder && handler.isVideoFile(entry)) {
+            videoFolder = true;
+          }
+        }
+      }
+
+      invokeAll(subTasks);
+
+      // which of the stacked folders is taken must neither depend on the timing nor on the order of the listing: take the first one by name
+      boolean videoFolderBeneath = false;
+      Candidate stackedCandidate = null;
+      for (ScanTask task : subTasks) {
+        ScanResult result = task.join();
+        videoFolderBeneath |= result.videoFolderFound;
+        if (result.stackedCandidate != null && (stackedCandidate == null || result.stackedCandidate.dir.compareTo(stackedCandidate.dir) < 0)) {
+          stackedCandidate = result.stackedCandidate;
+        }
+      }
+      if (stackedCandidate != null) {
+        report(stackedCandidate);
+      }
+
+      if (!videoFolder || handler.isCancelled()) {
+        return new ScanResult(videoFolderBeneath, null);
+      }
+
+      // IF we already have a movie a level deeper, we HAVE TO treat this folder as MMD!
+      Candidate candidate = new Candidate(dir, videoFolderBeneath ? regularFiles : null);
+      if (handler.isStackedFolder(dir)) {
+        // the parent decides which one of the stacked folders will be reported
+        return new ScanResult(true, candidate);
+      }
+      report(candidate);
+      return new ScanResult(true, null);
+    }
+
+    /**
+     * a linked directory which points to one of its parents would be scanned endlessly
+     */
+    private boolean isLoop(Path entry) {
+      if (!Files.isSymbolicLink(entry)) {
+        return false;
+      }
+      try {
+        Path target = entry.toRealPath();
+        for (ScanTask task = this; task != null; task = task.parent) {
+          if (task.realPath == null) {
+            task.realPath = task.dir.toRealPath();
+          }
+          if (task.realPath.equals(target)) {
+            LOGGER.warn("Skipping linked dir (loop): " + entry);
+            return true;
+          }
+        }
+      }
+      catch (IOException e) {
+        LOGGER.error("could not resolve {}: {}", entry, e.getMessage());
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static class ScannerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger(1);
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("update-scan-" + THREAD_NUMBER.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
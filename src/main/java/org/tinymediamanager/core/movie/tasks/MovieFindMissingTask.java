@@ -20,6 +20,7 @@ import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
 import static java.nio.file.FileVisitResult.TERMINATE;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -28,10 +29,12 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
 
 import javax.swing.SwingUtilities;
 
@@ -43,10 +46,8 @@ import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
 import org.tinymediamanager.core.Utils;
-import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
-import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.ui.UTF8Control;
 import org.tinymediamanager.ui.dialogs.MessageSummaryDialog;
@@ -58,10 +59,16 @@ import org.tinymediamanager.ui.dialogs.MessageSummaryDialog;
  */
 
 public class MovieFindMissingTask extends TmmThreadPool {
-  private static final Logger         LOGGER = LoggerFactory.getLogger(MovieFindMissingTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final Logger         LOGGER         = LoggerFactory.getLogger(MovieFindMissingTask.class);
+  private static final ResourceBundle BUNDLE         = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
 
+  private static final int            WALKER_THREADS = 4;
+  // more found files are only shown in the summary at the end (do not flood the message history)
+  private static final int            MAX_MESSAGES   = 200;
+
+  private final List<String>          foundMfs       = Collections.synchronizedList(new ArrayList<String>());
   private List<String>                dataSources;
+  private int                         pushedMessages = 0;
   private MovieList                   movieList;
 
   public MovieFindMissingTask() {
@@ -79,42 +86,34 @@ public class MovieFindMissingTask extends TmmThreadPool {
 
   @Override
   public void doInBackground() {
-    final List<String> foundMfs = new ArrayList<>();
-
     try {
       StopWatch stopWatch = new StopWatch();
       stopWatch.start();
 
-      // build MF list
-      ArrayList<MediaFile> mfs = new ArrayList<>();
-      for (Movie movie : movieList.getMovies()) {
-        mfs.addAll(movie.getMediaFiles());
-        // mfs.addAll(movie.getMediaFiles(MediaFileType.VIDEO));
-        // mfs.addAll(movie.getMediaFiles(MediaFileType.VIDEO_EXTRA));
-        // mfs.addAll(movie.getMediaFiles(MediaFileType.TRAILER));
-      }
+      // the known files are looked up in the (incrementally maintained) file index of the movie list; every top level entry of the datasource is
+      // walked in its own task
+      initThreadPool(WALKER_THREADS, "findMissing");
+      start();
 
       for (String ds : dataSources) {
-        start();
-
-        HashSet<Path> bigFiles = getBigFilesRecursive(Paths.get(ds));
-        if (cancel) {
-          break;
-        }
-
-        for (Path file : bigFiles) {
-
-          MediaFile mf = new MediaFile(file);
-          if (!mfs.contains(mf)) {
-            LOGGER.info("found possible movie file " + file);
-            foundMfs.add(file.toString());
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Paths.get(ds))) {
+          for (Path path : directoryStream) {
+            if (cancel) {
+              break;
+            }
+            submitTask(new FindMissingWalker(path));
           }
         }
+        catch (IOException e) {
+          LOGGER.warn("could not read datasource {}: {}", ds, e.getMessage());
+        }
         if (cancel) {
           break;
         }
       }
 
+      waitForCompletionOrCancel();
+
       stopWatch.stop();
       LOGGER.info("Done finding missing movies :) - took " + stopWatch);
     }
@@ -123,12 +122,13 @@ public class MovieFindMissingTask extends TmmThreadPool {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "message.update.threadcrashed"));
     }
 
-    if (!foundMfs.isEmpty()) {
+    final List<String> result = new ArrayList<>(foundMfs);
+    if (!result.isEmpty()) {
       try {
         SwingUtilities.invokeAndWait(new Runnable() {
           @Override
           public void run() {
-            MessageSummaryDialog dialog = new MessageSummaryDialog(foundMfs);
+            MessageSummaryDialog dialog = new MessageSummaryDialog(result);
             dialog.setVisible(true);
           }
         });
@@ -187,8 +187,54 @@ public class MovieFindMissingTask extends TmmThreadPool {
     }
   }
 
+  /**
+   * walks one top level entry of a datasource and collects all big files which are not known in the database
+   */
+  private class FindMissingWalker implements Callable<Object> {
+    private final Path path;
+
+    private FindMissingWalker(Path path) {
+      this.path = path;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      List<Path> missingFiles = new ArrayList<>();
+      for (Path file : getBigFilesRecursive(path)) {
+        if (!movieList.isKnownFile(file)) {
+          missingFiles.add(file);
+        }
+      }
+      return new WalkerResult(path, missingFiles);
+    }
+  }
+
+  private static class WalkerResult {
+    private final Path       path;
+    private final List<Path> missingFiles;
+
+    private WalkerResult(Path path, List<Path> missingFiles) {
+      this.path = path;
+      this.missingFiles = missingFiles;
+    }
+  }
+
   @Override
   public void callback(Object obj) {
-    publishState((String) obj, progressDone);
+    if (!(obj instanceof WalkerResult)) {
+      return;
+    }
+
+    // the found files are reported as soon as their folder has been walked
+    WalkerResult result = (WalkerResult) obj;
+    for (Path file : result.missingFiles) {
+      LOGGER.info("found possible movie file " + file);
+      foundMfs.add(file.toString());
+      if (pushedMessages < MAX_MESSAGES) {
+        pushedMessages++;
+        MessageManager.instance.pushMessage(new Message(MessageLevel.INFO, file.toString(), "movie.findmissing.found"));
+      }
+    }
+    publishState(result.path.toString(), progressDone);
   }
 }
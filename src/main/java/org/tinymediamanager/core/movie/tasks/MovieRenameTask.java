@@ -17,26 +17,28 @@ package org.tinymediamanager.core.movie.tasks;
 
 import java.util.List;
 import java.util.ResourceBundle;
-import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
-import org.tinymediamanager.core.movie.MovieRenamer;
+import org.tinymediamanager.core.movie.MovieRenamePlanner;
 import org.tinymediamanager.core.movie.entities.Movie;
 import org.tinymediamanager.core.threading.TmmThreadPool;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The Class MovieRenameTask.
+ * The Class MovieRenameTask. The folder moves of all movies are planned up front (see MovieRenamePlanner); independent movies are renamed in
+ * parallel per device.
  * 
  * @author Manuel Laggner
  */
 public class MovieRenameTask extends TmmThreadPool {
-  private final static Logger         LOGGER = LoggerFactory.getLogger(MovieRenameTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private final static Logger         LOGGER             = LoggerFactory.getLogger(MovieRenameTask.class);
+  private static final ResourceBundle BUNDLE             = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  // more threads on the same disk would only compete for the disk
+  private static final int            THREADS_PER_DEVICE = 2;
 
   private List<Movie>                 moviesToRename;
 
@@ -54,18 +56,21 @@ public class MovieRenameTask extends TmmThreadPool {
   @Override
   protected void doInBackground() {
     try {
-      initThreadPool(1, "rename");
       start();
-      // rename movies
-      for (int i = 0; i < moviesToRename.size(); i++) {
-        if (cancel) {
-          break;
+      setWorkUnits(moviesToRename.size());
+
+      MovieRenamePlanner planner = new MovieRenamePlanner(moviesToRename);
+      planner.execute(THREADS_PER_DEVICE, new MovieRenamePlanner.Listener() {
+        @Override
+        public boolean isCancelled() {
+          return cancel;
         }
 
-        Movie movie = moviesToRename.get(i);
-        submitTask(new RenameMovieTask(movie));
-      }
-      waitForCompletionOrCancel();
+        @Override
+        public void movieProcessed(Movie movie) {
+          callback(movie.getTitle());
+        }
+      });
       LOGGER.info("Done renaming movies)");
     }
     catch (Exception e) {
@@ -74,29 +79,8 @@ public class MovieRenameTask extends TmmThreadPool {
     }
   }
 
-  /**
-   * ThreadpoolWorker to work off ONE possible movie from root datasource directory
-   * 
-   * @author Myron Boyle
-   * @version 1.0
-   */
-  private class RenameMovieTask implements Callable<Object> {
-
-    private Movie movie = null;
-
-    public RenameMovieTask(Movie movie) {
-      this.movie = movie;
-    }
-
-    @Override
-    public String call() throws Exception {
-      MovieRenamer.renameMovie(movie);
-      return movie.getTitle();
-    }
-  }
-
   @Override
-  public void callback(Object obj) {
-    publishState((String) obj, progressDone);
+  public synchronized void callback(Object obj) {
+    publishState((String) obj, progressDone + 1);
   }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.scraper.MediaMetadata;
+
+/**
+ * The class MovieScrapeSubTasks. Calls several providers of one movie (e.g. all artwork providers) in parallel: every provider gets its own sub
+ * task; the results are merged in the order of the providers. Without an executor the providers are called one after another in the calling
+ * thread.
+ *
+ * @author Manuel Laggner
+ */
+class MovieScrapeSubTasks {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MovieScrapeSubTasks.class);
+
+  private MovieScrapeSubTasks() {
+    // hide public constructor for utility classes
+  }
+
+  /**
+   * start the call of every provider
+   *
+   * @param executor
+   *          the executor for the sub tasks (may be null)
+   * @param providers
+   *          the providers to call
+   * @param call
+   *          the call of one provider
+   * @return the futures of the calls (in the order of the providers)
+   */
+  static <S, T> List<Future<List<T>>> submit(ExecutorService executor, List<S> providers, final ProviderCall<S, T> call) {
+    List<Future<List<T>>> futures = new ArrayList<>();
+    for (final S provider : providers) {
+      Callable<List<T>> callable = new Callable<List<T>>() {
+        @Override
+        public List<T> call() throws Exception {
+          return call.call(provider);
+        }
+      };
+
+      if (executor != null) {
+        futures.add(executor.submit(callable));
+      }
+      else {
+        FutureTask<List<T>> future = new FutureTask<>(callable);
+        future.run();
+        futures.add(future);
+      }
+    }
+    return futures;
+  }
+
+  /**
+   * wait for all calls and merge their results in the order of the providers
+   *
+   * @param futures
+   *          the futures of the calls
+   * @return all results
+   * @throws InterruptedException
+   *           if the thread has been interrupted while waiting
+   * @throws ExecutionException
+   *           if one of the calls failed
+   */
+  static <T> List<T> merge(List<Future<List<T>>> futures) throws InterruptedException, ExecutionException {
+    List<T> result = new ArrayList<>();
+    for (Future<List<T>> future : futures) {
+      result.addAll(future.get());
+    }
+    return result;
+  }
+
+  /**
+   * get the merged results of calls which have been started before the metadata was scraped. The results are only taken if the calls have been
+   * done with the ids the metadata confirmed; otherwise null is returned and the calls have to be repeated
+   *
+   * @param futures
+   *          the futures of the calls (null if nothing has been started)
+   * @param prefetchIds
+   *          the ids used for the calls
+   * @param ids
+   *          the ids of the scraped metadata
+   * @return the merged results or null
+   */
+  static <T> List<T> getPrefetched(List<Future<List<T>>> futures, Map<String, Object> prefetchIds, Map<String, Object> ids) {
+    if (futures == null) {
+      return null;
+    }
+    try {
+      List<T> result = merge(futures);
+      for (String key : Arrays.asList(MediaMetadata.IMDB, MediaMetadata.TMDB)) {
+        Object prefetchId = prefetchIds.get(key);
+        Object id = ids.get(key);
+        // the movie has another id than used for the call
+        if (prefetchId != null && id != null && !prefetchId.toString().equals(id.toString())) {
+          return null;
+        }
+        // maybe nothing found because of the missing id
+        if (result.isEmpty() && prefetchId == null && id != null) {
+          return null;
+        }
+      }
+      return result;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (Exception e) {
+      LOGGER.debug("could not get prefetched result: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * the call of one provider
+   */
+  interface ProviderCall<S, T> {
+    List<T> call(S provider) throws Exception;
+  }
+}
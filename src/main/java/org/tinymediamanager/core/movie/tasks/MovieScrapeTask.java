@@ -17,19 +17,29 @@ package org.tinymediamanager.core.movie.tasks;
 
 import java.awt.GraphicsEnvironment;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import javax.swing.SwingUtilities;
 
 import org.apache.commons.lang3.LocaleUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.ImageCache;
 import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.PropertyChangeBus;
+import org.tinymediamanager.core.ScrapeSession;
+import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieList;
 import org.tinymediamanager.core.movie.MovieModuleManager;
@@ -44,6 +54,8 @@ import org.tinymediamanager.scraper.MediaMetadata;
 import org.tinymediamanager.scraper.MediaScrapeOptions;
 import org.tinymediamanager.scraper.MediaScraper;
 import org.tinymediamanager.scraper.MediaSearchResult;
+import org.tinymediamanager.scraper.config.MediaProviderConfig;
+import org.tinymediamanager.scraper.config.MediaProviderConfigObject;
 import org.tinymediamanager.scraper.entities.MediaArtwork;
 import org.tinymediamanager.scraper.entities.MediaArtwork.MediaArtworkType;
 import org.tinymediamanager.scraper.entities.MediaTrailer;
@@ -61,13 +73,19 @@ import org.tinymediamanager.ui.movies.dialogs.MovieChooserDialog;
  * @author Manuel Laggner
  */
 public class MovieScrapeTask extends TmmThreadPool {
-  private final static Logger         LOGGER = LoggerFactory.getLogger(MovieScrapeTask.class);
-  private static final ResourceBundle BUNDLE = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private final static Logger         LOGGER          = LoggerFactory.getLogger(MovieScrapeTask.class);
+  private static final ResourceBundle BUNDLE          = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final int            THREADS         = 3;
 
   private List<Movie>                 moviesToScrape;
   private boolean                     doSearch;
   private MovieSearchAndScrapeOptions options;
-  private List<Movie>                 smartScrapeList;
+  private List<Movie>                 smartScrapeList = new ArrayList<>(0);
+  // shared by all workers - identical provider requests are done only once
+  private ScrapeSession               scrapeSession   = new ScrapeSession();
+  // for the parallel calls of a worker; the permits keep the concurrent calls per provider at the amount of workers
+  private ExecutorService             subTaskExecutor;
+  private Map<String, Semaphore>      providerPermits = new HashMap<>();
 
   public MovieScrapeTask(List<Movie> moviesToScrape, boolean doSearch, MovieSearchAndScrapeOptions options) {
     super(BUNDLE.getString("movie.scraping"));
@@ -78,16 +96,19 @@ public class MovieScrapeTask extends TmmThreadPool {
 
   @Override
   protected void doInBackground() {
-    initThreadPool(3, "scrape");
+    initThreadPool(THREADS, "scrape");
+    // every worker calls all artwork and trailer providers at the same time
+    int providers = options.getArtworkScrapers().size() + options.getTrailerScrapers().size();
+    subTaskExecutor = createSubTaskExecutor("scrape-sub", THREADS * Math.max(1, providers));
     start();
 
-    smartScrapeList = new ArrayList<>(0);
-
     for (int i = 0; i < moviesToScrape.size(); i++) {
       Movie movie = moviesToScrape.get(i);
       submitTask(new Worker(movie));
     }
     waitForCompletionOrCancel();
+    subTaskExecutor.shutdown();
+    scrapeSession.close();
 
     // initiate smart scrape
     if (!smartScrapeList.isEmpty() && !GraphicsEnvironment.isHeadless()) {
@@ -117,6 +138,76 @@ public class MovieScrapeTask extends TmmThreadPool {
     LOGGER.info("Done scraping movies)");
   }
 
+  /**
+   * cache the provider responses on disk too (for a day). Only for unattended scraping (command line); a rescrape triggered by the user should
+   * always get fresh data. Must be called before scraping
+   * 
+   * @param diskCache
+   *          true to use the disk cache
+   */
+  public void setDiskCache(boolean diskCache) {
+    scrapeSession = new ScrapeSession(diskCache);
+  }
+
+  /**
+   * scrape the given movie in the current thread (search, metadata, artwork and trailers); used for scraping single items outside of this task
+   * 
+   * @param movie
+   *          the movie to scrape
+   */
+  void scrapeMovie(Movie movie) {
+    new Worker(movie).run();
+  }
+
+  /**
+   * call the provider via the scrape session; at most as many calls per provider as workers are running at the same time
+   */
+  private <T> T scrape(MediaScraper scraper, String requestKey, final ScrapeSession.Request<T> request) throws Exception {
+    String providerId = scraper.getId();
+    if (requestKey != null) {
+      // the config of the provider (e.g. the title language of a provider) affects the response too
+      requestKey += "|" + getProviderConfigKey(scraper);
+    }
+
+    final Semaphore permits;
+    synchronized (providerPermits) {
+      Semaphore semaphore = providerPermits.get(providerId);
+      if (semaphore == null) {
+        semaphore = new Semaphore(THREADS);
+        providerPermits.put(providerId, semaphore);
+      }
+      permits = semaphore;
+    }
+
+    return scrapeSession.get(providerId, requestKey, new ScrapeSession.Request<T>() {
+      @Override
+      public T execute() throws Exception {
+        permits.acquire();
+        try {
+          return request.execute();
+        }
+        finally {
+          permits.release();
+        }
+      }
+    });
+  }
+
+  /**
+   * a hash over the config of the provider (the config may contain credentials which must not get into the cache)
+   */
+  private static String getProviderConfigKey(MediaScraper scraper) {
+    MediaProviderConfig config = scraper.getMediaProvider().getProviderInfo().getConfig();
+    if (config == null || !config.hasConfig()) {
+      return "";
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Entry<String, MediaProviderConfigObject> entry : new TreeMap<>(config.getConfigObjects()).entrySet()) {
+      sb.append(entry.getKey()).append('=').append(entry.getValue().getValueAsString()).append(';');
+    }
+    return ImageCache.getMD5(sb.toString());
+  }
+
   @Override
   public void callback(Object obj) {
     // do not publish task description here, because with different workers the text is never right
@@ -141,8 +232,8 @@ public class MovieScrapeTask extends TmmThreadPool {
         // set up scrapers
         MovieScraperMetadataConfig scraperMetadataConfig = options.getScraperMetadataConfig();
         MediaScraper mediaMetadataScraper = options.getMetadataScraper();
-        List<MediaScraper> artworkScrapers = options.getArtworkScrapers();
-        List<MediaScraper> trailerScrapers = options.getTrailerScrapers();
+        final List<MediaScraper> artworkScrapers = options.getArtworkScrapers();
+        final List<MediaScraper> trailerScrapers = options.getTrailerScrapers();
 
         // search movie
         MediaSearchResult result1 = null;
@@ -182,25 +273,60 @@ public class MovieScrapeTask extends TmmThreadPool {
             MediaMetadata md = null;
 
             if (mediaMetadataScraper != null && mediaMetadataScraper.getMediaProvider() != null) {
+              // if the movie is already identified, artwork and trailers are fetched in parallel to the metadata
+              final Map<String, Object> knownIds = doSearch ? getIds(result1) : getIds((MediaMetadata) null);
+              List<Future<List<MediaArtwork>>> artworkFutures = null;
+              List<Future<List<MovieTrailer>>> trailerFutures = null;
+              if (subTaskExecutor != null && (knownIds.containsKey(MediaMetadata.IMDB) || knownIds.containsKey(MediaMetadata.TMDB))) {
+                if (scraperMetadataConfig.isArtwork()) {
+                  artworkFutures = MovieScrapeSubTasks.submit(subTaskExecutor, artworkScrapers, getArtworkCall(knownIds, null));
+                }
+                if (scraperMetadataConfig.isTrailer()) {
+                  trailerFutures = MovieScrapeSubTasks.submit(subTaskExecutor, trailerScrapers, getTrailerCall(knownIds, null));
+                }
+              }
+
               LOGGER.info("=====================================================");
               LOGGER.info("Scraper metadata with scraper: " + mediaMetadataScraper.getMediaProvider().getProviderInfo().getId() + ", "
                   + mediaMetadataScraper.getMediaProvider().getProviderInfo().getVersion());
               LOGGER.info(options.toString());
               LOGGER.info("=====================================================");
-              md = ((IMovieMetadataProvider) mediaMetadataScraper.getMediaProvider()).getMetadata(options);
+              final IMovieMetadataProvider metadataProvider = (IMovieMetadataProvider) mediaMetadataScraper.getMediaProvider();
+              final MediaScrapeOptions metadataOptions = options;
+              md = scrape(mediaMetadataScraper, getMetadataRequestKey(result1), new ScrapeSession.Request<MediaMetadata>() {
+                @Override
+                public MediaMetadata execute() throws Exception {
+                  return metadataProvider.getMetadata(metadataOptions);
+                }
+              });
 
               if (scraperMetadataConfig.isMetadata()) {
-                movie.setMetadata(md, scraperMetadataConfig);
+                // deliver all changes at once after the whole metadata has been set
+                try (PropertyChangeBus.BulkUpdate bulkUpdate = PropertyChangeBus.beginBulkUpdate()) {
+                  movie.setMetadata(md, scraperMetadataConfig);
+                }
               }
 
+              Map<String, Object> ids = getIds(md);
+
               // scrape artwork if wanted
               if (scraperMetadataConfig.isArtwork()) {
-                movie.setArtwork(getArtwork(movie, md, artworkScrapers), scraperMetadataConfig);
+                List<MediaArtwork> artwork = MovieScrapeSubTasks.getPrefetched(artworkFutures, knownIds, ids);
+                if (artwork == null) {
+                  artwork = MovieScrapeSubTasks.merge(MovieScrapeSubTasks.submit(subTaskExecutor, artworkScrapers, getArtworkCall(ids, md)));
+                }
+                movie.setArtwork(artwork, scraperMetadataConfig);
               }
 
               // scrape trailer if wanted
               if (scraperMetadataConfig.isTrailer()) {
-                movie.setTrailers(getTrailers(movie, md, trailerScrapers));
+                List<MovieTrailer> foundTrailers = MovieScrapeSubTasks.getPrefetched(trailerFutures, knownIds, ids);
+                if (foundTrailers == null) {
+                  foundTrailers = MovieScrapeSubTasks.merge(MovieScrapeSubTasks.submit(subTaskExecutor, trailerScrapers, getTrailerCall(ids, md)));
+                }
+                List<MovieTrailer> trailers = getLocalTrailers();
+                trailers.addAll(foundTrailers);
+                movie.setTrailers(trailers);
               }
             }
           }
@@ -217,8 +343,23 @@ public class MovieScrapeTask extends TmmThreadPool {
       }
     }
 
-    private MediaSearchResult searchForMovie(MediaScraper mediaMetadataProvider) {
-      List<MediaSearchResult> results = movieList.searchMovie(movie.getTitle(), movie, mediaMetadataProvider);
+    private MediaSearchResult searchForMovie(final MediaScraper mediaMetadataProvider) {
+      List<MediaSearchResult> results = null;
+      try {
+        String requestKey = "search|" + movie.getTitle() + "|" + movie.getYear() + "|" + getIdsKey(movie.getIds()) + "|" + getSettingsKey() + "|"
+            + MovieModuleManager.MOVIE_SETTINGS.isScraperFallback();
+        MediaScraper scraper = mediaMetadataProvider != null ? mediaMetadataProvider : movieList.getDefaultMediaScraper();
+        results = scrape(scraper, requestKey, new ScrapeSession.Request<List<MediaSearchResult>>() {
+          @Override
+          public List<MediaSearchResult> execute() throws Exception {
+            return movieList.searchMovie(movie.getTitle(), movie, mediaMetadataProvider);
+          }
+        });
+      }
+      catch (Exception e) {
+        LOGGER.error("searchMovie", e);
+      }
+
       MediaSearchResult result = null;
 
       if (results != null && !results.isEmpty()) {
@@ -252,38 +393,65 @@ public class MovieScrapeTask extends TmmThreadPool {
       return result;
     }
 
-    private List<MediaArtwork> getArtwork(Movie movie, MediaMetadata metadata, List<MediaScraper> artworkScrapers) {
-      List<MediaArtwork> artwork = new ArrayList<>();
+    /**
+     * the call of one artwork provider (one sub task per provider)
+     */
+    private MovieScrapeSubTasks.ProviderCall<MediaScraper, MediaArtwork> getArtworkCall(final Map<String, Object> ids,
+        final MediaMetadata metadata) {
+      return new MovieScrapeSubTasks.ProviderCall<MediaScraper, MediaArtwork>() {
+        @Override
+        public List<MediaArtwork> call(MediaScraper scraper) {
+          return getArtwork(ids, metadata, scraper);
+        }
+      };
+    }
+
+    /**
+     * the call of one trailer provider (one sub task per provider)
+     */
+    private MovieScrapeSubTasks.ProviderCall<MediaScraper, MovieTrailer> getTrailerCall(final Map<String, Object> ids,
+        final MediaMetadata metadata) {
+      return new MovieScrapeSubTasks.ProviderCall<MediaScraper, MovieTrailer>() {
+        @Override
+        public List<MovieTrailer> call(MediaScraper scraper) {
+          return getTrailers(ids, metadata, scraper);
+        }
+      };
+    }
 
+    private List<MediaArtwork> getArtwork(Map<String, Object> ids, MediaMetadata metadata, MediaScraper scraper) {
       MediaScrapeOptions options = new MediaScrapeOptions(MediaType.MOVIE);
       options.setArtworkType(MediaArtworkType.ALL);
       options.setMetadata(metadata);
-      options.setImdbId(movie.getImdbId());
-      options.setTmdbId(movie.getTmdbId());
+      options.setImdbId(getImdbId(ids));
+      options.setTmdbId(getTmdbId(ids));
       options.setLanguage(LocaleUtils.toLocale(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage().name()));
       options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
       options.setFanartSize(MovieModuleManager.MOVIE_SETTINGS.getImageFanartSize());
       options.setPosterSize(MovieModuleManager.MOVIE_SETTINGS.getImagePosterSize());
 
-      // scrape providers till one artwork has been found
-      for (MediaScraper scraper : artworkScrapers) {
-        IMovieArtworkProvider artworkProvider = (IMovieArtworkProvider) scraper.getMediaProvider();
-        try {
-          artwork.addAll(artworkProvider.getArtwork(options));
-        }
-        catch (Exception e) {
-          LOGGER.error("getArtwork", e);
-          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movieartworkfailed"));
-        }
-      }
+      String idsKey = getIdsKey(ids);
+      String requestKey = idsKey.isEmpty() ? null : "artwork|" + idsKey + "|" + getSettingsKey();
 
-      return artwork;
+      final IMovieArtworkProvider artworkProvider = (IMovieArtworkProvider) scraper.getMediaProvider();
+      final MediaScrapeOptions artworkOptions = options;
+      try {
+        return new ArrayList<>(scrape(scraper, requestKey, new ScrapeSession.Request<List<MediaArtwork>>() {
+          @Override
+          public List<MediaArtwork> execute() throws Exception {
+            return artworkProvider.getArtwork(artworkOptions);
+          }
+        }));
+      }
+      catch (Exception e) {
+        LOGGER.error("getArtwork", e);
+        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movieartworkfailed"));
+        return new ArrayList<>();
+      }
     }
 
-    private List<MovieTrailer> getTrailers(Movie movie, MediaMetadata metadata, List<MediaScraper> trailerScrapers) {
+    private List<MovieTrailer> getLocalTrailers() {
       List<MovieTrailer> trailers = new ArrayList<>();
-
-      // add local trailers!
       for (MediaFile mf : movie.getMediaFiles(MediaFileType.TRAILER)) {
         LOGGER.debug("adding local trailer " + mf.getFilename());
         MovieTrailer mt = new MovieTrailer();
@@ -294,31 +462,128 @@ public class MovieScrapeTask extends TmmThreadPool {
         mt.setUrl(mf.getFile().toURI().toString());
         trailers.add(mt);
       }
+      return trailers;
+    }
+
+    private List<MovieTrailer> getTrailers(Map<String, Object> ids, MediaMetadata metadata, MediaScraper trailerScraper) {
+      List<MovieTrailer> trailers = new ArrayList<>();
 
       MediaScrapeOptions options = new MediaScrapeOptions(MediaType.MOVIE);
       options.setMetadata(metadata);
-      options.setImdbId(movie.getImdbId());
-      options.setTmdbId(movie.getTmdbId());
+      options.setImdbId(getImdbId(ids));
+      options.setTmdbId(getTmdbId(ids));
       options.setLanguage(LocaleUtils.toLocale(MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage().name()));
       options.setCountry(MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry());
 
-      // scrape trailers
-      for (MediaScraper trailerScraper : trailerScrapers) {
-        try {
-          IMovieTrailerProvider trailerProvider = (IMovieTrailerProvider) trailerScraper.getMediaProvider();
-          List<MediaTrailer> foundTrailers = trailerProvider.getTrailers(options);
-          for (MediaTrailer mediaTrailer : foundTrailers) {
-            MovieTrailer movieTrailer = new MovieTrailer(mediaTrailer);
-            trailers.add(movieTrailer);
+      String idsKey = getIdsKey(ids);
+      String requestKey = idsKey.isEmpty() ? null : "trailer|" + idsKey + "|" + getSettingsKey();
+
+      try {
+        final IMovieTrailerProvider trailerProvider = (IMovieTrailerProvider) trailerScraper.getMediaProvider();
+        final MediaScrapeOptions trailerOptions = options;
+        List<MediaTrailer> foundTrailers = scrape(trailerScraper, requestKey, new ScrapeSession.Request<List<MediaTrailer>>() {
+          @Override
+          public List<MediaTrailer> execute() throws Exception {
+            return trailerProvider.getTrailers(trailerOptions);
           }
-        }
-        catch (Exception e) {
-          LOGGER.error("getTrailers", e);
-          MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movietrailerfailed"));
+        });
+        for (MediaTrailer mediaTrailer : foundTrailers) {
+          MovieTrailer movieTrailer = new MovieTrailer(mediaTrailer);
+          trailers.add(movieTrailer);
         }
       }
+      catch (Exception e) {
+        LOGGER.error("getTrailers", e);
+        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, movie, "message.scrape.movietrailerfailed"));
+      }
 
       return trailers;
     }
+
+    /**
+     * the key of a metadata request: the chosen search result or the ids of the movie (null if there is nothing to identify the movie)
+     */
+    private String getMetadataRequestKey(MediaSearchResult result) {
+      String idsKey;
+      if (result != null) {
+        if (result.getId() == null || result.getId().isEmpty()) {
+          return null;
+        }
+        idsKey = result.getProviderId() + "=" + result.getId();
+      }
+      else {
+        idsKey = getIdsKey(movie.getIds());
+      }
+      if (idsKey.isEmpty()) {
+        return null;
+      }
+      return "metadata|" + idsKey + "|" + getSettingsKey();
+    }
+
+    /**
+     * the ids of the movie (and the scraped metadata)
+     */
+    private Map<String, Object> getIds(MediaMetadata metadata) {
+      Map<String, Object> ids = new TreeMap<>(movie.getIds());
+      if (metadata != null) {
+        ids.putAll(metadata.getIds());
+      }
+      return ids;
+    }
+
+    /**
+     * the ids which are known from the search result
+     */
+    private Map<String, Object> getIds(MediaSearchResult result) {
+      Map<String, Object> ids = new TreeMap<>();
+      if (result != null && result.getId() != null) {
+        if (Utils.isValidImdbId(result.getId())) {
+          ids.put(MediaMetadata.IMDB, result.getId());
+        }
+        else if (MediaMetadata.TMDB.equals(result.getProviderId()) && result.getId().matches("\\d+")) {
+          ids.put(MediaMetadata.TMDB, Integer.parseInt(result.getId()));
+        }
+      }
+      return ids;
+    }
+
+    private String getImdbId(Map<String, Object> ids) {
+      Object imdbId = ids.get(MediaMetadata.IMDB);
+      return imdbId != null ? imdbId.toString() : "";
+    }
+
+    private int getTmdbId(Map<String, Object> ids) {
+      try {
+        return Integer.parseInt(ids.get(MediaMetadata.TMDB).toString());
+      }
+      catch (Exception e) {
+        return 0;
+      }
+    }
+
+    /**
+     * the given ids in a stable order (for the request keys)
+     */
+    private String getIdsKey(Map<String, Object> ids) {
+      StringBuilder sb = new StringBuilder();
+      for (Entry<String, Object> entry : new TreeMap<>(ids).entrySet()) {
+        if (entry.getValue() == null || "0".equals(entry.getValue().toString()) || entry.getValue().toString().isEmpty()) {
+          continue;
+        }
+        if (sb.length() > 0) {
+          sb.append(',');
+        }
+        sb.append(entry.getKey()).append('=').append(entry.getValue());
+      }
+      return sb.toString();
+    }
+
+    /**
+     * the settings which affect the responses of the providers
+     */
+    private String getSettingsKey() {
+      return MovieModuleManager.MOVIE_SETTINGS.getScraperLanguage().name() + "|" + MovieModuleManager.MOVIE_SETTINGS.getCertificationCountry() + "|"
+          + MovieModuleManager.MOVIE_SETTINGS.getImageFanartSize() + "|" + MovieModuleManager.MOVIE_SETTINGS.getImagePosterSize();
+    }
   }
 }
@@ -15,7 +15,6 @@
  */
 package org.tinymediamanager.core.movie.tasks;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
 
@@ -28,6 +27,7 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.SubtitleSearchEngine;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.movie.MovieModuleManager;
 import org.tinymediamanager.core.movie.entities.Movie;
@@ -37,7 +37,6 @@ import org.tinymediamanager.scraper.MediaScraper;
 import org.tinymediamanager.scraper.SubtitleSearchOptions;
 import org.tinymediamanager.scraper.SubtitleSearchResult;
 import org.tinymediamanager.scraper.entities.MediaLanguages;
-import org.tinymediamanager.scraper.mediaprovider.IMediaSubtitleProvider;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
@@ -94,40 +93,25 @@ public class MovieSubtitleSearchAndDownloadTask extends TmmThreadPool {
     @Override
     public void run() {
       try {
-        for (MediaScraper scraper : subtitleScrapers) {
-          try {
-            MediaFile mf = movie.getMediaFiles(MediaFileType.VIDEO).get(0);
-
-            IMediaSubtitleProvider subtitleProvider = (IMediaSubtitleProvider) scraper.getMediaProvider();
-            SubtitleSearchOptions options = new SubtitleSearchOptions(mf.getFileAsPath().toFile(), movie.getOriginalTitle());
-            options.setLanguage(LocaleUtils.toLocale(language.name()));
-            options.setImdbId(movie.getImdbId());
-            List<SubtitleSearchResult> searchResults = subtitleProvider.search(options);
-            if (searchResults.isEmpty()) {
-              continue;
-            }
-
-            Collections.sort(searchResults);
-            Collections.reverse(searchResults);
-
-            SubtitleSearchResult firstResult = searchResults.get(0);
-
-            if (firstResult.getScore() < 1.0f || StringUtils.isBlank(firstResult.getUrl())) {
-              continue;
-            }
-
-            // the right language tag from the renamer settings
-            String lang = LanguageStyle.getLanguageCodeForStyle(language.name(), MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerLanguageStyle());
-            if (StringUtils.isBlank(lang)) {
-              lang = language.name();
-            }
-
-            TmmTaskManager.getInstance().addDownloadTask(new MovieSubtitleDownloadTask(firstResult.getUrl(), mf.getFileAsPath(), lang, movie));
-          }
-          catch (Exception e) {
-            LOGGER.error("Error at subtitle searching: " + e.getMessage());
-          }
+        MediaFile mf = movie.getMediaFiles(MediaFileType.VIDEO).get(0);
+
+        SubtitleSearchOptions options = new SubtitleSearchOptions(mf.getFileAsPath().toFile(), movie.getOriginalTitle());
+        options.setLanguage(LocaleUtils.toLocale(language.name()));
+        options.setImdbId(movie.getImdbId());
+
+        // all providers are searched in parallel
+        SubtitleSearchResult result = SubtitleSearchEngine.getInstance().searchBestMatch(subtitleScrapers, mf, language, options);
+        if (result == null) {
+          return;
         }
+
+        // the right language tag from the renamer settings
+        String lang = LanguageStyle.getLanguageCodeForStyle(language.name(), MovieModuleManager.MOVIE_SETTINGS.getMovieRenamerLanguageStyle());
+        if (StringUtils.isBlank(lang)) {
+          lang = language.name();
+        }
+
+        TmmTaskManager.getInstance().addDownloadTask(new MovieSubtitleDownloadTask(result.getUrl(), mf.getFileAsPath(), lang, movie));
       }
       catch (Exception e) {
         LOGGER.error("Thread crashed", e);
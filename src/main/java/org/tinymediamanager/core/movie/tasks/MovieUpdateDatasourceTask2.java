@@ -17,14 +17,12 @@ package org.tinymediamanager.core.movie.tasks;
 
 import static java.nio.file.FileVisitResult.CONTINUE;
 import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
-import static java.nio.file.FileVisitResult.TERMINATE;
 import static org.tinymediamanager.core.MediaFileType.VIDEO;
 
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -42,7 +40,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -87,28 +90,26 @@ import com.sun.jna.Platform;
  * @author Myron Boyle
  */
 public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
-  private static final Logger         LOGGER         = LoggerFactory.getLogger(MovieUpdateDatasourceTask2.class);
-  private static final ResourceBundle BUNDLE         = ResourceBundle.getBundle("messages", new UTF8Control());                                  //$NON-NLS-1$
-
-  private static long                 preDir         = 0;
-  private static long                 postDir        = 0;
-  private static long                 visFile        = 0;
-  private static long                 preDirAll      = 0;
-  private static long                 postDirAll     = 0;
-  private static long                 visFileAll     = 0;
+  private static final Logger         LOGGER          = LoggerFactory.getLogger(MovieUpdateDatasourceTask2.class);
+  private static final ResourceBundle BUNDLE          = ResourceBundle.getBundle("messages", new UTF8Control());                                  //$NON-NLS-1$
 
   // skip well-known, but unneeded folders (UPPERCASE)
-  private static final List<String>   skipFolders    = Arrays.asList(".", "..", "CERTIFICATE", "BACKUP", "PLAYLIST", "CLPINF", "SSIF", "AUXDATA",
+  private static final List<String>   skipFolders     = Arrays.asList(".", "..", "CERTIFICATE", "BACKUP", "PLAYLIST", "CLPINF", "SSIF", "AUXDATA",
       "AUDIO_TS", "JAR", "$RECYCLE.BIN", "RECYCLER", "SYSTEM VOLUME INFORMATION", "@EADIR", "ADV_OBJ");
 
   // skip folders starting with a SINGLE "." or "._"
-  private static final String         skipRegex      = "^[.][\\w@]+.*";
-  private static Pattern              video3DPattern = Pattern.compile("(?i)[ ._\\(\\[-]3D[ ._\\)\\]-]?");
+  private static final String         skipRegex       = "^[.][\\w@]+.*";
+  private static final int            SCANNER_THREADS = 4;
+  private static Pattern              video3DPattern  = Pattern.compile("(?i)[ ._\\(\\[-]3D[ ._\\)\\]-]?");
 
   private List<String>                dataSources;
-  private List<Movie>                 movieFolders   = new ArrayList<>();
+  private List<Movie>                 movieFolders    = new ArrayList<>();
   private MovieList                   movieList;
-  private HashSet<Path>               filesFound     = new HashSet<>();
+  private HashSet<Path>               filesFound      = new HashSet<>();
+  private NewMovieListener            newMovieListener;
+  private final Set<Movie>            newMovies       = Collections.synchronizedSet(new HashSet<Movie>());
+  private final List<Future<?>>       newMovieJobs    = Collections.synchronizedList(new ArrayList<Future<?>>());
+  private ExecutorService             newMovieExecutor;
 
   public MovieUpdateDatasourceTask2() {
     super(BUNDLE.getString("update.datasource"));
@@ -130,6 +131,81 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     movieFolders.addAll(movies);
   }
 
+  /**
+   * set a listener which gets every new movie as soon as the update has been finished with it (incl. the media information of the movie) - and not
+   * only after the whole datasource has been updated. The listener is called from a helper thread of this task
+   * 
+   * @param newMovieListener
+   *          the listener for new movies
+   */
+  public void setNewMovieListener(NewMovieListener newMovieListener) {
+    this.newMovieListener = newMovieListener;
+  }
+
+  private void publishNewMovie(final Movie movie) {
+    if (newMovieListener == null || !movie.isNewlyAdded() || !newMovies.add(movie)) {
+      return;
+    }
+
+    // the media information is gathered in its own (single) thread, so the scan of the datasource goes on meanwhile
+    synchronized (newMovieJobs) {
+      if (newMovieExecutor == null) {
+        newMovieExecutor = Executors.newSingleThreadExecutor();
+      }
+      newMovieJobs.add(newMovieExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          if (cancel) {
+            return;
+          }
+          for (MediaFile mf : new ArrayList<>(movie.getMediaFiles())) {
+            if (StringUtils.isBlank(mf.getContainerFormat())) {
+              new MediaFileInformationFetcherTask(mf, movie, false).call();
+            }
+          }
+          newMovieListener.newMovieFound(movie);
+        }
+      }));
+    }
+  }
+
+  /**
+   * wait until all new movies have been handed over to the listener
+   */
+  private void awaitNewMovies() {
+    List<Future<?>> jobs;
+    synchronized (newMovieJobs) {
+      jobs = new ArrayList<>(newMovieJobs);
+      newMovieJobs.clear();
+    }
+    for (Future<?> job : jobs) {
+      try {
+        job.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      catch (ExecutionException e) {
+        LOGGER.error("could not publish new movie", e.getCause());
+      }
+    }
+  }
+
+  private void shutdownNewMovieExecutor() {
+    synchronized (newMovieJobs) {
+      if (newMovieExecutor != null) {
+        if (cancel) {
+          newMovieExecutor.shutdownNow();
+        }
+        else {
+          newMovieExecutor.shutdown();
+        }
+        newMovieExecutor = null;
+      }
+    }
+  }
+
   @Override
   public void doInBackground() {
     // check if there is at least one DS to update
@@ -139,13 +215,6 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "update.datasource.nonespecified"));
       return;
     }
-    preDir = 0;
-    postDir = 0;
-    visFile = 0;
-    preDirAll = 0;
-    postDirAll = 0;
-    visFileAll = 0;
-
     // get existing movie folders
     List<Path> existing = new ArrayList<>();
     for (Movie movie : movieList.getMovies()) {
@@ -206,12 +275,8 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
             }
           }
           rootList.clear();
-          for (Path path : newMovieDirs) {
-            searchAndParse(dsAsPath.toAbsolutePath(), path, Integer.MAX_VALUE);
-          }
-          for (Path path : existingMovieDirs) {
-            searchAndParse(dsAsPath.toAbsolutePath(), path, Integer.MAX_VALUE);
-          }
+          searchAndParse(dsAsPath.toAbsolutePath(), newMovieDirs);
+          searchAndParse(dsAsPath.toAbsolutePath(), existingMovieDirs);
           if (rootFiles.size() > 0) {
             submitTask(new parseMultiMovieDirTask(dsAsPath.toAbsolutePath(), dsAsPath.toAbsolutePath(), rootFiles));
           }
@@ -225,6 +290,9 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
             break;
           }
 
+          // the new movies get their media information while being published
+          awaitNewMovies();
+
           // cleanup
           cleanup(ds);
 
@@ -265,6 +333,7 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
           submitTask(new FindMovieTask(dir, Paths.get(ds)));
         }
         waitForCompletionOrCancel();
+        awaitNewMovies();
 
         // cleanup
         cleanup(movieFolders);
@@ -288,17 +357,14 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
       LOGGER.debug("FilesFound " + filesFound.size());
       LOGGER.debug("moviesFound " + movieList.getMovieCount());
-      LOGGER.debug("PreDir " + preDir);
-      LOGGER.debug("PostDir " + postDir);
-      LOGGER.debug("VisFile " + visFile);
-      LOGGER.debug("PreDirAll " + preDirAll);
-      LOGGER.debug("PostDirAll " + postDirAll);
-      LOGGER.debug("VisFileAll " + visFileAll);
     }
     catch (Exception e) {
       LOGGER.error("Thread crashed", e);
       MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, "update.datasource", "message.update.threadcrashed"));
     }
+    finally {
+      shutdownNewMovieExecutor();
+    }
   }
 
   /**
@@ -724,6 +790,7 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
     movie.reEvaluateStacking();
     movie.saveToDb();
+    publishNewMovie(movie);
   }
 
   /**
@@ -905,6 +972,7 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
     for (Movie m : movieList.getMoviesByPath(movieDir)) {
       m.reEvaluateStacking();
       m.saveToDb();
+      publishNewMovie(m);
     }
   }
 
@@ -1325,7 +1393,6 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
-      visFileAll++;
       if (Utils.isRegularFile(attr) && !file.getFileName().toString().matches(skipRegex)) {
         fFound.add(file.toAbsolutePath());
       }
@@ -1336,7 +1403,6 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
 
     @Override
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      preDirAll++;
       // getFilename returns null on DS root!
       if (dir.getFileName() != null
           && (Files.exists(dir.resolve(".tmmignore")) || Files.exists(dir.resolve("tmmignore")) || Files.exists(dir.resolve(".nomedia"))
@@ -1348,12 +1414,6 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
       return CONTINUE;
     }
 
-    @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-      postDirAll++;
-      return CONTINUE;
-    }
-
     // If there is some error accessing the file, let the user know.
     // If you don't override this method and an error occurs, an IOException is
     // thrown.
@@ -1365,124 +1425,75 @@ public class MovieUpdateDatasourceTask2 extends TmmThreadPool {
   }
 
   // **************************************
-  // gets all files recursive,
+  // scans all folders recursive (in parallel),
   // detects movieRootDir (in case of stacked/disc folder)
-  // and starts parsing directory immediately
+  // and starts parsing the found directories immediately
   // **************************************
-  public void searchAndParse(Path datasource, Path folder, int deep) {
-    folder = folder.toAbsolutePath();
-    SearchAndParseVisitor visitor = new SearchAndParseVisitor(datasource);
-    try {
-      Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), deep, visitor);
-    }
-    catch (IOException e) {
-      // can not happen, since we override visitFileFailed, which throws no
-      // exception ;)
-    }
-  }
-
-  private class SearchAndParseVisitor implements FileVisitor<Path> {
-    private Path              datasource;
-    private ArrayList<String> unstackedRoot = new ArrayList<>(); // only for
-                                                                 // folder
-                                                                 // stacking
-    private HashSet<Path>     videofolders  = new HashSet<>();   // all found
-                                                                 // video
-                                                                 // folders
-
-    protected SearchAndParseVisitor(Path datasource) {
-      this.datasource = datasource;
-    }
+  public void searchAndParse(final Path datasource, List<Path> folders) {
+    MovieDirectoryScanner scanner = new MovieDirectoryScanner(SCANNER_THREADS, new MovieDirectoryScanner.Handler() {
+      @Override
+      public boolean isSkipped(Path path) {
+        String fn = path.getFileName().toString().toUpperCase(Locale.ROOT);
+        return skipFolders.contains(fn) || fn.matches(skipRegex)
+            || MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(path.toFile().getAbsolutePath());
+      }
 
-    @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attr) {
-      visFile++;
-      if (Utils.isRegularFile(attr) && !file.getFileName().toString().matches(skipRegex)) {
-        // check for video?
-        if (Globals.settings.getVideoFileType().contains("." + FilenameUtils.getExtension(file.toString()).toLowerCase(Locale.ROOT))) {
-          if (file.getParent().getFileName().toString().equals("STREAM")) {
-            return CONTINUE; // BD folder has an additional parent video folder
-                             // - ignore it here
-          }
+      @Override
+      public boolean isVideoFile(Path file) {
+        if (!Globals.settings.getVideoFileType().contains("." + FilenameUtils.getExtension(file.toString()).toLowerCase(Locale.ROOT))) {
+          return false;
+        }
+        if (file.getParent().getFileName().toString().equals("STREAM")) {
+          return false; // BD folder has an additional parent video folder - ignore it here
+        }
 
-          // check if file is a VIDEO type - only scan those folders (and not extras/trailer folders)!
-          MediaFile mf = new MediaFile(file);
-          if (mf.getType() == VIDEO && !datasource.relativize(file.getParent()).toString().matches("(?i).*[_.-]+extra[s]?.*")) {
-            videofolders.add(file.getParent());
-          }
-          else {
-            LOGGER.debug("no VIDEO or EXTRA - do not parse {}", file);
-          }
+        // check if file is a VIDEO type - only scan those folders (and not extras/trailer folders)!
+        MediaFile mf = new MediaFile(file);
+        if (mf.getType() == VIDEO && !datasource.relativize(file.getParent()).toString().matches("(?i).*[_.-]+extra[s]?.*")) {
+          return true;
         }
+        LOGGER.debug("no VIDEO or EXTRA - do not parse {}", file);
+        return false;
       }
-      return CONTINUE;
-    }
 
-    @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-      preDir++;
-      String fn = dir.getFileName().toString().toUpperCase(Locale.ROOT);
-      if (skipFolders.contains(fn) || fn.matches(skipRegex) || Files.exists(dir.resolve(".tmmignore")) || Files.exists(dir.resolve("tmmignore"))
-          || Files.exists(dir.resolve(".nomedia"))
-          || MovieModuleManager.MOVIE_SETTINGS.getMovieSkipFolders().contains(dir.toFile().getAbsolutePath())) {
-        LOGGER.debug("Skipping dir: " + dir);
-        return SKIP_SUBTREE;
+      @Override
+      public boolean isStackedFolder(Path dir) {
+        // quick fix for folder stacking
+        // name = stacking marker & parent has already been processed - skip
+        String marker = Utils.getFolderStackingMarker(datasource.relativize(dir).toString());
+        return !marker.isEmpty() && marker.equals(dir.getFileName().toString());
       }
-      return CONTINUE;
-    }
 
-    @Override
-    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-      postDir++;
-      if (cancel) {
-        return TERMINATE;
+      @Override
+      public boolean isCancelled() {
+        return cancel;
       }
 
-      if (this.videofolders.contains(dir)) {
-        boolean update = true;
+      @Override
+      public void movieFolderFound(Path dir) {
+        submitTask(new FindMovieTask(dir, datasource));
+      }
 
-        // quick fix for folder stacking
-        // name = stacking marker & parent has already been processed - skip
-        Path relative = datasource.relativize(dir);
-        if (!Utils.getFolderStackingMarker(relative.toString()).isEmpty()
-            && Utils.getFolderStackingMarker(relative.toString()).equals(dir.getFileName().toString())) {
-          if (unstackedRoot.contains(dir.getParent().toString())) {
-            update = false;
-          }
-          else {
-            unstackedRoot.add(dir.getParent().toString());
-          }
-        }
-        if (update) {
-          // this.videofolders.remove(dir);
-
-          // check if any existing movie has already the same (sub)dir
-          // IF we already have a movie a level deeper, we HAVE TO treat this folder as MMD!
-          // we always start to parse from deepest level down to root, so they should be all already populated
-          for (Path sub : this.videofolders) {
-            if (sub.equals(dir)) {
-              continue; // don't check ourself ;)
-            }
-            if (sub.startsWith(dir)) {
-              // ka-ching! parse this now as MMD and return
-              List<Path> rootFiles = listFilesOnly(dir); // get all files and dirs
-              submitTask(new parseMultiMovieDirTask(datasource.toAbsolutePath(), dir, rootFiles));
-              return CONTINUE;
-            }
-          }
-          submitTask(new FindMovieTask(dir, datasource));
-        }
+      @Override
+      public void multiMovieFolderFound(Path dir, List<Path> files) {
+        submitTask(new parseMultiMovieDirTask(datasource.toAbsolutePath(), dir, files));
       }
-      return CONTINUE;
-    }
+    });
+    scanner.scan(folders);
 
-    // If there is some error accessing the file, let the user know.
-    // If you don't override this method and an error occurs, an IOException is
-    // thrown.
-    @Override
-    public FileVisitResult visitFileFailed(Path file, IOException exc) {
-      LOGGER.error("" + exc);
-      return CONTINUE;
-    }
+    LOGGER.debug("scanned {} folders and {} files in {}", scanner.getDirectoryCount(), scanner.getFileCount(), datasource);
+  }
+
+  /**
+   * gets informed about every new movie which has been found (and completely imported) by the update
+   */
+  public interface NewMovieListener {
+    /**
+     * a new movie has been imported
+     *
+     * @param movie
+     *          the new movie
+     */
+    void newMovieFound(Movie movie);
   }
 }
@@ -15,12 +15,26 @@
  */
 package org.tinymediamanager.core.threading;
 
-import java.io.BufferedInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -34,11 +48,14 @@ import org.tinymediamanager.core.MessageManager;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaEntity;
 import org.tinymediamanager.core.entities.MediaFile;
-import org.tinymediamanager.scraper.http.StreamingUrl;
+import org.tinymediamanager.scraper.http.TmmHttpClient;
 import org.tinymediamanager.scraper.util.UrlUtil;
 import org.tinymediamanager.ui.UTF8Control;
 
 import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
 
 /**
  * DownloadTask for bigger downloads with status updates
@@ -46,14 +63,21 @@ import okhttp3.Headers;
  * @author Myron Boyle, Manuel Laggner
  */
 public class DownloadTask extends TmmTask {
-  private static final Logger         LOGGER    = LoggerFactory.getLogger(DownloadTask.class);
-  private static final ResourceBundle BUNDLE    = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final Logger         LOGGER         = LoggerFactory.getLogger(DownloadTask.class);
+  private static final ResourceBundle BUNDLE         = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private static final int            BUFFER_SIZE    = 64 * 1024;
+  // only files with at least two chunks of this size are split
+  private static final long           MIN_CHUNK_SIZE = 16 * 1024 * 1024;
+  // an incomplete download is resumed up to this many times (with an increasing delay)
+  private static final int            MAX_ATTEMPTS   = 3;
+  private static final long           RETRY_DELAY_MS = 2000;
+  private static final String         VALIDATOR      = "validator ";
 
   protected String                    url;
   protected Path                      file;
   protected MediaEntity               media;
   protected MediaFileType             fileType;
-  protected String                    userAgent = "";
+  protected String                    userAgent      = "";
 
   /**
    * Downloads an url to a file, and does correct http encoding on querystring.<br>
@@ -130,98 +154,128 @@ public class DownloadTask extends TmmTask {
       }
 
       LOGGER.info("Downloading " + url);
-      StreamingUrl u = new StreamingUrl(UrlUtil.getURIEncoded(url).toASCIIString());
-      if (StringUtils.isNotBlank(userAgent)) {
-        u.setUserAgent(userAgent);
-      }
-      InputStream is = u.getInputStream();
-
-      // trace server headers
-      LOGGER.trace("Server returned: " + u.getStatusLine());
-      Headers headers = u.getHeadersResponse();
-      for (String name : headers.names()) {
-        LOGGER.trace(" < " + name + ": " + headers.get(name));
-      }
-
-      if (u.isFault()) {
-        MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, u.getUrl(), u.getStatusLine()));
-        is.close();
-        return;
-      }
-
-      long length = u.getContentLength();
-      String type = u.getContentEncoding();
-      if (ext.isEmpty()) {
-        // still empty? try to parse from mime header
-        if (type.startsWith("video/") || type.startsWith("audio/") || type.startsWith("image/")) {
-          ext = type.split("/")[1];
-          ext = ext.replaceAll("x-", ""); // x-wmf and others
-          file = file.getParent().resolve(file.getFileName() + "." + ext);
-        }
-        if ("application/zip".equals(type)) {
-          ext = "zip";
-          file = file.getParent().resolve(file.getFileName() + "." + ext);
-        }
-      }
-
-      // ext still empty?
-      if (ext.isEmpty()) {
-        // fallback!
-        ext = "dat";
-      }
-
-      LOGGER.info("Downloading to " + file);
 
+      // the temp file and the chunk state are kept on errors, so that the download can be resumed later (also by a later download of this file)
       Path tempFile = file.resolveSibling(file.getFileName() + ".part");
-      BufferedInputStream bufferedInputStream = new BufferedInputStream(is);
-      FileOutputStream outputStream = new FileOutputStream(tempFile.toFile());
-      int count = 0;
-      byte buffer[] = new byte[2048];
-      Long timestamp1 = System.nanoTime();
-      Long timestamp2;
-      long bytesDone = 0;
-      long bytesDonePrevious = 0;
-      double speed = 0;
+      Path stateFile = file.resolveSibling(file.getFileName() + ".part.chunks");
 
-      while ((count = bufferedInputStream.read(buffer, 0, buffer.length)) != -1) {
-        if (cancel) {
-          break;
-        }
+      boolean complete = false;
+      for (int attempt = 1;; attempt++) {
+        try {
+          DownloadState state = readState(stateFile, tempFile);
+          List<Chunk> chunks = state.chunks;
 
-        outputStream.write(buffer, 0, count);
-        bytesDone += count;
+          // the first open chunk is used to get the headers
+          Chunk firstChunk = null;
+          for (Chunk chunk : chunks) {
+            if (!chunk.isComplete()) {
+              firstChunk = chunk;
+              break;
+            }
+          }
+          if (firstChunk == null) {
+            // nothing left to download, but we need the headers anyway - start over
+            state.validator = null;
+            chunks.clear();
+            chunks.add(firstChunk = new Chunk(0, -1, 0));
+            Utils.deleteFileSafely(tempFile);
+          }
+          Response response = openChunk(firstChunk, state.validator);
 
-        // we push the progress only once per 250ms (to use less performance and get a better download speed)
-        timestamp2 = System.nanoTime();
-        if (timestamp2 - timestamp1 > 250000000) {
-          // avg. speed between the actual and the previous
-          speed = (speed + (bytesDone - bytesDonePrevious) / ((double) (timestamp2 - timestamp1) / 1000000000)) / 2;
+          // trace server headers
+          LOGGER.trace("Server returned: " + response.code() + " " + response.message());
+          Headers headers = response.headers();
+          for (String name : headers.names()) {
+            LOGGER.trace(" < " + name + ": " + headers.get(name));
+          }
 
-          timestamp1 = timestamp2;
-          bytesDonePrevious = bytesDone;
+          if (!response.isSuccessful()) {
+            MessageManager.instance.pushMessage(new Message(MessageLevel.ERROR, url, response.code() + " " + response.message()));
+            response.close();
+            if (response.code() == 416) {
+              // the partial download does not fit to the file on the server any more
+              Utils.deleteFileSafely(tempFile);
+              Utils.deleteFileSafely(stateFile);
+            }
+            return;
+          }
 
-          if (length > 0) {
-            publishState(formatBytesForOutput(bytesDone) + "/" + formatBytesForOutput(length) + " @" + formatSpeedForOutput(speed),
-                (int) (bytesDone * 100 / length));
+          long length = -1;
+          boolean rangeSupported = false;
+          String contentRange = response.header("Content-Range");
+          if (response.code() == 206 && StringUtils.isNotBlank(contentRange)) {
+            rangeSupported = true;
+            length = parseContentRangeLength(contentRange);
           }
           else {
-            setWorkUnits(0);
-            publishState(formatBytesForOutput(bytesDone) + " @" + formatSpeedForOutput(speed), 0);
+            if (firstChunk.position() > 0 || chunks.size() > 1) {
+              // the server does not support ranges or the file has been changed (If-Range) - start over
+              LOGGER.debug("server sent the whole file - restarting the download of {}", url);
+              chunks.clear();
+              chunks.add(firstChunk = new Chunk(0, -1, 0));
+              Utils.deleteFileSafely(tempFile);
+            }
+            length = response.body().contentLength();
+          }
+          if (state.validator == null || response.code() != 206) {
+            // the validator of the file we are downloading now
+            state.validator = getValidator(response);
           }
 
-        }
-      }
+          // big files are downloaded in parallel chunks (if the server supports ranges)
+          if (chunks.size() == 1 && firstChunk.done == 0 && rangeSupported && length > 0) {
+            chunks.clear();
+            chunks.addAll(splitIntoChunks(length, Globals.settings.getParallelDownloadChunks()));
+            firstChunk = chunks.get(0);
+          }
+          else if (chunks.size() == 1 && firstChunk.end < 0 && length > 0) {
+            firstChunk.end = length;
+          }
+
+          MediaType contentType = response.body().contentType();
+          String type = contentType == null ? "" : (contentType.type() + "/" + contentType.subtype()).toLowerCase(Locale.ROOT);
+          if (ext.isEmpty()) {
+            // still empty? try to parse from mime header
+            if (type.startsWith("video/") || type.startsWith("audio/") || type.startsWith("image/")) {
+              ext = type.split("/")[1];
+              ext = ext.replaceAll("x-", ""); // x-wmf and others
+              file = file.getParent().resolve(file.getFileName() + "." + ext);
+            }
+            if ("application/zip".equals(type)) {
+              ext = "zip";
+              file = file.getParent().resolve(file.getFileName() + "." + ext);
+            }
+          }
 
-      outputStream.close();
+          // ext still empty?
+          if (ext.isEmpty()) {
+            // fallback!
+            ext = "dat";
+          }
+
+          LOGGER.info("Downloading to " + file + (chunks.size() > 1 ? " in " + chunks.size() + " chunks" : ""));
+
+          complete = downloadChunks(state, firstChunk, response, tempFile, stateFile);
+        }
+        catch (IOException e) {
+          LOGGER.warn("problem downloading {}: {}", url, e.getMessage());
+        }
 
-      // we must not close the input stream on cancel(the rest will be downloaded if we close it on cancel)
-      if (!cancel) {
-        is.close();
+        if (complete || cancel || attempt >= MAX_ATTEMPTS) {
+          break;
+        }
+        LOGGER.info("Download of '{}' is incomplete - resuming (attempt {}/{})", url, attempt + 1, MAX_ATTEMPTS);
+        Thread.sleep(RETRY_DELAY_MS * attempt);
       }
 
       if (cancel) {
         // delete half downloaded file
         Utils.deleteFileSafely(tempFile);
+        Utils.deleteFileSafely(stateFile);
+      }
+      else if (!complete) {
+        LOGGER.warn("Download of '" + url + "' is incomplete after " + MAX_ATTEMPTS
+            + " attempts - it will be resumed by the next download of this file");
       }
       else {
         if (ext.isEmpty()) {
@@ -260,6 +314,264 @@ public class DownloadTask extends TmmTask {
     }
   }
 
+  /**
+   * download all chunks into the temp file; the first chunk uses the already opened response, the other chunks are downloaded in parallel
+   *
+   * @return true if all chunks have been downloaded completely
+   */
+  private boolean downloadChunks(final DownloadState state, final Chunk firstChunk, final Response firstResponse, Path tempFile, Path stateFile)
+      throws IOException, InterruptedException {
+    List<Chunk> chunks = state.chunks;
+    long length = 0;
+    for (Chunk chunk : chunks) {
+      length = chunk.end < 0 || length < 0 ? -1 : length + chunk.end - chunk.start;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(chunks.size(), new ThreadFactory() {
+      private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "download-chunk-" + threadNumber.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
+    long start = System.nanoTime();
+    long bytesAtStart = doneBytes(chunks);
+    try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (final Chunk chunk : chunks) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            if (chunk == firstChunk) {
+              transfer(chunk, firstResponse, channel);
+            }
+            else if (!chunk.isComplete()) {
+              Response response = openChunk(chunk, state.validator);
+              if (response.code() != 206) {
+                response.close();
+                throw new IOException("range request not possible: " + response.code() + " " + response.message());
+              }
+              transfer(chunk, response, channel);
+            }
+            return null;
+          }
+        }));
+      }
+      executor.shutdown();
+
+      // report the progress until all chunks are finished
+      long timestamp1 = System.nanoTime();
+      long bytesDonePrevious = bytesAtStart;
+      double speed = 0;
+      while (!executor.awaitTermination(250, TimeUnit.MILLISECONDS)) {
+        long timestamp2 = System.nanoTime();
+        long bytesDone = doneBytes(chunks);
+        // avg. speed between the actual and the previous
+        speed = (speed + (bytesDone - bytesDonePrevious) / ((double) (timestamp2 - timestamp1) / 1000000000)) / 2;
+        timestamp1 = timestamp2;
+        bytesDonePrevious = bytesDone;
+
+        if (length > 0) {
+          publishState(formatBytesForOutput(bytesDone) + "/" + formatBytesForOutput(length) + " @" + formatSpeedForOutput(speed),
+              (int) (bytesDone * 100 / length));
+        }
+        else {
+          setWorkUnits(0);
+          publishState(formatBytesForOutput(bytesDone) + " @" + formatSpeedForOutput(speed), 0);
+        }
+
+        writeState(stateFile, state);
+      }
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          LOGGER.warn("problem downloading a chunk of {}: {}", url, e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+      firstResponse.close();
+    }
+
+    boolean complete = true;
+    for (Chunk chunk : chunks) {
+      complete &= chunk.isComplete();
+    }
+    if (complete) {
+      Utils.deleteFileSafely(stateFile);
+    }
+    else if (!cancel) {
+      writeState(stateFile, state);
+    }
+
+    // throughput of this download
+    double seconds = (System.nanoTime() - start) / 1000000000d;
+    long bytes = doneBytes(chunks) - bytesAtStart;
+    LOGGER.info("Downloaded {} of {} in {}s @{}", formatBytesForOutput(bytes), url, String.format(Locale.ROOT, "%.1f", seconds),
+        formatSpeedForOutput(seconds > 0 ? bytes / seconds : 0));
+
+    return complete;
+  }
+
+  /**
+   * copy the content of the response into the chunk of the temp file
+   */
+  private void transfer(Chunk chunk, Response response, FileChannel channel) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream is = response.body().byteStream()) {
+      int count;
+      while (!cancel && !chunk.isComplete()) {
+        int toRead = buffer.length;
+        if (chunk.end >= 0) {
+          toRead = (int) Math.min(toRead, chunk.end - chunk.position());
+        }
+        count = is.read(buffer, 0, toRead);
+        if (count == -1) {
+          if (chunk.end < 0) {
+            // the size was unknown; the stream has been finished
+            chunk.end = chunk.position();
+          }
+          break;
+        }
+
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, count);
+        long position = chunk.position();
+        while (byteBuffer.hasRemaining()) {
+          position += channel.write(byteBuffer, position);
+        }
+        chunk.done += count;
+      }
+    }
+  }
+
+  /**
+   * open the connection for the rest of the given chunk; with a validator the server only sends the range if the file has not been changed
+   * (otherwise the whole file with 200)
+   */
+  private Response openChunk(Chunk chunk, String validator) throws IOException {
+    Request.Builder builder = new Request.Builder().url(UrlUtil.getURIEncoded(url).toASCIIString());
+    if (StringUtils.isNotBlank(userAgent)) {
+      builder.header("User-Agent", userAgent);
+    }
+    builder.header("Range", "bytes=" + chunk.position() + "-" + (chunk.end > 0 ? chunk.end - 1 : ""));
+    if (StringUtils.isNotBlank(validator)) {
+      builder.header("If-Range", validator);
+    }
+    return TmmHttpClient.getHttpClient().newCall(builder.build()).execute();
+  }
+
+  /**
+   * get the validator for If-Range from the response: a strong ETag or the last modified date (weak ETags are not allowed for If-Range)
+   */
+  static String getValidator(Response response) {
+    String etag = response.header("ETag");
+    if (StringUtils.isNotBlank(etag) && !etag.trim().startsWith("W/")) {
+      return etag.trim();
+    }
+    String lastModified = response.header("Last-Modified");
+    if (StringUtils.isNotBlank(lastModified)) {
+      return lastModified.trim();
+    }
+    return null;
+  }
+
+  /**
+   * parse the complete length from a content range header (bytes 0-99/1234)
+   */
+  static long parseContentRangeLength(String contentRange) {
+    int index = contentRange.lastIndexOf('/');
+    if (index < 0 || "*".equals(contentRange.substring(index + 1).trim())) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(contentRange.substring(index + 1).trim());
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * split the download into chunks of at least MIN_CHUNK_SIZE bytes
+   */
+  static List<Chunk> splitIntoChunks(long length, int maxChunks) {
+    int count = (int) Math.max(1, Math.min(maxChunks, length / MIN_CHUNK_SIZE));
+    long chunkSize = length / count;
+
+    List<Chunk> chunks = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      long start = i * chunkSize;
+      long end = i == count - 1 ? length : start + chunkSize;
+      chunks.add(new Chunk(start, end, 0));
+    }
+    return chunks;
+  }
+
+  /**
+   * read the state of a former (interrupted) download. The download is only resumed if the state contains the validator of the file; otherwise
+   * we cannot verify that the server still has the same file and the download starts over
+   */
+  static DownloadState readState(Path stateFile, Path tempFile) throws IOException {
+    DownloadState state = new DownloadState(null);
+    if (Files.exists(stateFile) && Files.exists(tempFile)) {
+      try {
+        for (String line : Files.readAllLines(stateFile, StandardCharsets.UTF_8)) {
+          if (line.startsWith(VALIDATOR)) {
+            state.validator = line.substring(VALIDATOR.length()).trim();
+            continue;
+          }
+          String[] values = line.trim().split(" ");
+          if (values.length == 3) {
+            state.chunks.add(new Chunk(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])));
+          }
+        }
+      }
+      catch (NumberFormatException e) {
+        state.chunks.clear();
+      }
+    }
+
+    if (state.chunks.isEmpty() || StringUtils.isBlank(state.validator)) {
+      Files.deleteIfExists(stateFile);
+      Files.deleteIfExists(tempFile);
+      state = new DownloadState(null);
+      state.chunks.add(new Chunk(0, -1, 0));
+    }
+    return state;
+  }
+
+  static void writeState(Path stateFile, DownloadState state) {
+    StringBuilder sb = new StringBuilder();
+    if (StringUtils.isNotBlank(state.validator)) {
+      sb.append(VALIDATOR).append(state.validator).append('\n');
+    }
+    for (Chunk chunk : state.chunks) {
+      sb.append(chunk.start).append(' ').append(chunk.end).append(' ').append(chunk.done).append('\n');
+    }
+    try {
+      Files.write(stateFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    catch (IOException e) {
+      LOGGER.debug("could not write download state {}: {}", stateFile, e.getMessage());
+    }
+  }
+
+  private static long doneBytes(List<Chunk> chunks) {
+    long bytes = 0;
+    for (Chunk chunk : chunks) {
+      bytes += chunk.done;
+    }
+    return bytes;
+  }
+
   private String formatBytesForOutput(long bytes) {
     return String.format("%.2fM", (double) bytes / (1024d * 1024d));
   }
@@ -267,4 +579,39 @@ public class DownloadTask extends TmmTask {
   private String formatSpeedForOutput(double speed) {
     return String.format("%.2fkB/s", speed / 1024d);
   }
+
+  /**
+   * the state of a download: the validator of the file on the server (ETag/Last-Modified) and the chunks
+   */
+  static class DownloadState {
+    String            validator;
+    final List<Chunk> chunks = new ArrayList<>();
+
+    DownloadState(String validator) {
+      this.validator = validator;
+    }
+  }
+
+  /**
+   * a part of the download: start (inclusive) and end (exclusive; -1 if unknown) in the file and the already downloaded bytes
+   */
+  static class Chunk {
+    final long    start;
+    volatile long end;
+    volatile long done;
+
+    Chunk(long start, long end, long done) {
+      this.start = start;
+      this.end = end;
+      this.done = done;
+    }
+
+    long position() {
+      return start + done;
+    }
+
+    boolean isComplete() {
+      return end >= 0 && position() >= end;
+    }
+  }
 }
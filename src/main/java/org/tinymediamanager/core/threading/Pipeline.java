@@ -0,0 +1,295 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The class Pipeline. Every item runs through all stages of the pipeline independently of the other items; the stages are connected by bounded
+ * queues (a slow stage blocks the stages in front of it instead of collecting all items in memory). Every stage has its own worker threads.<br>
+ * A stage can drop an item by returning null; an exception in a stage drops the item too (and is logged).
+ *
+ * @param <T>
+ *          the type of the items
+ * @author Manuel Laggner
+ */
+public class Pipeline<T> {
+  private static final Logger        LOGGER      = LoggerFactory.getLogger(Pipeline.class);
+
+  private final String               name;
+  private final List<StageRunner<T>> stages      = new ArrayList<>();
+  private final Object               endOfStream = new Object();
+  private CountDownLatch             finished;
+  private boolean                    started     = false;
+
+  /**
+   * create a new pipeline
+   *
+   * @param name
+   *          the name of the pipeline (used for the thread names)
+   */
+  public Pipeline(String name) {
+    this.name = name;
+  }
+
+  /**
+   * add a new stage to the end of the pipeline
+   *
+   * @param stageName
+   *          the name of the stage
+   * @param threads
+   *          the amount of worker threads for this stage
+   * @param capacity
+   *          the capacity of the input queue of this stage
+   * @param stage
+   *          the work of this stage
+   * @return this pipeline
+   */
+  public Pipeline<T> addStage(String stageName, int threads, int capacity, Stage<T> stage) {
+    if (started) {
+      throw new IllegalStateException("pipeline " + name + " has already been started");
+    }
+    stages.add(new StageRunner<>(stageName, threads, capacity, stage));
+    return this;
+  }
+
+  /**
+   * start all worker threads
+   */
+  public synchronized void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+
+    int threads = 0;
+    for (StageRunner<T> stage : stages) {
+      threads += stage.threads;
+    }
+    finished = new CountDownLatch(threads);
+
+    for (int i = 0; i < stages.size(); i++) {
+      StageRunner<T> stage = stages.get(i);
+      StageRunner<T> next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+      for (int j = 1; j <= stage.threads; j++) {
+        Thread thread = new Thread(new Worker(stage, next), "pipeline-" + name + "-" + stage.name + "-" + j);
+        thread.setDaemon(true);
+        thread.start();
+      }
+    }
+  }
+
+  /**
+   * put a new item into the pipeline; blocks if the first stage is full
+   *
+   * @param item
+   *          the item
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public void submit(T item) throws InterruptedException {
+    if (!started) {
+      start();
+    }
+    if (!stages.isEmpty()) {
+      put(stages.get(0), item);
+    }
+  }
+
+  /**
+   * no more items will be submitted; the pipeline ends after all items have been processed
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public void close() throws InterruptedException {
+    if (!started) {
+      start();
+    }
+    if (!stages.isEmpty()) {
+      StageRunner<T> first = stages.get(0);
+      for (int i = 0; i < first.threads; i++) {
+        put(first, endOfStream);
+      }
+    }
+  }
+
+  /**
+   * put the item into the queue of the given stage; blocks while the queue is full, but gives up if there is no worker of the stage running any more
+   * (which will never drain the queue)
+   */
+  private boolean put(StageRunner<T> stage, Object item) throws InterruptedException {
+    while (stage.running.get() > 0) {
+      if (stage.queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * wait until all items have run through the pipeline (close() must have been called)
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public void awaitCompletion() throws InterruptedException {
+    if (finished != null) {
+      finished.await();
+    }
+  }
+
+  /**
+   * get the amount of items which ran through the given stage (and have been handed over to the next stage)
+   *
+   * @param stageName
+   *          the name of the stage
+   * @return the amount of processed items
+   */
+  public int getProcessedCount(String stageName) {
+    StageRunner<T> stage = getStage(stageName);
+    return stage == null ? 0 : stage.processed.get();
+  }
+
+  /**
+   * get the amount of items which have been dropped by the given stage (returned null or failed)
+   *
+   * @param stageName
+   *          the name of the stage
+   * @return the amount of dropped items
+   */
+  public int getDroppedCount(String stageName) {
+    StageRunner<T> stage = getStage(stageName);
+    return stage == null ? 0 : stage.dropped.get();
+  }
+
+  private StageRunner<T> getStage(String stageName) {
+    for (StageRunner<T> stage : stages) {
+      if (stage.name.equals(stageName)) {
+        return stage;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * the work of a stage
+   */
+  public interface Stage<T> {
+    /**
+     * process the item
+     *
+     * @param item
+     *          the item
+     * @return the item for the next stage or null if the item should be dropped
+     * @throws Exception
+     *           any exception occurred (drops the item)
+     */
+    T process(T item) throws Exception;
+  }
+
+  private static class StageRunner<T> {
+    private final String                name;
+    private final int                   threads;
+    private final BlockingQueue<Object> queue;
+    private final Stage<T>              stage;
+    private final AtomicInteger         processed = new AtomicInteger();
+    private final AtomicInteger         dropped   = new AtomicInteger();
+    private final AtomicInteger         running;
+
+    private StageRunner(String name, int threads, int capacity, Stage<T> stage) {
+      this.name = name;
+      this.threads = Math.max(1, threads);
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+      this.stage = stage;
+      this.running = new AtomicInteger(this.threads);
+    }
+  }
+
+  private class Worker implements Runnable {
+    private final StageRunner<T> stage;
+    private final StageRunner<T> next;
+
+    private Worker(StageRunner<T> stage, StageRunner<T> next) {
+      this.stage = stage;
+      this.next = next;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+      try {
+        while (true) {
+          Object item = stage.queue.take();
+          if (item == endOfStream) {
+            break;
+          }
+
+          T result = null;
+          try {
+            result = stage.stage.process((T) item);
+          }
+          catch (InterruptedException e) {
+            throw e;
+          }
+          catch (Exception e) {
+            LOGGER.warn("pipeline {} - stage {} failed for {}: {}", name, stage.name, item, e.getMessage());
+          }
+
+          if (result == null) {
+            stage.dropped.incrementAndGet();
+            continue;
+          }
+          stage.processed.incrementAndGet();
+          if (next != null) {
+            put(next, result);
+          }
+        }
+      }
+      catch (InterruptedException e) {
+        LOGGER.debug("pipeline {} - stage {} interrupted", name, stage.name);
+        Thread.currentThread().interrupt();
+      }
+      finally {
+        // the last worker of this stage closes the next stage - also if interrupted; otherwise the next stage would wait forever
+        if (stage.running.decrementAndGet() == 0 && next != null) {
+          boolean interrupted = Thread.interrupted();
+          try {
+            for (int i = 0; i < next.threads; i++) {
+              put(next, endOfStream);
+            }
+          }
+          catch (InterruptedException e) {
+            interrupted = true;
+          }
+          if (interrupted) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        finished.countDown();
+      }
+    }
+  }
+}
@@ -15,52 +15,79 @@
  */
 package org.tinymediamanager.core.threading;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.ArtworkDownloadScheduler;
+import org.tinymediamanager.core.ArtworkDownloadScheduler.ArtworkTask;
 import org.tinymediamanager.core.threading.TmmTaskHandle.TaskState;
 import org.tinymediamanager.core.threading.TmmThreadPool.TmmThreadFactory;
 import org.tinymediamanager.ui.UTF8Control;
 
 /**
- * The class TmmTaskManager. Used to manage all tasks within tmm (except the helper tasks, e.g. scraper sub tasks)
+ * The class TmmTaskManager. Used to manage all tasks within tmm (except the helper tasks, e.g. scraper sub tasks)<br>
+ * Every added task gets a future; additionally the caller can wait until a queue (or all queues) have no more work to do.
  * 
  * @author Manuel Laggner
  */
 public class TmmTaskManager implements TmmTaskListener {
-  public final AtomicLong                GLOB_THRD_CNT    = new AtomicLong(1);
-  private static final ResourceBundle    BUNDLE           = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
-  private final static TmmTaskManager    instance         = new TmmTaskManager();
-  private final Set<TmmTaskListener>     taskListener     = new CopyOnWriteArraySet<>();
-  private final Set<TmmTaskHandle>       runningTasks     = new CopyOnWriteArraySet<>();
+  private static final Logger                              LOGGER                 = LoggerFactory.getLogger(TmmTaskManager.class);
+  public final AtomicLong                                  GLOB_THRD_CNT          = new AtomicLong(1);
+  private static final ResourceBundle                      BUNDLE                 = ResourceBundle.getBundle("messages", new UTF8Control()); //$NON-NLS-1$
+  private final static TmmTaskManager                      instance               = new TmmTaskManager();
+  private final Set<TmmTaskListener>                       taskListener           = new CopyOnWriteArraySet<>();
+  private final Set<TmmTaskHandle>                         runningTasks           = new CopyOnWriteArraySet<>();
 
   // we have some "named" queues, holding different types of tasks
   // image download/subtitle download are rather small/fast tasks - we only queue them in a queue and provide to abort the complete queue
-  private ThreadPoolExecutor             imageDownloadExecutor;
+  private ThreadPoolExecutor                               imageDownloadExecutor;
 
   // this is a queue which holds "other" tasks
-  private ThreadPoolExecutor             unnamedTaskExecutor;
+  private ThreadPoolExecutor                               unnamedTaskExecutor;
 
   // trailer download are rather big/long running tasks; only x at a time can be run and they are able to be cancelled individually
-  private ThreadPoolExecutor             downloadExecutor;
+  private ThreadPoolExecutor                               downloadExecutor;
 
   // main tasks (update datasource, scraping, renaming) are queueable tasks, but only one at a time can run; they can be cancelled individually
-  private final ThreadPoolExecutor       mainTaskExecutor = createMainTaskQueue();
+  private final ThreadPoolExecutor                         mainTaskExecutor       = createMainTaskQueue();
 
   // fake task handles to manage queues
-  private TmmTaskHandle                  imageQueueHandle;
+  private TmmTaskHandle                                    imageQueueHandle;
   // private TmmTaskHandle unnamedQueueHandle;
 
   // scheduled threads
-  private final ScheduledExecutorService scheduler        = Executors.newScheduledThreadPool(1);
+  private final ScheduledExecutorService                   scheduler              = Executors.newScheduledThreadPool(1);
+
+  // track the open work of every queue
+  private final QueueTracker                               imageTracker           = new QueueTracker();
+  private final QueueTracker                               unnamedTracker         = new QueueTracker();
+  private final QueueTracker                               downloadTracker        = new QueueTracker();
+  private final QueueTracker                               mainTracker            = new QueueTracker();
+
+  // image tasks which wait for the download of their artwork
+  private final Set<TrackedTask>                           pendingImageTasks      = new HashSet<>();
+
+  // collects the image downloads started by the current thread (see collectImageDownloads)
+  private final ThreadLocal<List<Future<Void>>>            imageDownloadCollector = new ThreadLocal<>();
 
   private TmmTaskManager() {
     imageQueueHandle = new ImageQueueTaskHandle();
@@ -79,7 +106,8 @@ public class TmmTaskManager implements TmmTaskListener {
   }
 
   private ThreadPoolExecutor createImageDownloadExecutor() {
-    ThreadPoolExecutor executor = new ThreadPoolExecutor(3, 3, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+    // the downloads are queued per host by the ArtworkDownloadScheduler; the workers mostly write the downloaded artwork
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(6, 6, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
         new TmmThreadFactory("image-download-task")) {
       @Override
       protected void beforeExecute(Thread d, Runnable r) {
@@ -129,12 +157,89 @@ public class TmmTaskManager implements TmmTaskListener {
    * 
    * @param task
    *          the task to be added
+   * @return a future which completes when the task has been finished
    */
-  public void addImageDownloadTask(Runnable task) {
+  public synchronized Future<Void> addImageDownloadTask(Runnable task) {
     if (imageDownloadExecutor == null || imageDownloadExecutor.isShutdown()) {
       imageDownloadExecutor = createImageDownloadExecutor();
     }
-    imageDownloadExecutor.execute(task);
+
+    Future<Void> future;
+    String url = task instanceof ArtworkTask ? ((ArtworkTask) task).getArtworkUrl() : null;
+    if (url != null && url.toLowerCase(Locale.ROOT).startsWith("http")) {
+      // download the artwork first (queued per host); the task gets a worker as soon as its artwork is there
+      final TrackedTask trackedTask = new TrackedTask(task, imageTracker);
+      imageTracker.submitted();
+      pendingImageTasks.add(trackedTask);
+      ArtworkDownloadScheduler.getInstance().fetchAsync(url, new ArtworkDownloadScheduler.DownloadCallback() {
+        @Override
+        public void downloadFinished(String artworkUrl) {
+          // errors are handled by the task itself
+          executePendingImageTask(trackedTask);
+        }
+      });
+      future = trackedTask;
+    }
+    else {
+      future = execute(imageDownloadExecutor, imageTracker, task);
+    }
+
+    List<Future<Void>> collector = imageDownloadCollector.get();
+    if (collector != null) {
+      collector.add(future);
+    }
+    return future;
+  }
+
+  private synchronized void executePendingImageTask(TrackedTask trackedTask) {
+    if (!pendingImageTasks.remove(trackedTask)) {
+      // cancelled in the meantime
+      return;
+    }
+    if (imageDownloadExecutor == null || imageDownloadExecutor.isShutdown()) {
+      trackedTask.cancel(false);
+      return;
+    }
+    try {
+      imageDownloadExecutor.execute(trackedTask);
+    }
+    catch (RejectedExecutionException e) {
+      trackedTask.cancel(false);
+    }
+  }
+
+  private synchronized void cancelPendingImageTasks() {
+    for (TrackedTask trackedTask : pendingImageTasks) {
+      trackedTask.cancel(false);
+    }
+    pendingImageTasks.clear();
+  }
+
+  /**
+   * run the given action and collect all image downloads which are started by this action (in the current thread)
+   * 
+   * @param action
+   *          the action to run
+   * @return the futures of all image downloads of this action
+   */
+  public List<Future<Void>> collectImageDownloads(Runnable action) {
+    List<Future<Void>> outerCollector = imageDownloadCollector.get();
+    List<Future<Void>> collector = new ArrayList<>();
+    imageDownloadCollector.set(collector);
+    try {
+      action.run();
+    }
+    finally {
+      if (outerCollector != null) {
+        // nested collection; the outer action waits for these downloads too
+        outerCollector.addAll(collector);
+        imageDownloadCollector.set(outerCollector);
+      }
+      else {
+        imageDownloadCollector.remove();
+      }
+    }
+    return collector;
   }
 
   /**
@@ -142,14 +247,15 @@ public class TmmTaskManager implements TmmTaskListener {
    * 
    * @param task
    *          the task to be added
+   * @return a future which completes when the task has been finished
    */
-  public void addUnnamedTask(TmmTask task) {
+  public synchronized Future<Void> addUnnamedTask(TmmTask task) {
     if (unnamedTaskExecutor == null || unnamedTaskExecutor.isShutdown()) {
       unnamedTaskExecutor = createUnnamedTaskExecutor();
     }
     task.addListener(this);
     task.setState(TaskState.QUEUED);
-    unnamedTaskExecutor.execute(task);
+    return execute(unnamedTaskExecutor, unnamedTracker, task);
   }
 
   /**
@@ -157,34 +263,44 @@ public class TmmTaskManager implements TmmTaskListener {
    * 
    * @param task
    *          the task to be added
+   * @return a future which completes when the task has been finished
    */
-  public void addDownloadTask(TmmTask task) {
+  public synchronized Future<Void> addDownloadTask(TmmTask task) {
+    int threads = Math.max(1, Globals.settings.getMaximumDownloadThreads());
     if (downloadExecutor == null) {
-      downloadExecutor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+      downloadExecutor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
           new TmmThreadFactory("download-task"));
       downloadExecutor.allowCoreThreadTimeOut(true);
     }
+    else if (downloadExecutor.getMaximumPoolSize() != threads) {
+      // the setting has been changed
+      if (threads > downloadExecutor.getMaximumPoolSize()) {
+        downloadExecutor.setMaximumPoolSize(threads);
+        downloadExecutor.setCorePoolSize(threads);
+      }
+      else {
+        downloadExecutor.setCorePoolSize(threads);
+        downloadExecutor.setMaximumPoolSize(threads);
+      }
+    }
     task.addListener(this);
     task.setState(TaskState.QUEUED);
-    downloadExecutor.execute(task);
+    return execute(downloadExecutor, downloadTracker, task);
   }
 
   /**
    * cancel all open and running image downloads
    */
   public void cancelImageDownloads() {
-    if (imageDownloadExecutor != null) {
-      imageDownloadExecutor.shutdownNow();
-    }
+    cancelPendingImageTasks();
+    cancel(imageDownloadExecutor);
   }
 
   /**
    * cancel all open and running unnamed tasks
    */
   public void cancelUnnamedTasks() {
-    if (unnamedTaskExecutor != null) {
-      unnamedTaskExecutor.shutdownNow();
-    }
+    cancel(unnamedTaskExecutor);
   }
 
   /**
@@ -195,11 +311,154 @@ public class TmmTaskManager implements TmmTaskListener {
    * @return true if there is alreday a main task running
    */
   public boolean addMainTask(TmmThreadPool newTask) {
-    boolean result = false;
+    submitMainTask(newTask);
+    return false;
+  }
+
+  /**
+   * add a new task to the the main task queue
+   * 
+   * @param newTask
+   *          the task to be added
+   * @return a future which completes when the task has been finished
+   */
+  public Future<Void> submitMainTask(TmmThreadPool newTask) {
     newTask.addListener(this);
     newTask.setState(TaskState.QUEUED);
-    mainTaskExecutor.execute(newTask);
-    return result;
+    return execute(mainTaskExecutor, mainTracker, newTask);
+  }
+
+  /**
+   * wait until the main task queue is empty and no main task is running
+   * 
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return true if the queue is idle, false if the timeout elapsed before
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public boolean awaitMainTasksFinished(long timeout, TimeUnit unit) throws InterruptedException {
+    return mainTracker.awaitIdle(timeout, unit);
+  }
+
+  /**
+   * wait until the unnamed task queue is empty and no unnamed task is running
+   * 
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return true if the queue is idle, false if the timeout elapsed before
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public boolean awaitUnnamedTasksFinished(long timeout, TimeUnit unit) throws InterruptedException {
+    return unnamedTracker.awaitIdle(timeout, unit);
+  }
+
+  /**
+   * wait until all image downloads are finished
+   * 
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return true if the queue is idle, false if the timeout elapsed before
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public boolean awaitImageDownloadsFinished(long timeout, TimeUnit unit) throws InterruptedException {
+    return imageTracker.awaitIdle(timeout, unit);
+  }
+
+  /**
+   * wait until all downloads are finished
+   * 
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return true if the queue is idle, false if the timeout elapsed before
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public boolean awaitDownloadsFinished(long timeout, TimeUnit unit) throws InterruptedException {
+    return downloadTracker.awaitIdle(timeout, unit);
+  }
+
+  /**
+   * wait until all queues are idle. Tasks may add new tasks to other queues (e.g. scraping adds image downloads), so all queues are re-checked
+   * after they have been finished
+   * 
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public void awaitAllTasksFinished() throws InterruptedException {
+    while (!isIdle()) {
+      mainTracker.awaitIdle();
+      unnamedTracker.awaitIdle();
+      downloadTracker.awaitIdle();
+      imageTracker.awaitIdle();
+    }
+  }
+
+  /**
+   * wait until all queues are idle (see {@link #awaitAllTasksFinished()}), but at most for the given time
+   * 
+   * @param timeout
+   *          the maximum time to wait
+   * @param unit
+   *          the unit of the timeout
+   * @return true if all queues are idle, false if the timeout elapsed before
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public boolean awaitAllTasksFinished(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!isIdle()) {
+      for (QueueTracker tracker : new QueueTracker[] { mainTracker, unnamedTracker, downloadTracker, imageTracker }) {
+        if (!tracker.awaitIdle(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * is there any queued or running task?
+   * 
+   * @return true if all queues are idle
+   */
+  public boolean isIdle() {
+    // in the order tasks spawn new tasks: main tasks add unnamed tasks, downloads and image downloads
+    return mainTracker.isIdle() && unnamedTracker.isIdle() && downloadTracker.isIdle() && imageTracker.isIdle();
+  }
+
+  private Future<Void> execute(ThreadPoolExecutor executor, QueueTracker tracker, Runnable task) {
+    TrackedTask trackedTask = new TrackedTask(task, tracker);
+    tracker.submitted();
+    try {
+      executor.execute(trackedTask);
+    }
+    catch (RejectedExecutionException e) {
+      trackedTask.cancel(false);
+      throw e;
+    }
+    return trackedTask;
+  }
+
+  private void cancel(ThreadPoolExecutor executor) {
+    if (executor != null) {
+      // tasks which have never been started will not finish - finish them here
+      for (Runnable runnable : executor.shutdownNow()) {
+        if (runnable instanceof TrackedTask) {
+          ((TrackedTask) runnable).cancel(false);
+        }
+      }
+    }
   }
 
   private ThreadPoolExecutor createMainTaskQueue() {
@@ -239,27 +498,31 @@ public class TmmTaskManager implements TmmTaskListener {
    * hard shutdown of all tasks after a max of 4 secs waiting
    */
   public void shutdownNow() {
-    if (poolRunning()) {
-      // give the threads 4 seconds to finish
+    if (!isIdle()) {
+      // give the tasks max 4 seconds to finish
       try {
-        Thread.sleep(4000);
+        if (!awaitAllTasksFinished(4, TimeUnit.SECONDS)) {
+          LOGGER.debug("not all tasks finished in time - killing them");
+        }
       }
-      catch (Exception e) {
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
     }
 
     // check if all finished
+    cancelPendingImageTasks();
     if (imageDownloadExecutor != null && !imageDownloadExecutor.isTerminated()) {
-      imageDownloadExecutor.shutdownNow();
+      cancel(imageDownloadExecutor);
     }
     if (unnamedTaskExecutor != null && !unnamedTaskExecutor.isTerminated()) {
-      unnamedTaskExecutor.shutdownNow();
+      cancel(unnamedTaskExecutor);
     }
     if (downloadExecutor != null && !downloadExecutor.isTerminated()) {
-      downloadExecutor.shutdownNow();
+      cancel(downloadExecutor);
     }
     if (mainTaskExecutor != null && !mainTaskExecutor.isTerminated()) {
-      mainTaskExecutor.shutdownNow();
+      cancel(mainTaskExecutor);
     }
     if (scheduler != null && !scheduler.isTerminated()) {
       scheduler.shutdownNow();
@@ -343,6 +606,71 @@ public class TmmTaskManager implements TmmTaskListener {
   /*************************************************************************
    * helper classes
    *************************************************************************/
+  /**
+   * counts the queued and running tasks of a queue; the latch is opened as soon as the queue gets idle
+   */
+  private static class QueueTracker {
+    private int            openTasks = 0;
+    private CountDownLatch idle      = new CountDownLatch(0);
+
+    private synchronized void submitted() {
+      if (openTasks++ == 0) {
+        idle = new CountDownLatch(1);
+      }
+    }
+
+    private synchronized void finished() {
+      if (openTasks > 0 && --openTasks == 0) {
+        idle.countDown();
+      }
+    }
+
+    private synchronized boolean isIdle() {
+      return openTasks == 0;
+    }
+
+    private void awaitIdle() throws InterruptedException {
+      getLatch().await();
+    }
+
+    private boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+      return getLatch().await(timeout, unit);
+    }
+
+    private synchronized CountDownLatch getLatch() {
+      return idle;
+    }
+  }
+
+  /**
+   * a wrapper around a task to get informed when the task has been finished (or will never run)
+   */
+  private static class TrackedTask extends FutureTask<Void> {
+    private final QueueTracker tracker;
+
+    private TrackedTask(Runnable task, QueueTracker tracker) {
+      super(task, null);
+      this.tracker = tracker;
+    }
+
+    @Override
+    protected void done() {
+      // called exactly once: after the run, or if the task has been cancelled before
+      tracker.finished();
+      if (!isCancelled()) {
+        try {
+          get();
+        }
+        catch (ExecutionException e) {
+          LOGGER.error("task crashed: ", e.getCause());
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
   private class ImageQueueTaskHandle implements TmmTaskHandle {
     @Override
     public String getTaskName() {
@@ -19,6 +19,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -66,6 +67,26 @@ public abstract class TmmThreadPool extends TmmTask {
     this.service = new ExecutorCompletionService<>(pool);
   }
 
+  /**
+   * create an additional executor for sub tasks of the workers (e.g. to run independent calls of one worker in parallel). The threads are
+   * created on demand (up to the given amount, further sub tasks are queued); the caller has to shut it down.
+   * 
+   * @param name
+   *          a name for the logging
+   * @param maxThreads
+   *          the maximum amount of threads (e.g. workers x parallel calls of a worker)
+   * @return the executor
+   */
+  protected ExecutorService createSubTaskExecutor(String name, int maxThreads) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, // max threads
+        2, TimeUnit.SECONDS, // time to wait before closing idle workers
+        new LinkedBlockingQueue<Runnable>(), // our queue
+        new TmmThreadFactory(name) // our thread settings
+    );
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   /**
    * submits a new callable to thread pool.
    * 
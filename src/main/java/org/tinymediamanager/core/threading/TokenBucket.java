@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The class TokenBucket. A simple rate limiter: the bucket holds up to <i>capacity</i> tokens and is refilled with <i>permitsPerSecond</i>
+ * tokens per second; every request takes one token and waits if the bucket is empty. This allows short bursts while keeping the average rate.
+ *
+ * @author Manuel Laggner
+ */
+public class TokenBucket {
+  /**
+   * the system clock
+   */
+  public static final Clock SYSTEM_CLOCK = new SystemClock();
+
+  private final double      capacity;
+  private final double      tokensPerNano;
+  private final Clock       clock;
+  private double            tokens;
+  private long              lastRefill;
+
+  /**
+   * create a new (full) token bucket
+   *
+   * @param permitsPerSecond
+   *          the average amount of permits per second
+   * @param capacity
+   *          the maximum amount of permits in a burst
+   */
+  public TokenBucket(double permitsPerSecond, int capacity) {
+    this(permitsPerSecond, capacity, SYSTEM_CLOCK);
+  }
+
+  /**
+   * create a new (full) token bucket with the given clock
+   *
+   * @param permitsPerSecond
+   *          the average amount of permits per second
+   * @param capacity
+   *          the maximum amount of permits in a burst
+   * @param clock
+   *          the clock to measure the time and to wait with
+   */
+  public TokenBucket(double permitsPerSecond, int capacity, Clock clock) {
+    if (permitsPerSecond <= 0 || capacity < 1) {
+      throw new IllegalArgumentException("permitsPerSecond and capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.clock = clock;
+    this.tokens = capacity;
+    this.lastRefill = clock.nanoTime();
+  }
+
+  /**
+   * take one permit; waits until a permit is available
+   *
+   * @throws InterruptedException
+   *           if interrupted while waiting
+   */
+  public void acquire() throws InterruptedException {
+    while (true) {
+      long waitNanos;
+      synchronized (this) {
+        refill();
+        if (tokens >= 1) {
+          tokens -= 1;
+          return;
+        }
+        waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+      }
+      clock.sleep(Math.max(waitNanos, 1000000));
+    }
+  }
+
+  /**
+   * take one permit if it is available right now
+   *
+   * @return true if a permit has been taken
+   */
+  public synchronized boolean tryAcquire() {
+    refill();
+    if (tokens >= 1) {
+      tokens -= 1;
+      return true;
+    }
+    return false;
+  }
+
+  private void refill() {
+    long now = clock.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+    lastRefill = now;
+  }
+
+  /**
+   * the source of the time for the token bucket
+   */
+  public interface Clock {
+    /**
+     * the current time in nanoseconds (only for measuring elapsed time)
+     */
+    long nanoTime();
+
+    /**
+     * wait for the given amount of nanoseconds
+     */
+    void sleep(long nanos) throws InterruptedException;
+  }
+
+  private static class SystemClock implements Clock {
+    @Override
+    public long nanoTime() {
+      return System.nanoTime();
+    }
+
+    @Override
+    public void sleep(long nanos) throws InterruptedException {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    }
+  }
+}
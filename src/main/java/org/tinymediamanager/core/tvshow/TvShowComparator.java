@@ -15,11 +15,7 @@
  */
 package org.tinymediamanager.core.tvshow;
 
-import java.text.Collator;
-import java.text.Normalizer;
-import java.text.RuleBasedCollator;
 import java.util.Comparator;
-import java.util.Locale;
 
 import org.tinymediamanager.core.tvshow.entities.TvShow;
 
@@ -29,27 +25,9 @@ import org.tinymediamanager.core.tvshow.entities.TvShow;
  * @author Manuel Laggner
  */
 public class TvShowComparator implements Comparator<TvShow> {
-  private Collator stringCollator;
-
-  public TvShowComparator() {
-    RuleBasedCollator defaultCollator = (RuleBasedCollator) RuleBasedCollator.getInstance();
-    try {
-      // default collator ignores whitespaces
-      // using hack from http://stackoverflow.com/questions/16567287/java-collation-ignores-space
-      stringCollator = new RuleBasedCollator(defaultCollator.getRules().replace("<'\u005f'", "<' '<'\u005f'"));
-    }
-    catch (Exception e) {
-      stringCollator = defaultCollator;
-    }
-  }
-
   @Override
   public int compare(TvShow tvShow1, TvShow tvShow2) {
-    if (stringCollator != null) {
-      String titleTvShow1 = Normalizer.normalize(tvShow1.getTitleSortable().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
-      String titleTvShow2 = Normalizer.normalize(tvShow2.getTitleSortable().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
-      return stringCollator.compare(titleTvShow1, titleTvShow2);
-    }
-    return tvShow1.getTitleSortable().toLowerCase(Locale.ROOT).compareTo(tvShow2.getTitleSortable().toLowerCase(Locale.ROOT));
+    // the collation keys are cached in the entities
+    return tvShow1.getTitleSortableCollationKey().compareTo(tvShow2.getTitleSortableCollationKey());
   }
-}
\ No newline at end of file
+}
@@ -21,8 +21,11 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -78,6 +81,40 @@ public class TvShowEpisodeAndSeasonParser {
   private static Pattern      numbers3Pattern       = Pattern.compile(".*?([0-9])([0-9]{2}).*", Pattern.CASE_INSENSITIVE);
   private static Pattern      tvMultipartMatching   = Pattern.compile("^[-_ex]+([0-9]+(?:(?:[a-i]|\\.[1-9])(?![0-9]))?)", Pattern.CASE_INSENSITIVE);
 
+  // helper patterns which are needed for every parsed file - compile them only once
+  private static final Pattern                              FOLDER_PATTERN          = Pattern.compile("(.*[\\/\\\\])");
+  private static final Pattern                              DISC_FILE_PATTERN       = Pattern
+      .compile("(video_ts|vts_\\d\\d_\\d)\\.(vob|bup|ifo)|(index\\.bdmv|movieobject\\.bdmv|\\d{5}\\.m2ts)");
+  private static final Pattern                              EXTENSION_PATTERN       = Pattern.compile("\\.\\w{1,4}$");
+  private static final Pattern                              YEAR_PATTERN            = Pattern.compile("[\\(\\[]\\d{4}[\\)\\]]");
+  private static final Pattern                              NON_NUMBER_PATTERN      = Pattern.compile("[^0-9]");
+  private static final Pattern                              BRACKET_TAG_PATTERN     = Pattern.compile("\\[.*?\\]");
+  private static final Pattern                              SEASON_FOLDER_PATTERN   = Pattern.compile("(?i)(?:s|season|staffel)[\\s]*(\\d+)");
+
+  // quite same patters as above, minus the last ()
+  private static final Pattern[]                            EPISODE_VARIANTS        = { Pattern.compile("[Ss]([0-9]+)[\\]\\[ _.-]*[Ee]([0-9]+)"),
+      Pattern.compile("[ _.-]()[Ee][Pp]?_?([0-9]+)"), Pattern.compile("([0-9]{4})[.-]([0-9]{2})[.-]([0-9]{2})"),
+      Pattern.compile("([0-9]{2})[.-]([0-9]{2})[.-]([0-9]{4})"), Pattern.compile("[\\\\/\\._ \\[\\(-]([0-9]+)x([0-9]+)"),
+      Pattern.compile("[\\/ _.-]p(?:ar)?t[ _.-]()([ivx]+)"), Pattern.compile("[epx_-]+(\\d{1,3})"), Pattern.compile("episode[\\. _-]*(\\d{1,2})"),
+      Pattern.compile("(part|pt)[\\._\\s]+([MDCLXVI]+)"), Pattern.compile("(staffel|season|series)[\\s_.-]*(\\d{1,4})"),
+      Pattern.compile("s(\\d{1,4})((?:([epx_.-]+\\d{1,3})+))"), Pattern.compile("(\\d{1,4})(?=x)((?:([epx]+\\d{1,3})+))") };
+
+  // patterns to remove the show name from the file name; one pair per show
+  private static final Map<String, Pattern[]>               SHOW_NAME_PATTERNS      = new ConcurrentHashMap<>();
+
+  // cache for the parsing results: the same files are parsed on every update of the data sources
+  private static final int                                  RESULT_CACHE_SIZE       = 50000;
+  private static final Map<String, EpisodeMatchingResult>   RESULT_CACHE            = new LinkedHashMap<String, EpisodeMatchingResult>(16, 0.75f,
+      true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, EpisodeMatchingResult> eldest) {
+      return size() > RESULT_CACHE_SIZE;
+    }
+  };
+  private static int                                        resultCacheBadWordsHash = 0;
+
   /**
    * Detect episode from filename.
    * 
@@ -108,64 +145,68 @@ public class TvShowEpisodeAndSeasonParser {
     String basename = FilenameUtils.getBaseName(ParserUtils.removeStopwordsAndBadwordsFromTvEpisodeName(titleToClean));
 
     // parse foldername
-    Pattern regex = Pattern.compile("(.*[\\/\\\\])");
-    Matcher m = regex.matcher(basename);
+    Matcher m = FOLDER_PATTERN.matcher(basename);
     if (m.find()) {
-      basename = basename.replaceAll(regex.pattern(), "");
+      basename = m.replaceAll("");
     }
     basename = basename + " ";
 
     // remove show name
-    if (tvShowName != null && !tvShowName.isEmpty()) {
-      // remove string like tvshow name (440, 24, ...)
-      basename = basename.replaceAll("(?i)^" + Pattern.quote(tvShowName) + "", "");
-      basename = basename.replaceAll("(?i) " + Pattern.quote(tvShowName) + " ", "");
-    }
-    basename = basename.replaceFirst("\\.\\w{1,4}$", ""); // remove extension if 1-4 chars
-    basename = basename.replaceFirst("[\\(\\[]\\d{4}[\\)\\]]", ""); // remove (xxxx) or [xxxx] as year
+    basename = removeShowName(basename, tvShowName);
+    basename = EXTENSION_PATTERN.matcher(basename).replaceFirst(""); // remove extension if 1-4 chars
+    basename = YEAR_PATTERN.matcher(basename).replaceFirst(""); // remove (xxxx) or [xxxx] as year
 
     return removeEpisodeVariantsFromTitle(basename);
   }
 
   private static String removeEpisodeVariantsFromTitle(String title) {
     String backup = title;
-    String ret = "";
-
-    // quite same patters as above, minus the last ()
-    title = title.replaceAll("[Ss]([0-9]+)[\\]\\[ _.-]*[Ee]([0-9]+)", "");
-    title = title.replaceAll("[ _.-]()[Ee][Pp]?_?([0-9]+)", "");
-    title = title.replaceAll("([0-9]{4})[.-]([0-9]{2})[.-]([0-9]{2})", "");
-    title = title.replaceAll("([0-9]{2})[.-]([0-9]{2})[.-]([0-9]{4})", "");
-    title = title.replaceAll("[\\\\/\\._ \\[\\(-]([0-9]+)x([0-9]+)", "");
-    title = title.replaceAll("[\\/ _.-]p(?:ar)?t[ _.-]()([ivx]+)", "");
-    title = title.replaceAll("[epx_-]+(\\d{1,3})", "");
-    title = title.replaceAll("episode[\\. _-]*(\\d{1,2})", "");
-    title = title.replaceAll("(part|pt)[\\._\\s]+([MDCLXVI]+)", "");
-    title = title.replaceAll("(staffel|season|series)[\\s_.-]*(\\d{1,4})", "");
-    title = title.replaceAll("s(\\d{1,4})((?:([epx_.-]+\\d{1,3})+))", "");
-    title = title.replaceAll("(\\d{1,4})(?=x)((?:([epx]+\\d{1,3})+))", "");
 
-    // split and reassemble
-    String[] splitted = StringUtils.split(title, "[\\[\\]() _,.-]");
-    for (String s : splitted) {
-      ret = ret + " " + s;
+    for (Pattern pattern : EPISODE_VARIANTS) {
+      title = pattern.matcher(title).replaceAll("");
     }
-    ret = ret.trim();
+
+    // split and reassemble
+    String ret = StringUtils.join(StringUtils.split(title, "[\\[\\]() _,.-]"), ' ').trim();
 
     // uh-oh - we removed too much
     // also split and reassemble backup
     if (StringUtils.isEmpty(ret)) {
-      String[] b = StringUtils.split(backup, "[\\[\\]() _,.-]");
-      backup = "";
-      for (String s : b) {
-        backup = backup + " " + s;
-      }
-      // System.out.println("****** empty string - setting back to " + backup);
-      ret = backup.trim();
+      ret = StringUtils.join(StringUtils.split(backup, "[\\[\\]() _,.-]"), ' ').trim();
     }
     return ret;
   }
 
+  /**
+   * remove the show name from the given string (at the beginning or surrounded by spaces)
+   *
+   * @param basename
+   *          the string to clean
+   * @param showname
+   *          the show name
+   * @return the cleaned string
+   */
+  private static String removeShowName(String basename, String showname) {
+    if (showname == null || showname.isEmpty()) {
+      return basename;
+    }
+
+    Pattern[] patterns = SHOW_NAME_PATTERNS.get(showname);
+    if (patterns == null) {
+      // do not grow endless
+      if (SHOW_NAME_PATTERNS.size() > 1000) {
+        SHOW_NAME_PATTERNS.clear();
+      }
+      patterns = new Pattern[] { Pattern.compile("(?i)^" + Pattern.quote(showname)), Pattern.compile("(?i) " + Pattern.quote(showname) + " ") };
+      SHOW_NAME_PATTERNS.put(showname, patterns);
+    }
+
+    // remove string like tvshow name (440, 24, ...)
+    basename = patterns[0].matcher(basename).replaceAll("");
+    basename = patterns[1].matcher(basename).replaceAll("");
+    return basename;
+  }
+
   /**
    * Does all the season/episode detection
    * 
@@ -202,6 +243,50 @@ public class TvShowEpisodeAndSeasonParser {
    * @return result the calculated result
    */
   public static EpisodeMatchingResult detect(String name, String showname) {
+    // the bad words are part of the parsing - if they change, all cached results are invalid
+    int badWordsHash = TvShowModuleManager.SETTINGS.getBadWords().hashCode();
+    String cacheKey = name + '\u0000' + showname;
+
+    EpisodeMatchingResult result;
+    synchronized (RESULT_CACHE) {
+      if (resultCacheBadWordsHash != badWordsHash) {
+        RESULT_CACHE.clear();
+        resultCacheBadWordsHash = badWordsHash;
+      }
+      result = RESULT_CACHE.get(cacheKey);
+    }
+
+    if (result == null) {
+      result = parseEpisode(name, showname);
+      synchronized (RESULT_CACHE) {
+        RESULT_CACHE.put(cacheKey, result);
+      }
+    }
+
+    // the result is mutable - never hand out the cached instance
+    return copyResult(result);
+  }
+
+  /**
+   * clear the cache of already parsed file names
+   */
+  public static void clearCache() {
+    synchronized (RESULT_CACHE) {
+      RESULT_CACHE.clear();
+    }
+  }
+
+  private static EpisodeMatchingResult copyResult(EpisodeMatchingResult source) {
+    EpisodeMatchingResult copy = new EpisodeMatchingResult();
+    copy.season = source.season;
+    copy.episodes = new ArrayList<>(source.episodes);
+    copy.name = source.name;
+    copy.date = source.date == null ? null : new Date(source.date.getTime());
+    copy.stackingMarkerFound = source.stackingMarkerFound;
+    return copy;
+  }
+
+  private static EpisodeMatchingResult parseEpisode(String name, String showname) {
     LOGGER.debug("parsing '" + name + "'");
     EpisodeMatchingResult result = new EpisodeMatchingResult();
     Pattern regex;
@@ -212,8 +297,8 @@ public class TvShowEpisodeAndSeasonParser {
     String extension = FilenameUtils.getExtension(name);
 
     // check for disc files and remove!!
-    if (filename.toLowerCase(Locale.ROOT).matches("(video_ts|vts_\\d\\d_\\d)\\.(vob|bup|ifo)") || // dvd
-        filename.toLowerCase(Locale.ROOT).matches("(index\\.bdmv|movieobject\\.bdmv|\\d{5}\\.m2ts)")) { // bluray
+    if (DISC_FILE_PATTERN.matcher(filename.toLowerCase(Locale.ROOT)).matches()) {
+      // dvd or bluray
       name = FilenameUtils.getPath(name);
     }
 
@@ -221,11 +306,10 @@ public class TvShowEpisodeAndSeasonParser {
     String foldername = "";
 
     // parse foldername
-    regex = Pattern.compile("(.*[\\/\\\\])");
-    m = regex.matcher(basename);
+    m = FOLDER_PATTERN.matcher(basename);
     if (m.find()) {
       foldername = m.group(1);
-      basename = basename.replaceAll(regex.pattern(), "");
+      basename = m.replaceAll("");
     }
 
     // happens, when we only parse filename, but it completely gets stripped out.
@@ -233,15 +317,12 @@ public class TvShowEpisodeAndSeasonParser {
       return result;
     }
 
-    if (showname != null && !showname.isEmpty()) {
-      // remove string like tvshow name (440, 24, ...)
-      basename = basename.replaceAll("(?i)^" + Pattern.quote(showname) + "", "");
-      basename = basename.replaceAll("(?i) " + Pattern.quote(showname) + " ", "");
-    }
-    basename = basename.replaceFirst("\\.\\w{1,4}$", ""); // remove extension if 1-4 chars
-    basename = basename.replaceFirst("[\\(\\[]\\d{4}[\\)\\]]", ""); // remove (xxxx) or [xxxx] as year
+    basename = removeShowName(basename, showname);
+    basename = EXTENSION_PATTERN.matcher(basename).replaceFirst(""); // remove extension if 1-4 chars
+    basename = YEAR_PATTERN.matcher(basename).replaceFirst(""); // remove (xxxx) or [xxxx] as year
 
     basename = basename + " ";
+    String fullname = foldername + basename;
 
     result.stackingMarkerFound = !Utils.getStackingMarker(filename).isEmpty() ? true : false;
     result.name = basename.trim();
@@ -249,7 +330,7 @@ public class TvShowEpisodeAndSeasonParser {
     // season detection
     if (result.season == -1) {
       regex = seasonPattern;
-      m = regex.matcher(foldername + basename);
+      m = regex.matcher(fullname);
       if (m.find()) {
         int s = result.season;
         try {
@@ -265,7 +346,7 @@ public class TvShowEpisodeAndSeasonParser {
 
     // parse SxxEPyy 1-N
     regex = seasonMultiEP;
-    m = regex.matcher(foldername + basename);
+    m = regex.matcher(fullname);
     int lastFoundEpisode = 0;
     while (m.find()) {
       int s = -1;
@@ -303,7 +384,7 @@ public class TvShowEpisodeAndSeasonParser {
 
     // parse XYY or XX_YY 1-N
     regex = seasonMultiEP2;
-    m = regex.matcher(foldername + basename);
+    m = regex.matcher(fullname);
     while (m.find()) {
       int s = -1;
       try {
@@ -357,7 +438,7 @@ public class TvShowEpisodeAndSeasonParser {
       }
     }
 
-    String numbers = basename.replaceAll("[^0-9]", "");
+    String numbers = NON_NUMBER_PATTERN.matcher(basename).replaceAll("");
     // try to parse YXX numbers first, and exit (need to do that per length)
     if (numbers.length() == 3) { // eg 102
       regex = numbers3Pattern;
@@ -464,7 +545,7 @@ public class TvShowEpisodeAndSeasonParser {
     // Episode-only parsing, when previous styles didn't find anything!
     // this is a VERY generic pattern AND SHOULD BE EXECUTED AS LAST CHANCE!!!
     // might produce many fals positives, so be careful!
-    basename = basename.replaceAll("\\[.*?\\]", "");// remove all optional [xyz] tags
+    basename = BRACKET_TAG_PATTERN.matcher(basename).replaceAll("");// remove all optional [xyz] tags
     if (result.episodes.isEmpty()) {
       regex = episodePattern;
       m = regex.matcher(basename);
@@ -667,8 +748,7 @@ public class TvShowEpisodeAndSeasonParser {
     int season = -1;
 
     // season detection
-    Pattern regex = Pattern.compile("(?i)(?:s|season|staffel)[\\s]*(\\d+)");
-    Matcher m = regex.matcher(relativePath);
+    Matcher m = SEASON_FOLDER_PATTERN.matcher(relativePath);
     if (m.find()) {
       try {
         season = Integer.parseInt(m.group(1));
@@ -30,7 +30,10 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -46,6 +49,7 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.ReferenceCountedRegistry;
 import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.entities.MediaFileAudioStream;
@@ -69,16 +73,22 @@ import com.fasterxml.jackson.databind.ObjectReader;
  * @author Manuel Laggner
  */
 public class TvShowList extends AbstractModelObject {
-  private static final Logger    LOGGER   = LoggerFactory.getLogger(TvShowList.class);
-  private static TvShowList      instance = null;
+  private static final Logger                    LOGGER   = LoggerFactory.getLogger(TvShowList.class);
+  private static TvShowList                      instance = null;
 
-  private final List<TvShow>     tvShowList;
-  private final List<String>     tvShowTagsObservable;
-  private final List<String>     episodeTagsObservable;
-  private final List<String>     videoCodecsObservable;
-  private final List<String>     audioCodecsObservable;
+  private final List<TvShow>                     tvShowList;
+  private final List<String>                     tvShowTagsObservable;
+  private final List<String>                     episodeTagsObservable;
+  private final List<String>                     videoCodecsObservable;
+  private final List<String>                     audioCodecsObservable;
 
-  private PropertyChangeListener propertyChangeListener;
+  // reference counted registries of the values above
+  private final ReferenceCountedRegistry<String> tvShowTagRegistry;
+  private final ReferenceCountedRegistry<String> episodeTagRegistry;
+  private final ReferenceCountedRegistry<String> videoCodecRegistry;
+  private final ReferenceCountedRegistry<String> audioCodecRegistry;
+
+  private PropertyChangeListener                 propertyChangeListener;
 
   /**
    * Instantiates a new TvShowList.
@@ -91,6 +101,31 @@ public class TvShowList extends AbstractModelObject {
     videoCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
     audioCodecsObservable = ObservableCollections.observableList(new CopyOnWriteArrayList<String>());
 
+    tvShowTagRegistry = new ReferenceCountedRegistry<>(tvShowTagsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("tag", null, tvShowTagsObservable);
+      }
+    });
+    episodeTagRegistry = new ReferenceCountedRegistry<>(episodeTagsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("tag", null, episodeTagsObservable);
+      }
+    });
+    videoCodecRegistry = new ReferenceCountedRegistry<>(videoCodecsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("videoCodec", null, videoCodecsObservable);
+      }
+    });
+    audioCodecRegistry = new ReferenceCountedRegistry<>(audioCodecsObservable, new Runnable() {
+      @Override
+      public void run() {
+        firePropertyChange("audioCodec", null, audioCodecsObservable);
+      }
+    });
+
     // the tag listener: its used to always have a full list of all tags used in tmm
     propertyChangeListener = new PropertyChangeListener() {
       @Override
@@ -163,7 +198,7 @@ public class TvShowList extends AbstractModelObject {
     int oldValue = tvShowList.size();
 
     tvShowList.add(newValue);
-    newValue.addPropertyChangeListener(propertyChangeListener);
+    newValue.addCorePropertyChangeListener(propertyChangeListener);
     firePropertyChange(TV_SHOWS, null, tvShowList);
     firePropertyChange(ADDED_TV_SHOW, null, newValue);
     firePropertyChange(TV_SHOW_COUNT, oldValue, tvShowList.size());
@@ -198,6 +233,8 @@ public class TvShowList extends AbstractModelObject {
     int oldValue = tvShowList.size();
     tvShow.removeAllEpisodes();
     tvShowList.remove(tvShow);
+    tvShow.removeCorePropertyChangeListener(propertyChangeListener);
+    tvShowTagRegistry.remove(tvShow);
 
     try {
       TvShowModuleManager.getInstance().removeTvShowFromDb(tvShow);
@@ -223,6 +260,8 @@ public class TvShowList extends AbstractModelObject {
     tvShow.deleteFilesSafely();
     tvShow.removeAllEpisodes();
     tvShowList.remove(tvShow);
+    tvShow.removeCorePropertyChangeListener(propertyChangeListener);
+    tvShowTagRegistry.remove(tvShow);
 
     try {
       TvShowModuleManager.getInstance().removeTvShowFromDb(tvShow);
@@ -303,26 +342,32 @@ public class TvShowList extends AbstractModelObject {
     ObjectReader episodeObjectReader = objectMapper.readerFor(TvShowEpisode.class);
     int episodeCount = 0;
 
+    // lookup for the TV shows and collect the episodes per TV show to add them in one batch
+    Map<UUID, TvShow> tvShowsById = new HashMap<>();
+    for (TvShow tvShow : tvShowList) {
+      tvShowsById.put(tvShow.getDbId(), tvShow);
+    }
+    Map<TvShow, List<TvShowEpisode>> episodesPerTvShow = new HashMap<>();
+
     for (UUID uuid : new ArrayList<>(episodesMap.keyList())) {
       try {
         TvShowEpisode episode = episodeObjectReader.readValue(episodesMap.get(uuid));
         episode.setDbId(uuid);
 
-        // check for orphaned episodes
-        boolean found = false;
-
         // and assign it the the right TV show
-        for (TvShow tvShow : tvShowList) {
-          if (tvShow.getDbId().equals(episode.getTvShowDbId())) {
-            episodeCount++;
-            episode.setTvShow(tvShow);
-            tvShow.addEpisode(episode);
-            found = true;
-            break;
+        TvShow tvShow = tvShowsById.get(episode.getTvShowDbId());
+        if (tvShow != null) {
+          episodeCount++;
+          episode.setTvShow(tvShow);
+          List<TvShowEpisode> episodes = episodesPerTvShow.get(tvShow);
+          if (episodes == null) {
+            episodes = new ArrayList<>();
+            episodesPerTvShow.put(tvShow, episodes);
           }
+          episodes.add(episode);
         }
-
-        if (!found) {
+        else {
+          // orphaned episode
           orphanedEpisodes.add(uuid);
         }
       }
@@ -333,6 +378,10 @@ public class TvShowList extends AbstractModelObject {
       }
     }
 
+    for (Entry<TvShow, List<TvShowEpisode>> entry : episodesPerTvShow.entrySet()) {
+      entry.getKey().addEpisodes(entry.getValue());
+    }
+
     // remove orphaned episodes
     for (UUID uuid : orphanedEpisodes) {
       episodesMap.remove(uuid);
@@ -346,17 +395,24 @@ public class TvShowList extends AbstractModelObject {
     checkAndCleanupMediaFiles();
 
     // init everything after loading
-    for (TvShow tvShow : tvShowList) {
-      tvShow.initializeAfterLoading();
-      updateTvShowTags(tvShow);
+    // publish the tags/codecs at once
+    beginRegistryBatch();
+    try {
+      for (TvShow tvShow : tvShowList) {
+        tvShow.initializeAfterLoading();
+        updateTvShowTags(tvShow);
 
-      for (TvShowEpisode episode : tvShow.getEpisodes()) {
-        episode.initializeAfterLoading();
-        updateEpisodeTags(episode);
-        updateMediaInformationLists(episode);
-      }
+        for (TvShowEpisode episode : tvShow.getEpisodes()) {
+          episode.initializeAfterLoading();
+          updateEpisodeTags(episode);
+          updateMediaInformationLists(episode);
+        }
 
-      tvShow.addPropertyChangeListener(propertyChangeListener);
+        tvShow.addCorePropertyChangeListener(propertyChangeListener);
+      }
+    }
+    finally {
+      endRegistryBatch();
     }
   }
 
@@ -392,6 +448,11 @@ public class TvShowList extends AbstractModelObject {
   }
 
   public void removeEpisodeFromDb(TvShowEpisode episode) {
+    // the episode is gone - drop its tags/codecs
+    episodeTagRegistry.remove(episode);
+    videoCodecRegistry.remove(episode);
+    audioCodecRegistry.remove(episode);
+
     // delete this episode from the database
     try {
       TvShowModuleManager.getInstance().removeEpisodeFromDb(episode);
@@ -547,35 +608,7 @@ public class TvShowList extends AbstractModelObject {
   }
 
   private void updateTvShowTags(TvShow tvShow) {
-    List<String> availableTags = new ArrayList<>(tvShowTagsObservable);
-
-    for (String tagInTvShow : new ArrayList<>(tvShow.getTags())) {
-      boolean tagFound = false;
-      for (String tag : availableTags) {
-        if (tagInTvShow.equals(tag)) {
-          tagFound = true;
-          break;
-        }
-      }
-      if (!tagFound) {
-        addTvShowTag(tagInTvShow);
-      }
-    }
-  }
-
-  private void addTvShowTag(String newTag) {
-    if (StringUtils.isBlank(newTag)) {
-      return;
-    }
-
-    synchronized (tvShowTagsObservable) {
-      if (tvShowTagsObservable.contains(newTag)) {
-        return;
-      }
-      tvShowTagsObservable.add(newTag);
-    }
-
-    firePropertyChange("tag", null, tvShowTagsObservable);
+    tvShowTagRegistry.update(tvShow, getNotBlank(tvShow.getTags()));
   }
 
   public List<String> getTagsInTvShows() {
@@ -583,34 +616,7 @@ public class TvShowList extends AbstractModelObject {
   }
 
   private void updateEpisodeTags(TvShowEpisode episode) {
-    List<String> availableTags = new ArrayList<>(episodeTagsObservable);
-    for (String tagEpisode : new ArrayList<>(episode.getTags())) {
-      boolean tagFound = false;
-      for (String tag : availableTags) {
-        if (tagEpisode.equals(tag)) {
-          tagFound = true;
-          break;
-        }
-      }
-      if (!tagFound) {
-        addEpisodeTag(tagEpisode);
-      }
-    }
-  }
-
-  private void addEpisodeTag(String newTag) {
-    if (StringUtils.isBlank(newTag)) {
-      return;
-    }
-
-    synchronized (episodeTagsObservable) {
-      if (episodeTagsObservable.contains(newTag)) {
-        return;
-      }
-      episodeTagsObservable.add(newTag);
-    }
-
-    firePropertyChange("tag", null, episodeTagsObservable);
+    episodeTagRegistry.update(episode, getNotBlank(episode.getTags()));
   }
 
   public List<String> getTagsInEpisodes() {
@@ -618,72 +624,45 @@ public class TvShowList extends AbstractModelObject {
   }
 
   private void updateMediaInformationLists(TvShowEpisode episode) {
-    // video codec
-    List<String> availableCodecs = new ArrayList<>(videoCodecsObservable);
-    for (MediaFile mf : episode.getMediaFiles(MediaFileType.VIDEO)) {
-      String codec = mf.getVideoCodec();
-      boolean codecFound = false;
-
-      for (String mfCodec : availableCodecs) {
-        if (mfCodec.equals(codec)) {
-          codecFound = true;
-          break;
-        }
-      }
+    List<String> videoCodecs = new ArrayList<>();
+    List<String> audioCodecs = new ArrayList<>();
 
-      if (!codecFound) {
-        addVideoCodec(codec);
-      }
-    }
-
-    // audio codec
-    availableCodecs = new ArrayList<>(audioCodecsObservable);
     for (MediaFile mf : episode.getMediaFiles(MediaFileType.VIDEO)) {
-      for (MediaFileAudioStream audio : mf.getAudioStreams()) {
-        String codec = audio.getCodec();
-        boolean codecFound = false;
-        for (String mfCodec : availableCodecs) {
-          if (mfCodec.equals(codec)) {
-            codecFound = true;
-            break;
-          }
-        }
+      // video codec
+      videoCodecs.add(mf.getVideoCodec());
 
-        if (!codecFound) {
-          addAudioCodec(codec);
-        }
+      // audio codec
+      for (MediaFileAudioStream audio : mf.getAudioStreams()) {
+        audioCodecs.add(audio.getCodec());
       }
     }
-  }
 
-  private void addVideoCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
-    }
+    videoCodecRegistry.update(episode, getNotBlank(videoCodecs));
+    audioCodecRegistry.update(episode, getNotBlank(audioCodecs));
+  }
 
-    synchronized (videoCodecsObservable) {
-      if (videoCodecsObservable.contains(newCodec)) {
-        return;
+  private static List<String> getNotBlank(List<String> values) {
+    List<String> notBlank = new ArrayList<>(values.size());
+    for (String value : values) {
+      if (StringUtils.isNotBlank(value)) {
+        notBlank.add(value);
       }
-      videoCodecsObservable.add(newCodec);
     }
-
-    firePropertyChange("videoCodec", null, videoCodecsObservable);
+    return notBlank;
   }
 
-  private void addAudioCodec(String newCodec) {
-    if (StringUtils.isBlank(newCodec)) {
-      return;
-    }
-
-    synchronized (audioCodecsObservable) {
-      if (audioCodecsObservable.contains(newCodec)) {
-        return;
-      }
-      audioCodecsObservable.add(newCodec);
-    }
+  private void beginRegistryBatch() {
+    tvShowTagRegistry.beginBatch();
+    episodeTagRegistry.beginBatch();
+    videoCodecRegistry.beginBatch();
+    audioCodecRegistry.beginBatch();
+  }
 
-    firePropertyChange("audioCodec", null, audioCodecsObservable);
+  private void endRegistryBatch() {
+    tvShowTagRegistry.endBatch();
+    episodeTagRegistry.endBatch();
+    videoCodecRegistry.endBatch();
+    audioCodecRegistry.endBatch();
   }
 
   public List<String> getVideoCodecsInEpisodes() {
@@ -734,30 +713,13 @@ public class TvShowList extends AbstractModelObject {
    * @return the tv episodes by file
    */
   public List<TvShowEpisode> getTvEpisodesByFile(TvShow tvShow, File file) {
-    List<TvShowEpisode> episodes = new ArrayList<>(1);
     // validy check
     if (file == null) {
-      return episodes;
+      return new ArrayList<>(1);
     }
 
-    // check if that file is in this tv show/episode (iterating thread safe)
-    for (TvShowEpisode episode : new ArrayList<>(tvShow.getEpisodes())) {
-      for (MediaFile mediaFile : new ArrayList<>(episode.getMediaFiles())) {
-        if (file.equals(mediaFile.getFile())) {
-          episodes.add(episode);
-        }
-      }
-    }
-    // for (int j = 0; j < tvShow.getEpisodes().size(); j++) {
-    // TvShowEpisode episode = tvShow.getEpisodes().get(j);
-    // for (int k = 0; k < episode.getMediaFiles().size(); k++) {
-    // MediaFile mediaFile = episode.getMediaFiles().get(k);
-    // if (file.equals(mediaFile.getFile())) {
-    // episodes.add(episode);
-    // }
-    // }
-    // }
-    return episodes;
+    // check if that file is in this tv show/episode (hash based lookup in the TV show)
+    return tvShow.getEpisodesByFile(file);
   }
 
   /**
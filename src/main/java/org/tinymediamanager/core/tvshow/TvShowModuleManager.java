@@ -30,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.Constants;
 import org.tinymediamanager.core.CustomNullStringSerializerProvider;
+import org.tinymediamanager.core.DatabaseBackup;
 import org.tinymediamanager.core.ITmmModule;
 import org.tinymediamanager.core.NullKeySerializer;
 import org.tinymediamanager.core.Settings;
@@ -82,13 +83,10 @@ public class TvShowModuleManager implements ITmmModule {
 
   @Override
   public void startUp() throws Exception {
-    // do a DB backup, and keep last 15 copies
     Path db = Paths.get(Settings.getInstance().getSettingsFolder(), TV_SHOW_DB);
-    Utils.createBackupFile(db);
-    Utils.deleteOldBackupFile(db, 15);
 
     // configure database
-    mvStore = new MVStore.Builder().fileName(Paths.get(Settings.getInstance().getSettingsFolder(), TV_SHOW_DB).toString()).compressHigh()
+    mvStore = new MVStore.Builder().fileName(db.toString()).compressHigh()
         .backgroundExceptionHandler(new Thread.UncaughtExceptionHandler() {
           @Override
           public void uncaughtException(Thread t, Throwable e) {
@@ -120,10 +118,14 @@ public class TvShowModuleManager implements ITmmModule {
     TvShowList.getInstance().loadEpisodesFromDatabase(episodeMap, objectMapper);
     TvShowList.getInstance().initDataAfterLoading();
     enabled = true;
+
+    // do a DB backup in the background (snapshot of the content, only if something has been changed)
+    DatabaseBackup.scheduleSnapshot(mvStore, db);
   }
 
   @Override
   public void shutDown() throws Exception {
+    DatabaseBackup.awaitSnapshot(mvStore);
     mvStore.compactMoveChunks();
     mvStore.close();
 
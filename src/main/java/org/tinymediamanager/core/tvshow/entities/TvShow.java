@@ -48,16 +48,21 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.text.CollationKey;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -131,12 +136,19 @@ public class TvShow extends MediaEntity {
   private List<TvShowEpisode>                episodes              = new CopyOnWriteArrayList<>();
   private HashMap<Integer, MediaFile>        seasonPosters         = new HashMap<>(0);
   private List<TvShowSeason>                 seasons               = new CopyOnWriteArrayList<>();
+  private Map<Integer, TvShowSeason>         seasonMap             = new ConcurrentHashMap<>();
   private List<MediaGenres>                  genresForAccess       = new CopyOnWriteArrayList<>();
   private String                             titleSortable         = "";
+  private CollationKey                       titleSortableKey      = null;
   private Date                               lastWatched           = null;
 
   private PropertyChangeListener             propertyChangeListener;
 
+  // hash based lookups for the episodes; lazy (re)built and guarded by the episodeIndexLock
+  private final Object                       episodeIndexLock      = new Object();
+  private TvShowEpisodeIndex                 episodeIndex          = null;
+  private boolean                            episodesSorted        = true;
+
   /**
    * Instantiates a tv show. To initialize the propertychangesupport after loading
    */
@@ -197,7 +209,7 @@ public class TvShow extends MediaEntity {
     }
 
     for (TvShowEpisode episode : episodes) {
-      episode.addPropertyChangeListener(propertyChangeListener);
+      episode.addCorePropertyChangeListener(propertyChangeListener);
     }
   }
 
@@ -232,6 +244,7 @@ public class TvShow extends MediaEntity {
 
     oldValue = this.titleSortable;
     titleSortable = "";
+    titleSortableKey = null;
     firePropertyChange(TITLE_SORTABLE, oldValue, titleSortable);
   }
 
@@ -250,6 +263,21 @@ public class TvShow extends MediaEntity {
 
   public void clearTitleSortable() {
     titleSortable = "";
+    titleSortableKey = null;
+  }
+
+  /**
+   * get the (cached) collation key of the sortable title for sorting
+   *
+   * @return the collation key of the sortable title
+   */
+  public CollationKey getTitleSortableCollationKey() {
+    CollationKey key = titleSortableKey;
+    if (key == null) {
+      key = Utils.getCollationKey(getTitleSortable());
+      titleSortableKey = key;
+    }
+    return key;
   }
 
   public String getSortTitle() {
@@ -279,16 +307,171 @@ public class TvShow extends MediaEntity {
    */
   public void addEpisode(TvShowEpisode episode) {
     int oldValue = episodes.size();
-    episodes.add(episode);
-    episode.addPropertyChangeListener(propertyChangeListener);
-    addToSeason(episode);
 
-    Utils.sortList(episodes);
+    synchronized (episodeIndexLock) {
+      if (episodesSorted) {
+        // insert at the right position; this is much cheaper than re-sorting the whole (copy on write) list
+        episodes.add(getInsertPosition(episode), episode);
+      }
+      else {
+        episodes.add(episode);
+        Utils.sortList(episodes);
+        episodesSorted = true;
+      }
+
+      if (episodeIndex != null) {
+        episodeIndex.addEpisode(episode);
+      }
+    }
+
+    episode.addCorePropertyChangeListener(propertyChangeListener);
+    addToSeason(episode);
 
     firePropertyChange(ADDED_EPISODE, null, episode);
     firePropertyChange(EPISODE_COUNT, oldValue, episodes.size());
   }
 
+  /**
+   * Adds many episodes at once (e.g. while loading from the database). The new episodes are sorted once and inserted in order into the episode list
+   * 
+   * @param newEpisodes
+   *          the episodes to add
+   */
+  public void addEpisodes(Collection<TvShowEpisode> newEpisodes) {
+    if (newEpisodes.isEmpty()) {
+      return;
+    }
+
+    int oldValue = episodes.size();
+
+    synchronized (episodeIndexLock) {
+      if (!episodesSorted) {
+        Utils.sortList(episodes);
+        episodesSorted = true;
+      }
+
+      List<TvShowEpisode> sortedEpisodes = new ArrayList<>(newEpisodes);
+      Collections.sort(sortedEpisodes);
+
+      // insert the new episodes in order (the list is never empty or unsorted for readers in between). Episodes which belong to the same position
+      // are inserted with one copy operation; working from the end keeps the insert positions in front valid
+      int end = sortedEpisodes.size();
+      while (end > 0) {
+        int pos = getInsertPosition(sortedEpisodes.get(end - 1));
+        int start = end - 1;
+        while (start > 0 && getInsertPosition(sortedEpisodes.get(start - 1)) == pos) {
+          start--;
+        }
+        episodes.addAll(pos, sortedEpisodes.subList(start, end));
+        end = start;
+      }
+      episodeIndex = null;
+    }
+
+    for (TvShowEpisode episode : newEpisodes) {
+      episode.addCorePropertyChangeListener(propertyChangeListener);
+      addToSeason(episode);
+      firePropertyChange(ADDED_EPISODE, null, episode);
+    }
+
+    firePropertyChange(EPISODE_COUNT, oldValue, episodes.size());
+  }
+
+  /**
+   * get the position where the episode has to be inserted into the sorted episode list (after all equal ones)
+   */
+  private int getInsertPosition(TvShowEpisode episode) {
+    int pos = Collections.binarySearch(episodes, episode);
+    if (pos < 0) {
+      return -pos - 1;
+    }
+    while (pos < episodes.size() && episodes.get(pos).compareTo(episode) == 0) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * get the episode index - (re)build it if needed. Must be called while holding the episodeIndexLock
+   */
+  private TvShowEpisodeIndex getEpisodeIndex() {
+    if (episodeIndex == null) {
+      episodeIndex = new TvShowEpisodeIndex(episodes);
+    }
+    return episodeIndex;
+  }
+
+  /**
+   * invalidate the episode lookups; they will be rebuilt on the next access
+   */
+  private void invalidateEpisodeIndex() {
+    synchronized (episodeIndexLock) {
+      episodeIndex = null;
+    }
+  }
+
+  /**
+   * callback for episodes if the season/episode number or the order has been changed
+   * 
+   * @param episode
+   *          the changed episode
+   */
+  void episodeNumberingChanged(TvShowEpisode episode) {
+    synchronized (episodeIndexLock) {
+      // the order of the episode list is affected even if the lookups do not contain the episode (yet)
+      episodesSorted = false;
+      if (episodeIndex != null && episodeIndex.contains(episode)) {
+        episodeIndex = null;
+      }
+    }
+  }
+
+  /**
+   * callback for episodes if a media file has been added
+   * 
+   * @param episode
+   *          the episode
+   * @param mediaFile
+   *          the added media file
+   */
+  void episodeMediaFileAdded(TvShowEpisode episode, MediaFile mediaFile) {
+    synchronized (episodeIndexLock) {
+      if (episodeIndex != null && episodeIndex.contains(episode)) {
+        episodeIndex.addFile(mediaFile.getFile(), episode);
+      }
+    }
+  }
+
+  /**
+   * callback for episodes if a media file has been removed
+   * 
+   * @param episode
+   *          the episode
+   * @param mediaFile
+   *          the removed media file
+   */
+  void episodeMediaFileRemoved(TvShowEpisode episode, MediaFile mediaFile) {
+    synchronized (episodeIndexLock) {
+      if (episodeIndex != null && episodeIndex.contains(episode)) {
+        episodeIndex.removeFile(mediaFile.getFile(), episode);
+      }
+    }
+  }
+
+  /**
+   * callback for episodes if the media files have been changed in a way we cannot track incrementally
+   * 
+   * @param episode
+   *          the episode
+   */
+  void episodeMediaFilesChanged(TvShowEpisode episode) {
+    synchronized (episodeIndexLock) {
+      if (episodeIndex != null && episodeIndex.contains(episode)) {
+        episodeIndex = null;
+      }
+    }
+  }
+
   /**
    * Gets the episode count.
    * 
@@ -321,22 +504,25 @@ public class TvShow extends MediaEntity {
    *          the episode
    * @return the season for episode
    */
-  public synchronized TvShowSeason getSeasonForEpisode(TvShowEpisode episode) {
-    TvShowSeason season = null;
-
+  public TvShowSeason getSeasonForEpisode(TvShowEpisode episode) {
     // search for an existing season
-    for (TvShowSeason s : seasons) {
-      if (s.getSeason() == episode.getSeason()) {
-        season = s;
-        break;
-      }
+    TvShowSeason season = seasonMap.get(episode.getSeason());
+    if (season != null) {
+      return season;
     }
 
     // no one found - create one
+    return createSeason(episode.getSeason());
+  }
+
+  private synchronized TvShowSeason createSeason(int seasonNumber) {
+    // double check; maybe another thread created it in the meantime
+    TvShowSeason season = seasonMap.get(seasonNumber);
     if (season == null) {
       int oldValue = seasons.size();
-      season = new TvShowSeason(episode.getSeason(), this);
+      season = new TvShowSeason(seasonNumber, this);
       seasons.add(season);
+      seasonMap.put(seasonNumber, season);
       firePropertyChange(ADDED_SEASON, null, season);
       firePropertyChange(SEASON_COUNT, oldValue, seasons.size());
     }
@@ -378,10 +564,11 @@ public class TvShow extends MediaEntity {
       for (int i = episodes.size() - 1; i >= 0; i--) {
         TvShowEpisode episode = episodes.get(i);
         episodes.remove(episode);
-        episode.removePropertyChangeListener(propertyChangeListener);
+        episode.removeCorePropertyChangeListener(propertyChangeListener);
         TvShowList.getInstance().removeEpisodeFromDb(episode);
       }
     }
+    invalidateEpisodeIndex();
 
     firePropertyChange(EPISODE_COUNT, oldValue, episodes.size());
   }
@@ -396,7 +583,8 @@ public class TvShow extends MediaEntity {
     if (episodes.contains(episode)) {
       int oldValue = episodes.size();
       episodes.remove(episode);
-      episode.removePropertyChangeListener(propertyChangeListener);
+      invalidateEpisodeIndex();
+      episode.removeCorePropertyChangeListener(propertyChangeListener);
       removeFromSeason(episode);
       TvShowList.getInstance().removeEpisodeFromDb(episode);
       saveToDb();
@@ -417,7 +605,8 @@ public class TvShow extends MediaEntity {
       int oldValue = episodes.size();
       episode.deleteFilesSafely();
       episodes.remove(episode);
-      episode.removePropertyChangeListener(propertyChangeListener);
+      invalidateEpisodeIndex();
+      episode.removeCorePropertyChangeListener(propertyChangeListener);
       removeFromSeason(episode);
       TvShowList.getInstance().removeEpisodeFromDb(episode);
       saveToDb();
@@ -1439,16 +1628,52 @@ public class TvShow extends MediaEntity {
     TvShowList.getInstance().removeTvShow(this);
   }
 
+  /**
+   * get the episode for the given season/episode number (hash based lookup)
+   * 
+   * @param season
+   *          the season number
+   * @param episode
+   *          the episode number
+   * @return the first found episode or null
+   */
   public TvShowEpisode getEpisode(int season, int episode) {
-    TvShowEpisode ep = null;
+    synchronized (episodeIndexLock) {
+      return getEpisodeIndex().getEpisode(season, episode);
+    }
+  }
 
-    for (TvShowEpisode e : new ArrayList<>(this.episodes)) {
-      if (e.getSeason() == season && e.getEpisode() == episode) {
-        ep = e;
-        break;
+  /**
+   * get all episodes which contain the given file (hash based lookup)
+   * 
+   * @param file
+   *          the file to search for
+   * @return a list of all episodes containing this file (maybe empty, but never null)
+   */
+  public List<TvShowEpisode> getEpisodesByFile(File file) {
+    synchronized (episodeIndexLock) {
+      List<TvShowEpisode> result = getEpisodeIndex().getEpisodesByFile(file);
+
+      // media files can be modified in place; if any hit does not contain the file any more, rebuild the index once
+      for (TvShowEpisode episode : result) {
+        if (!containsFile(episode, file)) {
+          episodeIndex = null;
+          result = getEpisodeIndex().getEpisodesByFile(file);
+          break;
+        }
       }
+
+      return result;
     }
-    return ep;
+  }
+
+  private boolean containsFile(TvShowEpisode episode, File file) {
+    for (MediaFile mediaFile : episode.getMediaFiles()) {
+      if (file.equals(mediaFile.getFile())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -199,6 +199,63 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
     return MEDIA_FILE_COMPARATOR;
   }
 
+  /*
+   * the TV show holds lookups by file for its episodes - inform it about changes in our media files
+   */
+  @Override
+  public void addToMediaFiles(MediaFile mediaFile) {
+    super.addToMediaFiles(mediaFile);
+    if (tvShow != null) {
+      tvShow.episodeMediaFileAdded(this, mediaFile);
+    }
+  }
+
+  @Override
+  public void removeFromMediaFiles(MediaFile mediaFile) {
+    super.removeFromMediaFiles(mediaFile);
+    if (tvShow != null) {
+      tvShow.episodeMediaFileRemoved(this, mediaFile);
+    }
+  }
+
+  @Override
+  public void removeAllMediaFiles() {
+    super.removeAllMediaFiles();
+    if (tvShow != null) {
+      tvShow.episodeMediaFilesChanged(this);
+    }
+  }
+
+  @Override
+  public void removeAllMediaFiles(MediaFileType type) {
+    super.removeAllMediaFiles(type);
+    if (tvShow != null) {
+      tvShow.episodeMediaFilesChanged(this);
+    }
+  }
+
+  @Override
+  public void removeAllMediaFilesExceptType(MediaFileType type) {
+    super.removeAllMediaFilesExceptType(type);
+    if (tvShow != null) {
+      tvShow.episodeMediaFilesChanged(this);
+    }
+  }
+
+  @Override
+  public void updateMediaFilePath(Path oldPath, Path newPath) {
+    super.updateMediaFilePath(oldPath, newPath);
+    if (tvShow != null) {
+      tvShow.episodeMediaFilesChanged(this);
+    }
+  }
+
+  private void fireNumberingChanged() {
+    if (tvShow != null) {
+      tvShow.episodeNumberingChanged(this);
+    }
+  }
+
   /**
    * (re)sets the path (when renaming tv show/season folder).<br>
    * Exchanges the beginning path from oldPath with newPath<br>
@@ -396,6 +453,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   public void setAiredEpisode(int newValue) {
     int oldValue = this.episode;
     this.episode = newValue;
+    fireNumberingChanged();
     if (!isDvdOrder) {
       firePropertyChange(EPISODE, oldValue, newValue);
     }
@@ -426,6 +484,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   public void setAiredSeason(int newValue) {
     int oldValue = this.season;
     this.season = newValue;
+    fireNumberingChanged();
     if (!isDvdOrder) {
       firePropertyChange(SEASON, oldValue, newValue);
     }
@@ -1145,6 +1204,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   public void setDvdSeason(int newValue) {
     int oldValue = this.dvdSeason;
     this.dvdSeason = newValue;
+    fireNumberingChanged();
     if (isDvdOrder) {
       firePropertyChange(SEASON, oldValue, newValue);
     }
@@ -1158,6 +1218,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   public void setDvdEpisode(int newValue) {
     int oldValue = this.dvdEpisode;
     this.dvdEpisode = newValue;
+    fireNumberingChanged();
     if (isDvdOrder) {
       firePropertyChange(EPISODE, oldValue, newValue);
     }
@@ -1196,6 +1257,7 @@ public class TvShowEpisode extends MediaEntity implements Comparable<TvShowEpiso
   public void setDvdOrder(boolean newValue) {
     boolean oldValue = this.isDvdOrder;
     this.isDvdOrder = newValue;
+    fireNumberingChanged();
     firePropertyChange(DVD_ORDER, oldValue, newValue);
   }
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.tvshow.entities;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.tinymediamanager.core.entities.MediaFile;
+
+/**
+ * The class TvShowEpisodeIndex. Holds hash based lookups for the episodes of a TV show:<br>
+ * - (season, episode) -> episode<br>
+ * - file -> episodes (multi episode files map to more than one episode)<br>
+ * The index is not thread safe; the owning TV show guards all access.
+ *
+ * @author Manuel Laggner
+ */
+class TvShowEpisodeIndex {
+  private final Map<Long, TvShowEpisode>       episodesBySeasonAndEpisode = new HashMap<>();
+  private final Map<File, List<TvShowEpisode>> episodesByFile             = new HashMap<>();
+  private final Set<TvShowEpisode>             indexedEpisodes            = Collections.newSetFromMap(new IdentityHashMap<TvShowEpisode, Boolean>());
+
+  /**
+   * create the index for the given episodes; the episodes have to be in the same order as in the TV show
+   *
+   * @param episodes
+   *          all episodes of the TV show
+   */
+  TvShowEpisodeIndex(List<TvShowEpisode> episodes) {
+    for (TvShowEpisode episode : episodes) {
+      indexedEpisodes.add(episode);
+      Long key = createKey(episode.getSeason(), episode.getEpisode());
+      if (!episodesBySeasonAndEpisode.containsKey(key)) {
+        episodesBySeasonAndEpisode.put(key, episode);
+      }
+      for (MediaFile mf : episode.getMediaFiles()) {
+        addFile(mf.getFile(), episode);
+      }
+    }
+  }
+
+  private static Long createKey(int season, int episode) {
+    return ((long) season << 32) | (episode & 0xffffffffL);
+  }
+
+  /**
+   * is the given episode part of this index?
+   *
+   * @param episode
+   *          the episode to check
+   * @return true/false
+   */
+  boolean contains(TvShowEpisode episode) {
+    return indexedEpisodes.contains(episode);
+  }
+
+  /**
+   * add a newly added episode to the index. If there is already an episode with the same season/episode, the one which is sorted first wins (like
+   * in the episode list)
+   *
+   * @param episode
+   *          the episode to add
+   */
+  void addEpisode(TvShowEpisode episode) {
+    indexedEpisodes.add(episode);
+
+    Long key = createKey(episode.getSeason(), episode.getEpisode());
+    TvShowEpisode existing = episodesBySeasonAndEpisode.get(key);
+    if (existing == null || episode.compareTo(existing) < 0) {
+      episodesBySeasonAndEpisode.put(key, episode);
+    }
+
+    for (MediaFile mf : episode.getMediaFiles()) {
+      addFile(mf.getFile(), episode);
+    }
+  }
+
+  /**
+   * add a file of an already indexed episode
+   *
+   * @param file
+   *          the file
+   * @param episode
+   *          the episode
+   */
+  void addFile(File file, TvShowEpisode episode) {
+    List<TvShowEpisode> episodes = episodesByFile.get(file);
+    if (episodes == null) {
+      episodes = new ArrayList<>(1);
+      episodesByFile.put(file, episodes);
+    }
+    if (episodes.contains(episode)) {
+      return;
+    }
+
+    // keep the order of the episode list
+    int i = 0;
+    while (i < episodes.size() && episodes.get(i).compareTo(episode) <= 0) {
+      i++;
+    }
+    episodes.add(i, episode);
+  }
+
+  /**
+   * remove a file of an already indexed episode
+   *
+   * @param file
+   *          the file
+   * @param episode
+   *          the episode
+   */
+  void removeFile(File file, TvShowEpisode episode) {
+    List<TvShowEpisode> episodes = episodesByFile.get(file);
+    if (episodes != null) {
+      episodes.remove(episode);
+      if (episodes.isEmpty()) {
+        episodesByFile.remove(file);
+      }
+    }
+  }
+
+  /**
+   * get the episode for the given season/episode
+   *
+   * @param season
+   *          the season
+   * @param episode
+   *          the episode
+   * @return the episode or null
+   */
+  TvShowEpisode getEpisode(int season, int episode) {
+    return episodesBySeasonAndEpisode.get(createKey(season, episode));
+  }
+
+  /**
+   * get all episodes containing the given file
+   *
+   * @param file
+   *          the file
+   * @return the list of episodes (maybe empty, but never null)
+   */
+  List<TvShowEpisode> getEpisodesByFile(File file) {
+    List<TvShowEpisode> episodes = episodesByFile.get(file);
+    if (episodes == null) {
+      return new ArrayList<>(1);
+    }
+    return new ArrayList<>(episodes);
+  }
+}
@@ -26,6 +26,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,7 +35,6 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.tinymediamanager.core.AbstractModelObject;
 import org.tinymediamanager.core.MediaFileType;
-import org.tinymediamanager.core.Utils;
 import org.tinymediamanager.core.entities.MediaFile;
 
 /**
@@ -71,15 +71,19 @@ public class TvShowSeason extends AbstractModelObject implements Comparable<TvSh
   }
 
   public void addEpisode(TvShowEpisode episode) {
-    episodes.add(episode);
-    Utils.sortList(episodes);
-    episode.addPropertyChangeListener(listener);
+    // insert at the right position; this is much cheaper than re-sorting the whole (copy on write) list
+    int pos = Collections.binarySearch(episodes, episode);
+    if (pos < 0) {
+      pos = -pos - 1;
+    }
+    episodes.add(pos, episode);
+    episode.addCorePropertyChangeListener(listener);
     firePropertyChange(ADDED_EPISODE, null, episodes);
   }
 
   public void removeEpisode(TvShowEpisode episode) {
     episodes.remove(episode);
-    episode.removePropertyChangeListener(listener);
+    episode.removeCorePropertyChangeListener(listener);
     firePropertyChange(REMOVED_EPISODE, null, episodes);
   }
 
@@ -26,6 +26,7 @@ import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.tinymediamanager.core.PropertyChangeBus;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.tvshow.TvShowModuleManager;
@@ -132,7 +133,10 @@ public class TvShowEpisodeScrapeTask extends TmmTask {
         LOGGER.info("=====================================================");
         MediaMetadata metadata = ((ITvShowMetadataProvider) mediaScraper.getMediaProvider()).getMetadata(options);
         if (metadata != null && StringUtils.isNotBlank(metadata.getTitle())) {
-          episode.setMetadata(metadata);
+          // deliver all changes at once after the whole metadata has been set
+          try (PropertyChangeBus.BulkUpdate bulkUpdate = PropertyChangeBus.beginBulkUpdate()) {
+            episode.setMetadata(metadata);
+          }
         }
       }
       catch (Exception e) {
@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.PropertyChangeBus;
 import org.tinymediamanager.core.threading.TmmTask;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -175,7 +176,10 @@ public class TvShowScrapeTask extends TmmThreadPool {
               LOGGER.info(options.toString());
               LOGGER.info("=====================================================");
               md = ((ITvShowMetadataProvider) mediaMetadataScraper.getMediaProvider()).getMetadata(options);
-              tvShow.setMetadata(md, scraperMetadataConfig);
+              // deliver all changes at once after the whole metadata has been set
+              try (PropertyChangeBus.BulkUpdate bulkUpdate = PropertyChangeBus.beginBulkUpdate()) {
+                tvShow.setMetadata(md, scraperMetadataConfig);
+              }
             }
 
             // scrape episodes
@@ -15,7 +15,6 @@
  */
 package org.tinymediamanager.core.tvshow.tasks;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
 
@@ -28,6 +27,7 @@ import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.Message;
 import org.tinymediamanager.core.Message.MessageLevel;
 import org.tinymediamanager.core.MessageManager;
+import org.tinymediamanager.core.SubtitleSearchEngine;
 import org.tinymediamanager.core.entities.MediaFile;
 import org.tinymediamanager.core.threading.TmmTaskManager;
 import org.tinymediamanager.core.threading.TmmThreadPool;
@@ -36,7 +36,6 @@ import org.tinymediamanager.scraper.MediaScraper;
 import org.tinymediamanager.scraper.SubtitleSearchOptions;
 import org.tinymediamanager.scraper.SubtitleSearchResult;
 import org.tinymediamanager.scraper.entities.MediaLanguages;
-import org.tinymediamanager.scraper.mediaprovider.IMediaSubtitleProvider;
 import org.tinymediamanager.scraper.util.MediaIdUtil;
 import org.tinymediamanager.ui.UTF8Control;
 
@@ -94,46 +93,30 @@ public class TvShowSubtitleSearchAndDownloadTask extends TmmThreadPool {
     @Override
     public void run() {
       try {
-        for (MediaScraper scraper : subtitleScrapers) {
-          try {
-            MediaFile mf = episode.getMediaFiles(MediaFileType.VIDEO).get(0);
-
-            IMediaSubtitleProvider subtitleProvider = (IMediaSubtitleProvider) scraper.getMediaProvider();
-            SubtitleSearchOptions options = new SubtitleSearchOptions(mf.getFileAsPath().toFile());
-            options.setLanguage(LocaleUtils.toLocale(language.name()));
-            options.setSeason(episode.getSeason());
-            options.setEpisode(episode.getEpisode());
-
-            String imdbId = episode.getTvShow().getImdbId();
-            if (StringUtils.isBlank(imdbId)) {
-              // try to get the IMDB Id via TheTVDB
-              MediaIdUtil.getImdbIdFromTvdbId(episode.getTvShow().getTvdbId());
-            }
-            if (StringUtils.isNotBlank(imdbId)) {
-              options.setImdbId(imdbId);
-            }
-
-            List<SubtitleSearchResult> searchResults = subtitleProvider.search(options);
-            if (searchResults.isEmpty()) {
-              continue;
-            }
-
-            Collections.sort(searchResults);
-            Collections.reverse(searchResults);
-
-            SubtitleSearchResult firstResult = searchResults.get(0);
-            if (firstResult.getScore() < 1.0f || StringUtils.isBlank(firstResult.getUrl())) {
-              continue;
-            }
-
-            String filename = FilenameUtils.getBaseName(mf.getFilename()) + "." + language.name();
-            TmmTaskManager.getInstance()
-                .addDownloadTask(new TvShowSubtitleDownloadTask(firstResult.getUrl(), episode.getPathNIO().resolve(filename), episode));
-          }
-          catch (Exception e) {
-            LOGGER.error("Error at subtitle searching: " + e.getMessage());
-          }
+        MediaFile mf = episode.getMediaFiles(MediaFileType.VIDEO).get(0);
+
+        SubtitleSearchOptions options = new SubtitleSearchOptions(mf.getFileAsPath().toFile());
+        options.setLanguage(LocaleUtils.toLocale(language.name()));
+        options.setSeason(episode.getSeason());
+        options.setEpisode(episode.getEpisode());
+
+        String imdbId = episode.getTvShow().getImdbId();
+        if (StringUtils.isBlank(imdbId)) {
+          // try to get the IMDB Id via TheTVDB
+          MediaIdUtil.getImdbIdFromTvdbId(episode.getTvShow().getTvdbId());
+        }
+        if (StringUtils.isNotBlank(imdbId)) {
+          options.setImdbId(imdbId);
         }
+
+        // all providers are searched in parallel
+        SubtitleSearchResult result = SubtitleSearchEngine.getInstance().searchBestMatch(subtitleScrapers, mf, language, options);
+        if (result == null) {
+          return;
+        }
+
+        String filename = FilenameUtils.getBaseName(mf.getFilename()) + "." + language.name();
+        TmmTaskManager.getInstance().addDownloadTask(new TvShowSubtitleDownloadTask(result.getUrl(), episode.getPathNIO().resolve(filename), episode));
       }
       catch (Exception e) {
         LOGGER.error("Thread crashed", e);
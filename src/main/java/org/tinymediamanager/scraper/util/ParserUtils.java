@@ -15,13 +15,21 @@
  */
 package org.tinymediamanager.scraper.util;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -57,6 +65,38 @@ public class ParserUtils {
   // clean before splitting (needs delimiter in front!)
   public static String[]      cleanwords = { "24\\.000", "23\\.976", "23\\.98", "24\\.00" };
 
+  // TV stop words/bad words must start AND END with a non-word (else too global) or line end - compiled only once
+  private static final Pattern              TV_RESOLUTION_PATTERN = Pattern.compile("(?i)\\W\\d{3,4}x\\d{3,4}");
+  private static final Map<String, Pattern> TV_WORD_PATTERNS      = new ConcurrentHashMap<>();
+
+  // precompiled patterns and lookups for the movie name detection
+  private static final Pattern              EXTENSION_PATTERN     = Pattern.compile("\\.\\w{2,4}$");
+  private static final Pattern              OPTIONAL_PATTERN      = Pattern.compile("\\[(.*?)\\]");
+  // OTR recordings like _12.11.17_20-15_
+  private static final Pattern              OTR_PATTERN           = Pattern.compile(".*?(_\\d{2}\\.\\d{2}\\.\\d{2}[_ ]+\\d{2}\\-\\d{2}\\_).*");
+  // the FPS specific words (must start with a non-word, else too global); each one is replaced only once like the resolution
+  private static final Pattern[]            CLEANWORD_PATTERNS    = new Pattern[cleanwords.length];
+  private static final boolean[]            DELIMITER_CHARS       = new boolean[128];
+  private static final Set<String>          STOPWORDS_FOLDED      = new HashSet<>();
+  private static int                        STOPWORDS_MAX_LENGTH  = 0;
+  // the bad words of the movie settings and the version of the bad words they have been built for
+  private static final AtomicBoolean        BADWORDS_LISTENER     = new AtomicBoolean(false);
+  private static final AtomicInteger        BADWORDS_VERSION      = new AtomicInteger();
+  private static volatile BadWords          movieBadWords         = null;
+
+  static {
+    for (int i = 0; i < cleanwords.length; i++) {
+      CLEANWORD_PATTERNS[i] = Pattern.compile("(?i)\\W" + cleanwords[i]);
+    }
+    for (char c : DELIMITER.toCharArray()) {
+      DELIMITER_CHARS[c] = true;
+    }
+    for (String stopword : stopwords) {
+      STOPWORDS_FOLDED.add(foldCase(stopword));
+      STOPWORDS_MAX_LENGTH = Math.max(STOPWORDS_MAX_LENGTH, stopword.length());
+    }
+  }
+
   /**
    * Tries to get movie name from filename<br>
    * 1. splits string using common delimiters ".- ()"<br>
@@ -201,7 +241,7 @@ public class ParserUtils {
   public static String[] detectCleanMovienameAndYear(String filename) {
     String[] ret = { "", "" };
     // use trace to not remove logging completely (function called way to often on multi movie dir parsing)
-    LOGGER.trace("Parse filename for movie title: \"" + filename + "\"");
+    LOGGER.trace("Parse filename for movie title: \"{}\"", filename);
 
     if (filename == null || filename.isEmpty()) {
       LOGGER.warn("Filename empty?!");
@@ -209,71 +249,74 @@ public class ParserUtils {
     }
 
     // remove extension (if found) and split (keep var)
-    String fname = filename.replaceFirst("\\.\\w{2,4}$", "");
-    // replaces any resolution 1234x1234 (must start and end with a non-word (else too global)
-    fname = fname.replaceFirst("(?i)\\W\\d{3,4}x\\d{3,4}", " ");
+    String fname = EXTENSION_PATTERN.matcher(filename).replaceFirst("");
+    // replaces the first resolution 1234x1234 (must start with a non-word (else too global)
+    fname = TV_RESOLUTION_PATTERN.matcher(fname).replaceFirst(" ");
     // replace FPS specific words (must start with a non-word (else too global)
-    for (String cw : cleanwords) {
-      fname = fname.replaceFirst("(?i)\\W" + cw, " ");
+    for (Pattern cleanword : CLEANWORD_PATTERNS) {
+      fname = cleanword.matcher(fname).replaceFirst(" ");
     }
 
     LOGGER.trace("--------------------");
-    LOGGER.trace("IN:  " + fname);
+    LOGGER.trace("IN:  {}", fname);
 
     // Get [optionals] delimited
-    List<String> opt = new ArrayList<String>();
-    Pattern p = Pattern.compile("\\[(.*?)\\]");
-    Matcher m = p.matcher(fname);
-    while (m.find()) {
-      LOGGER.trace("OPT: " + m.group(1));
-      String[] o = StringUtils.split(m.group(1), DELIMITER);
-      opt.addAll(Arrays.asList(o));
-      fname = fname.replace(m.group(), ""); // remove complete group from name
+    List<String> opt = new ArrayList<>();
+    if (fname.indexOf('[') >= 0) {
+      Matcher m = OPTIONAL_PATTERN.matcher(fname);
+      while (m.find()) {
+        LOGGER.trace("OPT: {}", m.group(1));
+        opt.addAll(tokenize(m.group(1)));
+        fname = fname.replace(m.group(), ""); // remove complete group from name
+      }
+      LOGGER.trace("ARR: {}", opt);
     }
-    LOGGER.trace("ARR: " + opt);
 
     // detect OTR recordings - at least with that special pattern
-    p = Pattern.compile(".*?(_\\d{2}\\.\\d{2}\\.\\d{2}[_ ]+\\d{2}\\-\\d{2}\\_).*"); // like _12.11.17_20-15_
-    m = p.matcher(fname);
-    if (m.matches() && m.start(1) > 10) {
-      // start at some later point, not that if pattern is first
-      LOGGER.trace("OTR: " + m.group(1));
-      fname = fname.substring(0, m.start(1));
+    if (fname.indexOf('_') >= 0) {
+      Matcher m = OTR_PATTERN.matcher(fname);
+      if (m.matches() && m.start(1) > 10) {
+        // start at some later point, not that if pattern is first
+        LOGGER.trace("OTR: {}", m.group(1));
+        fname = fname.substring(0, m.start(1));
+      }
     }
 
     // parse good filename
-    String[] s = StringUtils.split(fname, DELIMITER);
-    if (s.length == 0) {
-      s = opt.toArray(new String[opt.size()]);
+    List<String> tokens = tokenize(fname);
+    if (tokens.isEmpty()) {
+      tokens = opt;
     }
+    String[] s = tokens.toArray(new String[tokens.size()]);
     int firstFoundStopwordPosition = s.length;
 
     // iterate over all splitted items
     for (int i = 0; i < s.length; i++) {
       // search for stopword position
-      for (String stop : stopwords) {
-        if (s[i].equalsIgnoreCase(stop)) {
-          s[i] = ""; // delete stopword
-          // remember lowest position, but not lower than 2!!!
-          if (i < firstFoundStopwordPosition && i >= 2) {
-            firstFoundStopwordPosition = i;
-          }
+      if (isStopword(s[i])) {
+        s[i] = ""; // delete stopword
+        // remember lowest position, but not lower than 2!!!
+        if (i < firstFoundStopwordPosition && i >= 2) {
+          firstFoundStopwordPosition = i;
         }
       }
-      if (Utils.isValidImdbId(s[i])) {
+      else if (Utils.isValidImdbId(s[i])) {
         s[i] = ""; // delete imdbId from name
       }
     }
 
     // scan backwards - if we have at least 1 token, and the last one is a 4 digit, assume year and remove
-    int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+    int currentYear = 0;
     String year = "";
     for (int i = s.length - 1; i > 0; i--) {
-      if (s[i].matches("\\d{4}")) {
+      if (isFourDigits(s[i])) {
+        if (currentYear == 0) {
+          currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        }
         int parsedYear = Integer.parseInt(s[i]);
         if (parsedYear > 1800 && parsedYear < currentYear + 5) {
           // well, limit the year a bit...
-          LOGGER.trace("removed token '" + s[i] + "'- seems to be year");
+          LOGGER.trace("removed token '{}'- seems to be year", s[i]);
           year = s[i];
           s[i] = "";
           break;
@@ -283,22 +326,26 @@ public class ParserUtils {
     if (year.isEmpty()) {
       // parse all optional tags for it
       for (String o : opt) {
-        if (o.matches("\\d{4}")) {
+        if (isFourDigits(o)) {
+          if (currentYear == 0) {
+            currentYear = Calendar.getInstance().get(Calendar.YEAR);
+          }
           int parsedYear = Integer.parseInt(o);
           if (parsedYear > 1800 && parsedYear < currentYear + 5) {
             year = String.valueOf(parsedYear);
-            LOGGER.trace("found possible year " + o);
+            LOGGER.trace("found possible year {}", o);
           }
         }
       }
     }
 
     // rebuild string, respecting bad words
-    String name = "";
+    Set<String> badWords = getMovieBadWords();
+    StringBuilder name = new StringBuilder();
     for (int i = 0; i < firstFoundStopwordPosition; i++) {
       if (!s[i].isEmpty()) {
         // check for bad words
-        if (!MovieModuleManager.MOVIE_SETTINGS.getBadWords().contains(s[i].toLowerCase(Locale.ROOT))) {
+        if (!badWords.contains(s[i].toLowerCase(Locale.ROOT))) {
           String word = s[i];
           // roman characters such as "Part Iv" should not be camel-cased
           switch (word.toUpperCase(Locale.ROOT)) {
@@ -312,30 +359,113 @@ public class ParserUtils {
             case "VIII":
             case "IX":
             case "X":
-              name = name + word.toUpperCase(Locale.ROOT) + " ";
+              name.append(word.toUpperCase(Locale.ROOT)).append(' ');
               break;
 
             default:
-              name = name + WordUtils.capitalizeFully(word) + " "; // make CamelCase
+              name.append(WordUtils.capitalizeFully(word)).append(' '); // make CamelCase
               break;
           }
         }
       }
     }
 
-    if (name.isEmpty()) {
+    if (name.length() == 0) {
       // started with a badword - return name unchanged
       ret[0] = fname;
     }
     else {
-      ret[0] = name.trim();
+      ret[0] = name.toString().trim();
     }
     ret[1] = year.trim();
-    LOGGER.trace("Movie title should be: \"" + ret[0] + "\", from " + ret[1]);
+    LOGGER.trace("Movie title should be: \"{}\", from {}", ret[0], ret[1]);
 
     return ret;
   }
 
+  /**
+   * splits the string at all delimiter chars (like StringUtils.split(string, DELIMITER)) in a single pass; empty tokens are omitted
+   */
+  private static List<String> tokenize(String string) {
+    List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if (c < DELIMITER_CHARS.length && DELIMITER_CHARS[c]) {
+        if (start >= 0) {
+          tokens.add(string.substring(start, i));
+          start = -1;
+        }
+      }
+      else if (start < 0) {
+        start = i;
+      }
+    }
+    if (start >= 0) {
+      tokens.add(string.substring(start));
+    }
+    return tokens;
+  }
+
+  /**
+   * case insensitive lookup of the token in the stopwords (same semantics as equalsIgnoreCase)
+   */
+  private static boolean isStopword(String token) {
+    if (token.isEmpty() || token.length() > STOPWORDS_MAX_LENGTH) {
+      return false;
+    }
+    return STOPWORDS_FOLDED.contains(foldCase(token));
+  }
+
+  /**
+   * folds every char the same way as String.equalsIgnoreCase compares them
+   */
+  private static String foldCase(String string) {
+    char[] chars = new char[string.length()];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = Character.toLowerCase(Character.toUpperCase(string.charAt(i)));
+    }
+    return new String(chars);
+  }
+
+  private static boolean isFourDigits(String token) {
+    if (token.length() != 4) {
+      return false;
+    }
+    for (int i = 0; i < 4; i++) {
+      char c = token.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * the bad words of the movie settings as hash set; rebuilt on the next usage after the bad words have been changed
+   */
+  private static Set<String> getMovieBadWords() {
+    if (BADWORDS_LISTENER.compareAndSet(false, true)) {
+      MovieModuleManager.MOVIE_SETTINGS.addCorePropertyChangeListener(new PropertyChangeListener() {
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+          if ("badWords".equals(evt.getPropertyName())) {
+            BADWORDS_VERSION.incrementAndGet();
+          }
+        }
+      });
+    }
+
+    // read the version first: a change while building the set leads to another rebuild on the next usage
+    int version = BADWORDS_VERSION.get();
+    BadWords badWords = movieBadWords;
+    if (badWords == null || badWords.version != version) {
+      badWords = new BadWords(version, new HashSet<>(MovieModuleManager.MOVIE_SETTINGS.getBadWords()));
+      movieBadWords = badWords;
+    }
+    return badWords.words;
+  }
+
   /**
    * gets IMDB id out of filename
    * 
@@ -368,11 +498,11 @@ public class ParserUtils {
     String before = filename;
 
     // replaces any resolution 1234x1234 (must start with a non-word (else too global)
-    filename = filename.replaceFirst("(?i)\\W\\d{3,4}x\\d{3,4}", " ");
+    filename = TV_RESOLUTION_PATTERN.matcher(filename).replaceFirst(" ");
 
     for (String s : stopwords) {
-      filename = filename.replaceAll("(?i)\\W" + s + "(\\W|$)", " "); // TV stop words must start AND END with a non-word (else too global) or line
-                                                                      // end
+      filename = getTvWordPattern(s).matcher(filename).replaceAll(" "); // TV stop words must start AND END with a non-word (else too global) or line
+                                                                         // end
       if (LOGGER.isTraceEnabled() && filename.length() != before.length()) {
         LOGGER.trace("Removed some TV stopword (" + s + "): " + before + " -> " + filename);
         before = filename;
@@ -381,7 +511,7 @@ public class ParserUtils {
 
     // also remove bad words
     for (String s : TvShowModuleManager.SETTINGS.getBadWords()) {
-      filename = filename.replaceAll("(?i)\\W" + s + "(\\W|$)", " "); // TV bad words must start AND END with a non-word (else too global) or line end
+      filename = getTvWordPattern(s).matcher(filename).replaceAll(" "); // TV bad words must start AND END with a non-word (else too global) or line end
       if (LOGGER.isTraceEnabled() && filename.length() != before.length()) {
         LOGGER.trace("Removed some TV bad word (" + s + "): " + before + " -> " + filename);
         before = filename;
@@ -390,6 +520,15 @@ public class ParserUtils {
     return filename;
   }
 
+  private static Pattern getTvWordPattern(String word) {
+    Pattern pattern = TV_WORD_PATTERNS.get(word);
+    if (pattern == null) {
+      pattern = Pattern.compile("(?i)\\W" + word + "(\\W|$)");
+      TV_WORD_PATTERNS.put(word, pattern);
+    }
+    return pattern;
+  }
+
   /**
    * return a 2 element array. 0 = title; 1=date
    * 
@@ -551,4 +690,14 @@ public class ParserUtils {
       return clean + " (" + this.year + ")";
     }
   }
+
+  private static class BadWords {
+    private final int         version;
+    private final Set<String> words;
+
+    private BadWords(int version, Set<String> words) {
+      this.version = version;
+      this.words = words;
+    }
+  }
 }
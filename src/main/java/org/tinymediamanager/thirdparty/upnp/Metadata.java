@@ -44,7 +44,7 @@ public class Metadata {
       }
       m.setTitle(tmmMovie.getTitle());
 
-      List<MediaFile> posters = tmmMovie.getMediaFiles(MediaFileType.POSTER);
+      List<MediaFile> posters = tmmMovie.getMediaFilesView(MediaFileType.POSTER);
       MediaFile poster = posters.isEmpty() ? null : posters.get(0);
       if (poster != null) {
         String rel = tmmMovie.getPathNIO().relativize(poster.getFileAsPath()).toString().replaceAll("\\\\", "/");
@@ -54,7 +54,7 @@ public class Metadata {
         m.addResource(r);
       }
 
-      for (MediaFile mf : tmmMovie.getMediaFiles(MediaFileType.VIDEO)) {
+      for (MediaFile mf : tmmMovie.getMediaFilesView(MediaFileType.VIDEO)) {
         String rel = tmmMovie.getPathNIO().relativize(mf.getFileAsPath()).toString().replaceAll("\\\\", "/");
         String url = "http://" + Upnp.IP + ":" + Upnp.WEBSERVER_PORT + "/upnp/movies/" + tmmMovie.getDbId().toString() + "/"
             + URLEncoder.encode(rel, "UTF-8");
@@ -126,7 +126,7 @@ public class Metadata {
       }
       m.setTitle("S" + lz(ep.getSeason()) + "E" + lz(ep.getEpisode()) + " " + ep.getTitle());
 
-      for (MediaFile mf : ep.getMediaFiles(MediaFileType.VIDEO)) {
+      for (MediaFile mf : ep.getMediaFilesView(MediaFileType.VIDEO)) {
         String rel = show.getPathNIO().relativize(mf.getFileAsPath()).toString().replaceAll("\\\\", "/");
         String url = "http://" + Upnp.IP + ":" + Upnp.WEBSERVER_PORT + "/upnp/tvshows/" + show.getDbId().toString() + "/"
             + URLEncoder.encode(rel, "UTF-8");
@@ -500,7 +500,7 @@ public class MainWindow extends JFrame {
         // send shutdown signal
         TmmTaskManager.getInstance().shutdown();
         // save unsaved settings
-        Globals.settings.saveSettings();
+        Globals.settings.flushSettings();
         // hard kill
         TmmTaskManager.getInstance().shutdownNow();
         // close database connection
@@ -17,10 +17,8 @@ package org.tinymediamanager.ui.movies;
 
 import java.text.RuleBasedCollator;
 import java.util.Comparator;
-import java.util.Locale;
 import java.util.ResourceBundle;
 
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tinymediamanager.core.movie.entities.Movie;
@@ -42,6 +40,7 @@ public class MovieExtendedComparator implements Comparator<Movie> {
   public enum SortColumn {
     TITLE(BUNDLE.getString("metatag.title")), //$NON-NLS-1$ ,
     SORT_TITLE(BUNDLE.getString("metatag.sorttitle")), //$NON-NLS-1$ ,
+    ORIGINAL_TITLE(BUNDLE.getString("metatag.originaltitle")), //$NON-NLS-1$ ,
     YEAR(BUNDLE.getString("metatag.year")), //$NON-NLS-1$ ,
     DATE_ADDED(BUNDLE.getString("metatag.dateadded")), //$NON-NLS-1$ ,
     RELEASE_DATE(BUNDLE.getString("metatag.releasedate")), //$NON-NLS-1$ ,
@@ -139,13 +138,15 @@ public class MovieExtendedComparator implements Comparator<Movie> {
       // try to sort the chosen column
       switch (sortColumn) {
         case TITLE:
-          sortOrder = stringCollator.compare(movie1.getTitleSortable().toLowerCase(Locale.ROOT), movie2.getTitleSortable().toLowerCase(Locale.ROOT));
+          sortOrder = movie1.getTitleSortableCollationKey().compareTo(movie2.getTitleSortableCollationKey());
           break;
 
         case SORT_TITLE:
-          String title1 = StringUtils.isNotBlank(movie1.getSortTitle()) ? movie1.getSortTitle() : movie1.getTitleSortable();
-          String title2 = StringUtils.isNotBlank(movie2.getSortTitle()) ? movie2.getSortTitle() : movie2.getTitleSortable();
-          sortOrder = stringCollator.compare(title1.toLowerCase(Locale.ROOT), title2.toLowerCase(Locale.ROOT));
+          sortOrder = movie1.getSortTitleCollationKey().compareTo(movie2.getSortTitleCollationKey());
+          break;
+
+        case ORIGINAL_TITLE:
+          sortOrder = movie1.getOriginalTitleCollationKey().compareTo(movie2.getOriginalTitleCollationKey());
           break;
 
         case YEAR:
@@ -16,31 +16,32 @@
 package org.tinymediamanager.ui.movies;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
-import org.tinymediamanager.core.MediaFileType;
 import org.tinymediamanager.core.MediaSource;
 import org.tinymediamanager.core.entities.MediaFile;
-import org.tinymediamanager.core.entities.MediaFileAudioStream;
+import org.tinymediamanager.core.movie.MovieFacets;
 import org.tinymediamanager.core.movie.MovieSearchOptions;
 import org.tinymediamanager.core.movie.entities.Movie;
-import org.tinymediamanager.core.movie.entities.MovieActor;
-import org.tinymediamanager.core.movie.entities.MovieProducer;
 import org.tinymediamanager.scraper.entities.Certification;
-import org.tinymediamanager.scraper.entities.MediaGenres;
 
 import ca.odell.glazedlists.matchers.Matcher;
 
 /**
- * The Class MoviesExtendedMatcher.
+ * The Class MoviesExtendedMatcher. The search options are compiled once into a list of filters which are evaluated against the movie and its
+ * precomputed facets
  * 
  * @author Manuel Laggner
  */
 public class MovieExtendedMatcher implements Matcher<Movie> {
-  private Map<MovieSearchOptions, Object> searchOptions;
+  private final List<MovieFilter> filters = new ArrayList<>();
 
   /**
    * Instantiates a new movies extended matcher.
@@ -49,169 +50,241 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
    *          the search options
    */
   public MovieExtendedMatcher(final Map<MovieSearchOptions, Object> searchOptions) {
-    this.searchOptions = searchOptions;
-  }
-
-  @Override
-  public boolean matches(final Movie movie) {
-    // not null
-    if (movie == null) {
-      return false;
-    }
-
     // check duplicates
     if (searchOptions.containsKey(MovieSearchOptions.DUPLICATES)) {
-      if (!movie.isDuplicate()) {
-        return false;
-      }
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return movie.isDuplicate();
+        }
+      });
     }
 
     // check against watched flag
     if (searchOptions.containsKey(MovieSearchOptions.WATCHED)) {
-      boolean watched = (Boolean) searchOptions.get(MovieSearchOptions.WATCHED);
-      boolean result = !(movie.isWatched() ^ watched);
-      if (result == false) {
-        return false;
-      }
+      final boolean watched = (Boolean) searchOptions.get(MovieSearchOptions.WATCHED);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return movie.isWatched() == watched;
+        }
+      });
     }
 
     // check against genre
     if (searchOptions.containsKey(MovieSearchOptions.GENRE)) {
-      MediaGenres genre = (MediaGenres) searchOptions.get(MovieSearchOptions.GENRE);
-      if (!movie.getGenres().contains(genre)) {
-        return false;
-      }
+      final BitSet genre = MovieFacets.getIds(Collections.singletonList(searchOptions.get(MovieSearchOptions.GENRE)));
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return facets.containsAllGenres(genre);
+        }
+      });
     }
 
     // check against certification
     if (searchOptions.containsKey(MovieSearchOptions.CERTIFICATION)) {
-      Certification cert = (Certification) searchOptions.get(MovieSearchOptions.CERTIFICATION);
-      if (cert != movie.getCertification()) {
-        return false;
-      }
+      final Certification cert = (Certification) searchOptions.get(MovieSearchOptions.CERTIFICATION);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return cert == movie.getCertification();
+        }
+      });
     }
 
     // check against cast member
     if (searchOptions.containsKey(MovieSearchOptions.CAST)) {
-      String castSearch = (String) searchOptions.get(MovieSearchOptions.CAST);
-      if (!containsCast(movie, castSearch)) {
-        return false;
-      }
+      final String castSearch = StringUtils.defaultString((String) searchOptions.get(MovieSearchOptions.CAST)).toLowerCase(Locale.ROOT);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return StringUtils.isNotEmpty(castSearch) && facets.containsCast(castSearch);
+        }
+      });
     }
 
     // check against tag
     if (searchOptions.containsKey(MovieSearchOptions.TAG) && searchOptions.get(MovieSearchOptions.TAG) instanceof List) {
-      List<Object> tags = (List) searchOptions.get(MovieSearchOptions.TAG);
-      if (!containsTag(movie, tags)) {
-        return false;
-      }
+      final BitSet tags = MovieFacets.getIds(cleanTags((List<?>) searchOptions.get(MovieSearchOptions.TAG)));
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          // special check for empty tags
+          if (tags.isEmpty()) {
+            return !facets.hasTags();
+          }
+          return facets.containsAllTags(tags);
+        }
+      });
     }
 
     // check against MOVIESET
     if (searchOptions.containsKey(MovieSearchOptions.MOVIESET)) {
-      Boolean isInSet = (Boolean) searchOptions.get(MovieSearchOptions.MOVIESET);
-      if ((movie.getMovieSet() != null) != isInSet) {
-        return false;
-      }
+      final boolean isInSet = (Boolean) searchOptions.get(MovieSearchOptions.MOVIESET);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return (movie.getMovieSet() != null) == isInSet;
+        }
+      });
     }
 
     // check against video format
     if (searchOptions.containsKey(MovieSearchOptions.VIDEO_FORMAT)) {
-      String videoFormat = (String) searchOptions.get(MovieSearchOptions.VIDEO_FORMAT);
-      if (videoFormat == MediaFile.VIDEO_FORMAT_HD || videoFormat == MediaFile.VIDEO_FORMAT_SD) {
-        if (videoFormat == MediaFile.VIDEO_FORMAT_HD && !isVideoHD(movie.getMediaInfoVideoFormat())) {
-          return false;
-        }
-        if (videoFormat == MediaFile.VIDEO_FORMAT_SD && isVideoHD(movie.getMediaInfoVideoFormat())) {
-          return false;
-        }
+      final String videoFormat = (String) searchOptions.get(MovieSearchOptions.VIDEO_FORMAT);
+      if (MediaFile.VIDEO_FORMAT_HD.equals(videoFormat) || MediaFile.VIDEO_FORMAT_SD.equals(videoFormat)) {
+        final boolean hd = MediaFile.VIDEO_FORMAT_HD.equals(videoFormat);
+        filters.add(new MovieFilter() {
+          @Override
+          public boolean accept(Movie movie, MovieFacets facets) {
+            return isVideoHD(facets.getVideoFormat()) == hd;
+          }
+        });
       }
       else {
-        if (videoFormat != movie.getMediaInfoVideoFormat()) {
-          return false;
-        }
+        filters.add(new MovieFilter() {
+          @Override
+          public boolean accept(Movie movie, MovieFacets facets) {
+            return StringUtils.equals(videoFormat, facets.getVideoFormat());
+          }
+        });
       }
     }
 
     // check against video codec
     if (searchOptions.containsKey(MovieSearchOptions.VIDEO_CODEC)) {
-      String videoCodec = (String) searchOptions.get(MovieSearchOptions.VIDEO_CODEC);
-      if (!videoCodec.equals(movie.getMediaInfoVideoCodec())) {
-        return false;
-      }
+      final String videoCodec = (String) searchOptions.get(MovieSearchOptions.VIDEO_CODEC);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return videoCodec.equals(facets.getVideoCodec());
+        }
+      });
     }
 
     // check against audio codec
     if (searchOptions.containsKey(MovieSearchOptions.AUDIO_CODEC)) {
-      String audioCodec = (String) searchOptions.get(MovieSearchOptions.AUDIO_CODEC);
-      if (!containsAudioCodec(movie, audioCodec)) {
-        return false;
-      }
+      final String audioCodec = (String) searchOptions.get(MovieSearchOptions.AUDIO_CODEC);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return facets.containsAudioCodec(audioCodec);
+        }
+      });
     }
 
     // check against datasource
     if (searchOptions.containsKey(MovieSearchOptions.DATASOURCE) && searchOptions.get(MovieSearchOptions.DATASOURCE) instanceof List) {
-      List<Object> datasources = (List) searchOptions.get(MovieSearchOptions.DATASOURCE);
-      if (!datasources.isEmpty() && !datasources.contains(movie.getDataSource())) {
-        return false;
+      final Set<Object> datasources = new HashSet<Object>((List<?>) searchOptions.get(MovieSearchOptions.DATASOURCE));
+      if (!datasources.isEmpty()) {
+        filters.add(new MovieFilter() {
+          @Override
+          public boolean accept(Movie movie, MovieFacets facets) {
+            return datasources.contains(movie.getDataSource());
+          }
+        });
       }
     }
 
     // check against missing metadata
     if (searchOptions.containsKey(MovieSearchOptions.MISSING_METADATA)) {
-      if (movie.isScraped()) {
-        return false;
-      }
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return !movie.isScraped();
+        }
+      });
     }
 
     // check against missing artwork
     if (searchOptions.containsKey(MovieSearchOptions.MISSING_ARTWORK)) {
-      if (movie.getHasImages()) {
-        return false;
-      }
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return !movie.getHasImages();
+        }
+      });
     }
 
     // check against missing subtitles
     if (searchOptions.containsKey(MovieSearchOptions.MISSING_SUBTITLES)) {
-      if (movie.hasSubtitles()) {
-        return false;
-      }
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return !movie.hasSubtitles();
+        }
+      });
     }
 
     // check against new movies
     if (searchOptions.containsKey(MovieSearchOptions.NEW_MOVIES)) {
-      if (!movie.isNewlyAdded()) {
-        return false;
-      }
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return movie.isNewlyAdded();
+        }
+      });
     }
 
     // check against movie source
     if (searchOptions.containsKey(MovieSearchOptions.MEDIA_SOURCE)) {
-      MediaSource mediaSource = (MediaSource) searchOptions.get(MovieSearchOptions.MEDIA_SOURCE);
-      if (movie.getMediaSource() != mediaSource) {
-        return false;
-      }
+      final MediaSource mediaSource = (MediaSource) searchOptions.get(MovieSearchOptions.MEDIA_SOURCE);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return movie.getMediaSource() == mediaSource;
+        }
+      });
     }
 
     // check against year
     if (searchOptions.containsKey(MovieSearchOptions.YEAR)) {
-      Integer year = (Integer) searchOptions.get(MovieSearchOptions.YEAR);
-      if (!movie.getYear().equals(year.toString())) {
-        return false;
-      }
+      final String year = searchOptions.get(MovieSearchOptions.YEAR).toString();
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return movie.getYear().equals(year);
+        }
+      });
     }
 
     // check against 3D
     if (searchOptions.containsKey(MovieSearchOptions.VIDEO_3D)) {
-      if (!movie.isVideoIn3D()) {
-        return false;
-      }
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return facets.isVideoIn3D();
+        }
+      });
     }
 
     // check offline
     if (searchOptions.containsKey(MovieSearchOptions.OFFLINE)) {
-      Boolean offline = (Boolean) searchOptions.get(MovieSearchOptions.OFFLINE);
-      if (movie.isOffline() != offline) {
+      final boolean offline = (Boolean) searchOptions.get(MovieSearchOptions.OFFLINE);
+      filters.add(new MovieFilter() {
+        @Override
+        public boolean accept(Movie movie, MovieFacets facets) {
+          return movie.isOffline() == offline;
+        }
+      });
+    }
+  }
+
+  @Override
+  public boolean matches(final Movie movie) {
+    // not null
+    if (movie == null) {
+      return false;
+    }
+
+    if (filters.isEmpty()) {
+      return true;
+    }
+
+    MovieFacets facets = movie.getFacets();
+    for (MovieFilter filter : filters) {
+      if (!filter.accept(movie, facets)) {
         return false;
       }
     }
@@ -219,7 +292,7 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
     return true;
   }
 
-  private boolean isVideoHD(final String videoFormat) {
+  private static boolean isVideoHD(final String videoFormat) {
     if (MediaFile.VIDEO_FORMAT_720P.equals(videoFormat)) {
       return true;
     }
@@ -235,24 +308,7 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
     return false;
   }
 
-  private boolean containsAudioCodec(final Movie movie, final String codec) {
-    List<MediaFile> videoFiles = movie.getMediaFiles(MediaFileType.VIDEO);
-
-    if (videoFiles.size() == 0) {
-      return false;
-    }
-
-    MediaFile mf = videoFiles.get(0);
-    for (MediaFileAudioStream stream : mf.getAudioStreams()) {
-      if (codec.equals(stream.getCodec())) {
-        return true;
-      }
-    }
-
-    return false;
-  }
-
-  private boolean containsTag(final Movie movie, final List<?> tags) {
+  private static List<String> cleanTags(final List<?> tags) {
     List<String> cleanedTags = new ArrayList<>();
 
     // cleanup the tags list
@@ -261,57 +317,13 @@ public class MovieExtendedMatcher implements Matcher<Movie> {
         cleanedTags.add((String) obj);
       }
     }
-
-    // special check for empty tags
-    if (cleanedTags.isEmpty()) {
-      return movie.getTags().isEmpty();
-    }
-
-    // check against the movie
-    return movie.getTags().containsAll(cleanedTags);
+    return cleanedTags;
   }
 
-  private boolean containsCast(final Movie movie, final String name) {
-    if (StringUtils.isNotEmpty(name)) {
-      Pattern pattern = Pattern.compile("(?i)" + Pattern.quote(name));
-      java.util.regex.Matcher matcher = null;
-
-      // director
-      if (StringUtils.isNotEmpty(movie.getDirector())) {
-        matcher = pattern.matcher(movie.getDirector());
-        if (matcher.find()) {
-          return true;
-        }
-      }
-
-      // writer
-      if (StringUtils.isNotEmpty(movie.getWriter())) {
-        matcher = pattern.matcher(movie.getWriter());
-        if (matcher.find()) {
-          return true;
-        }
-      }
-
-      // actors
-      for (MovieActor cast : movie.getActors()) {
-        if (StringUtils.isNotEmpty(cast.getName())) {
-          matcher = pattern.matcher(cast.getName());
-          if (matcher.find()) {
-            return true;
-          }
-        }
-      }
-
-      // producers
-      for (MovieProducer producer : movie.getProducers()) {
-        if (StringUtils.isNotEmpty(producer.getName())) {
-          matcher = pattern.matcher(producer.getName());
-          if (matcher.find()) {
-            return true;
-          }
-        }
-      }
-    }
-    return false;
+  /**
+   * a single compiled filter criterion
+   */
+  private interface MovieFilter {
+    boolean accept(Movie movie, MovieFacets facets);
   }
 }
@@ -15,7 +15,12 @@
  */
 package org.tinymediamanager.ui.movies;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.tinymediamanager.Globals;
 import org.tinymediamanager.core.movie.MovieModuleManager;
@@ -26,16 +31,27 @@ import ca.odell.glazedlists.matchers.AbstractMatcherEditor;
 import ca.odell.glazedlists.matchers.Matcher;
 
 /**
- * The Class MovieMatcherEditor.
+ * The Class MovieMatcherEditor. The filtering itself is done in a background thread; if the filter changes faster than the movies can be filtered,
+ * only the latest filter will be applied
  * 
  * @author Manuel Laggner
  */
 public class MovieMatcherEditor extends AbstractMatcherEditor<Movie> {
+  private final ExecutorService                                   executor;
+  private final AtomicReference<Map<MovieSearchOptions, Object>> pendingFilter = new AtomicReference<>();
 
   /**
    * Instantiates a new movie matcher editor.
    */
   public MovieMatcherEditor() {
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "movie-filter");
+        t.setDaemon(true);
+        return t;
+      }
+    });
   }
 
   /**
@@ -45,8 +61,20 @@ public class MovieMatcherEditor extends AbstractMatcherEditor<Movie> {
    *          the filter
    */
   public void filterMovies(Map<MovieSearchOptions, Object> filter) {
-    Matcher<Movie> matcher = new MovieExtendedMatcher(filter);
-    fireChanged(matcher);
+    // only schedule a new run if there is no pending one; otherwise the pending run picks up the newest filter
+    if (pendingFilter.getAndSet(new HashMap<>(filter)) == null) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          Map<MovieSearchOptions, Object> newestFilter = pendingFilter.getAndSet(null);
+          if (newestFilter != null) {
+            Matcher<Movie> matcher = new MovieExtendedMatcher(newestFilter);
+            fireChanged(matcher);
+          }
+        }
+      });
+    }
+
     if (MovieModuleManager.MOVIE_SETTINGS.isStoreUiFilters()) {
       MovieModuleManager.MOVIE_SETTINGS.setUiFilters(filter);
       Globals.settings.saveSettings();
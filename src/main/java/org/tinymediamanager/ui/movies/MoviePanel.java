@@ -110,6 +110,7 @@ import com.jgoodies.forms.layout.ColumnSpec;
 import com.jgoodies.forms.layout.FormLayout;
 import com.jgoodies.forms.layout.RowSpec;
 
+import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.FilterList;
 import ca.odell.glazedlists.ObservableElementList;
 import ca.odell.glazedlists.SortedList;
@@ -312,8 +313,10 @@ public class MoviePanel extends JPanel {
     MovieMatcherEditor movieMatcherEditor = new MovieMatcherEditor();
     FilterList<Movie> extendedFilteredMovies = new FilterList<>(sortedMovies, movieMatcherEditor);
     textFilteredMovies = new FilterList<>(extendedFilteredMovies, textMatcherEditor);
-    movieSelectionModel = new MovieSelectionModel(sortedMovies, textFilteredMovies, movieMatcherEditor);
-    movieTableModel = new DefaultEventTableModel<>(GlazedListsSwing.swingThreadProxyList(textFilteredMovies), new MovieTableFormat());
+    // the extended filter runs in a background thread; table and selection have to share one EDT proxy
+    EventList<Movie> swingFilteredMovies = GlazedListsSwing.swingThreadProxyList(textFilteredMovies);
+    movieSelectionModel = new MovieSelectionModel(sortedMovies, swingFilteredMovies, movieMatcherEditor);
+    movieTableModel = new DefaultEventTableModel<>(swingFilteredMovies, new MovieTableFormat());
     table = new ZebraJTable(movieTableModel);
 
     movieTableModel.addTableModelListener(new TableModelListener() {
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StartupOrchestratorTest {
+
+  @Test
+  public void testDependencies() throws Exception {
+    final List<String> executed = new CopyOnWriteArrayList<>();
+    // a and b must run concurrently, otherwise the latch would never be released
+    final CountDownLatch latch = new CountDownLatch(2);
+
+    StartupOrchestrator orchestrator = new StartupOrchestrator(null);
+    orchestrator.addPhase("a", new StartupOrchestrator.PhaseTask() {
+      @Override
+      public void run() throws Exception {
+        latch.countDown();
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        executed.add("a");
+      }
+    });
+    orchestrator.addPhase("b", new StartupOrchestrator.PhaseTask() {
+      @Override
+      public void run() throws Exception {
+        latch.countDown();
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        executed.add("b");
+      }
+    });
+    orchestrator.addPhase("c", new StartupOrchestrator.PhaseTask() {
+      @Override
+      public void run() throws Exception {
+        executed.add("c");
+      }
+    }, "a", "b");
+    orchestrator.run();
+
+    assertThat(executed).hasSize(3);
+    assertThat(executed.get(2)).isEqualTo("c");
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    final List<String> executed = new CopyOnWriteArrayList<>();
+
+    StartupOrchestrator orchestrator = new StartupOrchestrator(null);
+    orchestrator.addPhase("a", new StartupOrchestrator.PhaseTask() {
+      @Override
+      public void run() throws Exception {
+        throw new IOException("failed");
+      }
+    });
+    orchestrator.addPhase("b", new StartupOrchestrator.PhaseTask() {
+      @Override
+      public void run() throws Exception {
+        executed.add("b");
+      }
+    }, "a");
+
+    try {
+      orchestrator.run();
+      fail("exception expected");
+    }
+    catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("failed");
+    }
+    // dependent phases must not be executed
+    assertThat(executed).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownDependency() {
+    new StartupOrchestrator(null).addPhase("a", new StartupOrchestrator.PhaseTask() {
+      @Override
+      public void run() throws Exception {
+      }
+    }, "b");
+  }
+}
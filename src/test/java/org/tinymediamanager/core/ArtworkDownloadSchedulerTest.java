@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+public class ArtworkDownloadSchedulerTest {
+
+  @Test
+  public void testWriteToSeveralDestinations() throws Exception {
+    Path folder = Paths.get("target", "test", "artworkscheduler");
+    Utils.deleteDirectoryRecursive(folder);
+    Files.createDirectories(folder);
+
+    String url = "http://image.tmdb.org/t/p/original/poster.jpg";
+    byte[] bytes = new byte[] { 1, 2, 3, 4, 5 };
+    ArtworkDownloadScheduler scheduler = ArtworkDownloadScheduler.getInstance();
+
+    Path poster = folder.resolve("poster.jpg");
+    Path folderJpg = folder.resolve("folder.jpg");
+    scheduler.write(url, bytes, poster);
+    scheduler.write(url, bytes, folderJpg);
+    assertThat(Files.readAllBytes(poster)).isEqualTo(bytes);
+    assertThat(Files.readAllBytes(folderJpg)).isEqualTo(bytes);
+
+    // the destinations are independent files; an in-place change of one must not change the other
+    Files.write(folderJpg, new byte[] { 8 });
+    assertThat(Files.readAllBytes(poster)).isEqualTo(bytes);
+
+    // rewriting a destination must not change the other file
+    scheduler.write("http://image.tmdb.org/t/p/original/other.jpg", new byte[] { 9 }, folderJpg);
+    assertThat(Files.readAllBytes(poster)).isEqualTo(bytes);
+    assertThat(Files.readAllBytes(folderJpg)).isEqualTo(new byte[] { 9 });
+
+    // a changed source file is not reused
+    Files.write(poster, new byte[] { 7, 7, 7, 7, 7 });
+    Files.setLastModifiedTime(poster, FileTime.fromMillis(1000000));
+    Path moviePoster = folder.resolve("movie-poster.jpg");
+    scheduler.write(url, bytes, moviePoster);
+    assertThat(Files.readAllBytes(moviePoster)).isEqualTo(bytes);
+  }
+}
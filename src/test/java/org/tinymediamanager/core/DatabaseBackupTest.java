@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.UUID;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+
+public class DatabaseBackupTest extends BasicTest {
+
+  @Test
+  public void testSnapshotAndRestore() throws Exception {
+    Path folder = Paths.get("target", "test", "databasebackup");
+    Utils.deleteDirectoryRecursive(folder);
+    Files.createDirectories(folder);
+
+    Path db = folder.resolve("test.db");
+    Path backupFolder = folder.resolve("backup");
+    UUID id1 = UUID.randomUUID();
+    UUID id2 = UUID.randomUUID();
+
+    MVStore mvStore = new MVStore.Builder().fileName(db.toString()).open();
+    MVMap<UUID, String> map = mvStore.openMap("movies");
+    map.put(id1, "{\"title\":\"Aladdin\"}");
+    map.put(id2, "{\"title\":\"Pocahontas\",\"plot\":\"line1\\nline2\"}");
+    mvStore.commit();
+
+    Path snapshot = DatabaseBackup.createSnapshot(mvStore, db, backupFolder);
+    assertThat(snapshot).isNotNull();
+    assertThat(DatabaseBackup.getSnapshotDate(snapshot)).isNotNull();
+
+    // nothing changed -> no new snapshot
+    assertThat(DatabaseBackup.createSnapshot(mvStore, db, backupFolder)).isNull();
+    assertThat(DatabaseBackup.getSnapshots(db, backupFolder)).hasSize(1);
+
+    // change the database and restore the snapshot
+    map.remove(id1);
+    mvStore.commit();
+    mvStore.close();
+
+    assertThat(DatabaseBackup.restore(db, backupFolder, new Date())).isTrue();
+
+    mvStore = new MVStore.Builder().fileName(db.toString()).open();
+    map = mvStore.openMap("movies");
+    assertThat(map.size()).isEqualTo(2);
+    assertThat(map.get(id1)).isEqualTo("{\"title\":\"Aladdin\"}");
+    assertThat(map.get(id2)).isEqualTo("{\"title\":\"Pocahontas\",\"plot\":\"line1\\nline2\"}");
+    mvStore.close();
+
+    // no snapshot before the first one
+    assertThat(DatabaseBackup.restore(db, backupFolder, new Date(0))).isFalse();
+  }
+
+  @Test
+  public void testSnapshotAndRestoreStringKeys() throws Exception {
+    Path folder = Paths.get("target", "test", "databasebackup3");
+    Utils.deleteDirectoryRecursive(folder);
+    Files.createDirectories(folder);
+
+    Path db = folder.resolve("movies.db");
+    Path backupFolder = folder.resolve("backup");
+    UUID id = UUID.randomUUID();
+
+    // like the movie database: UUID keyed entities and the String keyed movie collection cache
+    MVStore mvStore = new MVStore.Builder().fileName(db.toString()).open();
+    MVMap<UUID, String> movieMap = mvStore.openMap("movies");
+    movieMap.put(id, "{\"title\":\"Aladdin\"}");
+    MVMap<String, String> collectionMap = mvStore.openMap("movieCollections");
+    collectionMap.put("tmdb:812", "{\"name\":\"Aladdin Collection\"}");
+    collectionMap.put("imdb:tt0103639", "{\"name\":\"Aladdin Collection\"}");
+    mvStore.openMap("movieSets");
+    mvStore.commit();
+
+    assertThat(DatabaseBackup.createSnapshot(mvStore, db, backupFolder)).isNotNull();
+    mvStore.close();
+
+    assertThat(DatabaseBackup.restore(db, backupFolder, new Date())).isTrue();
+
+    mvStore = new MVStore.Builder().fileName(db.toString()).open();
+    movieMap = mvStore.openMap("movies");
+    collectionMap = mvStore.openMap("movieCollections");
+    assertThat(movieMap.size()).isEqualTo(1);
+    assertThat(movieMap.get(id)).isEqualTo("{\"title\":\"Aladdin\"}");
+    assertThat(collectionMap.size()).isEqualTo(2);
+    assertThat(collectionMap.get("tmdb:812")).isEqualTo("{\"name\":\"Aladdin Collection\"}");
+    assertThat(collectionMap.get("imdb:tt0103639")).isEqualTo("{\"name\":\"Aladdin Collection\"}");
+    assertThat(mvStore.getMapNames()).contains("movieSets");
+    mvStore.close();
+  }
+
+  @Test
+  public void testDeleteOldSnapshots() throws Exception {
+    Path folder = Paths.get("target", "test", "databasebackup2");
+    Utils.deleteDirectoryRecursive(folder);
+    Path backupFolder = folder.resolve("backup");
+    Files.createDirectories(backupFolder);
+    Path db = folder.resolve("test.db");
+
+    // backups of older versions
+    Files.createFile(backupFolder.resolve("test.db.2018-01-01.zip"));
+    Files.createFile(backupFolder.resolve("test.db.2018-01-02"));
+    // snapshots
+    Files.createFile(backupFolder.resolve("test.db.2018-02-01_10-00-00.snapshot.zip"));
+    Files.createFile(backupFolder.resolve("test.db.2018-02-02_10-00-00.snapshot.zip"));
+    // other files
+    Files.createFile(backupFolder.resolve("other.db.2018-01-01.zip"));
+
+    // the old backups are deleted first
+    DatabaseBackup.deleteOldSnapshots(db, backupFolder, 3);
+    assertThat(Files.exists(backupFolder.resolve("test.db.2018-01-01.zip"))).isFalse();
+    assertThat(Files.exists(backupFolder.resolve("test.db.2018-01-02"))).isTrue();
+    assertThat(DatabaseBackup.getSnapshots(db, backupFolder)).hasSize(2);
+
+    DatabaseBackup.deleteOldSnapshots(db, backupFolder, 1);
+    assertThat(Files.exists(backupFolder.resolve("test.db.2018-01-02"))).isFalse();
+    assertThat(DatabaseBackup.getSnapshots(db, backupFolder)).containsExactly(backupFolder.resolve("test.db.2018-02-02_10-00-00.snapshot.zip"));
+    assertThat(Files.exists(backupFolder.resolve("other.db.2018-01-01.zip"))).isTrue();
+  }
+}
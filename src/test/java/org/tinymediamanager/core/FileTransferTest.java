@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+
+/**
+ * Tests for the (resumable) FileTransfer
+ *
+ * @author Manuel Laggner
+ */
+public class FileTransferTest extends BasicTest {
+  private Path folder;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = Paths.get("target/test-classes/filetransfer").toAbsolutePath();
+    FileUtils.deleteQuietly(folder.toFile());
+    Files.createDirectories(folder);
+  }
+
+  @Test
+  public void testMoveFile() throws Exception {
+    byte[] content = createContent(3 * 1024 * 1024);
+    Path source = folder.resolve("movie.mkv");
+    Path destination = folder.resolve("moved.mkv");
+    Files.write(source, content);
+
+    new FileTransfer(true).moveFile(source, destination);
+
+    assertThat(Files.exists(source)).isFalse();
+    assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+    assertThat(Files.exists(folder.resolve("moved.mkv" + FileTransfer.PART_SUFFIX))).isFalse();
+    assertThat(Files.exists(folder.resolve("moved.mkv" + FileTransfer.STATE_SUFFIX))).isFalse();
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    byte[] content = createContent(3 * 1024 * 1024);
+    Path source = folder.resolve("movie.mkv");
+    Path destination = folder.resolve("moved.mkv");
+    Files.write(source, content);
+
+    // an interrupted transfer: 1MB has been synced, the rest of the part file is garbage
+    byte[] part = Arrays.copyOf(content, 2 * 1024 * 1024);
+    Arrays.fill(part, 1024 * 1024, part.length, (byte) 0);
+    Files.write(folder.resolve("moved.mkv" + FileTransfer.PART_SUFFIX), part);
+    writeState(folder.resolve("moved.mkv" + FileTransfer.STATE_SUFFIX), source, content.length, 1024 * 1024);
+
+    new FileTransfer(true).moveFile(source, destination);
+    assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+  }
+
+  @Test
+  public void testNoResumeForChangedSource() throws Exception {
+    byte[] content = createContent(2 * 1024 * 1024);
+    Path source = folder.resolve("movie.mkv");
+    Path destination = folder.resolve("moved.mkv");
+    Files.write(source, content);
+
+    // the state belongs to another version of the source
+    Files.write(folder.resolve("moved.mkv" + FileTransfer.PART_SUFFIX), new byte[1024 * 1024]);
+    writeState(folder.resolve("moved.mkv" + FileTransfer.STATE_SUFFIX), source, content.length + 1, 1024 * 1024);
+
+    new FileTransfer(false).moveFile(source, destination);
+    assertThat(Files.readAllBytes(destination)).isEqualTo(content);
+  }
+
+  @Test
+  public void testMoveDirectory() throws Exception {
+    Path source = folder.resolve("movie");
+    Path destination = folder.resolve("other/movie");
+    Files.createDirectories(source.resolve("extras"));
+    byte[] content = createContent(1024 * 1024);
+    Files.write(source.resolve("movie.mkv"), content);
+    Files.write(source.resolve("extras/trailer.mkv"), content);
+
+    // the movie file has already been moved in an interrupted run
+    Files.createDirectories(destination);
+    Files.write(destination.resolve(FileTransfer.DIRECTORY_MARKER), source.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+    Files.write(destination.resolve("movie.mkv"), content);
+    assertThat(FileTransfer.isUnfinishedTransfer(source, destination)).isTrue();
+    assertThat(FileTransfer.isUnfinishedTransfer(folder.resolve("other/source"), destination)).isFalse();
+
+    FileTransfer.move(source, destination, true);
+
+    assertThat(Files.exists(source)).isFalse();
+    assertThat(Files.readAllBytes(destination.resolve("movie.mkv"))).isEqualTo(content);
+    assertThat(Files.readAllBytes(destination.resolve("extras/trailer.mkv"))).isEqualTo(content);
+    assertThat(FileTransfer.isUnfinishedTransfer(source, destination)).isFalse();
+  }
+
+  @Test
+  public void testMoveDirectoryForeignMarker() throws Exception {
+    Path source = folder.resolve("movie2");
+    Path destination = folder.resolve("other/movie2");
+    Files.createDirectories(source);
+    Files.write(source.resolve("movie.mkv"), createContent(1024));
+
+    // a marker of the transfer of another folder must not merge the source into the destination
+    Files.createDirectories(destination);
+    Files.write(destination.resolve(FileTransfer.DIRECTORY_MARKER), "/somewhere/else".getBytes(StandardCharsets.UTF_8));
+
+    try {
+      FileTransfer.move(source, destination, false);
+      fail("foreign transfer marker not detected");
+    }
+    catch (IOException expected) {
+      // expected
+    }
+    assertThat(Files.exists(source.resolve("movie.mkv"))).isTrue();
+    assertThat(Files.exists(destination.resolve("movie.mkv"))).isFalse();
+  }
+
+  @Test
+  public void testMoveDirectoryChecksumOfExistingFile() throws Exception {
+    Path source = folder.resolve("movie3");
+    Path destination = folder.resolve("other/movie3");
+    Files.createDirectories(source);
+    byte[] content = createContent(4096);
+    Files.write(source.resolve("movie.mkv"), content);
+
+    // a file of the same size but with another content is at the destination
+    byte[] other = Arrays.copyOf(content, content.length);
+    other[100]++;
+    Files.createDirectories(destination);
+    Files.write(destination.resolve(FileTransfer.DIRECTORY_MARKER), source.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+    Files.write(destination.resolve("movie.mkv"), other);
+
+    try {
+      FileTransfer.move(source, destination, true);
+      fail("checksum mismatch not detected");
+    }
+    catch (IOException expected) {
+      // expected
+    }
+    assertThat(Files.readAllBytes(source.resolve("movie.mkv"))).isEqualTo(content);
+  }
+
+  private byte[] createContent(int size) {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    return content;
+  }
+
+  private void writeState(Path state, Path source, long size, long offset) throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("source", source.toAbsolutePath().toString());
+    properties.setProperty("size", Long.toString(size));
+    properties.setProperty("modified", Long.toString(Files.getLastModifiedTime(source).toMillis()));
+    properties.setProperty("offset", Long.toString(offset));
+    try (OutputStream os = Files.newOutputStream(state)) {
+      properties.store(os, null);
+    }
+  }
+}
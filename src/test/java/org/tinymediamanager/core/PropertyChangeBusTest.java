@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+public class PropertyChangeBusTest {
+
+  @Test
+  public void testCoreListener() {
+    Bean bean = new Bean();
+    EventCollector core = new EventCollector();
+    bean.addCorePropertyChangeListener(core);
+
+    bean.setValue(1);
+    bean.setValue(2);
+
+    // core listeners are called synchronously
+    assertThat(core.events).hasSize(2);
+    assertThat(core.events.get(1).getNewValue()).isEqualTo(2);
+  }
+
+  @Test
+  public void testCoalescing() throws Exception {
+    Bean bean = new Bean();
+    EventCollector ui = new EventCollector();
+    bean.addPropertyChangeListener(ui);
+
+    for (int i = 1; i <= 100; i++) {
+      bean.setValue(i);
+    }
+
+    // deliver the pending events
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        PropertyChangeBus.flush();
+      }
+    });
+
+    // the events are coalesced per frame; the delivered events still cover the whole change
+    assertThat(ui.events.size()).isBetween(1, 10);
+    assertThat(ui.events.get(0).getOldValue()).isEqualTo(0);
+    assertThat(ui.events.get(ui.events.size() - 1).getNewValue()).isEqualTo(100);
+  }
+
+  @Test
+  public void testDeltaEvents() throws Exception {
+    Bean bean = new Bean();
+    EventCollector ui = new EventCollector();
+    bean.addPropertyChangeListener(ui);
+
+    // fired off the EDT within one frame
+    bean.addEpisode("episode 1");
+    bean.setValue(1);
+    bean.addEpisode("episode 2");
+    bean.setValue(2);
+
+    SwingUtilities.invokeAndWait(new Runnable() {
+      @Override
+      public void run() {
+        PropertyChangeBus.flush();
+      }
+    });
+
+    // both added episodes arrive (in order), the value changes are still coalesced
+    List<Object> episodes = new ArrayList<>();
+    int valueEvents = 0;
+    for (PropertyChangeEvent evt : ui.events) {
+      if (Constants.ADDED_EPISODE.equals(evt.getPropertyName())) {
+        episodes.add(evt.getNewValue());
+      }
+      else {
+        valueEvents++;
+      }
+    }
+    assertThat(episodes).containsExactly("episode 1", "episode 2");
+    assertThat(valueEvents).isEqualTo(1);
+  }
+
+  @Test
+  public void testBulkUpdate() {
+    Bean bean = new Bean();
+    EventCollector core = new EventCollector();
+    bean.addCorePropertyChangeListener(core);
+
+    try (PropertyChangeBus.BulkUpdate bulkUpdate = PropertyChangeBus.beginBulkUpdate()) {
+      bean.setValue(1);
+      try (PropertyChangeBus.BulkUpdate nested = PropertyChangeBus.beginBulkUpdate()) {
+        bean.setValue(2);
+      }
+      bean.setName("test");
+      assertThat(core.events).isEmpty();
+    }
+
+    assertThat(PropertyChangeBus.isBulkUpdate()).isFalse();
+    assertThat(core.events).hasSize(2);
+    assertThat(core.events.get(0).getPropertyName()).isEqualTo("value");
+    assertThat(core.events.get(0).getNewValue()).isEqualTo(2);
+    assertThat(core.events.get(1).getPropertyName()).isEqualTo("name");
+  }
+
+  private static class EventCollector implements PropertyChangeListener {
+    private final List<PropertyChangeEvent> events = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+      events.add(evt);
+    }
+  }
+
+  private static class Bean extends AbstractModelObject {
+    private int    value = 0;
+    private String name  = "";
+
+    public void setValue(int newValue) {
+      int oldValue = this.value;
+      this.value = newValue;
+      firePropertyChange("value", oldValue, newValue);
+    }
+
+    public void addEpisode(String episode) {
+      firePropertyChange(Constants.ADDED_EPISODE, null, episode);
+    }
+
+    public void setName(String newValue) {
+      String oldValue = this.name;
+      this.name = newValue;
+      firePropertyChange("name", oldValue, newValue);
+    }
+  }
+}
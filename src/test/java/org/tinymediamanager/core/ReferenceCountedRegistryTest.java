@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ReferenceCountedRegistryTest {
+
+  @Test
+  public void testReferenceCounting() {
+    List<String> values = new ArrayList<>();
+    final AtomicInteger changes = new AtomicInteger();
+    ReferenceCountedRegistry<String> registry = new ReferenceCountedRegistry<>(values, new Runnable() {
+      @Override
+      public void run() {
+        changes.incrementAndGet();
+      }
+    });
+
+    Object owner1 = new Object();
+    Object owner2 = new Object();
+
+    registry.update(owner1, Arrays.asList("a", "b"));
+    registry.update(owner2, Arrays.asList("b", "c"));
+    assertThat(values).containsExactly("a", "b", "c");
+    assertThat(registry.getCount("b")).isEqualTo(2);
+    assertThat(changes.get()).isEqualTo(2);
+
+    // same values again -> no change
+    registry.update(owner1, Arrays.asList("b", "a"));
+    assertThat(changes.get()).isEqualTo(2);
+
+    // "a" is not used any more
+    registry.update(owner1, Collections.singletonList("b"));
+    assertThat(values).containsExactly("b", "c");
+    assertThat(registry.getCount("a")).isEqualTo(0);
+
+    // "b" is still used by owner 2
+    registry.remove(owner1);
+    assertThat(values).containsExactly("b", "c");
+    registry.remove(owner2);
+    assertThat(values).isEmpty();
+  }
+
+  @Test
+  public void testBatch() {
+    List<String> values = new ArrayList<>();
+    final AtomicInteger changes = new AtomicInteger();
+    ReferenceCountedRegistry<String> registry = new ReferenceCountedRegistry<>(values, new Runnable() {
+      @Override
+      public void run() {
+        changes.incrementAndGet();
+      }
+    });
+
+    registry.beginBatch();
+    for (int i = 0; i < 100; i++) {
+      registry.update(new Object(), Arrays.asList("tag" + (i % 10)));
+    }
+    assertThat(values).isEmpty();
+    registry.endBatch();
+
+    assertThat(values).hasSize(10);
+    assertThat(changes.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testConcurrentUpdatesOfOneOwner() throws Exception {
+    final ReferenceCountedRegistry<String> registry = new ReferenceCountedRegistry<>(null, null);
+    final Object owner = new Object();
+
+    // concurrent updates of the same owner must not lose or duplicate a count
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final String value = "value" + i;
+      threads.add(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            registry.update(owner, Arrays.asList("shared", value));
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(registry.getCount("shared")).isEqualTo(1);
+    int used = 0;
+    for (int i = 0; i < 4; i++) {
+      used += registry.getCount("value" + i);
+    }
+    assertThat(used).isEqualTo(1);
+
+    registry.remove(owner);
+    assertThat(registry.getCount("shared")).isEqualTo(0);
+  }
+
+  @Test
+  public void testCountOnly() {
+    // without a published list only the reference counts are maintained
+    ReferenceCountedRegistry<String> registry = new ReferenceCountedRegistry<>(null, null);
+    Object owner1 = new Object();
+    Object owner2 = new Object();
+
+    registry.update(owner1, Arrays.asList("a", "b"));
+    registry.update(owner2, Arrays.asList("b"));
+    assertThat(registry.getCount("a")).isEqualTo(1);
+    assertThat(registry.getCount("b")).isEqualTo(2);
+
+    registry.remove(owner1);
+    assertThat(registry.getCount("a")).isEqualTo(0);
+    assertThat(registry.getCount("b")).isEqualTo(1);
+  }
+}
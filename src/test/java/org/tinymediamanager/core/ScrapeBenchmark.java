@@ -0,0 +1,227 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.core.movie.MovieList;
+import org.tinymediamanager.core.movie.MovieModuleManager;
+import org.tinymediamanager.core.movie.MovieScraperMetadataConfig;
+import org.tinymediamanager.core.movie.MovieSearchAndScrapeOptions;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.tasks.MovieScrapeTask;
+import org.tinymediamanager.core.threading.TmmTask;
+import org.tinymediamanager.core.tvshow.TvShowList;
+import org.tinymediamanager.core.tvshow.TvShowModuleManager;
+import org.tinymediamanager.core.tvshow.TvShowScraperMetadataConfig;
+import org.tinymediamanager.core.tvshow.TvShowSearchAndScrapeOptions;
+import org.tinymediamanager.core.tvshow.entities.TvShow;
+import org.tinymediamanager.core.tvshow.tasks.TvShowScrapeTask;
+import org.tinymediamanager.scraper.MediaScraper;
+import org.tinymediamanager.scraper.ScraperType;
+import org.tinymediamanager.scraper.offline.OfflineMediaProvider;
+import org.tinymediamanager.scraper.util.PluginManager;
+
+/**
+ * Benchmark for the scraping path: runs the MovieScrapeTask and the TvShowScrapeTask over thousands of synthetic movies/TV shows against the offline
+ * stand-in scrapers (recorded responses with simulated latency and errors) and reports the throughput and the percentiles of the scrape time per
+ * item (first to last scraper call of the item).<br>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.tinymediamanager.core.ScrapeBenchmark
+ * -Dexec.args="&lt;items&gt; &lt;min latency ms&gt; &lt;max latency ms&gt; &lt;error rate&gt;"
+ *
+ * @author Manuel Laggner
+ */
+public class ScrapeBenchmark {
+  private static final Map<String, long[]> CALLS = new ConcurrentHashMap<>();
+
+  public static void main(String[] args) throws Exception {
+    int items = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    long minLatency = args.length > 1 ? Long.parseLong(args[1]) : 20;
+    long maxLatency = args.length > 2 ? Long.parseLong(args[2]) : 80;
+    double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+
+    // no dialogs for unmatched items
+    System.setProperty("java.awt.headless", "true");
+
+    Path folder = Paths.get("target/testdata/" + ScrapeBenchmark.class.getName()).toAbsolutePath();
+    FileUtils.deleteQuietly(folder.toFile());
+    Settings.getInstance(folder.toString());
+
+    // measure the scraping path only - no artwork downloads, renaming or syncing
+    MovieModuleManager.MOVIE_SETTINGS.clearMovieNfoFilenames();
+    MovieModuleManager.MOVIE_SETTINGS.clearMoviePosterFilenames();
+    MovieModuleManager.MOVIE_SETTINGS.clearMovieFanartFilenames();
+    MovieModuleManager.MOVIE_SETTINGS.setImageExtraThumbs(false);
+    MovieModuleManager.MOVIE_SETTINGS.setImageExtraFanart(false);
+    MovieModuleManager.MOVIE_SETTINGS.setWriteActorImages(false);
+    MovieModuleManager.MOVIE_SETTINGS.setMovieRenameAfterScrape(false);
+    MovieModuleManager.MOVIE_SETTINGS.setSyncTrakt(false);
+    TvShowModuleManager.SETTINGS.setSyncTrakt(false);
+
+    TmmModuleManager.getInstance().startUp();
+    MovieModuleManager.getInstance().startUp();
+    TvShowModuleManager.getInstance().startUp();
+    PluginManager.getInstance();
+    PluginManager.loadClasspathPlugins();
+
+    Path responses = folder.resolve("responses");
+    recordResponses(responses, items);
+    OfflineMediaProvider.loadResponses(responses);
+    OfflineMediaProvider.setLatency(minLatency, maxLatency);
+    OfflineMediaProvider.setErrorRate(errorRate);
+    OfflineMediaProvider.setCallListener(new OfflineMediaProvider.CallListener() {
+      @Override
+      public void called(String id, long startNanos, long endNanos) {
+        synchronized (CALLS) {
+          long[] times = CALLS.get(id);
+          if (times == null) {
+            CALLS.put(id, new long[] { startNanos, endNanos });
+          }
+          else {
+            times[0] = Math.min(times[0], startNanos);
+            times[1] = Math.max(times[1], endNanos);
+          }
+        }
+      }
+    });
+
+    System.out.println(String.format(Locale.ROOT, "%d items per type, latency %d-%d ms, error rate %.2f", items, minLatency, maxLatency, errorRate));
+    benchmarkMovies(folder.resolve("movies"), items);
+    benchmarkTvShows(folder.resolve("tvshows"), items);
+
+    TvShowModuleManager.getInstance().shutDown();
+    MovieModuleManager.getInstance().shutDown();
+    TmmModuleManager.getInstance().shutDown();
+    System.exit(0);
+  }
+
+  /**
+   * record the synthetic responses: every item is found by its title
+   */
+  private static void recordResponses(Path responses, int items) throws Exception {
+    for (int i = 0; i < items; i++) {
+      Properties movie = createResponse("Movie " + i, i);
+      movie.setProperty("poster", "http://localhost/offline/poster/m" + i + ".jpg");
+      movie.setProperty("fanart", "http://localhost/offline/fanart/m" + i + ".jpg");
+      OfflineMediaProvider.saveResponse(responses, "movie", "m" + i, movie);
+
+      // no artwork for TV shows - it would be downloaded
+      OfflineMediaProvider.saveResponse(responses, "tvshow", "t" + i, createResponse("TV Show " + i, i));
+    }
+  }
+
+  private static Properties createResponse(String title, int i) {
+    Properties response = new Properties();
+    response.setProperty("title", title);
+    response.setProperty("originalTitle", title);
+    response.setProperty("year", Integer.toString(1950 + i % 70));
+    response.setProperty("plot", "The plot of " + title + ". " + StringUtils.repeat("Lorem ipsum dolor sit amet. ", 10));
+    response.setProperty("rating", Float.toString((i % 100) / 10f));
+    response.setProperty("votes", Integer.toString(i * 7));
+    response.setProperty("runtime", Integer.toString(80 + i % 60));
+    response.setProperty("imdbId", String.format(Locale.ROOT, "tt%07d", i + 1));
+    response.setProperty("tmdbId", Integer.toString(100000 + i));
+    return response;
+  }
+
+  private static void benchmarkMovies(Path dataSource, int items) throws Exception {
+    List<Movie> movies = new ArrayList<>();
+    for (int i = 0; i < items; i++) {
+      Movie movie = new Movie();
+      movie.setTitle("Movie " + i);
+      movie.setDataSource(dataSource.toString());
+      movie.setPath(dataSource.resolve("Movie " + i).toString());
+      Files.createDirectories(movie.getPathNIO());
+      MovieList.getInstance().addMovie(movie);
+      movies.add(movie);
+    }
+
+    MovieScraperMetadataConfig config = new MovieScraperMetadataConfig();
+    config.setTrailer(false);
+    MovieSearchAndScrapeOptions options = new MovieSearchAndScrapeOptions();
+    options.setScraperMetadataConfig(config);
+    options.setMetadataScraper(MediaScraper.getMediaScraperById(OfflineMediaProvider.ID, ScraperType.MOVIE));
+    options.addArtworkScraper(MediaScraper.getMediaScraperById(OfflineMediaProvider.ID, ScraperType.MOVIE_ARTWORK));
+
+    run("movies", new MovieScrapeTask(movies, true, options), items);
+  }
+
+  private static void benchmarkTvShows(Path dataSource, int items) throws Exception {
+    List<TvShow> tvShows = new ArrayList<>();
+    for (int i = 0; i < items; i++) {
+      TvShow tvShow = new TvShow();
+      tvShow.setTitle("TV Show " + i);
+      tvShow.setDataSource(dataSource.toString());
+      tvShow.setPath(dataSource.resolve("TV Show " + i).toString());
+      Files.createDirectories(tvShow.getPathNIO());
+      TvShowList.getInstance().addTvShow(tvShow);
+      tvShows.add(tvShow);
+    }
+
+    TvShowScraperMetadataConfig config = new TvShowScraperMetadataConfig();
+    config.setEpisodes(false);
+    TvShowSearchAndScrapeOptions options = new TvShowSearchAndScrapeOptions();
+    options.setScraperMetadataConfig(config);
+    options.setMetadataScraper(MediaScraper.getMediaScraperById(OfflineMediaProvider.ID, ScraperType.TV_SHOW));
+    options.addArtworkScraper(MediaScraper.getMediaScraperById(OfflineMediaProvider.ID, ScraperType.TV_SHOW_ARTWORK));
+
+    run("TV shows", new TvShowScrapeTask(tvShows, true, options), items);
+  }
+
+  private static void run(String name, TmmTask task, int items) {
+    CALLS.clear();
+    OfflineMediaProvider.resetStatistics();
+
+    long start = System.nanoTime();
+    task.run();
+    long duration = System.nanoTime() - start;
+
+    long[] times;
+    synchronized (CALLS) {
+      times = new long[CALLS.size()];
+      int i = 0;
+      for (long[] call : CALLS.values()) {
+        times[i++] = call[1] - call[0];
+      }
+    }
+    Arrays.sort(times);
+
+    System.out.println(String.format(Locale.ROOT,
+        "%-9s %6d items in %7.1f s = %7.1f items/s | %6d calls, %4d errors | per item p50 %5d ms, p90 %5d ms, p99 %5d ms, max %5d ms", name, items,
+        duration / 1e9, items / (duration / 1e9), OfflineMediaProvider.getCallCount(), OfflineMediaProvider.getErrorCount(), percentile(times, 50),
+        percentile(times, 90), percentile(times, 99), percentile(times, 100)));
+  }
+
+  private static long percentile(long[] sortedTimes, int percentile) {
+    if (sortedTimes.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100d * sortedTimes.length) - 1;
+    return TimeUnit.NANOSECONDS.toMillis(sortedTimes[Math.max(0, Math.min(index, sortedTimes.length - 1))]);
+  }
+}
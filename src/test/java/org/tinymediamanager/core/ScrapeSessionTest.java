@@ -0,0 +1,172 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+
+/**
+ * Tests for the response cache of the ScrapeSession
+ *
+ * @author Manuel Laggner
+ */
+public class ScrapeSessionTest extends BasicTest {
+  private Path          cacheDir;
+  private AtomicInteger calls;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = Paths.get("target/test-classes/scrapesession").toAbsolutePath();
+    FileUtils.deleteQuietly(cacheDir.toFile());
+    calls = new AtomicInteger();
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    final ScrapeSession session = new ScrapeSession(null, 0);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<String>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return session.get("tmdb", "metadata|tmdb=603", new ScrapeSession.Request<String>() {
+            @Override
+            public String execute() throws Exception {
+              calls.incrementAndGet();
+              Thread.sleep(200);
+              return "The Matrix";
+            }
+          });
+        }
+      }));
+    }
+    for (Future<String> future : futures) {
+      assertThat(future.get()).isEqualTo("The Matrix");
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(calls.get()).isEqualTo(1);
+    ScrapeSession.ProviderStatistics statistics = session.getStatistics().get("tmdb");
+    assertThat(statistics.getRequests()).isEqualTo(8);
+    assertThat(statistics.getMisses()).isEqualTo(1);
+    assertThat(statistics.getHitRate()).isEqualTo(7 / 8d);
+
+    // another provider is cached separately
+    session.get("imdb", "metadata|tmdb=603", createRequest("Matrix"));
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testDiskCache() throws Exception {
+    ScrapeSession session = new ScrapeSession(cacheDir, TimeUnit.HOURS.toMillis(1));
+    assertThat(session.get("tmdb", "metadata|tmdb=603", createRequest("The Matrix"))).isEqualTo("The Matrix");
+    session.close();
+
+    // a new session gets the response from the disk
+    session = new ScrapeSession(cacheDir, TimeUnit.HOURS.toMillis(1));
+    assertThat(session.get("tmdb", "metadata|tmdb=603", createRequest("other"))).isEqualTo("The Matrix");
+    assertThat(session.getStatistics().get("tmdb").getDiskHits()).isEqualTo(1);
+    assertThat(calls.get()).isEqualTo(1);
+
+    // expired responses are not used
+    Thread.sleep(10);
+    session = new ScrapeSession(cacheDir, 1);
+    assertThat(session.get("tmdb", "metadata|tmdb=603", createRequest("other"))).isEqualTo("other");
+    Thread.sleep(10);
+    session.close();
+    assertThat(Files.list(cacheDir).count()).isEqualTo(0);
+  }
+
+  @Test
+  public void testMemoryOnly() throws Exception {
+    // the default session does not use the disk cache: a new session (e.g. a rescrape) calls the provider again
+    ScrapeSession session = new ScrapeSession();
+    assertThat(session.get("tmdb", "metadata|tmdb=603", createRequest("The Matrix"))).isEqualTo("The Matrix");
+    session.close();
+
+    session = new ScrapeSession();
+    assertThat(session.get("tmdb", "metadata|tmdb=603", createRequest("other"))).isEqualTo("other");
+    assertThat(session.getStatistics().get("tmdb").getDiskHits()).isEqualTo(0);
+    assertThat(calls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testUncachedResponses() throws Exception {
+    ScrapeSession session = new ScrapeSession(cacheDir, TimeUnit.HOURS.toMillis(1));
+
+    // empty responses
+    for (int i = 0; i < 2; i++) {
+      session.get("tmdb", "search|foo", new ScrapeSession.Request<List<String>>() {
+        @Override
+        public List<String> execute() throws Exception {
+          calls.incrementAndGet();
+          return new ArrayList<>();
+        }
+      });
+    }
+    assertThat(calls.get()).isEqualTo(2);
+
+    // requests without key
+    session.get("tmdb", null, createRequest("foo"));
+    session.get("tmdb", null, createRequest("foo"));
+    assertThat(calls.get()).isEqualTo(4);
+
+    // failed requests
+    try {
+      session.get("tmdb", "metadata|tmdb=1", new ScrapeSession.Request<String>() {
+        @Override
+        public String execute() throws Exception {
+          throw new IOException("timeout");
+        }
+      });
+      fail("no exception thrown");
+    }
+    catch (IOException e) {
+      assertThat(e.getMessage()).isEqualTo("timeout");
+    }
+    assertThat(session.get("tmdb", "metadata|tmdb=1", createRequest("bar"))).isEqualTo("bar");
+  }
+
+  private ScrapeSession.Request<String> createRequest(final String response) {
+    return new ScrapeSession.Request<String>() {
+      @Override
+      public String execute() throws Exception {
+        calls.incrementAndGet();
+        return response;
+      }
+    };
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.tinymediamanager.core.threading.TokenBucket;
+
+public class SubtitleSearchEngineTest {
+
+  @Test
+  public void testFileHash() throws Exception {
+    Path folder = Paths.get("target", "test", "subtitlesearch");
+    Files.createDirectories(folder);
+    Path file = folder.resolve("movie.avi");
+
+    // two 64 bit words: size (16) + head (1 + 2) + tail (1 + 2) = 22
+    ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putLong(1).putLong(2);
+    Files.write(file, buffer.array());
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1000000));
+
+    String hash = SubtitleSearchEngine.getInstance().getFileHash(file);
+    assertThat(hash).isEqualTo("0000000000000016");
+
+    // the file changed -> new hash
+    buffer.clear();
+    buffer.putLong(5).putLong(2);
+    Files.write(file, buffer.array());
+    Files.setLastModifiedTime(file, FileTime.fromMillis(2000000));
+    assertThat(SubtitleSearchEngine.getInstance().getFileHash(file)).isEqualTo("000000000000001e");
+
+    // not existing files do not have a hash
+    assertThat(SubtitleSearchEngine.getInstance().getFileHash(folder.resolve("missing.avi"))).isEmpty();
+  }
+
+  @Test
+  public void testTokenBucket() throws Exception {
+    // a clock which only advances while waiting
+    final long[] now = new long[1];
+    TokenBucket bucket = new TokenBucket(20, 5, new TokenBucket.Clock() {
+      @Override
+      public long nanoTime() {
+        return now[0];
+      }
+
+      @Override
+      public void sleep(long nanos) {
+        now[0] += nanos;
+      }
+    });
+
+    // the burst is available immediately
+    for (int i = 0; i < 5; i++) {
+      assertThat(bucket.tryAcquire()).isTrue();
+    }
+    assertThat(bucket.tryAcquire()).isFalse();
+
+    // 10 more permits need 500ms at 20 permits per second
+    for (int i = 0; i < 10; i++) {
+      bucket.acquire();
+    }
+    assertThat(TimeUnit.NANOSECONDS.toMillis(now[0])).isBetween(500L, 510L);
+    assertThat(bucket.tryAcquire()).isFalse();
+
+    // the bucket is refilled up to the burst size
+    now[0] += TimeUnit.SECONDS.toNanos(10);
+    for (int i = 0; i < 5; i++) {
+      assertThat(bucket.tryAcquire()).isTrue();
+    }
+    assertThat(bucket.tryAcquire()).isFalse();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.entities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * Tests for the type partitioned access to the MediaFiles of a MediaEntity
+ *
+ * @author Manuel Laggner
+ */
+public class MediaEntityMediaFilesTest extends BasicTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Settings.getInstance(getSettingsFolder());
+  }
+
+  @Test
+  public void testTypedAccess() {
+    Movie movie = new Movie();
+    MediaFile video1 = createMediaFile("b.avi", MediaFileType.VIDEO, 100);
+    MediaFile video2 = createMediaFile("a.avi", MediaFileType.VIDEO, 100);
+    MediaFile poster = createMediaFile("poster.jpg", MediaFileType.POSTER, 5);
+    MediaFile subtitle = createMediaFile("a.srt", MediaFileType.SUBTITLE, 1);
+
+    movie.addToMediaFiles(video1);
+    movie.addToMediaFiles(poster);
+    movie.addToMediaFiles(subtitle);
+    movie.addToMediaFiles(video2);
+
+    // the order of all MFs is kept
+    assertThat(movie.getMediaFiles(MediaFileType.VIDEO)).containsExactly(video2, video1);
+    assertThat(movie.getMediaFilesView(MediaFileType.VIDEO)).containsExactly(video2, video1);
+    assertThat(movie.getMediaFiles(MediaFileType.SUBTITLE, MediaFileType.VIDEO)).containsExactly(video2, video1, subtitle);
+    assertThat(movie.getMediaFilesExceptType(MediaFileType.VIDEO, MediaFileType.SUBTITLE)).containsExactly(poster);
+    assertThat(movie.getMediaFilesView(MediaFileType.TRAILER)).isEmpty();
+
+    // on equal size the last one wins
+    assertThat(movie.getBiggestMediaFile(MediaFileType.VIDEO)).isSameAs(video1);
+    assertThat(movie.getBiggestMediaFile(MediaFileType.VIDEO, MediaFileType.POSTER)).isSameAs(video1);
+
+    // the view must not be changed
+    List<MediaFile> view = movie.getMediaFilesView(MediaFileType.VIDEO);
+    try {
+      view.add(poster);
+      fail("view must not be modifiable");
+    }
+    catch (UnsupportedOperationException ignored) {
+    }
+
+    // the returned lists are copies
+    movie.getMediaFiles(MediaFileType.VIDEO).clear();
+    assertThat(movie.getMediaFiles(MediaFileType.VIDEO)).hasSize(2);
+  }
+
+  @Test
+  public void testChanges() {
+    Movie movie = new Movie();
+    MediaFile video = createMediaFile("a.avi", MediaFileType.VIDEO, 100);
+    MediaFile trailer = createMediaFile("a-trailer.avi", MediaFileType.VIDEO, 10);
+
+    movie.addToMediaFiles(video);
+    movie.addToMediaFiles(trailer);
+    List<MediaFile> view = movie.getMediaFilesView(MediaFileType.VIDEO);
+    assertThat(view).hasSize(2);
+
+    // type change of a MF
+    trailer.setType(MediaFileType.TRAILER);
+    assertThat(movie.getMediaFilesView(MediaFileType.VIDEO)).containsExactly(video);
+    assertThat(movie.getMediaFilesView(MediaFileType.TRAILER)).containsExactly(trailer);
+
+    // an old view stays untouched
+    assertThat(view).hasSize(2);
+
+    movie.removeFromMediaFiles(video);
+    assertThat(movie.getMediaFilesView(MediaFileType.VIDEO)).isEmpty();
+    assertThat(movie.getBiggestMediaFile(MediaFileType.VIDEO)).isNull();
+
+    movie.removeAllMediaFiles(MediaFileType.TRAILER);
+    assertThat(movie.getMediaFiles()).isEmpty();
+  }
+
+  private MediaFile createMediaFile(String filename, MediaFileType type, long size) {
+    MediaFile mf = new MediaFile(Paths.get("/movies/movie", filename), type);
+    mf.setFilesize(size);
+    return mf;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.Globals;
+import org.tinymediamanager.core.MediaFileType;
+import org.tinymediamanager.core.Settings;
+
+/**
+ * Checks the MediaFileTypeClassifier against a golden corpus of file names (created with the former implementation of MediaFile.parseType)
+ *
+ * @author Manuel Laggner
+ */
+public class MediaFileTypeClassifierTest extends BasicTest {
+  private static final String GOLDEN_CORPUS = "target/test-classes/mediafile/media-file-type-golden.txt";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Settings.getInstance(getSettingsFolder());
+  }
+
+  @Test
+  public void testGoldenCorpus() throws Exception {
+    List<String> lines = Files.readAllLines(Paths.get(GOLDEN_CORPUS), StandardCharsets.UTF_8);
+    int count = 0;
+
+    for (String line : lines) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\t", -1);
+      assertEquals(line, 2, fields.length);
+
+      Path file = Paths.get(fields[0]);
+      assertEquals(fields[0], MediaFileType.valueOf(fields[1]), new MediaFile(file).getType());
+      count++;
+    }
+    assertTrue(count > 0);
+  }
+
+  @Test
+  public void testSettingsChanged() {
+    Path file = Paths.get("/movies/Avatar (2009)/Avatar.tmmtest");
+    assertEquals(MediaFileType.UNKNOWN, new MediaFile(file).getType());
+
+    Globals.settings.addVideoFileTypes(".tmmtest");
+    try {
+      assertEquals(MediaFileType.VIDEO, new MediaFile(file).getType());
+      assertEquals(MediaFileType.TRAILER, new MediaFile(Paths.get("/movies/Avatar (2009)/Avatar-trailer.tmmtest")).getType());
+    }
+    finally {
+      Globals.settings.removeVideoFileType(".tmmtest");
+    }
+    assertEquals(MediaFileType.UNKNOWN, new MediaFile(file).getType());
+  }
+
+  @Test
+  public void testPrecedence() {
+    // the first list wins
+    MediaFileTypeClassifier classifier = new MediaFileTypeClassifier(Arrays.asList(".rm"), Arrays.asList(".rm", ".txt"),
+        Arrays.asList(".rm", ".nfo"));
+    assertEquals(MediaFileType.AUDIO, classifier.classify("movie.rm", "/movies", Paths.get("/movies/movie.rm")));
+    assertEquals(MediaFileType.SUBTITLE, classifier.classify("movie.txt", "/movies", Paths.get("/movies/movie.txt")));
+    assertEquals(MediaFileType.NFO, classifier.classify("movie.nfo", "/movies", Paths.get("/movies/movie.nfo")));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.movie.MovieCollectionCache.CollectionInfo;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * Tests for the MovieCollectionCache
+ *
+ * @author Manuel Laggner
+ */
+public class MovieCollectionCacheTest extends BasicTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    deleteSettingsFolder();
+    Settings.getInstance(getSettingsFolder());
+  }
+
+  @Test
+  public void testLookup() {
+    MovieCollectionCache cache = new MovieCollectionCache();
+    cache.setStorage(new HashMap<String, String>());
+
+    Movie movie = new Movie();
+    movie.setTmdbId(603);
+    movie.setImdbId("tt0133093");
+    assertThat(cache.get(movie)).isNull();
+
+    cache.put(movie, 2344, "The Matrix Collection");
+    CollectionInfo info = cache.get(movie);
+    assertThat(info).isNotNull();
+    assertThat(info.getId()).isEqualTo(2344);
+    assertThat(info.getName()).isEqualTo("The Matrix Collection");
+
+    // found by the imdb id only
+    Movie other = new Movie();
+    other.setImdbId("tt0133093");
+    assertThat(cache.get(other).getId()).isEqualTo(2344);
+
+    // found by the collection parts
+    cache.put(604, 2344, "The Matrix Collection");
+    Movie reloaded = new Movie();
+    reloaded.setTmdbId(604);
+    assertThat(cache.get(reloaded).getName()).isEqualTo("The Matrix Collection");
+
+    // no ids - nothing to cache
+    Movie noIds = new Movie();
+    cache.put(noIds, 1, "foo");
+    assertThat(cache.get(noIds)).isNull();
+  }
+
+  @Test
+  public void testExpiry() {
+    Map<String, String> storage = new HashMap<>();
+    MovieCollectionCache cache = new MovieCollectionCache();
+    cache.setStorage(storage);
+
+    Movie movie = new Movie();
+    movie.setTmdbId(550);
+    cache.put(movie, 0, "");
+
+    // movie without collection: cached as negative entry, but for a shorter time
+    long now = System.currentTimeMillis();
+    assertThat(cache.get(movie, now).getId()).isEqualTo(0);
+    assertThat(cache.get(movie, now + MovieCollectionCache.TTL_NO_COLLECTION + 1000)).isNull();
+    assertThat(storage).isEmpty();
+
+    cache.put(movie, 10, "foo");
+    assertThat(cache.get(movie, now + MovieCollectionCache.TTL_NO_COLLECTION + 1000).getId()).isEqualTo(10);
+    assertThat(cache.get(movie, now + MovieCollectionCache.TTL + 1000)).isNull();
+
+    // broken entries are removed
+    storage.put("tmdb:550", "foo|bar");
+    assertThat(cache.get(movie)).isNull();
+    assertThat(storage).isEmpty();
+  }
+}
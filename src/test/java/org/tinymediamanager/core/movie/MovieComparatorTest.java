@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.text.RuleBasedCollator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * Tests the sorting of movies with the cached collation keys
+ *
+ * @author Manuel Laggner
+ */
+public class MovieComparatorTest extends BasicTest {
+  private static final String[] TITLES = { "Zoolander", "Amélie", "Alien", "alien 3", "Alien Resurrection", "Aliens", "The Matrix", "Matrix Reloaded",
+      "Ça", "Été", "eve", "Être", "2001: A Space Odyssey", "10 Things I Hate About You", "Star Wars", "Star-Trek", "Star_Trek", "Startup",
+      "Das Boot", "Die Hard", "Øresund", "Ärger im Paradies", "Aerger", "A Beautiful Mind", "Léon", "Leon", "LEON" };
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Settings.getInstance(getSettingsFolder());
+  }
+
+  @Test
+  public void testSameOrderAsCollator() {
+    List<Movie> movies = new ArrayList<>();
+    for (String title : TITLES) {
+      Movie movie = new Movie();
+      movie.setTitle(title);
+      movies.add(movie);
+    }
+
+    List<Movie> expected = new ArrayList<>(movies);
+    Collections.sort(expected, new LegacyMovieComparator());
+
+    List<Movie> sorted = new ArrayList<>(movies);
+    Collections.sort(sorted, new MovieComparator());
+
+    assertThat(getTitles(sorted)).containsExactlyElementsOf(getTitles(expected));
+  }
+
+  @Test
+  public void testInvalidation() {
+    Movie movie1 = new Movie();
+    movie1.setTitle("Alpha");
+    Movie movie2 = new Movie();
+    movie2.setTitle("Beta");
+
+    MovieComparator comparator = new MovieComparator();
+    assertThat(comparator.compare(movie1, movie2)).isLessThan(0);
+
+    // title
+    movie1.setTitle("Zulu");
+    assertThat(comparator.compare(movie1, movie2)).isGreaterThan(0);
+
+    // sort title (falls back to the title)
+    assertThat(movie1.getSortTitleCollationKey().compareTo(movie2.getSortTitleCollationKey())).isGreaterThan(0);
+    movie1.setSortTitle("Aaa");
+    assertThat(movie1.getSortTitleCollationKey().compareTo(movie2.getSortTitleCollationKey())).isLessThan(0);
+    movie2.setSortTitle("0");
+    assertThat(movie1.getSortTitleCollationKey().compareTo(movie2.getSortTitleCollationKey())).isGreaterThan(0);
+
+    // original title (falls back to the title)
+    assertThat(movie1.getOriginalTitleCollationKey().compareTo(movie2.getOriginalTitleCollationKey())).isGreaterThan(0);
+    movie1.setOriginalTitle("Able");
+    assertThat(movie1.getOriginalTitleCollationKey().compareTo(movie2.getOriginalTitleCollationKey())).isLessThan(0);
+    movie2.setOriginalTitle("Aardvark");
+    assertThat(movie1.getOriginalTitleCollationKey().compareTo(movie2.getOriginalTitleCollationKey())).isGreaterThan(0);
+
+    // a changed title changes the fallbacks too
+    Movie movie3 = new Movie();
+    movie3.setTitle("Charlie");
+    assertThat(movie3.getOriginalTitleCollationKey().compareTo(movie2.getOriginalTitleCollationKey())).isGreaterThan(0);
+    movie3.setTitle("Aaa");
+    assertThat(movie3.getOriginalTitleCollationKey().compareTo(movie2.getOriginalTitleCollationKey())).isLessThan(0);
+    assertThat(movie3.getSortTitleCollationKey().compareTo(movie2.getSortTitleCollationKey())).isGreaterThan(0);
+  }
+
+  private List<String> getTitles(List<Movie> movies) {
+    List<String> titles = new ArrayList<>();
+    for (Movie movie : movies) {
+      titles.add(movie.getTitle());
+    }
+    return titles;
+  }
+
+  /**
+   * the comparator before the collation keys have been cached (collates the normalized titles on every comparison)
+   */
+  private static class LegacyMovieComparator implements Comparator<Movie> {
+    private Collator stringCollator;
+
+    private LegacyMovieComparator() {
+      RuleBasedCollator defaultCollator = (RuleBasedCollator) RuleBasedCollator.getInstance();
+      try {
+        // default collator ignores whitespaces
+        stringCollator = new RuleBasedCollator(defaultCollator.getRules().replace("<'\u005f'", "<' '<'\u005f'"));
+      }
+      catch (Exception e) {
+        stringCollator = defaultCollator;
+      }
+    }
+
+    @Override
+    public int compare(Movie movie1, Movie movie2) {
+      String titleMovie1 = Normalizer.normalize(movie1.getTitleSortable().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+      String titleMovie2 = Normalizer.normalize(movie2.getTitleSortable().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+      return stringCollator.compare(titleMovie1, titleMovie2);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.core.movie.entities.MovieActor;
+import org.tinymediamanager.scraper.entities.MediaGenres;
+import org.tinymediamanager.ui.movies.MovieExtendedMatcher;
+
+public class MovieFacetsTest extends BasicTest {
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Settings.getInstance(getSettingsFolder());
+  }
+
+  @Test
+  public void testFacets() {
+    Movie movie = new Movie();
+    movie.setDirector("Ron Clements");
+    movie.addActor(new MovieActor("Robin Williams", "Genie (voice)"));
+    movie.setGenres(Arrays.asList(MediaGenres.ADVENTURE, MediaGenres.FAMILY));
+    movie.addToTags("Disney");
+
+    MovieFacets facets = movie.getFacets();
+    assertThat(facets.containsCast("robin")).isTrue();
+    assertThat(facets.containsCast("clements")).isTrue();
+    assertThat(facets.containsCast("scott")).isFalse();
+    assertThat(facets.containsAllGenres(MovieFacets.getIds(Collections.singletonList(MediaGenres.FAMILY)))).isTrue();
+    assertThat(facets.containsAllGenres(MovieFacets.getIds(Collections.singletonList(MediaGenres.HORROR)))).isFalse();
+    assertThat(facets.containsAllTags(MovieFacets.getIds(Collections.singletonList("Disney")))).isTrue();
+    assertThat(facets.containsAllTags(MovieFacets.getIds(Arrays.asList("Disney", "Pixar")))).isFalse();
+
+    // cached until the movie changes
+    assertThat(movie.getFacets()).isSameAs(facets);
+    movie.addToTags("Pixar");
+    assertThat(movie.getFacets()).isNotSameAs(facets);
+    assertThat(movie.getFacets().containsAllTags(MovieFacets.getIds(Arrays.asList("Disney", "Pixar")))).isTrue();
+  }
+
+  @Test
+  public void testExtendedMatcher() {
+    Movie movie = new Movie();
+    movie.addActor(new MovieActor("Robin Williams", "Genie (voice)"));
+    movie.setGenres(Arrays.asList(MediaGenres.ADVENTURE, MediaGenres.FAMILY));
+
+    Map<MovieSearchOptions, Object> options = new EnumMap<>(MovieSearchOptions.class);
+    assertThat(new MovieExtendedMatcher(options).matches(movie)).isTrue();
+
+    options.put(MovieSearchOptions.CAST, "WILLIAMS");
+    options.put(MovieSearchOptions.GENRE, MediaGenres.FAMILY);
+    assertThat(new MovieExtendedMatcher(options).matches(movie)).isTrue();
+
+    // empty tag list matches movies without tags
+    options.put(MovieSearchOptions.TAG, Collections.emptyList());
+    assertThat(new MovieExtendedMatcher(options).matches(movie)).isTrue();
+    movie.addToTags("Disney");
+    assertThat(new MovieExtendedMatcher(options).matches(movie)).isFalse();
+
+    options.put(MovieSearchOptions.TAG, Collections.singletonList("Disney"));
+    options.put(MovieSearchOptions.WATCHED, Boolean.TRUE);
+    assertThat(new MovieExtendedMatcher(options).matches(movie)).isFalse();
+    movie.setWatched(true);
+    assertThat(new MovieExtendedMatcher(options).matches(movie)).isTrue();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.scraper.util.ParserUtils;
+
+/**
+ * JMH benchmark for the movie name/year detection of the ParserUtils. Parses 1.000.000 scene style file names (generated with a fixed seed) per
+ * invocation - about the amount of names parsed when updating a big multi movie data source.<br>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.tinymediamanager.core.movie.MovieNameParserBenchmark
+ *
+ * @author Manuel Laggner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MovieNameParserBenchmark {
+  private static final int      FILENAMES  = 1_000_000;
+  private static final String[] TITLES     = { "Avatar", "The Dark Knight", "Ocean's Eleven", "Der Blob", "Harry Potter 7 Part 1", "Kill Bill Vol 1",
+      "Die Hochzeit meiner Eltern", "Blade Runner 2049", "Rocky III", "Z for Zachariah", "Das Boot", "In The Realm Of The Senses",
+      "2001 A Space Odyssey" };
+  private static final String[] SEPARATORS = { ".", " ", "_", "-", " - " };
+  private static final String[] TAGS       = { "German", "DL", "1080p", "720p", "2160p", "BluRay", "WEBRip", "x264", "HEVC", "DTS", "AC3",
+      "REMASTERED", "UNCUT", "EXTENDED", "[Uploader]", "1920x800", "23.976fps", "tt0111161", "(2009)", "CD1", "REPACK-ENCOUNTERS",
+      "iNTERNAL-VideoStar" };
+  private static final String[] EXTENSIONS = { ".mkv", ".avi", ".mp4", ".m2ts", "" };
+
+  private List<String>          filenames;
+
+  @Setup
+  public void setup() throws Exception {
+    Settings.getInstance("target/testdata/" + getClass().getName());
+    MovieModuleManager.MOVIE_SETTINGS.addBadWord("encounters");
+
+    Random random = new Random(42);
+    filenames = new ArrayList<>(FILENAMES);
+    for (int i = 0; i < FILENAMES; i++) {
+      String separator = SEPARATORS[random.nextInt(SEPARATORS.length)];
+      StringBuilder sb = new StringBuilder(TITLES[random.nextInt(TITLES.length)].replace(" ", separator));
+      if (random.nextInt(4) > 0) {
+        sb.append(separator).append(1900 + random.nextInt(120));
+      }
+      int tags = random.nextInt(8);
+      for (int j = 0; j < tags; j++) {
+        sb.append(separator).append(TAGS[random.nextInt(TAGS.length)]);
+      }
+      sb.append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+      filenames.add(sb.toString());
+    }
+  }
+
+  @Benchmark
+  public void detectCleanMovienameAndYear(Blackhole blackhole) {
+    for (String filename : filenames) {
+      blackhole.consume(ParserUtils.detectCleanMovienameAndYear(filename));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(MovieNameParserBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.scraper.util.ParserUtils;
+
+/**
+ * Checks the movie name/year detection of the ParserUtils against a golden corpus of real world and synthetic (scene style) file names
+ *
+ * @author Manuel Laggner
+ */
+public class MovieNameParserGoldenTest extends BasicTest {
+  private static final String       GOLDEN_CORPUS = "target/test-classes/movie/movie-name-parser-golden.txt";
+  private static final String[]     BAD_WORDS     = { "encounters", "remsg" };
+  private static final List<String> addedBadWords = new ArrayList<>();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Settings.getInstance(getSettingsFolder());
+
+    // the corpus has been created with these bad words
+    for (String badWord : BAD_WORDS) {
+      if (!MovieModuleManager.MOVIE_SETTINGS.getBadWords().contains(badWord)) {
+        MovieModuleManager.MOVIE_SETTINGS.addBadWord(badWord);
+        addedBadWords.add(badWord);
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    for (String badWord : addedBadWords) {
+      MovieModuleManager.MOVIE_SETTINGS.removeBadWord(badWord);
+    }
+  }
+
+  @Test
+  public void testGoldenCorpus() throws Exception {
+    List<String> lines = Files.readAllLines(Paths.get(GOLDEN_CORPUS), StandardCharsets.UTF_8);
+    int count = 0;
+
+    for (String line : lines) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\t", -1);
+      assertEquals(line, 3, fields.length);
+
+      String[] result = ParserUtils.detectCleanMovienameAndYear(fields[0]);
+      assertEquals(fields[0], fields[1], result[0]);
+      assertEquals(fields[0], fields[2], result[1]);
+      count++;
+    }
+    assertTrue(count > 0);
+  }
+
+  @Test
+  public void testBadWordsChanged() {
+    MovieModuleManager.MOVIE_SETTINGS.addBadWord("ParserGoldenTest");
+    try {
+      assertEquals("Some Movie", ParserUtils.detectCleanMovienameAndYear("Some.ParserGoldenTest.Movie.2016.mkv")[0]);
+    }
+    finally {
+      MovieModuleManager.MOVIE_SETTINGS.removeBadWord("ParserGoldenTest");
+    }
+    assertEquals("Some Parsergoldentest Movie", ParserUtils.detectCleanMovienameAndYear("Some.ParserGoldenTest.Movie.2016.mkv")[0]);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.movie.MovieRenamePlanner.Action;
+import org.tinymediamanager.core.movie.MovieRenamePlanner.Move;
+import org.tinymediamanager.core.movie.entities.Movie;
+
+/**
+ * Tests for the conflict detection of the MovieRenamePlanner (dry run only)
+ *
+ * @author Manuel Laggner
+ */
+public class MovieRenamePlannerTest extends BasicTest {
+  private static Path dataSource;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    deleteSettingsFolder();
+    Settings.getInstance(getSettingsFolder());
+    MovieModuleManager.MOVIE_SETTINGS.setMovieRenamerPathname("$T ($Y)");
+
+    dataSource = Paths.get(getSettingsFolder(), "renameplanner").toAbsolutePath();
+    FileUtils.deleteQuietly(dataSource.toFile());
+    for (String folder : Arrays.asList("a", "b", "c", "Bar (2001)", "baz (2002)", "d", "Qux (2003)", "e")) {
+      Files.createDirectories(dataSource.resolve(folder));
+    }
+  }
+
+  @Test
+  public void testPlan() {
+    Movie foo = createMovie("a", "Foo", "2000");
+    Movie sameDestination = createMovie("b", "Foo", "2000");
+    Movie existingDestination = createMovie("c", "Bar", "2001");
+    Movie caseChange = createMovie("baz (2002)", "Baz", "2002");
+    Movie dependent = createMovie("d", "Qux", "2003");
+    Movie movedAway = createMovie("Qux (2003)", "Other", "2004");
+    Movie unchanged = createMovie("e", "", "");
+
+    List<Move> moves = new MovieRenamePlanner(
+        Arrays.asList(foo, sameDestination, existingDestination, caseChange, dependent, movedAway, unchanged)).getMoves();
+    assertThat(moves).hasSize(7);
+
+    // independent move
+    assertThat(moves.get(0).getAction()).isEqualTo(Action.MOVE);
+    assertThat(moves.get(0).getDestination()).isEqualTo(dataSource.resolve("Foo (2000)"));
+    assertThat(moves.get(0).getConflict()).isNull();
+    assertThat(moves.get(0).isSerial()).isFalse();
+
+    // collisions
+    assertThat(moves.get(1).getConflict()).contains("Foo");
+    assertThat(moves.get(2).getConflict()).contains("already exists");
+
+    // case only
+    assertThat(moves.get(3).getAction()).isEqualTo(Action.CASE_CHANGE);
+    assertThat(moves.get(3).getConflict()).isNull();
+
+    // the destination is freed by another movie of the batch: no conflict, but one after another
+    assertThat(moves.get(4).getConflict()).isNull();
+    assertThat(moves.get(4).isSerial()).isTrue();
+    assertThat(moves.get(5).getConflict()).isNull();
+    assertThat(moves.get(5).isSerial()).isTrue();
+
+    // no title - nothing to move
+    assertThat(moves.get(6).getAction()).isEqualTo(Action.NONE);
+
+    // nothing has been touched
+    assertThat(Files.isDirectory(dataSource.resolve("a"))).isTrue();
+    assertThat(Files.exists(dataSource.resolve("Foo (2000)"))).isFalse();
+  }
+
+  private Movie createMovie(String folder, String title, String year) {
+    Movie movie = new Movie();
+    movie.setTitle(title);
+    movie.setYear(year);
+    movie.setDataSource(dataSource.toString());
+    movie.setPath(dataSource.resolve(folder).toString());
+    return movie;
+  }
+}
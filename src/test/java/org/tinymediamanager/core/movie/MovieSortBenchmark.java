@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.text.RuleBasedCollator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.movie.entities.Movie;
+import org.tinymediamanager.ui.movies.MovieExtendedComparator;
+import org.tinymediamanager.ui.movies.MovieExtendedComparator.SortColumn;
+
+/**
+ * JMH benchmark for sorting the whole movie table (25k movies) with the cached collation keys; the baseline normalizes and collates the titles on
+ * every comparison (like the comparators did before).<br>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.tinymediamanager.core.movie.MovieSortBenchmark
+ *
+ * @author Manuel Laggner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MovieSortBenchmark {
+  private static final String[] WORDS = { "the", "a", "last", "\u00c4rger", "night", "\u00e9lan", "of", "dead", "Star", "war", "\u00fcber", "city",
+      "blue", "2", "returns", "\u00c7al\u0131\u015f", "legacy", "die", "hard", "_", "zero" };
+
+  private List<Movie>           movies;
+  private Comparator<Movie>     baselineComparator;
+
+  @Setup
+  public void setup() throws Exception {
+    Settings.getInstance("target/testdata/" + getClass().getName());
+
+    Random random = new Random(4711);
+    movies = new ArrayList<>();
+    for (int i = 0; i < 25000; i++) {
+      StringBuilder title = new StringBuilder();
+      int words = 1 + random.nextInt(5);
+      for (int j = 0; j < words; j++) {
+        if (j > 0) {
+          title.append(' ');
+        }
+        title.append(WORDS[random.nextInt(WORDS.length)]);
+      }
+      Movie movie = new Movie();
+      movie.setTitle(title.toString());
+      if (random.nextInt(4) == 0) {
+        movie.setSortTitle(title.reverse().toString());
+      }
+      movies.add(movie);
+    }
+
+    final Collator collator = new RuleBasedCollator(
+        ((RuleBasedCollator) RuleBasedCollator.getInstance()).getRules().replace("<'_'", "<' '<'_'"));
+    baselineComparator = new Comparator<Movie>() {
+      @Override
+      public int compare(Movie movie1, Movie movie2) {
+        String title1 = Normalizer.normalize(movie1.getTitleSortable().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        String title2 = Normalizer.normalize(movie2.getTitleSortable().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return collator.compare(title1, title2);
+      }
+    };
+  }
+
+  @Benchmark
+  public List<Movie> sortBaseline() {
+    return sort(baselineComparator);
+  }
+
+  @Benchmark
+  public List<Movie> sortCachedKeys() {
+    return sort(new MovieComparator());
+  }
+
+  @Benchmark
+  public List<Movie> sortColdKeys() {
+    // e.g. after changing the title prefixes
+    for (Movie movie : movies) {
+      movie.clearTitleSortable();
+    }
+    return sort(new MovieComparator());
+  }
+
+  @Benchmark
+  public List<Movie> sortBySortTitle() {
+    return sort(new MovieExtendedComparator(SortColumn.SORT_TITLE, true));
+  }
+
+  private List<Movie> sort(Comparator<Movie> comparator) {
+    List<Movie> sorted = new ArrayList<>(movies);
+    Collections.sort(sorted, comparator);
+    return sorted;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(MovieSortBenchmark.class.getSimpleName()).build()).run();
+  }
+}
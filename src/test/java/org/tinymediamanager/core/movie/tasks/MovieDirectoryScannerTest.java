@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class MovieDirectoryScannerTest {
+
+  @Test
+  public void testScan() throws Exception {
+    Path root = Paths.get("target", "test", "scanner").toAbsolutePath();
+    FileUtils.deleteQuietly(root.toFile());
+
+    createFile(root.resolve("Movie1/movie1.mkv"));
+    createFile(root.resolve("Movie1/movie1.nfo"));
+    createFile(root.resolve("Ignored/movie2.mkv"));
+    createFile(root.resolve("Ignored/.tmmignore"));
+    createFile(root.resolve("Multi/a.mkv"));
+    createFile(root.resolve("Multi/Sub/b.mkv"));
+    createFile(root.resolve("Stacked/CD1/part1.mkv"));
+    createFile(root.resolve("Stacked/CD2/part2.mkv"));
+    createFile(root.resolve("Skipped/.hidden/movie3.mkv"));
+
+    final List<Path> movieFolders = Collections.synchronizedList(new ArrayList<Path>());
+    final List<Path> multiMovieFolders = Collections.synchronizedList(new ArrayList<Path>());
+    MovieDirectoryScanner scanner = new MovieDirectoryScanner(4, new MovieDirectoryScanner.Handler() {
+      @Override
+      public boolean isSkipped(Path path) {
+        return path.getFileName().toString().startsWith(".") && !path.getFileName().toString().equals(".tmmignore");
+      }
+
+      @Override
+      public boolean isVideoFile(Path file) {
+        return file.getFileName().toString().endsWith(".mkv");
+      }
+
+      @Override
+      public boolean isStackedFolder(Path dir) {
+        return dir.getFileName().toString().matches("CD\\d");
+      }
+
+      @Override
+      public boolean isCancelled() {
+        return false;
+      }
+
+      @Override
+      public void movieFolderFound(Path dir) {
+        movieFolders.add(dir);
+      }
+
+      @Override
+      public void multiMovieFolderFound(Path dir, List<Path> files) {
+        multiMovieFolders.add(dir);
+        assertThat(files).containsExactly(dir.resolve("a.mkv"));
+      }
+    });
+
+    List<Path> roots = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+      for (Path path : stream) {
+        roots.add(path);
+      }
+    }
+    scanner.scan(roots);
+
+    // only the first of the stacked folders
+    assertThat(movieFolders).containsOnly(root.resolve("Movie1"), root.resolve("Multi/Sub"), root.resolve("Stacked/CD1"));
+    assertThat(movieFolders).hasSize(3);
+    assertThat(multiMovieFolders).containsExactly(root.resolve("Multi"));
+  }
+
+  private void createFile(Path file) throws Exception {
+    Files.createDirectories(file.getParent());
+    Files.write(file, new byte[0]);
+  }
+}
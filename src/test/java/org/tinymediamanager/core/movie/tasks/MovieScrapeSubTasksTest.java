@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.movie.tasks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.tinymediamanager.scraper.MediaMetadata;
+
+public class MovieScrapeSubTasksTest {
+
+  @Test
+  public void testProviderCallsOverlap() throws Exception {
+    List<String> providers = Arrays.asList("tmdb", "fanarttv", "imdb");
+    final CountDownLatch allStarted = new CountDownLatch(providers.size());
+    final AtomicInteger overlapping = new AtomicInteger();
+
+    ExecutorService executor = Executors.newFixedThreadPool(providers.size());
+    try {
+      List<Future<List<String>>> futures = MovieScrapeSubTasks.submit(executor, providers, new MovieScrapeSubTasks.ProviderCall<String, String>() {
+        @Override
+        public List<String> call(String provider) throws Exception {
+          // every call waits until all calls are running
+          allStarted.countDown();
+          if (allStarted.await(10, TimeUnit.SECONDS)) {
+            overlapping.incrementAndGet();
+          }
+          if ("tmdb".equals(provider)) {
+            // the first provider finishes last
+            Thread.sleep(100);
+          }
+          return Arrays.asList(provider + "-poster", provider + "-fanart");
+        }
+      });
+
+      // merged in the order of the providers
+      assertThat(MovieScrapeSubTasks.merge(futures)).containsExactly("tmdb-poster", "tmdb-fanart", "fanarttv-poster", "fanarttv-fanart",
+          "imdb-poster", "imdb-fanart");
+      assertThat(overlapping.get()).isEqualTo(providers.size());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWithoutExecutor() throws Exception {
+    final List<String> called = Collections.synchronizedList(new ArrayList<String>());
+    List<Future<List<String>>> futures = MovieScrapeSubTasks.submit(null, Arrays.asList("a", "b"),
+        new MovieScrapeSubTasks.ProviderCall<String, String>() {
+          @Override
+          public List<String> call(String provider) throws Exception {
+            called.add(provider);
+            return Collections.singletonList(provider);
+          }
+        });
+
+    // called in the calling thread, one after another
+    assertThat(called).containsExactly("a", "b");
+    assertThat(MovieScrapeSubTasks.merge(futures)).containsExactly("a", "b");
+  }
+
+  @Test
+  public void testGetPrefetched() throws Exception {
+    Map<String, Object> prefetchIds = ids(603, null);
+
+    // nothing prefetched
+    assertThat(MovieScrapeSubTasks.getPrefetched(null, prefetchIds, ids(603, "tt0133093"))).isNull();
+
+    // the metadata confirmed the id -> the prefetched results are taken
+    assertThat(MovieScrapeSubTasks.getPrefetched(prefetch("poster"), prefetchIds, ids(603, "tt0133093"))).containsExactly("poster");
+
+    // fetched under another id than the metadata found -> discarded
+    assertThat(MovieScrapeSubTasks.getPrefetched(prefetch("poster"), prefetchIds, ids(604, "tt0234215"))).isNull();
+    assertThat(MovieScrapeSubTasks.getPrefetched(prefetch("poster"), ids(603, "tt0133093"), ids(603, "tt0234215"))).isNull();
+
+    // nothing found without the imdb id which is known now -> discarded
+    assertThat(MovieScrapeSubTasks.getPrefetched(prefetch(), prefetchIds, ids(603, "tt0133093"))).isNull();
+    // nothing found, but with the same ids -> taken
+    assertThat(MovieScrapeSubTasks.getPrefetched(prefetch(), prefetchIds, ids(603, null))).isEmpty();
+  }
+
+  private List<Future<List<String>>> prefetch(final String... results) {
+    return MovieScrapeSubTasks.submit(null, Collections.singletonList("tmdb"), new MovieScrapeSubTasks.ProviderCall<String, String>() {
+      @Override
+      public List<String> call(String provider) throws Exception {
+        return Arrays.asList(results);
+      }
+    });
+  }
+
+  private Map<String, Object> ids(int tmdbId, String imdbId) {
+    Map<String, Object> ids = new TreeMap<>();
+    ids.put(MediaMetadata.TMDB, tmdbId);
+    if (imdbId != null) {
+      ids.put(MediaMetadata.IMDB, imdbId);
+    }
+    return ids;
+  }
+}
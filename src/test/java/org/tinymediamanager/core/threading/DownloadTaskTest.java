@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Test;
+import org.tinymediamanager.core.threading.DownloadTask.Chunk;
+import org.tinymediamanager.core.threading.DownloadTask.DownloadState;
+
+public class DownloadTaskTest {
+
+  @Test
+  public void testContentRange() {
+    assertThat(DownloadTask.parseContentRangeLength("bytes 0-99/1234")).isEqualTo(1234);
+    assertThat(DownloadTask.parseContentRangeLength("bytes 0-99/*")).isEqualTo(-1);
+    assertThat(DownloadTask.parseContentRangeLength("bytes 0-99")).isEqualTo(-1);
+  }
+
+  @Test
+  public void testSplitIntoChunks() {
+    // small files are not split
+    assertThat(DownloadTask.splitIntoChunks(1024, 4)).hasSize(1);
+
+    long length = 100L * 1024 * 1024 + 3;
+    List<Chunk> chunks = DownloadTask.splitIntoChunks(length, 4);
+    assertThat(chunks).hasSize(4);
+    assertThat(chunks.get(0).start).isEqualTo(0);
+    assertThat(chunks.get(3).end).isEqualTo(length);
+    for (int i = 1; i < chunks.size(); i++) {
+      assertThat(chunks.get(i).start).isEqualTo(chunks.get(i - 1).end);
+    }
+  }
+
+  @Test
+  public void testResumeState() throws Exception {
+    Path folder = Paths.get("target", "test", "download");
+    Files.createDirectories(folder);
+    Path tempFile = folder.resolve("trailer.mp4.part");
+    Path stateFile = folder.resolve("trailer.mp4.part.chunks");
+    Files.deleteIfExists(stateFile);
+
+    // no state/validator: start over
+    Files.write(tempFile, new byte[100]);
+    DownloadState state = DownloadTask.readState(stateFile, tempFile);
+    assertThat(state.validator).isNull();
+    assertThat(state.chunks).hasSize(1);
+    assertThat(state.chunks.get(0).position()).isEqualTo(0);
+    assertThat(Files.exists(tempFile)).isFalse();
+
+    // single stream: resume at the stored position
+    Files.write(tempFile, new byte[100]);
+    Files.write(stateFile, "validator \"abc\"\n0 -1 100\n".getBytes(StandardCharsets.UTF_8));
+    state = DownloadTask.readState(stateFile, tempFile);
+    assertThat(state.validator).isEqualTo("\"abc\"");
+    assertThat(state.chunks).hasSize(1);
+    assertThat(state.chunks.get(0).position()).isEqualTo(100);
+
+    // chunked download; the state is written and read again
+    state = new DownloadState("Wed, 21 Oct 2015 07:28:00 GMT");
+    state.chunks.add(new Chunk(0, 50, 50));
+    state.chunks.add(new Chunk(50, 100, 20));
+    DownloadTask.writeState(stateFile, state);
+    state = DownloadTask.readState(stateFile, tempFile);
+    assertThat(state.validator).isEqualTo("Wed, 21 Oct 2015 07:28:00 GMT");
+    List<Chunk> chunks = state.chunks;
+    assertThat(chunks).hasSize(2);
+    assertThat(chunks.get(0).isComplete()).isTrue();
+    assertThat(chunks.get(1).isComplete()).isFalse();
+    assertThat(chunks.get(1).position()).isEqualTo(70);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PipelineTest {
+
+  @Test
+  public void testPipeline() throws Exception {
+    final Set<Integer> results = Collections.synchronizedSet(new HashSet<Integer>());
+
+    Pipeline<Integer> pipeline = new Pipeline<>("test");
+    pipeline.addStage("double", 3, 2, new Pipeline.Stage<Integer>() {
+      @Override
+      public Integer process(Integer item) throws Exception {
+        return item * 2;
+      }
+    });
+    pipeline.addStage("filter", 2, 2, new Pipeline.Stage<Integer>() {
+      @Override
+      public Integer process(Integer item) throws Exception {
+        if (item % 4 == 0) {
+          return null; // drop
+        }
+        if (item == 10) {
+          throw new Exception("failure for item " + item);
+        }
+        return item;
+      }
+    });
+    pipeline.addStage("collect", 1, 2, new Pipeline.Stage<Integer>() {
+      @Override
+      public Integer process(Integer item) throws Exception {
+        results.add(item);
+        return item;
+      }
+    });
+
+    // more items than the capacity of all queues
+    for (int i = 1; i <= 100; i++) {
+      pipeline.submit(i);
+    }
+    pipeline.close();
+    pipeline.awaitCompletion();
+
+    assertThat(pipeline.getProcessedCount("double")).isEqualTo(100);
+    // 50 items are dropped, one failed
+    assertThat(pipeline.getProcessedCount("filter")).isEqualTo(49);
+    assertThat(pipeline.getDroppedCount("filter")).isEqualTo(51);
+    assertThat(pipeline.getProcessedCount("collect")).isEqualTo(49);
+    assertThat(results).hasSize(49).doesNotContain(10, 4, 8);
+  }
+
+  @Test(timeout = 10000)
+  public void testInterruptedStage() throws Exception {
+    final Set<Integer> results = Collections.synchronizedSet(new HashSet<Integer>());
+
+    Pipeline<Integer> pipeline = new Pipeline<>("test");
+    pipeline.addStage("interrupt", 1, 2, new Pipeline.Stage<Integer>() {
+      @Override
+      public Integer process(Integer item) throws Exception {
+        if (item == 5) {
+          throw new InterruptedException();
+        }
+        return item;
+      }
+    });
+    pipeline.addStage("collect", 1, 2, new Pipeline.Stage<Integer>() {
+      @Override
+      public Integer process(Integer item) throws Exception {
+        results.add(item);
+        return item;
+      }
+    });
+
+    // the interrupted stage must neither block the source nor the following stages
+    for (int i = 1; i <= 100; i++) {
+      pipeline.submit(i);
+    }
+    pipeline.close();
+    pipeline.awaitCompletion();
+
+    assertThat(results).containsOnly(1, 2, 3, 4);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.threading;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.tinymediamanager.core.threading.TmmTaskHandle.TaskType;
+
+public class TmmTaskManagerTest {
+
+  @Test
+  public void testAwaitTasks() throws Exception {
+    final AtomicBoolean imageDownloaded = new AtomicBoolean(false);
+
+    // an unnamed task which spawns an image download - all tasks are only finished after the image download
+    TmmTask task = new TmmTask("test", 0, TaskType.BACKGROUND_TASK) {
+      @Override
+      protected void doInBackground() {
+        TmmTaskManager.getInstance().addImageDownloadTask(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              Thread.sleep(200);
+            }
+            catch (InterruptedException ignored) {
+            }
+            imageDownloaded.set(true);
+          }
+        });
+      }
+    };
+
+    TmmTaskManager.getInstance().addUnnamedTask(task).get(10, TimeUnit.SECONDS);
+    assertThat(TmmTaskManager.getInstance().awaitAllTasksFinished(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(imageDownloaded.get()).isTrue();
+    assertThat(TmmTaskManager.getInstance().isIdle()).isTrue();
+    assertThat(TmmTaskManager.getInstance().awaitImageDownloadsFinished(0, TimeUnit.SECONDS)).isTrue();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.tvshow;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.tinymediamanager.core.Settings;
+
+/**
+ * JMH benchmark for the TvShowEpisodeAndSeasonParser. Parses the whole golden corpus per invocation; once with a cold result cache (first update
+ * of a data source) and once with a warm cache (subsequent updates).<br>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.tinymediamanager.core.tvshow.TvShowEpisodeAndSeasonParserBenchmark
+ *
+ * @author Manuel Laggner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TvShowEpisodeAndSeasonParserBenchmark {
+  private List<String[]> corpus;
+
+  @Setup
+  public void setup() throws Exception {
+    Settings.getInstance("target/testdata/" + getClass().getName());
+
+    corpus = new ArrayList<>();
+    for (String line : Files.readAllLines(Paths.get("target/test-classes/tvshow/episode-parser-golden.txt"), StandardCharsets.UTF_8)) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\t", -1);
+      corpus.add(new String[] { fields[0], fields[1] });
+    }
+  }
+
+  @Benchmark
+  public void detectColdCache(Blackhole blackhole) {
+    TvShowEpisodeAndSeasonParser.clearCache();
+    parseCorpus(blackhole);
+  }
+
+  @Benchmark
+  public void detectWarmCache(Blackhole blackhole) {
+    parseCorpus(blackhole);
+  }
+
+  @Benchmark
+  public void cleanEpisodeTitle(Blackhole blackhole) {
+    for (String[] entry : corpus) {
+      blackhole.consume(TvShowEpisodeAndSeasonParser.cleanEpisodeTitle(entry[0], entry[1]));
+    }
+  }
+
+  private void parseCorpus(Blackhole blackhole) {
+    for (String[] entry : corpus) {
+      blackhole.consume(TvShowEpisodeAndSeasonParser.detectEpisodeFromFilenameAlternative(entry[0], entry[1]));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(TvShowEpisodeAndSeasonParserBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.core.tvshow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tinymediamanager.BasicTest;
+import org.tinymediamanager.core.Settings;
+import org.tinymediamanager.core.tvshow.TvShowEpisodeAndSeasonParser.EpisodeMatchingResult;
+
+/**
+ * Checks the TvShowEpisodeAndSeasonParser against a golden corpus of real world and synthetic file names
+ *
+ * @author Manuel Laggner
+ */
+public class TvShowEpisodeAndSeasonParserTest extends BasicTest {
+  private static final String GOLDEN_CORPUS = "target/test-classes/tvshow/episode-parser-golden.txt";
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    Settings.getInstance(getSettingsFolder());
+  }
+
+  @Test
+  public void testGoldenCorpus() throws Exception {
+    List<String> lines = Files.readAllLines(Paths.get(GOLDEN_CORPUS), StandardCharsets.UTF_8);
+    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+    int count = 0;
+
+    // run twice - the second run is served from the result cache
+    for (int i = 0; i < 2; i++) {
+      for (String line : lines) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("\t", -1);
+        assertEquals(line, 8, fields.length);
+
+        String input = fields[0];
+        String showname = fields[1];
+
+        EpisodeMatchingResult result = TvShowEpisodeAndSeasonParser.detectEpisodeFromFilenameAlternative(input, showname);
+        StringBuilder sb = new StringBuilder("S:" + result.season);
+        for (int ep : result.episodes) {
+          sb.append(" E:").append(ep);
+        }
+        assertEquals(input, fields[2], sb.toString());
+        assertEquals(input, fields[3], result.name);
+        assertEquals(input, fields[4], result.date == null ? "-" : sdf.format(result.date));
+        assertEquals(input, Boolean.parseBoolean(fields[5]), result.stackingMarkerFound);
+        assertEquals(input, fields[6], TvShowEpisodeAndSeasonParser.cleanEpisodeTitle(input, showname));
+        assertEquals(input, Integer.parseInt(fields[7]), TvShowEpisodeAndSeasonParser.detectSeason(input));
+        count++;
+      }
+    }
+    assertTrue(count > 0);
+  }
+
+  @Test
+  public void testCachedResultsAreCopies() {
+    EpisodeMatchingResult result1 = TvShowEpisodeAndSeasonParser.detect("Breaking Bad S05E01E02 HDTV.avi", "Breaking Bad");
+    result1.episodes.add(99);
+    result1.season = 99;
+    result1.name = "changed";
+
+    EpisodeMatchingResult result2 = TvShowEpisodeAndSeasonParser.detect("Breaking Bad S05E01E02 HDTV.avi", "Breaking Bad");
+    assertNotSame(result1, result2);
+    assertEquals(5, result2.season);
+    assertEquals(2, result2.episodes.size());
+    assertTrue(!"changed".equals(result2.name));
+  }
+}
@@ -15,7 +15,13 @@
  */
 package org.tinymediamanager.core.tvshow;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -69,6 +75,87 @@ public class TvShowTest extends BasicTest {
     }
   }
 
+  @Test
+  public void testEpisodeLookup() {
+    TvShow show = new TvShow();
+    show.setTitle("show");
+
+    List<TvShowEpisode> episodes = new ArrayList<>();
+    for (int i = 10; i > 0; i--) {
+      TvShowEpisode ep = new TvShowEpisode();
+      ep.setAiredSeason(1);
+      ep.setAiredEpisode(i);
+      ep.setTvShow(show);
+      ep.addToMediaFiles(new MediaFile(Paths.get("/path/to/show", "S01E" + i + ".avi")));
+      episodes.add(ep);
+    }
+    show.addEpisodes(episodes);
+
+    // sorted after adding
+    assertEquals(10, show.getEpisodeCount());
+    assertEquals(1, show.getEpisodes().get(0).getEpisode());
+    assertEquals(10, show.getEpisodes().get(9).getEpisode());
+
+    // lookup by season/episode
+    assertEquals(3, show.getEpisode(1, 3).getEpisode());
+    assertNull(show.getEpisode(2, 3));
+
+    // single add
+    TvShowEpisode ep = new TvShowEpisode();
+    ep.setAiredSeason(2);
+    ep.setAiredEpisode(1);
+    ep.setTvShow(show);
+    show.addEpisode(ep);
+    assertEquals(ep, show.getEpisode(2, 1));
+    assertEquals(ep, show.getEpisodes().get(10));
+
+    // changed numbering
+    ep.setAiredEpisode(2);
+    assertNull(show.getEpisode(2, 1));
+    assertEquals(ep, show.getEpisode(2, 2));
+
+    // lookup by file
+    File file = Paths.get("/path/to/show", "S01E5.avi").toFile();
+    List<TvShowEpisode> found = show.getEpisodesByFile(file);
+    assertEquals(1, found.size());
+    assertEquals(5, found.get(0).getEpisode());
+
+    MediaFile mf = new MediaFile(Paths.get("/path/to/show", "S02E02.avi"));
+    assertEquals(0, show.getEpisodesByFile(mf.getFile()).size());
+    ep.addToMediaFiles(mf);
+    assertEquals(ep, show.getEpisodesByFile(mf.getFile()).get(0));
+    ep.removeFromMediaFiles(mf);
+    assertEquals(0, show.getEpisodesByFile(mf.getFile()).size());
+
+    // a second batch is inserted in order
+    List<TvShowEpisode> moreEpisodes = new ArrayList<>();
+    for (int i = 20; i > 10; i -= 5) {
+      TvShowEpisode episode = new TvShowEpisode();
+      episode.setAiredSeason(1);
+      episode.setAiredEpisode(i);
+      episode.setTvShow(show);
+      moreEpisodes.add(episode);
+    }
+    show.addEpisodes(moreEpisodes);
+    assertEquals(13, show.getEpisodeCount());
+    assertEquals(15, show.getEpisodes().get(10).getEpisode());
+    assertEquals(20, show.getEpisodes().get(11).getEpisode());
+    assertEquals(ep, show.getEpisodes().get(12));
+
+    // changed numbering while the lookups are not built: the next add sorts the list again
+    TvShowEpisode first = show.getEpisodes().get(0);
+    first.setAiredSeason(3);
+    TvShowEpisode last = new TvShowEpisode();
+    last.setAiredSeason(1);
+    last.setAiredEpisode(30);
+    last.setTvShow(show);
+    show.addEpisode(last);
+    assertEquals(14, show.getEpisodeCount());
+    assertEquals(2, show.getEpisodes().get(0).getEpisode());
+    assertEquals(last, show.getEpisodes().get(11));
+    assertEquals(first, show.getEpisodes().get(13));
+  }
+
   /**
    * Test TV renamer
    * 
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.offline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.tinymediamanager.scraper.MediaMetadata;
+import org.tinymediamanager.scraper.MediaProviderInfo;
+import org.tinymediamanager.scraper.MediaScrapeOptions;
+import org.tinymediamanager.scraper.MediaSearchResult;
+import org.tinymediamanager.scraper.entities.MediaArtwork;
+import org.tinymediamanager.scraper.entities.MediaArtwork.MediaArtworkType;
+import org.tinymediamanager.scraper.entities.MediaType;
+import org.tinymediamanager.scraper.mediaprovider.IMediaProvider;
+
+/**
+ * The class OfflineMediaProvider. The base of the offline stand-in scrapers: they serve recorded responses from a local directory with a
+ * configurable latency and error injection, so the scraping path can be measured without network access (see ScrapeBenchmark).<br>
+ * The responses are stored as properties files: &lt;directory&gt;/&lt;movie|tvshow&gt;/&lt;id&gt;.properties with the keys title, originalTitle,
+ * year, plot, rating, votes, runtime, imdbId, tmdbId, poster and fanart.
+ *
+ * @author Manuel Laggner
+ */
+public abstract class OfflineMediaProvider implements IMediaProvider {
+  public static final String                  ID         = "offline";
+
+  private static final Map<String, Responses> RESPONSES  = new HashMap<>();
+  private static final AtomicInteger          CALLS      = new AtomicInteger();
+  private static final AtomicInteger          ERRORS     = new AtomicInteger();
+  private static volatile long                minLatency = 0;
+  private static volatile long                maxLatency = 0;
+  private static volatile double              errorRate  = 0;
+  private static volatile CallListener        callListener;
+
+  private final MediaProviderInfo             providerInfo;
+  private final MediaType                     type;
+  private final String                        folder;
+
+  /**
+   * gets informed about every call of the offline scrapers
+   */
+  public interface CallListener {
+    /**
+     * a call for the response with the given id has been finished (also if an error has been injected)
+     */
+    void called(String id, long startNanos, long endNanos);
+  }
+
+  protected OfflineMediaProvider(MediaType type, String folder, String name) {
+    this.type = type;
+    this.folder = folder;
+    this.providerInfo = new MediaProviderInfo(ID, name, "serves recorded responses from a local directory (for benchmarks and tests)");
+  }
+
+  @Override
+  public MediaProviderInfo getProviderInfo() {
+    return providerInfo;
+  }
+
+  /**
+   * load all recorded responses from the given directory
+   * 
+   * @param directory
+   *          the directory with the sub folders movie and tvshow
+   * @throws IOException
+   *           if the responses could not be read
+   */
+  public static void loadResponses(Path directory) throws IOException {
+    Map<String, Responses> responses = new HashMap<>();
+    for (String folder : new String[] { "movie", "tvshow" }) {
+      Responses folderResponses = new Responses();
+      Path path = directory.resolve(folder);
+      if (Files.isDirectory(path)) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.properties")) {
+          for (Path file : stream) {
+            Properties response = new Properties();
+            try (InputStream is = Files.newInputStream(file)) {
+              response.load(is);
+            }
+            folderResponses.add(StringUtils.removeEnd(file.getFileName().toString(), ".properties"), response);
+          }
+        }
+      }
+      responses.put(folder, folderResponses);
+    }
+
+    synchronized (RESPONSES) {
+      RESPONSES.clear();
+      RESPONSES.putAll(responses);
+    }
+  }
+
+  /**
+   * record a response
+   * 
+   * @param directory
+   *          the directory with the recorded responses
+   * @param folder
+   *          movie or tvshow
+   * @param id
+   *          the id of the response at the offline scraper
+   * @param response
+   *          the response
+   * @throws IOException
+   *           if the response could not be written
+   */
+  public static void saveResponse(Path directory, String folder, String id, Properties response) throws IOException {
+    Path path = directory.resolve(folder);
+    Files.createDirectories(path);
+    try (OutputStream os = Files.newOutputStream(path.resolve(id + ".properties"))) {
+      response.store(os, null);
+    }
+  }
+
+  /**
+   * set the latency of every call: a random value between min and max
+   */
+  public static void setLatency(long minMillis, long maxMillis) {
+    minLatency = minMillis;
+    maxLatency = Math.max(minMillis, maxMillis);
+  }
+
+  /**
+   * set the share of calls which fail with an IOException (0 - 1)
+   */
+  public static void setErrorRate(double rate) {
+    errorRate = rate;
+  }
+
+  public static void setCallListener(CallListener listener) {
+    callListener = listener;
+  }
+
+  public static int getCallCount() {
+    return CALLS.get();
+  }
+
+  public static int getErrorCount() {
+    return ERRORS.get();
+  }
+
+  public static void resetStatistics() {
+    CALLS.set(0);
+    ERRORS.set(0);
+  }
+
+  private Responses getResponses() {
+    synchronized (RESPONSES) {
+      Responses responses = RESPONSES.get(folder);
+      return responses != null ? responses : new Responses();
+    }
+  }
+
+  /**
+   * simulate the network: wait for the latency and inject errors
+   */
+  private void call(String id) throws IOException {
+    long start = System.nanoTime();
+    CALLS.incrementAndGet();
+    try {
+      if (maxLatency > 0) {
+        Thread.sleep(minLatency + (maxLatency > minLatency ? ThreadLocalRandom.current().nextLong(maxLatency - minLatency + 1) : 0));
+      }
+      if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+        ERRORS.incrementAndGet();
+        throw new IOException("injected error");
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    finally {
+      CallListener listener = callListener;
+      if (listener != null && id != null) {
+        listener.called(id, start, System.nanoTime());
+      }
+    }
+  }
+
+  protected List<MediaSearchResult> search(String query, String imdbId, int tmdbId) throws Exception {
+    Responses responses = getResponses();
+    String id = responses.find(imdbId, tmdbId);
+    if (id == null && StringUtils.isNotBlank(query)) {
+      id = responses.idsByTitle.get(query.toLowerCase(Locale.ROOT));
+    }
+    call(id);
+
+    List<MediaSearchResult> results = new ArrayList<>();
+    if (id != null) {
+      Properties response = responses.byId.get(id);
+      results.add(new MediaSearchResult(ID, type, id, response.getProperty("title"), getInt(response, "year"), 1f));
+    }
+    return results;
+  }
+
+  protected MediaMetadata getMetadata(MediaScrapeOptions options) throws Exception {
+    Responses responses = getResponses();
+    String id = getId(options, responses);
+    call(id);
+    if (id == null) {
+      throw new IOException("no recorded response");
+    }
+
+    Properties response = responses.byId.get(id);
+    MediaMetadata md = new MediaMetadata(ID);
+    md.setId(ID, id);
+    if (StringUtils.isNotBlank(response.getProperty("imdbId"))) {
+      md.setId(MediaMetadata.IMDB, response.getProperty("imdbId"));
+    }
+    if (getInt(response, "tmdbId") > 0) {
+      md.setId(MediaMetadata.TMDB, getInt(response, "tmdbId"));
+    }
+    md.setTitle(response.getProperty("title", ""));
+    md.setOriginalTitle(response.getProperty("originalTitle", ""));
+    md.setPlot(response.getProperty("plot", ""));
+    md.setYear(getInt(response, "year"));
+    md.setRating(Float.parseFloat(response.getProperty("rating", "0")));
+    md.setVoteCount(getInt(response, "votes"));
+    md.setRuntime(getInt(response, "runtime"));
+    return md;
+  }
+
+  protected List<MediaArtwork> getArtwork(MediaScrapeOptions options) throws Exception {
+    Responses responses = getResponses();
+    String id = getId(options, responses);
+    call(id);
+
+    List<MediaArtwork> artwork = new ArrayList<>();
+    if (id != null) {
+      Properties response = responses.byId.get(id);
+      addArtwork(artwork, options, MediaArtworkType.POSTER, response.getProperty("poster"));
+      addArtwork(artwork, options, MediaArtworkType.BACKGROUND, response.getProperty("fanart"));
+    }
+    return artwork;
+  }
+
+  private void addArtwork(List<MediaArtwork> artwork, MediaScrapeOptions options, MediaArtworkType artworkType, String url) {
+    if (StringUtils.isBlank(url) || (options.getArtworkType() != MediaArtworkType.ALL && options.getArtworkType() != artworkType)) {
+      return;
+    }
+    MediaArtwork ma = new MediaArtwork(ID, artworkType);
+    ma.setDefaultUrl(url);
+    ma.setPreviewUrl(url);
+    artwork.add(ma);
+  }
+
+  private String getId(MediaScrapeOptions options, Responses responses) {
+    Object id = options.getId(ID);
+    if (id != null && responses.byId.containsKey(id.toString())) {
+      return id.toString();
+    }
+    if (options.getResult() != null && ID.equals(options.getResult().getProviderId())) {
+      return options.getResult().getId();
+    }
+    return responses.find(options.getImdbId(), options.getTmdbId());
+  }
+
+  private static int getInt(Properties response, String key) {
+    try {
+      return Integer.parseInt(response.getProperty(key, "0"));
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * the recorded responses of one type with the indices for the lookups
+   */
+  private static class Responses {
+    private final Map<String, Properties> byId        = new HashMap<>();
+    private final Map<String, String>     idsByTitle  = new HashMap<>();
+    private final Map<String, String>     idsByImdbId = new HashMap<>();
+    private final Map<String, String>     idsByTmdbId = new HashMap<>();
+
+    private void add(String id, Properties response) {
+      byId.put(id, response);
+      idsByTitle.put(response.getProperty("title", "").toLowerCase(Locale.ROOT), id);
+      if (StringUtils.isNotBlank(response.getProperty("imdbId"))) {
+        idsByImdbId.put(response.getProperty("imdbId"), id);
+      }
+      if (StringUtils.isNotBlank(response.getProperty("tmdbId"))) {
+        idsByTmdbId.put(response.getProperty("tmdbId"), id);
+      }
+    }
+
+    private String find(String imdbId, int tmdbId) {
+      String id = null;
+      if (StringUtils.isNotBlank(imdbId)) {
+        id = idsByImdbId.get(imdbId);
+      }
+      if (id == null && tmdbId > 0) {
+        id = idsByTmdbId.get(Integer.toString(tmdbId));
+      }
+      return id;
+    }
+  }
+}
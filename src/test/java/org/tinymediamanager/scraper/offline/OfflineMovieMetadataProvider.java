@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.offline;
+
+import java.util.List;
+
+import org.tinymediamanager.scraper.MediaMetadata;
+import org.tinymediamanager.scraper.MediaScrapeOptions;
+import org.tinymediamanager.scraper.MediaSearchOptions;
+import org.tinymediamanager.scraper.MediaSearchResult;
+import org.tinymediamanager.scraper.entities.MediaArtwork;
+import org.tinymediamanager.scraper.entities.MediaType;
+import org.tinymediamanager.scraper.mediaprovider.IMovieArtworkProvider;
+import org.tinymediamanager.scraper.mediaprovider.IMovieMetadataProvider;
+
+import net.xeoh.plugins.base.annotations.PluginImplementation;
+
+/**
+ * The class OfflineMovieMetadataProvider. An offline stand-in for the movie metadata and artwork scrapers
+ *
+ * @author Manuel Laggner
+ */
+@PluginImplementation
+public class OfflineMovieMetadataProvider extends OfflineMediaProvider implements IMovieMetadataProvider, IMovieArtworkProvider {
+
+  public OfflineMovieMetadataProvider() {
+    super(MediaType.MOVIE, "movie", "Offline movies");
+  }
+
+  @Override
+  public List<MediaSearchResult> search(MediaSearchOptions options) throws Exception {
+    return search(options.getQuery(), options.getImdbId(), options.getTmdbId());
+  }
+
+  @Override
+  public MediaMetadata getMetadata(MediaScrapeOptions options) throws Exception {
+    return super.getMetadata(options);
+  }
+
+  @Override
+  public List<MediaArtwork> getArtwork(MediaScrapeOptions options) throws Exception {
+    return super.getArtwork(options);
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 - 2018 Manuel Laggner
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tinymediamanager.scraper.offline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.tinymediamanager.scraper.MediaMetadata;
+import org.tinymediamanager.scraper.MediaScrapeOptions;
+import org.tinymediamanager.scraper.MediaSearchOptions;
+import org.tinymediamanager.scraper.MediaSearchResult;
+import org.tinymediamanager.scraper.entities.MediaArtwork;
+import org.tinymediamanager.scraper.entities.MediaEpisode;
+import org.tinymediamanager.scraper.entities.MediaType;
+import org.tinymediamanager.scraper.mediaprovider.ITvShowArtworkProvider;
+import org.tinymediamanager.scraper.mediaprovider.ITvShowMetadataProvider;
+
+import net.xeoh.plugins.base.annotations.PluginImplementation;
+
+/**
+ * The class OfflineTvShowMetadataProvider. An offline stand-in for the TV show metadata and artwork scrapers (no episodes are recorded)
+ *
+ * @author Manuel Laggner
+ */
+@PluginImplementation
+public class OfflineTvShowMetadataProvider extends OfflineMediaProvider implements ITvShowMetadataProvider, ITvShowArtworkProvider {
+
+  public OfflineTvShowMetadataProvider() {
+    super(MediaType.TV_SHOW, "tvshow", "Offline TV shows");
+  }
+
+  @Override
+  public List<MediaSearchResult> search(MediaSearchOptions options) throws Exception {
+    return search(options.getQuery(), options.getImdbId(), options.getTmdbId());
+  }
+
+  @Override
+  public MediaMetadata getMetadata(MediaScrapeOptions options) throws Exception {
+    return super.getMetadata(options);
+  }
+
+  @Override
+  public List<MediaEpisode> getEpisodeList(MediaScrapeOptions options) throws Exception {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<MediaArtwork> getArtwork(MediaScrapeOptions options) throws Exception {
+    return super.getArtwork(options);
+  }
+}